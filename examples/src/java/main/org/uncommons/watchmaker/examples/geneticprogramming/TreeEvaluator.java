@@ -17,7 +17,7 @@ package org.uncommons.watchmaker.examples.geneticprogramming;
 
 import java.util.List;
 import java.util.Map;
-import org.uncommons.watchmaker.framework.FitnessEvaluator;
+import org.uncommons.watchmaker.framework.BoundedFitnessEvaluator;
 
 /**
  * Fitness function for the genetic programming example application.
@@ -26,9 +26,10 @@ import org.uncommons.watchmaker.framework.FitnessEvaluator;
  * for all sets of inputs then it has a fitness of zero.  Otherwise, its fitness
  * is an error value that indicates how accurate it was (the larger the combined
  * error value, the less accurate the function is). 
+ * When given a cutoff, evaluation stops as soon as the combined error exceeds it.
  * @author Daniel Dyer
  */
-public class TreeEvaluator implements FitnessEvaluator<Node>
+public class TreeEvaluator implements BoundedFitnessEvaluator<Node>
 {
     private final Map<double[], Double> data;
 
@@ -55,6 +56,21 @@ public class TreeEvaluator implements FitnessEvaluator<Node>
      * @return The fitness score for the specified candidate.
      */
     public double getFitness(Node candidate, List<? extends Node> population)
+    {
+        return getFitness(candidate, population, Double.POSITIVE_INFINITY);
+    }
+
+
+    /**
+     * Calculates the combined error in the same way as {@link #getFitness(Node, List)},
+     * but stops testing the program as soon as the error exceeds the cutoff.
+     * @param candidate The program tree to evaluate.
+     * @param population Ignored by this implementation.
+     * @param cutoff The error beyond which the exact score is not required.
+     * @return The fitness score for the specified candidate, or the partial error
+     * if it exceeds the cutoff.
+     */
+    public double getFitness(Node candidate, List<? extends Node> population, double cutoff)
     {
         double error = 0;
         for (Map.Entry<double[], Double> entry : data.entrySet())
@@ -62,6 +78,10 @@ public class TreeEvaluator implements FitnessEvaluator<Node>
             double actualValue = candidate.evaluate(entry.getKey());
             double diff = actualValue - entry.getValue();
             error += (diff * diff);
+            if (error > cutoff)
+            {
+                break;
+            }
         }
         return error;
     }
@@ -0,0 +1,55 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.examples.geneticprogramming;
+
+import org.uncommons.watchmaker.framework.GenotypeKey;
+import org.uncommons.watchmaker.framework.StructuralGenotypeKey;
+
+/**
+ * Fingerprints program trees by their structure.  Two trees have the same fingerprint
+ * if they have the same shape and corresponding nodes are of the same type with the same
+ * labels (for constants, the exact values are used rather than the rounded labels).
+ * @author Daniel Dyer
+ */
+public class TreeGenotypeKey implements GenotypeKey<Node>
+{
+    /**
+     * {@inheritDoc}
+     */
+    public long getFingerprint(Node candidate)
+    {
+        long fingerprint = candidate.getClass().getName().hashCode();
+        if (candidate instanceof Constant)
+        {
+            // Constants ignore the program parameters.
+            fingerprint = StructuralGenotypeKey.combine(fingerprint,
+                                                        Double.doubleToLongBits(candidate.evaluate(null)));
+        }
+        else
+        {
+            String label = candidate.getLabel();
+            for (int i = 0; i < label.length(); i++)
+            {
+                fingerprint = StructuralGenotypeKey.combine(fingerprint, label.charAt(i));
+            }
+        }
+        for (int i = 0; i < candidate.getArity(); i++)
+        {
+            fingerprint = StructuralGenotypeKey.combine(fingerprint, getFingerprint(candidate.getChild(i)));
+        }
+        return fingerprint;
+    }
+}
@@ -42,8 +42,10 @@ import org.uncommons.watchmaker.examples.AbstractExampleApplet;
 import org.uncommons.watchmaker.framework.CachingFitnessEvaluator;
 import org.uncommons.watchmaker.framework.EvolutionEngine;
 import org.uncommons.watchmaker.framework.EvolutionaryOperator;
+import org.uncommons.watchmaker.framework.FitnessCache;
 import org.uncommons.watchmaker.framework.FitnessEvaluator;
 import org.uncommons.watchmaker.framework.GenerationalEvolutionEngine;
+import org.uncommons.watchmaker.framework.LRUFitnessCache;
 import org.uncommons.watchmaker.framework.SelectionStrategy;
 import org.uncommons.watchmaker.framework.TerminationCondition;
 import org.uncommons.watchmaker.framework.interactive.Renderer;
@@ -62,6 +64,9 @@ import org.uncommons.watchmaker.swing.evolutionmonitor.EvolutionMonitor;
  */
 public class MonaLisaApplet extends AbstractExampleApplet
 {
+    // Fitness scores are cached for long enough to recognise images that re-appear in
+    // the next few generations.
+    private static final int CACHED_GENERATIONS = 4;
     private static final String IMAGE_PATH = "org/uncommons/watchmaker/examples/monalisa/monalisa.jpg";
 
     private ProbabilitiesPanel probabilitiesPanel;
@@ -209,8 +214,11 @@ public class MonaLisaApplet extends AbstractExampleApplet
             Dimension canvasSize = new Dimension(targetImage.getWidth(), targetImage.getHeight());
 
             Random rng = new XORShiftRNG();
+            FitnessCache<List<ColouredPolygon>> cache
+                = new LRUFitnessCache<List<ColouredPolygon>>(populationSize * CACHED_GENERATIONS,
+                                                             new PolygonImageGenotypeKey());
             FitnessEvaluator<List<ColouredPolygon>> evaluator
-                = new CachingFitnessEvaluator<List<ColouredPolygon>>(new PolygonImageEvaluator(targetImage));
+                = new CachingFitnessEvaluator<List<ColouredPolygon>>(new PolygonImageEvaluator(targetImage), cache);
             PolygonImageFactory factory = new PolygonImageFactory(canvasSize);
             EvolutionaryOperator<List<ColouredPolygon>> pipeline
                 = probabilitiesPanel.createEvolutionPipeline(factory, canvasSize, rng);
@@ -21,16 +21,18 @@ import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.awt.image.Raster;
 import java.util.List;
-import org.uncommons.watchmaker.framework.FitnessEvaluator;
+import org.uncommons.watchmaker.framework.BoundedFitnessEvaluator;
 import org.uncommons.watchmaker.framework.interactive.Renderer;
 
 /**
  * Compares the generated polygon-based images to the target bitmap.  The polygon images
  * are rendered the same size as the target image and then each pixel is compared.  The
  * fitness value is a combination of the differences for each pixel.  Lower fitness is better. 
+ * When given a cutoff, the comparison stops at the end of the first row of pixels at which
+ * the accumulated difference exceeds the cutoff.
  * @author Daniel Dyer
  */
-public class PolygonImageEvaluator implements FitnessEvaluator<List<ColouredPolygon>>
+public class PolygonImageEvaluator implements BoundedFitnessEvaluator<List<ColouredPolygon>>
 {
     // This field is marked as transient, even though the class is not Serializable, because
     // Terracotta will respect the fact it is transient and not try to share it.
@@ -112,6 +114,23 @@ public class PolygonImageEvaluator implements FitnessEvaluator<List<ColouredPoly
      */
     public double getFitness(List<ColouredPolygon> candidate,
                              List<? extends List<ColouredPolygon>> population)
+    {
+        return getFitness(candidate, population, Double.POSITIVE_INFINITY);
+    }
+
+
+    /**
+     * Render the polygons as an image and then compare it against the target image
+     * pixel-by-pixel, stopping early if the total error exceeds the cutoff.
+     * @param candidate The image to evaluate.
+     * @param population Not used.
+     * @param cutoff The error beyond which the exact score is not required.
+     * @return A number indicating how close the candidate image is to the target image
+     * (lower is better), or the partial error if it exceeds the cutoff.
+     */
+    public double getFitness(List<ColouredPolygon> candidate,
+                             List<? extends List<ColouredPolygon>> population,
+                             double cutoff)
     {
         // Use one renderer per thread because they are not thread safe.
         Renderer<List<ColouredPolygon>, BufferedImage> renderer = threadLocalRenderer.get();
@@ -133,9 +152,13 @@ public class PolygonImageEvaluator implements FitnessEvaluator<List<ColouredPoly
                                                                           candidateImageData.getHeight(),
                                                                           candidatePixelValues);
         double fitness = 0;
-        for (int i = 0; i < targetPixels.length; i++)
+        for (int i = 0; i < targetPixels.length && fitness <= cutoff; i += width)
         {
-            fitness += comparePixels(targetPixels[i], candidatePixelValues[i]);
+            // Only check the cutoff once per row to keep the inner loop tight.
+            for (int j = i; j < i + width; j++)
+            {
+                fitness += comparePixels(targetPixels[j], candidatePixelValues[j]);
+            }
         }
 
         return fitness;
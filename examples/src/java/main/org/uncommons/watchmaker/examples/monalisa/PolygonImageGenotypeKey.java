@@ -0,0 +1,49 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.examples.monalisa;
+
+import java.awt.Point;
+import java.util.List;
+import org.uncommons.watchmaker.framework.GenotypeKey;
+import org.uncommons.watchmaker.framework.StructuralGenotypeKey;
+
+/**
+ * Fingerprints polygon images so that the fitness scores of identical images can be
+ * cached without keeping the images themselves alive.  Two images have the same
+ * fingerprint if they consist of the same polygons, with the same colours and vertices,
+ * in the same order.
+ * @author Daniel Dyer
+ */
+public class PolygonImageGenotypeKey implements GenotypeKey<List<ColouredPolygon>>
+{
+    /**
+     * {@inheritDoc}
+     */
+    public long getFingerprint(List<ColouredPolygon> candidate)
+    {
+        long fingerprint = candidate.size();
+        for (ColouredPolygon polygon : candidate)
+        {
+            fingerprint = StructuralGenotypeKey.combine(fingerprint, polygon.getColour().getRGB());
+            fingerprint = StructuralGenotypeKey.combine(fingerprint, polygon.getVertices().size());
+            for (Point vertex : polygon.getVertices())
+            {
+                fingerprint = StructuralGenotypeKey.combine(fingerprint, ((long) vertex.x << 32) | vertex.y);
+            }
+        }
+        return fingerprint;
+    }
+}
@@ -0,0 +1,46 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.examples.sudoku;
+
+import org.uncommons.watchmaker.framework.GenotypeKey;
+import org.uncommons.watchmaker.framework.StructuralGenotypeKey;
+
+/**
+ * Fingerprints Sudoku grids by the values in their cells.  The cells that are fixed are
+ * the same for every candidate solution of a puzzle, so they are not distinguished.
+ * @author Daniel Dyer
+ */
+public class SudokuGenotypeKey implements GenotypeKey<Sudoku>
+{
+    /**
+     * {@inheritDoc}
+     */
+    public long getFingerprint(Sudoku candidate)
+    {
+        long fingerprint = 0;
+        for (int row = 0; row < Sudoku.SIZE; row++)
+        {
+            // Pack each row into a single value (4 bits per cell is enough for 1-9).
+            long rowValues = 0;
+            for (int column = 0; column < Sudoku.SIZE; column++)
+            {
+                rowValues = (rowValues << 4) | candidate.getValue(row, column);
+            }
+            fingerprint = StructuralGenotypeKey.combine(fingerprint, rowValues);
+        }
+        return fingerprint;
+    }
+}
@@ -23,10 +23,10 @@ import java.util.Random;
 import org.uncommons.maths.random.MersenneTwisterRNG;
 import org.uncommons.maths.random.PoissonGenerator;
 import org.uncommons.watchmaker.framework.CandidateFactory;
-import org.uncommons.watchmaker.framework.EvolutionEngine;
 import org.uncommons.watchmaker.framework.EvolutionObserver;
 import org.uncommons.watchmaker.framework.EvolutionaryOperator;
 import org.uncommons.watchmaker.framework.GenerationalEvolutionEngine;
+import org.uncommons.watchmaker.framework.ModificationTracker;
 import org.uncommons.watchmaker.framework.PopulationData;
 import org.uncommons.watchmaker.framework.SelectionStrategy;
 import org.uncommons.watchmaker.framework.factories.ListPermutationFactory;
@@ -119,22 +119,31 @@ public class EvolutionaryTravellingSalesman implements TravellingSalesmanStrateg
         {
             operators.add(new ListOrderCrossover<String>());
         }
+        // Mutations are recorded so that mutated routes can be measured incrementally from the
+        // lengths of the routes that they were derived from.  Those lengths are only known for
+        // members of the previous generation, so this is only worthwhile without cross-over
+        // (the parents of mutated routes would otherwise be the new offspring of cross-over).
+        ModificationTracker<List<String>> modificationTracker = crossover
+                                                                ? null
+                                                                : new ModificationTracker<List<String>>();
         if (mutation)
         {
             operators.add(new ListOrderMutation<String>(new PoissonGenerator(1.5, rng),
-                                                        new PoissonGenerator(1.5, rng)));
+                                                        new PoissonGenerator(1.5, rng),
+                                                        modificationTracker));
         }
 
         EvolutionaryOperator<List<String>> pipeline = new EvolutionPipeline<List<String>>(operators);
 
         CandidateFactory<List<String>> candidateFactory
             = new ListPermutationFactory<String>(new LinkedList<String>(cities));
-        EvolutionEngine<List<String>> engine
+        GenerationalEvolutionEngine<List<String>> engine
             = new GenerationalEvolutionEngine<List<String>>(candidateFactory,
                                                             pipeline,
                                                             new RouteEvaluator(distances),
                                                             selectionStrategy,
                                                             rng);
+        engine.setModificationTracker(modificationTracker);
         if (progressListener != null)
         {
             engine.addEvolutionObserver(new EvolutionObserver<List<String>>()
@@ -15,18 +15,21 @@
 //=============================================================================
 package org.uncommons.watchmaker.examples.travellingsalesman;
 
+import java.util.Arrays;
 import java.util.List;
-import org.uncommons.watchmaker.framework.FitnessEvaluator;
+import org.uncommons.watchmaker.framework.IncrementalFitnessEvaluator;
+import org.uncommons.watchmaker.framework.Modification;
 
 /**
  * Fitness evalator that measures the total distance of a route in the travelling salesman
  * problem.  The fitness score of a route is the total distance (in km).  A route
  * is represented as a list of cities in the order that they will be visited.
  * The last leg of the journey is from the last city in the list back to the
- * first.
+ * first.  When a route is derived from another by moving a few cities, only the
+ * legs either side of the moved cities need to be re-measured.
  * @author Daniel Dyer
  */
-public class RouteEvaluator implements FitnessEvaluator<List<String>>
+public class RouteEvaluator implements IncrementalFitnessEvaluator<List<String>>
 {
     private final DistanceLookup distances;
 
@@ -62,6 +65,49 @@ public class RouteEvaluator implements FitnessEvaluator<List<String>>
     }
 
 
+    /**
+     * Calculates the length of a route from the length of the route that it was
+     * derived from by re-measuring only the legs that start or end at a modified
+     * position.
+     * @param candidate The route to evaluate.
+     * @param modification The parent route and the positions that differ from it.
+     * @param parentFitness The total distance of the parent route.
+     * @param population {@inheritDoc}
+     * @return The total distance (in kilometres) of a journey that visits
+     * each city in order and returns to the starting point.
+     */
+    public double getFitness(List<String> candidate,
+                             Modification<? extends List<String>> modification,
+                             double parentFitness,
+                             List<? extends List<String>> population)
+    {
+        List<String> parent = modification.getParent();
+        int cityCount = candidate.size();
+        // Each modified position affects the leg that arrives there and the leg that departs.
+        int[] legs = new int[modification.getModifiedPositionCount() * 2];
+        for (int i = 0; i < modification.getModifiedPositionCount(); i++)
+        {
+            int position = modification.getModifiedPosition(i);
+            legs[i * 2] = position > 0 ? position - 1 : cityCount - 1;
+            legs[i * 2 + 1] = position;
+        }
+        Arrays.sort(legs);
+        // Distances are whole numbers of kilometres, so the change is calculated exactly and
+        // no rounding error accumulates over long chains of incremental evaluations.
+        int change = 0;
+        for (int i = 0; i < legs.length; i++)
+        {
+            if (i == 0 || legs[i] != legs[i - 1])
+            {
+                int nextIndex = legs[i] < cityCount - 1 ? legs[i] + 1 : 0;
+                change += distances.getDistance(candidate.get(legs[i]), candidate.get(nextIndex))
+                          - distances.getDistance(parent.get(legs[i]), parent.get(nextIndex));
+            }
+        }
+        return parentFitness + change;
+    }
+
+
     /**
      * {@inheritDoc}
      * Returns false since shorter distances represent fitter candidates.
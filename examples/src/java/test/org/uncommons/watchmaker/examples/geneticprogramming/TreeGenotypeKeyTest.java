@@ -0,0 +1,59 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.examples.geneticprogramming;
+
+import org.testng.annotations.Test;
+import org.uncommons.watchmaker.framework.GenotypeKey;
+
+/**
+ * Unit test for the {@link TreeGenotypeKey} class.
+ * @author Daniel Dyer
+ */
+public class TreeGenotypeKeyTest
+{
+    private final GenotypeKey<Node> key = new TreeGenotypeKey();
+
+    @Test
+    public void testEquivalentTrees()
+    {
+        Node tree1 = new Addition(new Parameter(0), new Multiplication(new Constant(2), new Parameter(1)));
+        Node tree2 = new Addition(new Parameter(0), new Multiplication(new Constant(2), new Parameter(1)));
+        assert key.getFingerprint(tree1) == key.getFingerprint(tree2) : "Equivalent trees should match.";
+    }
+
+
+    @Test
+    public void testDifferentTrees()
+    {
+        Node tree = new Addition(new Parameter(0), new Parameter(1));
+        assert key.getFingerprint(tree) != key.getFingerprint(new Addition(new Parameter(1), new Parameter(0)))
+            : "Order of arguments should be significant.";
+        assert key.getFingerprint(tree) != key.getFingerprint(new Subtraction(new Parameter(0), new Parameter(1)))
+            : "Different functions should not match.";
+    }
+
+
+    /**
+     * Constants that have the same (rounded) label but different values must be
+     * distinguished.
+     */
+    @Test
+    public void testConstants()
+    {
+        assert key.getFingerprint(new Constant(1.001)) != key.getFingerprint(new Constant(1.002))
+            : "Different constants should not match.";
+    }
+}
@@ -18,6 +18,7 @@ package org.uncommons.watchmaker.examples.travellingsalesman;
 import java.util.Arrays;
 import java.util.List;
 import org.testng.annotations.Test;
+import org.uncommons.watchmaker.framework.Modification;
 
 /**
  * Unit test for the route evaluator used by both Travelling Salesman
@@ -67,4 +68,34 @@ public class RouteEvaluatorTest
     }
 
 
+    /**
+     * Measuring a route from the route that it was derived from should give the same
+     * result as measuring it from scratch, including when the first or last city moves.
+     */
+    @Test
+    public void testIncrementalCalculation()
+    {
+        RouteEvaluator evaluator = new RouteEvaluator(new TestDistances());
+
+        List<String> parent = Arrays.asList("City4", "City1", "City3", "City2");
+        double parentDistance = evaluator.getFitness(parent, null);
+
+        List<String> route1 = Arrays.asList("City4", "City1", "City2", "City3");
+        double expectedDistance1 = evaluator.getFitness(route1, null);
+        double actualDistance1 = evaluator.getFitness(route1,
+                                                      new Modification<List<String>>(parent, new int[]{2, 3}),
+                                                      parentDistance,
+                                                      null);
+        assert actualDistance1 == expectedDistance1 : "Distance should be " + expectedDistance1 + ", was " + actualDistance1;
+
+        List<String> route2 = Arrays.asList("City2", "City1", "City3", "City4");
+        double expectedDistance2 = evaluator.getFitness(route2, null);
+        double actualDistance2 = evaluator.getFitness(route2,
+                                                      new Modification<List<String>>(parent, new int[]{0, 3}),
+                                                      parentDistance,
+                                                      null);
+        assert actualDistance2 == expectedDistance2 : "Distance should be " + expectedDistance2 + ", was " + actualDistance2;
+    }
+
+
 }
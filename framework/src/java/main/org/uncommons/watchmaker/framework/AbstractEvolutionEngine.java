@@ -15,25 +15,67 @@
 //=============================================================================
 package org.uncommons.watchmaker.framework;
 
+import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.uncommons.watchmaker.framework.termination.UserAbort;
 
 /**
- * Base class for {@link EvolutionEngine} implementations.
+ * <p>Base class for {@link EvolutionEngine} implementations.</p>
+ *
+ * <p>Unless configured otherwise, all engines share a single
+ * {@link FitnessEvaluationWorker} for performing concurrent fitness evaluations.
+ * Each engine can instead be given its own worker, either by specifying a
+ * {@link #setParallelism(int) level of parallelism} (in which case the engine creates
+ * and manages its own worker) or by {@link #setFitnessEvaluationWorker(FitnessEvaluationWorker)
+ * providing an existing worker}.  An engine that has created its own worker should be
+ * {@link #close() closed} when it is no longer needed so that the worker's threads are
+ * released.</p>
  * @param <T> The type of entity evolved by the evolution engine.
  * @author Daniel Dyer
  * @see CandidateFactory
  * @see FitnessEvaluator
  */
-public abstract class AbstractEvolutionEngine<T> implements EvolutionEngine<T>
+public abstract class AbstractEvolutionEngine<T> implements EvolutionEngine<T>, Closeable
 {
+    /**
+     * Special value for the {@link #setEvaluationChunkSize(int) evaluation chunk size}
+     * that causes the size of each chunk to be determined automatically from the
+     * population size and the number of fitness evaluation threads.
+     */
+    public static final int AUTOMATIC_CHUNK_SIZE = 0;
+
+    /**
+     * Special value for the {@link #setEvaluationChunkSize(int) evaluation chunk size}
+     * that causes chunks to be claimed dynamically by idle threads, with chunk sizes
+     * decreasing as the amount of remaining work decreases (guided self-scheduling).
+     */
+    public static final int GUIDED_CHUNK_SIZE = -1;
+
+    // When chunks are sized automatically, each thread gets several chunks so that a
+    // thread that is given a slow chunk does not hold up the rest of the generation.
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // How often (in nanoseconds) to check whether the user has aborted the evolution
+    // while waiting for fitness evaluations to complete.
+    private static final long ABORT_POLL_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
     // A single multi-threaded worker is shared among multiple evolution engine instances.
     private static FitnessEvaluationWorker concurrentWorker = null;
 
@@ -44,6 +86,40 @@ public abstract class AbstractEvolutionEngine<T> implements EvolutionEngine<T>
     private final FitnessEvaluator<? super T> fitnessEvaluator;
 
     private volatile boolean singleThreaded = false;
+    private volatile int evaluationChunkSize = 1;
+    private volatile boolean reuseFitnessScores = false;
+    private volatile ModificationTracker<T> modificationTracker = null;
+    private volatile double boundedEvaluationProportion = 0;
+    // The cutoff score for bounded evaluation of the current generation, NaN if none applies.
+    private volatile double evaluationCutoff = Double.NaN;
+
+    // Time limits are in nanoseconds, zero means no limit.
+    private volatile long candidateTimeLimit = 0;
+    private volatile long generationTimeLimit = 0;
+    private volatile TimeoutPolicy timeoutPolicy = TimeoutPolicy.WORST_FITNESS;
+    // The elite count of the current evolution.  The DROP policy may not leave fewer than
+    // one more than this number of candidates, and elite candidates are never replaced as
+    // duplicates.
+    private volatile int eliteCount = 0;
+    // Any conditions that the user may trigger while evaluations are in progress.
+    private volatile List<UserAbort> abortConditions = Collections.emptyList();
+    // Set if evaluation of the current generation was abandoned due to an abort or interrupt.
+    private volatile boolean evaluationAbandoned = false;
+
+    private volatile DuplicatePolicy duplicatePolicy = DuplicatePolicy.EVALUATE_ALL;
+    private volatile GenotypeKey<? super T> duplicateKey = null;
+
+    private volatile RandomStreams randomStreams = null;
+    // The number of evolutions started with random streams, each run gets its own streams.
+    private int runCount = 0;
+    // The RNG for the current generation (the engine's RNG unless random streams are used).
+    private volatile Random generationRNG;
+
+    // If the application provides a worker, the application is responsible for shutting it down.
+    private FitnessEvaluationWorker providedWorker = null;
+    // If this engine creates its own worker, it is responsible for shutting it down.
+    private FitnessEvaluationWorker ownWorker = null;
+    private int ownWorkerThreadCount = 0;
 
     private List<TerminationCondition> satisfiedTerminationConditions;
 
@@ -65,11 +141,14 @@ public abstract class AbstractEvolutionEngine<T> implements EvolutionEngine<T>
         this.candidateFactory = candidateFactory;
         this.fitnessEvaluator = fitnessEvaluator;
         this.rng = rng;
+        this.generationRNG = rng;
     }
 
 
     /**
      * {@inheritDoc}
+     * @throws IllegalStateException If the evolution is aborted, or the request thread is
+     * interrupted, before any candidate in the initial population has been evaluated.
      */
     public T evolve(int populationSize,
                     int eliteCount,
@@ -84,16 +163,23 @@ public abstract class AbstractEvolutionEngine<T> implements EvolutionEngine<T>
 
     /**
      * {@inheritDoc}
+     * @throws IllegalStateException If the evolution is aborted, or the request thread is
+     * interrupted, before any candidate in the initial population has been evaluated.
      */
     public T evolve(int populationSize,
                     int eliteCount,
                     Collection<T> seedCandidates,
                     TerminationCondition... conditions)
     {
-        return evolvePopulation(populationSize,
-                                eliteCount,
-                                seedCandidates,
-                                conditions).get(0).getCandidate();
+        List<EvaluatedCandidate<T>> evaluatedPopulation = evolvePopulation(populationSize,
+                                                                           eliteCount,
+                                                                           seedCandidates,
+                                                                           conditions);
+        if (evaluatedPopulation.isEmpty())
+        {
+            throw new IllegalStateException("Evolution was abandoned before any candidate was evaluated.");
+        }
+        return evaluatedPopulation.get(0).getCandidate();
     }
 
 
@@ -130,15 +216,32 @@ public abstract class AbstractEvolutionEngine<T> implements EvolutionEngine<T>
 
         satisfiedTerminationConditions = null;
         int currentGenerationIndex = 0;
+        ModificationTracker<T> tracker = modificationTracker;
+        if (tracker != null)
+        {
+            tracker.clear(); // Discard any records left over from a previous run.
+        }
         long startTime = System.currentTimeMillis();
+        RandomStreams streams = randomStreams;
+        RandomStreams runStreams = streams == null ? null : streams.derive(runCount++);
 
+        generationRNG = getGenerationRNG(runStreams, currentGenerationIndex);
         List<T> population = candidateFactory.generateInitialPopulation(populationSize,
                                                                         seedCandidates,
-                                                                        rng);
+                                                                        generationRNG);
 
         // Calculate the fitness scores for each member of the initial population.
+        evaluationCutoff = Double.NaN;
+        evaluationAbandoned = false;
+        abortConditions = getAbortConditions(conditions);
+        this.eliteCount = eliteCount;
         List<EvaluatedCandidate<T>> evaluatedPopulation = evaluatePopulation(population);
         EvolutionUtils.sortEvaluatedPopulation(evaluatedPopulation, fitnessEvaluator.isNatural());
+        if (evaluationAbandoned)
+        {
+            return abandonEvolution(evaluatedPopulation, conditions);
+        }
+        evaluationCutoff = getEvaluationCutoff(evaluatedPopulation);
         PopulationData<T> data = EvolutionUtils.getPopulationData(evaluatedPopulation,
                                                                   fitnessEvaluator.isNatural(),
                                                                   eliteCount,
@@ -151,8 +254,17 @@ public abstract class AbstractEvolutionEngine<T> implements EvolutionEngine<T>
         while (satisfiedConditions == null)
         {
             ++currentGenerationIndex;
-            evaluatedPopulation = nextEvolutionStep(evaluatedPopulation, eliteCount, rng);
+            List<EvaluatedCandidate<T>> previousPopulation = evaluatedPopulation;
+            generationRNG = getGenerationRNG(runStreams, currentGenerationIndex);
+            evaluatedPopulation = nextEvolutionStep(evaluatedPopulation, eliteCount, generationRNG);
+            if (evaluationAbandoned)
+            {
+                // The new generation is incomplete, so fall back to the last complete one.
+                EvolutionUtils.sortEvaluatedPopulation(previousPopulation, fitnessEvaluator.isNatural());
+                return abandonEvolution(previousPopulation, conditions);
+            }
             EvolutionUtils.sortEvaluatedPopulation(evaluatedPopulation, fitnessEvaluator.isNatural());
+            evaluationCutoff = getEvaluationCutoff(evaluatedPopulation);
             data = EvolutionUtils.getPopulationData(evaluatedPopulation,
                                                     fitnessEvaluator.isNatural(),
                                                     eliteCount,
@@ -163,17 +275,75 @@ public abstract class AbstractEvolutionEngine<T> implements EvolutionEngine<T>
             satisfiedConditions = EvolutionUtils.shouldContinue(data, conditions);
         }
         this.satisfiedTerminationConditions = satisfiedConditions;
+        evaluationCutoff = Double.NaN;
+        abortConditions = Collections.emptyList();
         return evaluatedPopulation;
     }
 
+
+    /**
+     * Ends an evolution whose fitness evaluations were abandoned part way through a
+     * generation because the request thread was interrupted or the user aborted.
+     */
+    private List<EvaluatedCandidate<T>> abandonEvolution(List<EvaluatedCandidate<T>> evaluatedPopulation,
+                                                         TerminationCondition... conditions)
+    {
+        List<TerminationCondition> satisfiedConditions = new ArrayList<TerminationCondition>(1);
+        if (!Thread.currentThread().isInterrupted())
+        {
+            satisfiedConditions.addAll(getAbortConditions(conditions));
+            for (Iterator<TerminationCondition> iterator = satisfiedConditions.iterator(); iterator.hasNext();)
+            {
+                if (!((UserAbort) iterator.next()).isAborted())
+                {
+                    iterator.remove();
+                }
+            }
+        }
+        this.satisfiedTerminationConditions = satisfiedConditions;
+        evaluationCutoff = Double.NaN;
+        abortConditions = Collections.emptyList();
+        return evaluatedPopulation;
+    }
+
+
+    /**
+     * Gets the source of randomness for a generation.  This is the engine's RNG unless
+     * {@link #setRandomStreams(RandomStreams) random streams} are used, in which case
+     * each generation gets its own stream.
+     */
+    private Random getGenerationRNG(RandomStreams runStreams, int generationIndex)
+    {
+        return runStreams == null ? rng : runStreams.getStream(generationIndex);
+    }
+
+
+    /**
+     * Finds the conditions that can be triggered by the user at any time.
+     */
+    private static List<UserAbort> getAbortConditions(TerminationCondition... conditions)
+    {
+        List<UserAbort> aborts = new ArrayList<UserAbort>(1);
+        for (TerminationCondition condition : conditions)
+        {
+            if (condition instanceof UserAbort)
+            {
+                aborts.add((UserAbort) condition);
+            }
+        }
+        return aborts.isEmpty() ? Collections.<UserAbort>emptyList() : aborts;
+    }
+
     
     /**
      * This method performs a single step/iteration of the evolutionary process.
-     * @param evaluatedPopulation The population at the beginning of the process.
+     * @param evaluatedPopulation The population at the beginning of the process, sorted
+     * in descending order of fitness.
      * @param eliteCount The number of the fittest individuals that must be preserved.
      * @param rng A source of randomness.
      * @return The updated population after the evolutionary process has proceeded
-     * by one step/iteration.
+     * by one step/iteration.  It does not need to be sorted, the population is sorted
+     * before the next step.
      */
     protected abstract List<EvaluatedCandidate<T>> nextEvolutionStep(List<EvaluatedCandidate<T>> evaluatedPopulation,
                                                                      int eliteCount,
@@ -192,14 +362,338 @@ public abstract class AbstractEvolutionEngine<T> implements EvolutionEngine<T>
      */
     protected List<EvaluatedCandidate<T>> evaluatePopulation(List<T> population)
     {
+        List<T> distinctPopulation = replaceDuplicates(population, Collections.<EvaluatedCandidate<T>>emptyList());
+        return evaluateCandidates(distinctPopulation, distinctPopulation);
+    }
+
+
+    /**
+     * <p>Assigns a fitness score to each member of a population that has been derived from a
+     * previously evaluated population.  If {@link #setReuseFitnessScores(boolean) fitness
+     * reuse} is enabled, any candidate that is the same object as a member of the previous
+     * population (such as an elite candidate or a candidate that passed through the
+     * evolutionary operators unaltered) keeps its existing score.  If the engine has a
+     * {@link #setModificationTracker(ModificationTracker) modification tracker} and the
+     * fitness evaluator is an {@link IncrementalFitnessEvaluator}, any candidate that was
+     * created by a recorded modification of a member of the previous population is scored
+     * incrementally (on the request thread, since incremental evaluations are expected to be
+     * cheap).  The remaining candidates are evaluated in full, exactly as for
+     * {@link #evaluatePopulation(List)}.</p>
+     *
+     * <p>Any recorded modifications are discarded once the population has been evaluated.</p>
+     * @param population The population to evaluate.
+     * @param previousPopulation Evaluated candidates from which some of the members of the
+     * population may have been derived.
+     * @return The evaluated population, in the same order as the population argument.
+     */
+    protected List<EvaluatedCandidate<T>> evaluatePopulation(List<T> population,
+                                                             List<EvaluatedCandidate<T>> previousPopulation)
+    {
+        return evaluateDerivedPopulation(replaceDuplicates(population, previousPopulation), previousPopulation);
+    }
+
+
+    /**
+     * Evaluates a population that has been derived from a previously evaluated population,
+     * once any duplicates have been replaced (see {@link #evaluatePopulation(List, List)}).
+     */
+    private List<EvaluatedCandidate<T>> evaluateDerivedPopulation(List<T> population,
+                                                                  List<EvaluatedCandidate<T>> previousPopulation)
+    {
+        ModificationTracker<T> tracker = modificationTracker;
+        boolean incremental = tracker != null && fitnessEvaluator instanceof IncrementalFitnessEvaluator;
+        if (!reuseFitnessScores && !incremental)
+        {
+            if (tracker != null)
+            {
+                tracker.clear();
+            }
+            return evaluateCandidates(population, population);
+        }
+
+        // Index the new population and the parents of modified candidates (which together
+        // may be much smaller than the previous population) and then look for each of the
+        // previous candidates in the index.  Equality is by identity, any candidate that
+        // has been modified is a new object.
+        Map<T, EvaluatedCandidate<T>> knownCandidates
+            = new IdentityHashMap<T, EvaluatedCandidate<T>>(population.size());
+        Map<T, Modification<T>> modifications = new IdentityHashMap<T, Modification<T>>();
+        for (T candidate : population)
+        {
+            if (reuseFitnessScores)
+            {
+                knownCandidates.put(candidate, null);
+            }
+            Modification<T> modification = incremental ? tracker.getModification(candidate) : null;
+            if (modification != null)
+            {
+                modifications.put(candidate, modification);
+                knownCandidates.put(modification.getParent(), null);
+            }
+        }
+        if (tracker != null)
+        {
+            tracker.clear();
+        }
+        for (EvaluatedCandidate<T> evaluatedCandidate : previousPopulation)
+        {
+            if (knownCandidates.containsKey(evaluatedCandidate.getCandidate()))
+            {
+                knownCandidates.put(evaluatedCandidate.getCandidate(), evaluatedCandidate);
+            }
+        }
+
+        List<T> unevaluated = new ArrayList<T>(population.size());
+        for (T candidate : population)
+        {
+            if (getKnownFitness(candidate, knownCandidates, modifications) == null)
+            {
+                unevaluated.add(candidate);
+            }
+        }
+        if (unevaluated.size() == population.size())
+        {
+            return evaluateCandidates(population, population);
+        }
+
+        Iterator<EvaluatedCandidate<T>> newlyEvaluated = evaluateCandidates(unevaluated, population).iterator();
+        EvaluatedCandidate<T> nextEvaluated = newlyEvaluated.hasNext() ? newlyEvaluated.next() : null;
         List<EvaluatedCandidate<T>> evaluatedPopulation = new ArrayList<EvaluatedCandidate<T>>(population.size());
+        for (T candidate : population)
+        {
+            EvaluatedCandidate<T> evaluatedCandidate = getKnownFitness(candidate, knownCandidates, modifications);
+            if (evaluatedCandidate == null)
+            {
+                // The newly evaluated candidates are in the same order as in the population, but
+                // some may be missing if they timed out and were dropped, or if evaluation was
+                // abandoned.
+                if (nextEvaluated == null || nextEvaluated.getCandidate() != candidate)
+                {
+                    continue;
+                }
+                evaluatedCandidate = nextEvaluated;
+                nextEvaluated = newlyEvaluated.hasNext() ? newlyEvaluated.next() : null;
+            }
+            else if (evaluatedCandidate.getCandidate() != candidate) // Modified, calculate fitness from the parent.
+            {
+                IncrementalFitnessEvaluator<? super T> incrementalEvaluator
+                    = (IncrementalFitnessEvaluator<? super T>) fitnessEvaluator;
+                double fitness = incrementalEvaluator.getFitness(candidate,
+                                                                 modifications.get(candidate),
+                                                                 evaluatedCandidate.getFitness(),
+                                                                 population);
+                evaluatedCandidate = new EvaluatedCandidate<T>(candidate, fitness);
+            }
+            evaluatedPopulation.add(evaluatedCandidate);
+        }
+        return evaluatedPopulation;
+    }
+
+
+    /**
+     * Looks up the previous evaluation of a candidate, if fitness scores are being reused,
+     * or else of the parent that it was derived from, if it can be evaluated incrementally.
+     * A parent whose score {@link EvaluatedCandidate#isBounded() is only a bound} (because
+     * its evaluation was cut off or timed out) is treated as unknown, since its true fitness
+     * is not available to start from.
+     * @return The candidate's own previous evaluation, its parent's evaluation, or null if
+     * the candidate must be evaluated in full.
+     */
+    private EvaluatedCandidate<T> getKnownFitness(T candidate,
+                                                  Map<T, EvaluatedCandidate<T>> knownCandidates,
+                                                  Map<T, Modification<T>> modifications)
+    {
+        EvaluatedCandidate<T> evaluatedCandidate = reuseFitnessScores ? knownCandidates.get(candidate) : null;
+        if (evaluatedCandidate == null)
+        {
+            Modification<T> modification = modifications.get(candidate);
+            if (modification != null)
+            {
+                evaluatedCandidate = knownCandidates.get(modification.getParent());
+                if (evaluatedCandidate != null && evaluatedCandidate.isBounded())
+                {
+                    evaluatedCandidate = null;
+                }
+            }
+        }
+        return evaluatedCandidate;
+    }
+
+
+    /**
+     * If the duplicate policy is {@link DuplicatePolicy#REPLACE}, replaces each candidate
+     * that is identical to an earlier member of the population with a new random candidate.
+     * Elite candidates (the same objects as the fittest members of the previous population)
+     * are kept in preference to any other candidate that is identical to them, wherever they
+     * are in the population, so that they keep their places and their fitness scores.
+     * @param population The population to check for duplicates.
+     * @param previousPopulation The sorted population that this population was derived
+     * from, which is empty for the initial population.
+     * @return The population with any duplicates replaced (this is the population argument
+     * itself if no duplicates were replaced).
+     */
+    private List<T> replaceDuplicates(List<T> population, List<EvaluatedCandidate<T>> previousPopulation)
+    {
+        if (duplicatePolicy != DuplicatePolicy.REPLACE)
+        {
+            return population;
+        }
+        GenotypeKey<? super T> genotypeKey = duplicateKey;
+        // The index of the candidate that is kept for each distinct key.
+        Map<Object, Integer> keptIndices = new HashMap<Object, Integer>(population.size() * 2);
+        Map<T, Boolean> elite = new IdentityHashMap<T, Boolean>();
+        for (int i = 0; i < Math.min(eliteCount, previousPopulation.size()); i++)
+        {
+            elite.put(previousPopulation.get(i).getCandidate(), Boolean.TRUE);
+        }
+        if (!elite.isEmpty())
+        {
+            for (int i = 0; i < population.size(); i++)
+            {
+                if (elite.containsKey(population.get(i)))
+                {
+                    Object key = getDuplicateKey(population.get(i), genotypeKey);
+                    if (!keptIndices.containsKey(key))
+                    {
+                        keptIndices.put(key, i);
+                    }
+                }
+            }
+        }
+        List<T> distinctPopulation = null;
+        for (int i = 0; i < population.size(); i++)
+        {
+            Object key = getDuplicateKey(population.get(i), genotypeKey);
+            Integer keptIndex = keptIndices.get(key);
+            if (keptIndex == null)
+            {
+                keptIndices.put(key, i);
+            }
+            else if (keptIndex != i)
+            {
+                if (distinctPopulation == null) // Copy the population since it may not be modifiable.
+                {
+                    distinctPopulation = new ArrayList<T>(population);
+                }
+                distinctPopulation.set(i, candidateFactory.generateRandomCandidate(generationRNG));
+            }
+        }
+        return distinctPopulation == null ? population : distinctPopulation;
+    }
+
+
+    /**
+     * @return The key by which the specified candidate is compared with other candidates
+     * to detect duplicates.  This is either the candidate's fingerprint or, if there is no
+     * {@link GenotypeKey}, the candidate itself.
+     */
+    private static <T> Object getDuplicateKey(T candidate, GenotypeKey<? super T> genotypeKey)
+    {
+        return genotypeKey == null ? candidate : genotypeKey.getFingerprint(candidate);
+    }
+
+
+    /**
+     * Assigns a fitness score to each of the specified candidates.  Unless the duplicate
+     * policy is {@link DuplicatePolicy#EVALUATE_ALL}, only one candidate from each group
+     * of identical candidates is evaluated and its score is shared with the others.
+     * @param candidates The candidates to evaluate.  This may be the entire population
+     * or a subset of it.
+     * @param population The entire population, which is passed to the fitness evaluator
+     * for each of the candidates.
+     * @return The evaluated candidates, in the same order as the candidates argument.
+     */
+    private List<EvaluatedCandidate<T>> evaluateCandidates(List<T> candidates, List<T> population)
+    {
+        if (duplicatePolicy == DuplicatePolicy.EVALUATE_ALL)
+        {
+            return evaluateAllCandidates(candidates, population);
+        }
+        GenotypeKey<? super T> genotypeKey = duplicateKey;
+        Map<Object, Integer> distinctIndices = new HashMap<Object, Integer>(candidates.size() * 2);
+        List<T> distinctCandidates = new ArrayList<T>(candidates.size());
+        int[] representatives = new int[candidates.size()];
+        for (int i = 0; i < candidates.size(); i++)
+        {
+            Object key = getDuplicateKey(candidates.get(i), genotypeKey);
+            Integer index = distinctIndices.get(key);
+            if (index == null)
+            {
+                index = distinctCandidates.size();
+                distinctIndices.put(key, index);
+                distinctCandidates.add(candidates.get(i));
+            }
+            representatives[i] = index;
+        }
+        if (distinctCandidates.size() == candidates.size())
+        {
+            return evaluateAllCandidates(candidates, population);
+        }
+
+        // Some candidates may be missing from the results (if their evaluations timed out
+        // and were dropped), so match the results to the candidates by identity.
+        Map<T, EvaluatedCandidate<T>> results = new IdentityHashMap<T, EvaluatedCandidate<T>>();
+        for (EvaluatedCandidate<T> evaluatedCandidate : evaluateAllCandidates(distinctCandidates, population))
+        {
+            results.put(evaluatedCandidate.getCandidate(), evaluatedCandidate);
+        }
+        List<EvaluatedCandidate<T>> evaluatedCandidates = new ArrayList<EvaluatedCandidate<T>>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++)
+        {
+            T candidate = candidates.get(i);
+            EvaluatedCandidate<T> representative = results.get(distinctCandidates.get(representatives[i]));
+            if (representative != null)
+            {
+                evaluatedCandidates.add(representative.getCandidate() == candidate
+                                        ? representative
+                                        : new EvaluatedCandidate<T>(candidate,
+                                                                    representative.getFitness(),
+                                                                    representative.isBounded()));
+            }
+        }
+        return evaluatedCandidates;
+    }
+
+
+    /**
+     * Assigns a fitness score to each of the specified candidates.
+     * @param candidates The candidates to evaluate.  This may be the entire population
+     * or a subset of it.
+     * @param population The entire population, which is passed to the fitness evaluator
+     * for each of the candidates.
+     * @return The evaluated candidates, in the same order as the candidates argument.
+     */
+    private List<EvaluatedCandidate<T>> evaluateAllCandidates(List<T> candidates, List<T> population)
+    {
+        List<EvaluatedCandidate<T>> evaluatedCandidates = new ArrayList<EvaluatedCandidate<T>>(candidates.size());
+        double cutoff = evaluationCutoff;
+        boolean bounded = !Double.isNaN(cutoff) && fitnessEvaluator instanceof BoundedFitnessEvaluator;
+        FitnessEvaluator<? super T> evaluator = fitnessEvaluator;
+        if (bounded)
+        {
+            evaluator = new CutoffFitnessEvaluator<T>(fitnessEvaluator, cutoff);
+        }
 
         if (singleThreaded) // Do fitness evaluations on the request thread.
         {
-            for (T candidate : population)
+            if (evaluator instanceof BatchFitnessEvaluator) // Evaluate all of the candidates in one go.
             {
-                evaluatedPopulation.add(new EvaluatedCandidate<T>(candidate,
-                                                                  fitnessEvaluator.getFitness(candidate, population)));
+                double[] fitnessScores = new double[candidates.size()];
+                FitnessEvaluationChunkTask.evaluate(evaluator,
+                                                    candidates,
+                                                    population,
+                                                    0,
+                                                    candidates.size(),
+                                                    fitnessScores);
+                addEvaluatedCandidates(candidates, fitnessScores, evaluatedCandidates);
+            }
+            else
+            {
+                for (T candidate : candidates)
+                {
+                    double fitness = evaluator.getFitness(candidate, population);
+                    evaluatedCandidates.add(new EvaluatedCandidate<T>(candidate, fitness));
+                }
             }
         }
         else
@@ -209,18 +703,39 @@ public abstract class AbstractEvolutionEngine<T> implements EvolutionEngine<T>
             // proceed until all threads have finished processing.
             try
             {
-                List<T> unmodifiablePopulation = Collections.unmodifiableList(population);
-                List<Future<EvaluatedCandidate<T>>> results = new ArrayList<Future<EvaluatedCandidate<T>>>(population.size());
-                // Submit tasks for execution and wait until all threads have finished fitness evaluations.
-                for (T candidate : population)
+                List<T> unmodifiableCandidates = Collections.unmodifiableList(candidates);
+                List<T> unmodifiablePopulation = candidates == population
+                                                 ? unmodifiableCandidates
+                                                 : Collections.unmodifiableList(population);
+                FitnessEvaluationWorker worker = getWorker();
+                int chunkSize = getChunkSize(candidates.size(), worker);
+                // A chunk that overruns a time limit cannot be partially salvaged, so time
+                // limits are only enforced for candidates that are evaluated individually.
+                boolean timeLimited = candidateTimeLimit > 0 || generationTimeLimit > 0;
+                if (chunkSize == 1 || timeLimited)
+                {
+                    evaluateIndividually(evaluator,
+                                         unmodifiableCandidates,
+                                         unmodifiablePopulation,
+                                         worker,
+                                         evaluatedCandidates);
+                }
+                else if (chunkSize == GUIDED_CHUNK_SIZE)
                 {
-                    results.add(getSharedWorker().submit(new FitnessEvalutationTask<T>(fitnessEvaluator,
-                                                                                       candidate,
-                                                                                       unmodifiablePopulation)));
+                    evaluateGuided(evaluator,
+                                   unmodifiableCandidates,
+                                   unmodifiablePopulation,
+                                   worker,
+                                   evaluatedCandidates);
                 }
-                for (Future<EvaluatedCandidate<T>> result : results)
+                else
                 {
-                    evaluatedPopulation.add(result.get());
+                    evaluateInChunks(evaluator,
+                                     unmodifiableCandidates,
+                                     unmodifiablePopulation,
+                                     chunkSize,
+                                     worker,
+                                     evaluatedCandidates);
                 }
             }
             catch (ExecutionException ex)
@@ -232,13 +747,406 @@ public abstract class AbstractEvolutionEngine<T> implements EvolutionEngine<T>
                 // Restore the interrupted status, allows methods further up the call-stack
                 // to abort processing if appropriate.
                 Thread.currentThread().interrupt();
+                evaluationAbandoned = true;
+            }
+            catch (CancellationException ex)
+            {
+                // The user aborted the evolution while evaluations were in progress.
+                evaluationAbandoned = true;
+            }
+            catch (RejectedExecutionException ex)
+            {
+                // A worker with a bounded queue rejects a task if the request thread is
+                // interrupted while waiting to submit it.
+                if (!Thread.currentThread().isInterrupted())
+                {
+                    throw ex;
+                }
+                evaluationAbandoned = true;
             }
         }
 
-        return evaluatedPopulation;
+        if (bounded)
+        {
+            markBoundedCandidates(evaluatedCandidates, cutoff);
+        }
+        return evaluatedCandidates;
+    }
+
+
+    /**
+     * Submits a separate task for each candidate and waits for all of them to complete,
+     * enforcing any time limits.
+     */
+    private void evaluateIndividually(FitnessEvaluator<? super T> evaluator,
+                                      List<T> candidates,
+                                      List<T> population,
+                                      FitnessEvaluationWorker worker,
+                                      List<EvaluatedCandidate<T>> evaluatedCandidates) throws InterruptedException,
+                                                                                              ExecutionException
+    {
+        long generationStart = System.nanoTime();
+        List<FitnessEvalutationTask<T>> tasks = new ArrayList<FitnessEvalutationTask<T>>(candidates.size());
+        List<Future<EvaluatedCandidate<T>>> results = new ArrayList<Future<EvaluatedCandidate<T>>>(candidates.size());
+        try
+        {
+            // Submit tasks for execution and wait until all threads have finished fitness evaluations.
+            for (T candidate : candidates)
+            {
+                FitnessEvalutationTask<T> task = new FitnessEvalutationTask<T>(evaluator, candidate, population);
+                tasks.add(task);
+                results.add(worker.submit(task));
+            }
+            List<Integer> timedOut = new ArrayList<Integer>();
+            for (int i = 0; i < results.size(); i++)
+            {
+                EvaluatedCandidate<T> result = awaitCandidate(results.get(i), tasks.get(i), generationStart);
+                if (result == null)
+                {
+                    timedOut.add(i);
+                }
+                evaluatedCandidates.add(result);
+            }
+
+            if (!timedOut.isEmpty() && timeoutPolicy == TimeoutPolicy.RETRY)
+            {
+                // The retries get a generation time limit of their own, otherwise they would
+                // all time out immediately if the first attempts used up the whole limit.
+                long retryStart = System.nanoTime();
+                for (int index : timedOut)
+                {
+                    FitnessEvalutationTask<T> task = new FitnessEvalutationTask<T>(evaluator,
+                                                                                   candidates.get(index),
+                                                                                   population);
+                    tasks.set(index, task);
+                    results.set(index, worker.submit(task));
+                }
+                for (int index : timedOut)
+                {
+                    evaluatedCandidates.set(index,
+                                            awaitCandidate(results.get(index), tasks.get(index), retryStart));
+                }
+            }
+            if (evaluatedCandidates.contains(null))
+            {
+                applyTimeoutPolicy(candidates, evaluatedCandidates, population.size());
+            }
+        }
+        finally
+        {
+            cancelOutstanding(results);
+            // If evaluation was abandoned before the timeout policy could be applied, the
+            // timed-out candidates are simply left out, like those that were never awaited.
+            evaluatedCandidates.removeAll(Collections.singleton(null));
+        }
     }
 
 
+    /**
+     * Waits for the evaluation of a single candidate, subject to the time limits.
+     * @return The evaluated candidate, or null if the evaluation timed out (in which
+     * case it has been cancelled).
+     */
+    private EvaluatedCandidate<T> awaitCandidate(Future<EvaluatedCandidate<T>> future,
+                                                 FitnessEvalutationTask<T> task,
+                                                 long generationStart) throws InterruptedException,
+                                                                              ExecutionException
+    {
+        long candidateLimit = candidateTimeLimit;
+        long generationLimit = generationTimeLimit;
+        while (true)
+        {
+            long now = System.nanoTime();
+            long wait = abortConditions.isEmpty() ? Long.MAX_VALUE : ABORT_POLL_INTERVAL;
+            if (generationLimit > 0)
+            {
+                wait = Math.min(wait, generationStart + generationLimit - now);
+            }
+            if (candidateLimit > 0)
+            {
+                // Queued tasks are not penalised for the time spent waiting for a thread.
+                wait = Math.min(wait, task.isStarted() ? task.getStartTime() + candidateLimit - now : candidateLimit);
+            }
+            if (wait == Long.MAX_VALUE)
+            {
+                return future.get();
+            }
+            try
+            {
+                return future.get(Math.max(wait, 0), TimeUnit.NANOSECONDS);
+            }
+            catch (TimeoutException ex)
+            {
+                checkForAbort();
+                now = System.nanoTime();
+                boolean generationExpired = generationLimit > 0 && now - generationStart >= generationLimit;
+                boolean candidateExpired = candidateLimit > 0
+                                           && task.isStarted()
+                                           && now - task.getStartTime() >= candidateLimit;
+                if (generationExpired || candidateExpired)
+                {
+                    future.cancel(true);
+                    return null;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Deals with the candidates whose evaluations timed out (represented by nulls in
+     * the list of evaluated candidates) according to the configured policy.  The
+     * {@link TimeoutPolicy#DROP} policy does not drop so many candidates that the engine
+     * is left with too few to continue (at least one more than the elite count is
+     * required), so some of them may be given the worst fitness score instead.
+     * @param populationSize The size of the population that the candidates belong to.
+     */
+    private void applyTimeoutPolicy(List<T> candidates,
+                                    List<EvaluatedCandidate<T>> evaluatedCandidates,
+                                    int populationSize)
+    {
+        int placeholderCount = Collections.frequency(evaluatedCandidates, null);
+        if (timeoutPolicy == TimeoutPolicy.DROP)
+        {
+            int remaining = populationSize - placeholderCount;
+            placeholderCount = Math.max(Math.min(eliteCount + 1, populationSize) - remaining, 0);
+        }
+        if (placeholderCount > 0)
+        {
+            boolean natural = fitnessEvaluator.isNatural();
+            double worstFitness = natural ? Double.MAX_VALUE : 0;
+            boolean anyCompleted = false;
+            for (EvaluatedCandidate<T> evaluatedCandidate : evaluatedCandidates)
+            {
+                if (evaluatedCandidate != null)
+                {
+                    anyCompleted = true;
+                    worstFitness = natural
+                                   ? Math.min(worstFitness, evaluatedCandidate.getFitness())
+                                   : Math.max(worstFitness, evaluatedCandidate.getFitness());
+                }
+            }
+            if (!anyCompleted)
+            {
+                worstFitness = natural ? 0 : Double.MAX_VALUE;
+            }
+            for (int i = 0; i < evaluatedCandidates.size() && placeholderCount > 0; i++)
+            {
+                if (evaluatedCandidates.get(i) == null)
+                {
+                    evaluatedCandidates.set(i, new EvaluatedCandidate<T>(candidates.get(i), worstFitness, true));
+                    --placeholderCount;
+                }
+            }
+        }
+        evaluatedCandidates.removeAll(Collections.singleton(null));
+    }
+
+
+    /**
+     * Waits for a task to complete.  If the evolution may be aborted by the user, the
+     * abort condition is checked periodically while waiting.
+     * @throws CancellationException If the evolution has been aborted.
+     */
+    private <V> V await(Future<V> future) throws InterruptedException, ExecutionException
+    {
+        if (abortConditions.isEmpty())
+        {
+            return future.get();
+        }
+        while (true)
+        {
+            try
+            {
+                return future.get(ABORT_POLL_INTERVAL, TimeUnit.NANOSECONDS);
+            }
+            catch (TimeoutException ex)
+            {
+                checkForAbort();
+            }
+        }
+    }
+
+
+    /**
+     * @throws CancellationException If any of the {@link UserAbort} conditions for the
+     * current evolution has been triggered.
+     */
+    private void checkForAbort()
+    {
+        for (UserAbort abort : abortConditions)
+        {
+            if (abort.isAborted())
+            {
+                throw new CancellationException("Evolution aborted.");
+            }
+        }
+    }
+
+
+    /**
+     * Cancels any tasks that have not completed, interrupting their threads, so that
+     * the worker is not left busy with evaluations whose results will never be used.
+     */
+    private static void cancelOutstanding(List<? extends Future<?>> results)
+    {
+        for (Future<?> result : results)
+        {
+            if (!result.isDone())
+            {
+                result.cancel(true);
+            }
+        }
+    }
+
+
+    /**
+     * Splits the candidates into contiguous chunks and submits one task per chunk,
+     * with each task writing its scores directly into a shared array.  This avoids
+     * most of the per-candidate queueing and synchronisation overhead, which can
+     * otherwise dominate when fitness evaluations are cheap.
+     */
+    private void evaluateInChunks(FitnessEvaluator<? super T> evaluator,
+                                  List<T> candidates,
+                                  List<T> population,
+                                  int chunkSize,
+                                  FitnessEvaluationWorker worker,
+                                  List<EvaluatedCandidate<T>> evaluatedCandidates) throws InterruptedException,
+                                                                                          ExecutionException
+    {
+        double[] fitnessScores = new double[candidates.size()];
+        List<Future<Void>> results = new ArrayList<Future<Void>>(candidates.size() / chunkSize + 1);
+        for (int fromIndex = 0; fromIndex < candidates.size(); fromIndex += chunkSize)
+        {
+            int toIndex = Math.min(fromIndex + chunkSize, candidates.size());
+            results.add(worker.submit(new FitnessEvaluationChunkTask<T>(evaluator,
+                                                                        candidates,
+                                                                        population,
+                                                                        fromIndex,
+                                                                        toIndex,
+                                                                        fitnessScores)));
+        }
+        try
+        {
+            for (Future<Void> result : results)
+            {
+                await(result);
+            }
+        }
+        finally
+        {
+            cancelOutstanding(results);
+        }
+        addEvaluatedCandidates(candidates, fitnessScores, evaluatedCandidates);
+    }
+
+
+    /**
+     * Submits one task per worker thread, with the tasks sharing the candidates between
+     * them by repeatedly claiming progressively smaller chunks until there are no
+     * candidates left.  Threads that finish their chunks quickly take on more of the work,
+     * so a few expensive candidates do not leave the other threads idle at the end of the
+     * generation.
+     */
+    private void evaluateGuided(FitnessEvaluator<? super T> evaluator,
+                                List<T> candidates,
+                                List<T> population,
+                                FitnessEvaluationWorker worker,
+                                List<EvaluatedCandidate<T>> evaluatedCandidates) throws InterruptedException,
+                                                                                        ExecutionException
+    {
+        double[] fitnessScores = new double[candidates.size()];
+        AtomicInteger nextIndex = new AtomicInteger(0);
+        int taskCount = Math.min(worker.getThreadCount(), candidates.size());
+        List<Future<Void>> results = new ArrayList<Future<Void>>(taskCount);
+        for (int i = 0; i < taskCount; i++)
+        {
+            results.add(worker.submit(new GuidedFitnessEvaluationTask<T>(evaluator,
+                                                                         candidates,
+                                                                         population,
+                                                                         nextIndex,
+                                                                         taskCount,
+                                                                         fitnessScores)));
+        }
+        try
+        {
+            for (Future<Void> result : results)
+            {
+                await(result);
+            }
+        }
+        finally
+        {
+            cancelOutstanding(results);
+        }
+        addEvaluatedCandidates(candidates, fitnessScores, evaluatedCandidates);
+    }
+
+
+    /**
+     * Combines candidates with their fitness scores.
+     */
+    private void addEvaluatedCandidates(List<T> candidates,
+                                        double[] fitnessScores,
+                                        List<EvaluatedCandidate<T>> evaluatedCandidates)
+    {
+        for (int i = 0; i < fitnessScores.length; i++)
+        {
+            evaluatedCandidates.add(new EvaluatedCandidate<T>(candidates.get(i), fitnessScores[i]));
+        }
+    }
+
+
+    /**
+     * Flags the candidates whose scores are worse than the evaluation cutoff, since the
+     * evaluator may have stopped before calculating their exact fitness.
+     */
+    private void markBoundedCandidates(List<EvaluatedCandidate<T>> evaluatedCandidates, double cutoff)
+    {
+        boolean natural = fitnessEvaluator.isNatural();
+        for (int i = 0; i < evaluatedCandidates.size(); i++)
+        {
+            EvaluatedCandidate<T> evaluatedCandidate = evaluatedCandidates.get(i);
+            double fitness = evaluatedCandidate.getFitness();
+            if (natural ? fitness < cutoff : fitness > cutoff)
+            {
+                evaluatedCandidates.set(i, new EvaluatedCandidate<T>(evaluatedCandidate.getCandidate(), fitness, true));
+            }
+        }
+    }
+
+
+    /**
+     * Works out the cutoff for bounded evaluation of the next generation from the
+     * (sorted) current generation.
+     * @return The cutoff score, or NaN if bounded evaluation is not enabled.
+     */
+    private double getEvaluationCutoff(List<EvaluatedCandidate<T>> sortedPopulation)
+    {
+        double proportion = boundedEvaluationProportion;
+        if (proportion == 0 || !(fitnessEvaluator instanceof BoundedFitnessEvaluator))
+        {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(proportion * sortedPopulation.size()) - 1;
+        return sortedPopulation.get(Math.max(index, 0)).getFitness();
+    }
+
+
+    /**
+     * Works out how many candidates should be evaluated by each concurrent task.
+     */
+    private int getChunkSize(int populationSize, FitnessEvaluationWorker worker)
+    {
+        int chunkSize = evaluationChunkSize;
+        if (chunkSize == AUTOMATIC_CHUNK_SIZE)
+        {
+            int chunkCount = worker.getThreadCount() * CHUNKS_PER_THREAD;
+            chunkSize = Math.max((populationSize + chunkCount - 1) / chunkCount, 1);
+        }
+        return chunkSize;
+    }
+
 
     /**
      * <p>Returns a list of all {@link TerminationCondition}s that are satisfied by the current
@@ -320,6 +1228,7 @@ public abstract class AbstractEvolutionEngine<T> implements EvolutionEngine<T>
      * programs that have extremely lightweight/trivial fitness evaluations.
      * @param singleThreaded If true, fitness evaluations will be performed synchronously on the
      * request thread.  If false, fitness evaluations will be performed by worker threads.
+     * @see #setParallelism(int)
      */
     public void setSingleThreaded(boolean singleThreaded)
     {
@@ -327,6 +1236,289 @@ public abstract class AbstractEvolutionEngine<T> implements EvolutionEngine<T>
     }
 
 
+    /**
+     * <p>Specifies how many fitness evaluations this engine may perform concurrently.  A value
+     * of one is equivalent to {@link #setSingleThreaded(boolean) single-threaded} evaluation on
+     * the request thread.  For any higher value, the engine creates its own
+     * {@link FitnessEvaluationWorker} with that many threads, rather than competing with
+     * other engines for the threads of the shared worker.  The engine's worker is shut down when
+     * the engine is {@link #close() closed} or when the parallelism is changed.</p>
+     * @param threadCount The number of threads used for fitness evaluations by this engine.
+     * Must be at least one.
+     * @see #setFitnessEvaluationWorker(FitnessEvaluationWorker)
+     */
+    public void setParallelism(int threadCount)
+    {
+        if (threadCount <= 0)
+        {
+            throw new IllegalArgumentException("Parallelism must be at least one.");
+        }
+        synchronized (this)
+        {
+            releaseOwnWorker();
+            providedWorker = null;
+            ownWorkerThreadCount = threadCount > 1 ? threadCount : 0;
+        }
+        this.singleThreaded = threadCount == 1;
+    }
+
+
+    /**
+     * Specifies the worker that should perform concurrent fitness evaluations for this engine,
+     * instead of the worker that is shared by all engines.  The same worker may be provided to
+     * more than one engine.  The application remains responsible for
+     * {@link FitnessEvaluationWorker#shutdown() shutting down} the worker when it is no longer
+     * required.
+     * @param worker The worker to use for fitness evaluations, or null to revert to the shared
+     * worker.
+     */
+    public void setFitnessEvaluationWorker(FitnessEvaluationWorker worker)
+    {
+        synchronized (this)
+        {
+            releaseOwnWorker();
+            ownWorkerThreadCount = 0;
+            providedWorker = worker;
+        }
+        this.singleThreaded = false;
+    }
+
+
+    /**
+     * Shuts down the fitness evaluation worker created by this engine, if there is one,
+     * so that its threads are released.  Workers that were {@link
+     * #setFitnessEvaluationWorker(FitnessEvaluationWorker) provided by the application}
+     * and the worker that is shared between engines are not affected.  If the engine is
+     * used again after it has been closed, a new worker will be created as required.
+     * This method may safely be invoked more than once.
+     */
+    public synchronized void close()
+    {
+        releaseOwnWorker();
+    }
+
+
+    /**
+     * Determines which worker should be used for the next batch of fitness evaluations,
+     * creating the engine's own worker if it needs one and does not yet have one.
+     */
+    private synchronized FitnessEvaluationWorker getWorker()
+    {
+        if (providedWorker != null)
+        {
+            return providedWorker;
+        }
+        else if (ownWorkerThreadCount > 0)
+        {
+            if (ownWorker == null)
+            {
+                ownWorker = new FitnessEvaluationWorker(ownWorkerThreadCount);
+            }
+            return ownWorker;
+        }
+        else
+        {
+            return getSharedWorker();
+        }
+    }
+
+
+    /**
+     * Shut down the engine's own worker (if it has one).
+     */
+    private void releaseOwnWorker()
+    {
+        if (ownWorker != null)
+        {
+            ownWorker.shutdown();
+            ownWorker = null;
+        }
+    }
+
+
+    /**
+     * <p>By default, every member of every generation is passed to the fitness evaluator,
+     * even if it is the very same object as a member of the previous generation (for
+     * example an elite candidate, or a candidate that was not altered by any of the
+     * evolutionary operators).  When fitness evaluations are expensive, enabling this option
+     * avoids re-evaluating such candidates; the score calculated in the previous generation
+     * is carried forward instead.  Candidates are matched by identity, so any candidate that
+     * an operator has modified (and therefore replaced with a new object) is still evaluated.</p>
+     *
+     * <p>This option must only be enabled if the fitness function is isolated (i.e. the
+     * fitness of a candidate does not depend on the other members of the population) and
+     * candidates are not mutated in place.  It is off by default.</p>
+     * @param reuseFitnessScores Whether candidates that survive unchanged from one generation
+     * to the next should keep their existing fitness scores.
+     */
+    public void setReuseFitnessScores(boolean reuseFitnessScores)
+    {
+        this.reuseFitnessScores = reuseFitnessScores;
+    }
+
+
+    /**
+     * Specifies where this engine should look for records of how candidates were derived from
+     * their parents.  If the fitness evaluator is an {@link IncrementalFitnessEvaluator}, any
+     * candidate that was created by a recorded modification of a member of the previous
+     * generation is scored from its parent's fitness rather than being evaluated in full.
+     * The same tracker must be given to the evolutionary operators that record modifications
+     * (such as {@link org.uncommons.watchmaker.framework.operators.ListOrderMutation}).  The
+     * engine discards the tracker's records after each evaluation.
+     * @param modificationTracker The tracker shared with the evolutionary operators, or null
+     * to always evaluate candidates in full (the default).
+     */
+    public void setModificationTracker(ModificationTracker<T> modificationTracker)
+    {
+        this.modificationTracker = modificationTracker;
+    }
+
+
+    /**
+     * <p>Enables bounded evaluation for fitness evaluators that implement
+     * {@link BoundedFitnessEvaluator}.  Each generation, the evaluator is given a cutoff score
+     * equal to the fitness of the weakest candidate in the specified top proportion of the
+     * previous generation, and may abandon the evaluation of any candidate that turns out to
+     * be worse than that.  Such candidates are marked as {@link EvaluatedCandidate#isBounded()
+     * bounded}.  The initial population is always evaluated exactly.</p>
+     *
+     * <p>The proportion should be no smaller than the proportion of the population that the
+     * selection strategy is interested in (for example, the selection ratio of truncation
+     * selection).  Bounded scores are optimistic, so statistics such as the mean fitness
+     * reported to {@link EvolutionObserver}s will be better than the true values.  Bounded
+     * evaluation should not be used with fitness-proportionate selection strategies.  It is
+     * disabled by default.</p>
+     * @param cutoffProportion The proportion (between zero and one) of each generation that
+     * must be evaluated exactly in the following generation, or zero to disable bounded
+     * evaluation.
+     */
+    public void setBoundedEvaluation(double cutoffProportion)
+    {
+        if (cutoffProportion < 0 || cutoffProportion > 1)
+        {
+            throw new IllegalArgumentException("Cutoff proportion must be between zero and one.");
+        }
+        this.boundedEvaluationProportion = cutoffProportion;
+    }
+
+
+    /**
+     * <p>Gives each generation its own random number generator, derived from the specified
+     * provider, instead of using the engine's RNG for every generation.  The RNG for a
+     * generation then depends only on the provider's seed, the generation number and the
+     * number of evolutions that this engine has previously run.  The results of an evolution
+     * are therefore reproducible even if other threads (for example, other islands) are
+     * using the engine's RNG at the same time.</p>
+     *
+     * <p>Each call to one of the evolve methods uses a separate
+     * {@link RandomStreams#derive(long) derived provider}, so repeated evolutions with the
+     * same engine do not repeat the same random choices.</p>
+     * @param streams The provider of per-generation RNGs, or null to use the engine's RNG
+     * for every generation.
+     */
+    public void setRandomStreams(RandomStreams streams)
+    {
+        this.randomStreams = streams;
+    }
+
+
+    /**
+     * <p>Determines how candidates that are identical to other members of the same population
+     * are dealt with.  In a population that has converged, many offspring may be copies of
+     * the same genotype.  By default each copy is evaluated separately.  Alternatively, each
+     * distinct genotype can be evaluated just once, or duplicates can be replaced with new
+     * random candidates to restore some diversity.</p>
+     *
+     * <p>Duplicates are identified either by their {@link GenotypeKey fingerprints} or, if no
+     * genotype key is specified, using the candidates' {@link Object#equals(Object)} and
+     * {@link Object#hashCode()} methods.  Only members of the population that is being
+     * evaluated are compared with each other, so a candidate is not treated as a duplicate of
+     * a member of the previous generation.</p>
+     * @param policy What to do with duplicate candidates.
+     * @param genotypeKey Calculates the fingerprints by which duplicates are identified, or
+     * null to compare candidates using their {@code equals} methods.
+     */
+    public void setDuplicatePolicy(DuplicatePolicy policy, GenotypeKey<? super T> genotypeKey)
+    {
+        this.duplicateKey = genotypeKey;
+        this.duplicatePolicy = policy;
+    }
+
+
+    /**
+     * <p>Limits the time that fitness evaluations may take, so that a fitness evaluation that
+     * hangs or runs for much longer than expected cannot stall the evolution indefinitely.
+     * The candidate time limit applies to each evaluation, measured from when a worker thread
+     * starts it.  The generation time limit applies to all of the evaluations for a single
+     * generation, measured from when they are submitted.  An evaluation that exceeds either
+     * limit is cancelled (its thread is interrupted) and the candidate is dealt with according
+     * to the specified policy.  Candidates that are still waiting for a thread when the
+     * generation time limit expires are treated in the same way.</p>
+     *
+     * <p>Time limits are only enforced when fitness evaluations are performed by worker
+     * threads.  While any limit is set, each candidate is evaluated by a separate task,
+     * regardless of the {@link #setEvaluationChunkSize(int) chunk size}.  Cancelled
+     * evaluations can only release their threads if the fitness evaluator responds to
+     * interruption.</p>
+     * @param candidateLimit The maximum duration of a single fitness evaluation, or zero
+     * for no limit.
+     * @param generationLimit The maximum duration of the fitness evaluations for a whole
+     * generation, or zero for no limit.
+     * @param unit The units of the two time limits.
+     * @param policy What to do with candidates whose evaluations time out.
+     */
+    public void setEvaluationTimeLimits(long candidateLimit,
+                                       long generationLimit,
+                                       TimeUnit unit,
+                                       TimeoutPolicy policy)
+    {
+        if (candidateLimit < 0 || generationLimit < 0)
+        {
+            throw new IllegalArgumentException("Time limits must not be negative.");
+        }
+        this.timeoutPolicy = policy;
+        this.candidateTimeLimit = unit.toNanos(candidateLimit);
+        this.generationTimeLimit = unit.toNanos(generationLimit);
+    }
+
+
+    /**
+     * <p>By default, when fitness evaluations are performed on separate threads, each candidate
+     * is evaluated by its own task.  For very large populations with cheap fitness evaluations,
+     * the overhead of queueing and co-ordinating all of these tasks can exceed the cost of the
+     * evaluations themselves.  This method permits several candidates to be evaluated by each
+     * task instead.  The population is divided into contiguous chunks of (at most) the specified
+     * size and each chunk is evaluated by a single task.</p>
+     *
+     * <p>A chunk size of one (the default) means that every candidate is evaluated separately.
+     * A chunk size of {@link #AUTOMATIC_CHUNK_SIZE} means that the population will be divided
+     * into a small multiple of the number of fitness evaluation threads, which keeps all of the
+     * threads busy while minimising per-task overhead.  A chunk size of {@link #GUIDED_CHUNK_SIZE}
+     * means that each thread repeatedly claims the next chunk of unevaluated candidates, with
+     * chunks getting smaller as the remaining work decreases.  This is the best choice when
+     * fitness evaluation costs vary widely between candidates (for example, when evolving
+     * programs of different sizes), since idle threads continue to take work from busy ones
+     * rather than waiting for them to finish.</p>
+     *
+     * <p>If the fitness evaluator is a {@link BatchFitnessEvaluator}, each chunk is evaluated
+     * as a single batch.</p>
+     *
+     * <p>This setting has no effect if the engine is {@link #setSingleThreaded(boolean)
+     * single-threaded}.</p>
+     * @param evaluationChunkSize The maximum number of candidates evaluated by each fitness
+     * evaluation task, or {@link #AUTOMATIC_CHUNK_SIZE}, or {@link #GUIDED_CHUNK_SIZE}.
+     */
+    public void setEvaluationChunkSize(int evaluationChunkSize)
+    {
+        if (evaluationChunkSize < GUIDED_CHUNK_SIZE)
+        {
+            throw new IllegalArgumentException("Chunk size must be positive, AUTOMATIC_CHUNK_SIZE "
+                                               + "or GUIDED_CHUNK_SIZE.");
+        }
+        this.evaluationChunkSize = evaluationChunkSize;
+    }
+
+
     /**
      * Lazily create the multi-threaded worker for fitness evaluations.
      */
@@ -338,4 +1530,31 @@ public abstract class AbstractEvolutionEngine<T> implements EvolutionEngine<T>
         }
         return concurrentWorker;
     }
+
+
+    /**
+     * Adapts a {@link BoundedFitnessEvaluator} so that the rest of the engine can pass it a
+     * cutoff without needing to know about bounded evaluation.
+     */
+    private static final class CutoffFitnessEvaluator<T> implements FitnessEvaluator<T>
+    {
+        private final BoundedFitnessEvaluator<? super T> delegate;
+        private final double cutoff;
+
+        CutoffFitnessEvaluator(FitnessEvaluator<? super T> delegate, double cutoff)
+        {
+            this.delegate = (BoundedFitnessEvaluator<? super T>) delegate;
+            this.cutoff = cutoff;
+        }
+
+        public double getFitness(T candidate, List<? extends T> population)
+        {
+            return delegate.getFitness(candidate, population, cutoff);
+        }
+
+        public boolean isNatural()
+        {
+            return delegate.isNatural();
+        }
+    }
 }
@@ -0,0 +1,462 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.uncommons.util.concurrent.ConfigurableThreadFactory;
+
+/**
+ * <p>Steady-state evolution without any synchronisation barriers.  Several breeding threads
+ * run concurrently.  Each one repeatedly selects parents from the shared population, applies
+ * the evolutionary operator(s), evaluates the offspring and inserts them into the population.
+ * No thread waits for any other thread to finish its fitness evaluations, so every processor
+ * is kept busy even when evaluation costs vary greatly between candidates.</p>
+ *
+ * <p>Because there are no generations, observers are not notified after each step.  Instead
+ * the request thread takes a snapshot of the population at regular
+ * {@link #setSnapshotInterval(long, TimeUnit) intervals}, notifies the observers and then
+ * checks the termination conditions.  The generation number reported to observers and
+ * termination conditions is the number of the snapshot.  Offspring that are still being
+ * evaluated when the evolution terminates are discarded.</p>
+ *
+ * <p>The population is kept in descending order of fitness and existing individuals are
+ * displaced according to the {@link #setReplacementPolicy(ReplacementPolicy, int) replacement
+ * policy}.  The population is locked while parents are selected and while offspring are
+ * inserted, but not during fitness evaluation.  Each breeding thread has its own random number
+ * generator, derived from the engine's RNG (see {@link RandomStreams}), but the evolutionary
+ * operators are shared by all of the breeding threads, so they must be thread-safe.  When
+ * offspring are evaluated, the population passed to the fitness evaluator is just the
+ * offspring that were created together, since the population as a whole is changing.</p>
+ *
+ * @param <T> The type of entity that is to be evolved.
+ * @see SteadyStateEvolutionEngine
+ * @author Daniel Dyer
+ */
+public class AsynchronousSteadyStateEvolutionEngine<T> implements EvolutionEngine<T>
+{
+    private final Set<EvolutionObserver<? super T>> observers = new CopyOnWriteArraySet<EvolutionObserver<? super T>>();
+
+    private final CandidateFactory<T> candidateFactory;
+    private final EvolutionaryOperator<T> evolutionScheme;
+    private final FitnessEvaluator<? super T> fitnessEvaluator;
+    private final SelectionStrategy<? super T> selectionStrategy;
+    private final int selectionSize;
+    private final Random rng;
+    private final PopulationReplacer<T> replacer;
+
+    private volatile int threadCount = Runtime.getRuntime().availableProcessors();
+    private volatile long snapshotInterval = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private List<TerminationCondition> satisfiedTerminationConditions = null;
+
+    /**
+     * Creates an asynchronous steady-state evolution engine.
+     * @param candidateFactory Factory used to create the initial population that is
+     * iteratively evolved.
+     * @param evolutionScheme The evolutionary operator that creates offspring from the
+     * selected parents.  The number of candidates used as input is controlled by the
+     * {@code selectionSize} parameter.  Every candidate that it returns is inserted into
+     * the population, so for steady-state evolution the output size is typically 1.
+     * @param fitnessEvaluator The fitness function.
+     * @param selectionStrategy The strategy for selecting which candidate(s) will be
+     * the parent(s) when evolving individuals.
+     * @param selectionSize How many parent candidates are required by the evolution scheme.
+     * @param rng The source of randomness used to create the initial population and to
+     * seed the RNGs of the individual breeding threads.
+     */
+    public AsynchronousSteadyStateEvolutionEngine(CandidateFactory<T> candidateFactory,
+                                                  EvolutionaryOperator<T> evolutionScheme,
+                                                  FitnessEvaluator<? super T> fitnessEvaluator,
+                                                  SelectionStrategy<? super T> selectionStrategy,
+                                                  int selectionSize,
+                                                  Random rng)
+    {
+        this.candidateFactory = candidateFactory;
+        this.evolutionScheme = evolutionScheme;
+        this.fitnessEvaluator = fitnessEvaluator;
+        this.selectionStrategy = selectionStrategy;
+        this.selectionSize = selectionSize;
+        this.rng = rng;
+        this.replacer = new PopulationReplacer<T>(fitnessEvaluator.isNatural());
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public T evolve(int populationSize,
+                    int eliteCount,
+                    TerminationCondition... conditions)
+    {
+        return evolve(populationSize,
+                      eliteCount,
+                      Collections.<T>emptySet(),
+                      conditions);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public T evolve(int populationSize,
+                    int eliteCount,
+                    Collection<T> seedCandidates,
+                    TerminationCondition... conditions)
+    {
+        return evolvePopulation(populationSize,
+                                eliteCount,
+                                seedCandidates,
+                                conditions).get(0).getCandidate();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<EvaluatedCandidate<T>> evolvePopulation(int populationSize,
+                                                        int eliteCount,
+                                                        TerminationCondition... conditions)
+    {
+        return evolvePopulation(populationSize,
+                                eliteCount,
+                                Collections.<T>emptySet(),
+                                conditions);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<EvaluatedCandidate<T>> evolvePopulation(int populationSize,
+                                                        int eliteCount,
+                                                        Collection<T> seedCandidates,
+                                                        TerminationCondition... conditions)
+    {
+        if (eliteCount < 0 || eliteCount >= populationSize)
+        {
+            throw new IllegalArgumentException("Elite count must be non-negative and less than population size.");
+        }
+        if (conditions.length == 0)
+        {
+            throw new IllegalArgumentException("At least one TerminationCondition must be specified.");
+        }
+
+        satisfiedTerminationConditions = null;
+        replacer.reset();
+        long startTime = System.currentTimeMillis();
+        int breederCount = threadCount;
+        ConfigurableThreadFactory threadFactory = new ConfigurableThreadFactory("AsynchronousSteadyState",
+                                                                                Thread.NORM_PRIORITY,
+                                                                                true);
+        ExecutorService threadPool = Executors.newFixedThreadPool(breederCount, threadFactory);
+        List<EvaluatedCandidate<T>> evaluatedPopulation = null;
+        AtomicBoolean finished = new AtomicBoolean(false);
+        try
+        {
+            List<T> population = candidateFactory.generateInitialPopulation(populationSize,
+                                                                            seedCandidates,
+                                                                            rng);
+            evaluatedPopulation = evaluateInitialPopulation(population, threadPool, breederCount);
+            EvolutionUtils.sortEvaluatedPopulation(evaluatedPopulation, fitnessEvaluator.isNatural());
+
+            // Each breeding thread has its own RNG, so that they don't contend for a shared one.
+            RandomStreams streams = new RandomStreams(rng);
+            List<Future<Void>> breeders = new ArrayList<Future<Void>>(breederCount);
+            for (int i = 0; i < breederCount; i++)
+            {
+                breeders.add(threadPool.submit(new Breeder(evaluatedPopulation,
+                                                           eliteCount,
+                                                           streams.getStream(i),
+                                                           finished)));
+            }
+
+            int snapshotIndex = 0;
+            while (true)
+            {
+                List<EvaluatedCandidate<T>> snapshot;
+                synchronized (evaluatedPopulation)
+                {
+                    snapshot = new ArrayList<EvaluatedCandidate<T>>(evaluatedPopulation);
+                }
+                PopulationData<T> data = EvolutionUtils.getPopulationData(snapshot,
+                                                                          fitnessEvaluator.isNatural(),
+                                                                          eliteCount,
+                                                                          snapshotIndex,
+                                                                          startTime);
+                for (EvolutionObserver<? super T> observer : observers)
+                {
+                    observer.populationUpdate(data);
+                }
+                List<TerminationCondition> satisfiedConditions = EvolutionUtils.shouldContinue(data, conditions);
+                if (satisfiedConditions != null)
+                {
+                    stopBreeding(evaluatedPopulation, finished);
+                    this.satisfiedTerminationConditions = satisfiedConditions;
+                    break;
+                }
+                TimeUnit.NANOSECONDS.sleep(snapshotInterval);
+                checkBreeders(breeders);
+                ++snapshotIndex;
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            // Restore the interrupted status, allows methods further up the call-stack
+            // to abort processing if appropriate.
+            Thread.currentThread().interrupt();
+            this.satisfiedTerminationConditions = Collections.emptyList();
+            if (evaluatedPopulation == null)
+            {
+                throw new IllegalStateException("Interrupted before the initial population was evaluated.", ex);
+            }
+            stopBreeding(evaluatedPopulation, finished);
+        }
+        finally
+        {
+            threadPool.shutdownNow();
+        }
+        synchronized (evaluatedPopulation)
+        {
+            return new ArrayList<EvaluatedCandidate<T>>(evaluatedPopulation);
+        }
+    }
+
+
+    /**
+     * Evaluates the initial population using all of the threads.
+     */
+    private List<EvaluatedCandidate<T>> evaluateInitialPopulation(List<T> population,
+                                                                  ExecutorService threadPool,
+                                                                  int taskCount) throws InterruptedException
+    {
+        double[] fitnessScores = new double[population.size()];
+        AtomicInteger nextIndex = new AtomicInteger(0);
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(taskCount);
+        for (int i = 0; i < taskCount; i++)
+        {
+            tasks.add(new GuidedFitnessEvaluationTask<T>(fitnessEvaluator,
+                                                         population,
+                                                         population,
+                                                         nextIndex,
+                                                         taskCount,
+                                                         fitnessScores));
+        }
+        checkBreeders(threadPool.invokeAll(tasks));
+        List<EvaluatedCandidate<T>> evaluatedPopulation = new ArrayList<EvaluatedCandidate<T>>(population.size());
+        for (int i = 0; i < fitnessScores.length; i++)
+        {
+            evaluatedPopulation.add(new EvaluatedCandidate<T>(population.get(i), fitnessScores[i]));
+        }
+        return evaluatedPopulation;
+    }
+
+
+    /**
+     * Propagates the failure of any of the tasks that have completed.
+     */
+    private void checkBreeders(List<Future<Void>> tasks) throws InterruptedException
+    {
+        for (Future<Void> task : tasks)
+        {
+            if (task.isDone())
+            {
+                try
+                {
+                    task.get();
+                }
+                catch (ExecutionException ex)
+                {
+                    throw new IllegalStateException("Breeding thread failed.", ex.getCause());
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Determines which existing members of the population are replaced by new offspring.
+     * By default, randomly-chosen individuals are replaced.
+     * @param policy The replacement policy.
+     * @param tournamentSize For the {@link ReplacementPolicy#TOURNAMENT} policy, the number
+     * of randomly-chosen individuals from which the least fit is replaced.  This is ignored
+     * by the other policies.
+     */
+    public void setReplacementPolicy(ReplacementPolicy policy, int tournamentSize)
+    {
+        replacer.setPolicy(policy, tournamentSize);
+    }
+
+
+    /**
+     * Sets the number of threads that concurrently breed and evaluate offspring.  By default
+     * there is one for each available processor.  Changes take effect from the next call to
+     * one of the evolve methods.
+     * @param threadCount The number of breeding threads.
+     */
+    public void setThreadCount(int threadCount)
+    {
+        if (threadCount <= 0)
+        {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        this.threadCount = threadCount;
+    }
+
+
+    /**
+     * Sets how often a snapshot of the population is passed to the observers and checked
+     * against the termination conditions.  The default is every 100 milliseconds.  Shorter
+     * intervals give more precise termination at the cost of copying the population more often.
+     * @param interval The time between snapshots.
+     * @param unit The units of the interval.
+     */
+    public void setSnapshotInterval(long interval, TimeUnit unit)
+    {
+        if (interval <= 0)
+        {
+            throw new IllegalArgumentException("Snapshot interval must be positive.");
+        }
+        this.snapshotInterval = unit.toNanos(interval);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>Observers are notified on the request thread each time that a snapshot of the
+     * population is taken.</p>
+     */
+    public void addEvolutionObserver(EvolutionObserver<? super T> observer)
+    {
+        observers.add(observer);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void removeEvolutionObserver(EvolutionObserver<? super T> observer)
+    {
+        observers.remove(observer);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public List<TerminationCondition> getSatisfiedTerminationConditions()
+    {
+        if (satisfiedTerminationConditions == null)
+        {
+            throw new IllegalStateException("EvolutionEngine has not terminated.");
+        }
+        else
+        {
+            return Collections.unmodifiableList(satisfiedTerminationConditions);
+        }
+    }
+
+
+    /**
+     * Stops all of the breeding threads.  Once this method has returned, no further
+     * changes are made to the population.
+     */
+    private static void stopBreeding(List<?> population, AtomicBoolean finished)
+    {
+        synchronized (population)
+        {
+            finished.set(true);
+        }
+    }
+
+
+    /**
+     * The task run by each breeding thread.
+     */
+    private final class Breeder implements Callable<Void>
+    {
+        private final List<EvaluatedCandidate<T>> population;
+        private final int eliteCount;
+        private final Random breederRNG;
+        private final AtomicBoolean finished;
+
+        /**
+         * @param population The population shared by all of the breeding threads.
+         * @param eliteCount The number of the fittest individuals that must be preserved.
+         * @param breederRNG The source of randomness for this thread only.
+         * @param finished Set when all of the breeding threads should stop.
+         */
+        Breeder(List<EvaluatedCandidate<T>> population, int eliteCount, Random breederRNG, AtomicBoolean finished)
+        {
+            this.population = population;
+            this.eliteCount = eliteCount;
+            this.breederRNG = breederRNG;
+            this.finished = finished;
+        }
+
+
+        public Void call()
+        {
+            while (!finished.get() && !Thread.currentThread().isInterrupted())
+            {
+                List<T> parents;
+                synchronized (population)
+                {
+                    parents = selectionStrategy.select(population,
+                                                       fitnessEvaluator.isNatural(),
+                                                       selectionSize,
+                                                       breederRNG);
+                }
+                List<T> offspring = evolutionScheme.apply(parents, breederRNG);
+                double[] fitnessScores = new double[offspring.size()];
+                // The expensive part, done without holding any locks.
+                FitnessEvaluationChunkTask.evaluate(fitnessEvaluator,
+                                                    offspring,
+                                                    offspring,
+                                                    0,
+                                                    offspring.size(),
+                                                    fitnessScores);
+                synchronized (population)
+                {
+                    if (finished.get())
+                    {
+                        break; // Too late, the final population has already been determined.
+                    }
+                    for (int i = 0; i < fitnessScores.length; i++)
+                    {
+                        replacer.replace(population,
+                                         replacer.chooseReplacement(population, eliteCount, breederRNG),
+                                         new EvaluatedCandidate<T>(offspring.get(i), fitnessScores[i]));
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
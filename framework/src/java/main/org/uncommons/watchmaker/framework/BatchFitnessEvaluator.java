@@ -0,0 +1,58 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.List;
+
+/**
+ * <p>A {@link FitnessEvaluator} that can calculate the fitness scores of many candidates
+ * in a single invocation.  This is useful when some of the cost of fitness evaluation
+ * can be shared between candidates, for example by re-using an expensive rendering
+ * context, by making a single pass over a large data set for all candidates, or by
+ * processing candidates in a vectorised form.</p>
+ *
+ * <p>Evolution engines detect fitness evaluators that implement this interface.  When
+ * fitness evaluations are performed on the request thread, the whole population is
+ * evaluated as a single batch.  When fitness evaluations are performed by worker threads
+ * and the population is divided into chunks (see
+ * {@link AbstractEvolutionEngine#setEvaluationChunkSize(int)}), each chunk is evaluated
+ * as a single batch.  If the engine evaluates each candidate separately, the inherited
+ * single-candidate {@link #getFitness(Object, List)} method is used instead.  Batches
+ * may therefore be evaluated concurrently, so implementations must be thread-safe.</p>
+ * @param <T> The type of evolvable entity that can be evaluated.
+ * @author Daniel Dyer
+ */
+public interface BatchFitnessEvaluator<T> extends FitnessEvaluator<T>
+{
+    /**
+     * Calculates fitness scores for a batch of candidates.  The same rules apply to the
+     * scores as for the single-candidate {@link #getFitness(Object, List)} method (in
+     * particular, they must all be non-negative) and the score assigned to each candidate
+     * should be the same as if that candidate had been evaluated on its own.
+     * @param candidates The candidate solutions to calculate fitness for.  This may be the
+     * entire population or just a part of it.
+     * @param population The entire population.  This will include all of the candidates
+     * in the batch, along with any that are being evaluated in other batches.
+     * @param fitnessScores The array into which the calculated fitness scores are written.
+     * @param offset The position in the {@code fitnessScores} array at which the score for
+     * the first candidate in the batch should be written.  The score for the candidate at
+     * index {@code i} of the batch is written to {@code fitnessScores[offset + i]}.
+     */
+    void getFitness(List<? extends T> candidates,
+                    List<? extends T> population,
+                    double[] fitnessScores,
+                    int offset);
+}
@@ -0,0 +1,59 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.List;
+
+/**
+ * <p>A {@link FitnessEvaluator} that can stop evaluating a candidate as soon as it is
+ * clear that the candidate is worse than a specified cutoff score.  This is useful for
+ * expensive fitness functions that accumulate a score gradually (for example by summing
+ * errors over many test cases) when the selection strategy is only interested in the
+ * candidates that are better than some threshold, as is the case for
+ * {@link org.uncommons.watchmaker.framework.selection.TruncationSelection} and (to a lesser
+ * extent) {@link org.uncommons.watchmaker.framework.selection.TournamentSelection}.</p>
+ *
+ * <p>Bounded evaluation is only used when it has been enabled on the evolution engine (see
+ * {@link AbstractEvolutionEngine#setBoundedEvaluation(double)}).  The engine marks each
+ * candidate whose score is worse than the cutoff as {@link EvaluatedCandidate#isBounded()
+ * bounded}, since its true fitness may be worse still.  Bounded evaluation is not suitable
+ * for fitness-proportionate selection strategies, which depend on the exact scores of all
+ * candidates.  If an evaluator implements both this interface and
+ * {@link BatchFitnessEvaluator}, engines evaluate candidates individually when bounded
+ * evaluation is enabled.</p>
+ * @param <T> The type of evolvable entity that can be evaluated.
+ * @author Daniel Dyer
+ */
+public interface BoundedFitnessEvaluator<T> extends FitnessEvaluator<T>
+{
+    /**
+     * Calculates the fitness score of a candidate, or a bound on it if the candidate turns
+     * out to be worse than the cutoff.  If the score is better than or equal to the cutoff,
+     * it must be exact.  Otherwise, evaluation may stop as soon as the score is known to be
+     * worse than the cutoff, and the returned value may be any score that is worse than
+     * the cutoff but not worse than the candidate's true fitness.  For a non-natural fitness
+     * function that sums errors, for example, the partial sum at the point that it first
+     * exceeds the cutoff is a suitable value.
+     * @param candidate The candidate solution to calculate fitness for.
+     * @param population The entire population.
+     * @param cutoff The score beyond which the exact fitness of a candidate is not required.
+     * This is a higher score than the candidate's if fitness scores are not natural, or a
+     * lower score if they are.
+     * @return The fitness score for the specified candidate, or a bound on it.  Must always
+     * be a non-negative value.
+     */
+    double getFitness(T candidate, List<? extends T> population, double cutoff);
+}
@@ -0,0 +1,211 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.Random;
+import org.uncommons.maths.binary.BinaryUtils;
+
+/**
+ * <p>A random number generator for use by a single thread.  It generates random numbers
+ * a block at a time and then serves individual values from that block, without any locking.
+ * This avoids the overhead of the lock-guarded generators (such as
+ * {@link org.uncommons.maths.random.MersenneTwisterRNG}) in operators and selection
+ * strategies that make many draws per candidate.  Since it is a {@link Random}, it can be
+ * passed to any operator, selection strategy or candidate factory.</p>
+ *
+ * <p>The generator is the Mersenne Twister (MT19937).  Its whole state of 624 words is
+ * regenerated in one pass and then tempered into a buffer, so the cost of generating each
+ * value is amortised over the block.  For a given seed, the sequence of values is identical
+ * to that of a {@code MersenneTwisterRNG} with the same seed.  Instances must not be
+ * shared between threads.  {@link RandomStreams} provides one generator for each
+ * concurrent activity.</p>
+ * @author Daniel Dyer
+ */
+public class BufferedRandom extends Random
+{
+    private static final long serialVersionUID = -6406225271858493104L;
+
+    private static final int SEED_SIZE_BYTES = 16;
+
+    private static final int N = 624;
+    private static final int M = 397;
+    private static final int[] MAG01 = {0, 0x9908b0df};
+    private static final int UPPER_MASK = 0x80000000;
+    private static final int LOWER_MASK = 0x7fffffff;
+    private static final int BOOTSTRAP_SEED = 19650218;
+    private static final int BOOTSTRAP_FACTOR = 1812433253;
+    private static final int SEED_FACTOR1 = 1664525;
+    private static final int SEED_FACTOR2 = 1566083941;
+    private static final int GENERATE_MASK1 = 0x9d2c5680;
+    private static final int GENERATE_MASK2 = 0xefc60000;
+
+    private final byte[] seed;
+    private final int[] state = new int[N];
+    private final int[] buffer = new int[N];
+    private int index = N; // Forces the first block to be generated on first use.
+
+    /**
+     * Creates a generator that is seeded from another source of randomness.
+     * @param seedSource The RNG that provides the 128-bit seed.
+     */
+    public BufferedRandom(Random seedSource)
+    {
+        this(generateSeed(seedSource));
+    }
+
+
+    /**
+     * @param seed The 128-bit (16-byte) seed.
+     */
+    public BufferedRandom(byte[] seed)
+    {
+        if (seed == null || seed.length != SEED_SIZE_BYTES)
+        {
+            throw new IllegalArgumentException("BufferedRandom requires a 128-bit (16-byte) seed.");
+        }
+        this.seed = seed.clone();
+
+        int[] seedInts = BinaryUtils.convertBytesToInts(this.seed);
+        state[0] = BOOTSTRAP_SEED;
+        for (int i = 1; i < N; i++)
+        {
+            state[i] = BOOTSTRAP_FACTOR * (state[i - 1] ^ (state[i - 1] >>> 30)) + i;
+        }
+        int i = 1;
+        int j = 0;
+        for (int k = Math.max(N, seedInts.length); k > 0; k--)
+        {
+            state[i] = (state[i] ^ ((state[i - 1] ^ (state[i - 1] >>> 30)) * SEED_FACTOR1)) + seedInts[j] + j;
+            i++;
+            j++;
+            if (i >= N)
+            {
+                state[0] = state[N - 1];
+                i = 1;
+            }
+            if (j >= seedInts.length)
+            {
+                j = 0;
+            }
+        }
+        for (int k = N - 1; k > 0; k--)
+        {
+            state[i] = (state[i] ^ ((state[i - 1] ^ (state[i - 1] >>> 30)) * SEED_FACTOR2)) - i;
+            i++;
+            if (i >= N)
+            {
+                state[0] = state[N - 1];
+                i = 1;
+            }
+        }
+        state[0] = UPPER_MASK; // Most significant bit is 1 - guarantees non-zero initial array.
+    }
+
+
+    private static byte[] generateSeed(Random seedSource)
+    {
+        byte[] seed = new byte[SEED_SIZE_BYTES];
+        seedSource.nextBytes(seed);
+        return seed;
+    }
+
+
+    /**
+     * @return A copy of the seed used to initialise this generator.
+     */
+    public byte[] getSeed()
+    {
+        return seed.clone();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int next(int bits)
+    {
+        if (index == N)
+        {
+            generateBlock();
+        }
+        return buffer[index++] >>> (32 - bits);
+    }
+
+
+    /**
+     * Fills an array with random doubles, uniformly distributed between 0 (inclusive)
+     * and 1 (exclusive).  This gives the same values as calling {@link #nextDouble()}
+     * repeatedly.
+     * @param values The array to fill.
+     */
+    public void nextDoubles(double[] values)
+    {
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = nextDouble();
+        }
+    }
+
+
+    /**
+     * Fills an array with random ints, uniformly distributed between 0 (inclusive)
+     * and the specified bound (exclusive).  This gives the same values as calling
+     * {@link #nextInt(int)} repeatedly.
+     * @param values The array to fill.
+     * @param bound The upper bound (exclusive), must be positive.
+     */
+    public void nextInts(int[] values, int bound)
+    {
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = nextInt(bound);
+        }
+    }
+
+
+    /**
+     * Regenerates the whole state array and tempers it into the output buffer.
+     */
+    private void generateBlock()
+    {
+        int kk;
+        int y;
+        for (kk = 0; kk < N - M; kk++)
+        {
+            y = (state[kk] & UPPER_MASK) | (state[kk + 1] & LOWER_MASK);
+            state[kk] = state[kk + M] ^ (y >>> 1) ^ MAG01[y & 0x1];
+        }
+        for (; kk < N - 1; kk++)
+        {
+            y = (state[kk] & UPPER_MASK) | (state[kk + 1] & LOWER_MASK);
+            state[kk] = state[kk + (M - N)] ^ (y >>> 1) ^ MAG01[y & 0x1];
+        }
+        y = (state[N - 1] & UPPER_MASK) | (state[0] & LOWER_MASK);
+        state[N - 1] = state[M - 1] ^ (y >>> 1) ^ MAG01[y & 0x1];
+
+        for (int i = 0; i < N; i++)
+        {
+            y = state[i];
+            y ^= y >>> 11;
+            y ^= (y << 7) & GENERATE_MASK1;
+            y ^= (y << 15) & GENERATE_MASK2;
+            y ^= y >>> 18;
+            buffer[i] = y;
+        }
+        index = 0;
+    }
+}
@@ -16,6 +16,7 @@
 package org.uncommons.watchmaker.framework;
 
 import com.google.common.collect.MapMaker;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 
@@ -23,7 +24,10 @@ import java.util.concurrent.ConcurrentMap;
  * <p>A wrapper that provides caching for {@link FitnessEvaluator} implementations.  The
  * results of fitness evaluations are stored in a cache so that if the same candidate
  * is evaluated twice, the expense of the fitness calculation can be avoided the second
- * time.  The cache uses weak references in order to avoid memory leakage.</p>
+ * time.  By default, the cache uses weak references in order to avoid memory leakage.
+ * Alternatively, a {@link FitnessCache} can be provided that bounds the number of cached
+ * scores, matches candidates by content rather than identity, or records statistics
+ * (see {@link LRUFitnessCache}).</p>
  *
  * <p>Caching of fitness values can be a useful optimisation in situations where the
  * fitness evaluation is expensive and there is a possibility that some candidates
@@ -32,11 +36,12 @@ import java.util.concurrent.ConcurrentMap;
  * configured evolutionary operator does not always modify every candidate in the
  * population for every generation.</p>
  *
- * <p>Unmodified candidates are identified by reference equality.  This is a valid
- * assumption since evolutionary operators are required to return distinct objects,
- * except when the candidate is unaffected by the evolution, as per the contract of the
- * {@link EvolutionaryOperator} interface.  In other words, the Watchmaker Framework
- * treats candidate representations as immutable even when that is not strictly the case.</p>
+ * <p>With the default cache, unmodified candidates are identified by reference
+ * equality.  This is a valid assumption since evolutionary operators are required to
+ * return distinct objects, except when the candidate is unaffected by the evolution, as
+ * per the contract of the {@link EvolutionaryOperator} interface.  In other words, the
+ * Watchmaker Framework treats candidate representations as immutable even when that is
+ * not strictly the case.</p>
  * 
  * <p>Caching of fitness scores is provided as an option rather than as the default
  * Watchmaker Framework behaviour because caching is only valid when fitness evaluations
@@ -45,26 +50,47 @@ import java.util.concurrent.ConcurrentMap;
  * candidates are evaluated against the other members of the population.  So unless the
  * fitness evaluator ignores the second parameter to the
  * {@link #getFitness(Object, List)} method, caching must not be used.</p>
+ *
+ * <p>This wrapper can evaluate candidates in batches.  If the wrapped evaluator is itself a
+ * {@link BatchFitnessEvaluator}, all of the candidates in a batch whose scores are not
+ * already cached are passed on to it as a single (smaller) batch.  Otherwise they are
+ * evaluated one at a time.</p>
  * @param <T> The type of evolvable entity that can be evaluated.
  * 
  * @author Daniel Dyer
  */
-public class CachingFitnessEvaluator<T> implements FitnessEvaluator<T>
+public class CachingFitnessEvaluator<T> implements BatchFitnessEvaluator<T>
 {
     private final FitnessEvaluator<T> delegate;
 
     // This field is marked as transient, even though the class is not Serializable, because
     // Terracotta will respect the fact it is transient and not try to share it.
-    private final transient ConcurrentMap<T, Double> cache = new MapMaker().weakKeys().makeMap();
+    private final transient FitnessCache<T> cache;
 
 
     /**
-     * Creates a caching fitness evaluator that wraps the specified evaluator.
+     * Creates a caching fitness evaluator that wraps the specified evaluator.  Candidates
+     * are matched by identity and are weakly referenced by the cache, so their scores are
+     * discarded once the candidates are no longer in use.
      * @param delegate The fitness evaluator that performs the actual calculations.
      */
     public CachingFitnessEvaluator(FitnessEvaluator<T> delegate)
+    {
+        this(delegate, new WeakFitnessCache<T>());
+    }
+
+
+    /**
+     * Creates a caching fitness evaluator that wraps the specified evaluator and stores
+     * the calculated fitness scores in the specified cache.
+     * @param delegate The fitness evaluator that performs the actual calculations.
+     * @param cache The cache in which fitness scores are stored.  This may be shared with
+     * other caching evaluators that wrap equivalent fitness evaluators.
+     */
+    public CachingFitnessEvaluator(FitnessEvaluator<T> delegate, FitnessCache<T> cache)
     {
         this.delegate = delegate;
+        this.cache = cache;
     }
 
 
@@ -87,6 +113,59 @@ public class CachingFitnessEvaluator<T> implements FitnessEvaluator<T>
     }
 
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This implementation looks up each candidate in the cache and then evaluates only
+     * those candidates that were not found.  If the wrapped evaluator supports batch
+     * evaluation, the cache misses are evaluated as a single batch.</p>
+     */
+    public void getFitness(List<? extends T> candidates,
+                           List<? extends T> population,
+                           double[] fitnessScores,
+                           int offset)
+    {
+        List<T> misses = new ArrayList<T>();
+        int[] missIndices = new int[candidates.size()];
+        for (int i = 0; i < candidates.size(); i++)
+        {
+            T candidate = candidates.get(i);
+            Double fitness = cache.get(candidate);
+            if (fitness == null)
+            {
+                missIndices[misses.size()] = offset + i;
+                misses.add(candidate);
+            }
+            else
+            {
+                fitnessScores[offset + i] = fitness;
+            }
+        }
+        if (!misses.isEmpty())
+        {
+            if (delegate instanceof BatchFitnessEvaluator)
+            {
+                double[] missScores = new double[misses.size()];
+                ((BatchFitnessEvaluator<T>) delegate).getFitness(misses, population, missScores, 0);
+                for (int i = 0; i < missScores.length; i++)
+                {
+                    cache.put(misses.get(i), missScores[i]);
+                    fitnessScores[missIndices[i]] = missScores[i];
+                }
+            }
+            else
+            {
+                for (int i = 0; i < misses.size(); i++)
+                {
+                    double fitness = delegate.getFitness(misses.get(i), population);
+                    cache.put(misses.get(i), fitness);
+                    fitnessScores[missIndices[i]] = fitness;
+                }
+            }
+        }
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -94,4 +173,24 @@ public class CachingFitnessEvaluator<T> implements FitnessEvaluator<T>
     {
         return delegate.isNatural();
     }
+
+
+    /**
+     * The default cache, which matches candidates by identity and holds only weak
+     * references to them.
+     */
+    private static final class WeakFitnessCache<T> implements FitnessCache<T>
+    {
+        private final ConcurrentMap<T, Double> scores = new MapMaker().weakKeys().makeMap();
+
+        public Double get(T candidate)
+        {
+            return scores.get(candidate);
+        }
+
+        public void put(T candidate, double fitness)
+        {
+            scores.put(candidate, fitness);
+        }
+    }
 }
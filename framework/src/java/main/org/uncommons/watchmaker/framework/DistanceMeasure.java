@@ -0,0 +1,36 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+/**
+ * Measures how different two candidate solutions are.  Distance measures are used
+ * to find previously evaluated candidates that are similar to a new candidate, for
+ * example by the {@link SurrogateFitnessEvaluator}.
+ * @param <T> The type of evolvable entity that can be compared.
+ * @author Daniel Dyer
+ */
+public interface DistanceMeasure<T>
+{
+    /**
+     * Calculates the distance between two candidates.  The distance must be non-negative,
+     * must be zero for identical candidates and should be symmetric.  Candidates with
+     * similar fitness should, as far as possible, be close to each other.
+     * @param candidate1 The first candidate.
+     * @param candidate2 The second candidate.
+     * @return The distance between the two candidates.
+     */
+    double getDistance(T candidate1, T candidate2);
+}
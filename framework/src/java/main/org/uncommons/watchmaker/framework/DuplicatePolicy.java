@@ -0,0 +1,49 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+/**
+ * Determines what an evolution engine does with candidates that are identical to other
+ * members of the same population (see
+ * {@link AbstractEvolutionEngine#setDuplicatePolicy(DuplicatePolicy, GenotypeKey)}).
+ * @author Daniel Dyer
+ */
+public enum DuplicatePolicy
+{
+    /**
+     * Every candidate is evaluated, even if it is identical to another candidate.  This is
+     * the default policy.  It is the only correct policy if fitness evaluations are not
+     * repeatable (for example, if the fitness of a candidate is calculated by competing
+     * against randomly chosen opponents).
+     */
+    EVALUATE_ALL,
+
+    /**
+     * Only the first of a group of identical candidates is evaluated and its fitness score
+     * is assigned to the others.  The duplicates remain in the population.
+     */
+    EVALUATE_ONCE,
+
+    /**
+     * Each candidate that is identical to an earlier member of the population is replaced
+     * by a new, randomly-generated candidate from the engine's {@link CandidateFactory}.
+     * Elite candidates are never replaced; any other candidates that are identical to them
+     * are replaced instead.  This maintains diversity in populations that have converged.
+     * Any replacements that happen to duplicate other candidates are evaluated once, as for
+     * {@link #EVALUATE_ONCE}.
+     */
+    REPLACE
+}
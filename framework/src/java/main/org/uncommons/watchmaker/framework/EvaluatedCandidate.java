@@ -25,6 +25,7 @@ public final class EvaluatedCandidate<T> implements Comparable<EvaluatedCandidat
 {
     private final T candidate;
     private final double fitness;
+    private final boolean bounded;
 
 
     /**
@@ -32,6 +33,19 @@ public final class EvaluatedCandidate<T> implements Comparable<EvaluatedCandidat
      * @param fitness The candidates fitness score.
      */
     public EvaluatedCandidate(T candidate, double fitness)
+    {
+        this(candidate, fitness, false);
+    }
+
+
+    /**
+     * @param candidate The evolved candidate.
+     * @param fitness The candidates fitness score, or a bound on it.
+     * @param bounded True if the fitness score is only a bound because evaluation of the
+     * candidate was abandoned once it was found to be worse than the evaluation cutoff.
+     * @see BoundedFitnessEvaluator
+     */
+    public EvaluatedCandidate(T candidate, double fitness, boolean bounded)
     {
         if (fitness < 0)
         {
@@ -39,6 +53,7 @@ public final class EvaluatedCandidate<T> implements Comparable<EvaluatedCandidat
         }
         this.candidate = candidate;
         this.fitness = fitness;
+        this.bounded = bounded;
     }
 
 
@@ -60,6 +75,20 @@ public final class EvaluatedCandidate<T> implements Comparable<EvaluatedCandidat
     }
 
 
+    /**
+     * Candidates that were found to be worse than the evaluation cutoff (see
+     * {@link BoundedFitnessEvaluator}) may not have exact fitness scores.  The true
+     * fitness of such a candidate is no better than its score, but may be worse.
+     * Comparisons between two bounded candidates are therefore not meaningful.
+     * @return True if the fitness score is only a bound on the candidate's fitness,
+     * false if it is exact.
+     */
+    public boolean isBounded()
+    {
+        return bounded;
+    }
+
+
     /**
      * Compares this candidate's fitness score with that of the specified
      * candidate.
@@ -0,0 +1,259 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * <p>The evolution engine's end of the stream protocol used to send candidates to a
+ * {@link FitnessEvaluationWorker} in another process.  The fitness evaluator is sent
+ * when the channel is opened.  Each request then consists of the population (or null if
+ * it has not changed since the previous request) followed by the candidates to evaluate.
+ * Requests use Java serialization, so the candidates and the fitness evaluator must be
+ * serializable.</p>
+ *
+ * <p>Responses are never deserialized.  Each one is a flag that indicates success,
+ * followed by either the number of scores and the scores themselves, or the message of
+ * the exception thrown by the fitness evaluator.  A misbehaving worker can therefore send
+ * wrong scores, but it cannot cause arbitrary objects to be created in this process.</p>
+ *
+ * <p>When the other end of the channel is reached over a network, the two ends should
+ * first prove to each other that they know a shared secret (see
+ * {@link #authenticateWorker(InputStream, OutputStream, byte[])} and
+ * {@link #authenticateEvaluator(InputStream, OutputStream, byte[])}), so that candidates
+ * are not sent to, and serialized objects are not accepted from, an impostor.</p>
+ * @author Daniel Dyer
+ */
+class EvaluationChannel
+{
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MAC_LENGTH = 32; // Bytes in an HmacSHA256 result.
+    private static final int CHALLENGE_LENGTH = 32;
+    // Distinguish the two directions of the handshake so that a response can't simply
+    // be reflected back to its sender.
+    private static final byte WORKER_ROLE = 1;
+    private static final byte EVALUATOR_ROLE = 2;
+    // Longer exception messages are truncated (writeUTF is limited to 64KB).
+    private static final int MAX_MESSAGE_LENGTH = 4096;
+
+    private static final SecureRandom CHALLENGE_SOURCE = new SecureRandom();
+
+    private final ObjectOutputStream output;
+    private final DataInputStream input;
+    private List<?> currentPopulation = null;
+
+    /**
+     * Opens a channel by sending the fitness evaluator to the worker.
+     * @param input The stream from which responses are read.
+     * @param output The stream to which requests are written.
+     * @param fitnessEvaluator The fitness evaluator that the worker will use.
+     * @throws IOException If the evaluator cannot be sent.
+     */
+    EvaluationChannel(InputStream input,
+                      OutputStream output,
+                      FitnessEvaluator<?> fitnessEvaluator) throws IOException
+    {
+        this.output = new ObjectOutputStream(output);
+        this.output.writeObject(fitnessEvaluator);
+        this.output.flush();
+        this.input = new DataInputStream(new BufferedInputStream(input));
+    }
+
+
+    /**
+     * Sends candidates to the worker for evaluation and waits for the scores.  The population
+     * is only sent if it is not the same population (list instance) that was sent with the
+     * previous request, so a population must not be modified once it has been evaluated.
+     * Candidates that are members of the population are sent as references to the copy
+     * that the worker already has.
+     * @param candidates The candidates to evaluate.
+     * @param population The entire population.
+     * @return The fitness scores of the candidates, in the same order.
+     * @throws IOException If there is a problem communicating with the worker (including
+     * a response that is not valid).  The channel should not be used again.
+     * @throws IllegalStateException If the fitness evaluator failed.  The channel can still
+     * be used for further evaluations.
+     */
+    double[] evaluate(List<?> candidates, List<?> population) throws IOException
+    {
+        if (population == currentPopulation)
+        {
+            output.writeObject(null);
+        }
+        else
+        {
+            // Forget about the previous population so that it can be garbage collected at
+            // both ends of the channel.
+            output.reset();
+            output.writeObject(new ArrayList<Object>(population));
+            currentPopulation = population;
+        }
+        output.writeObject(new ArrayList<Object>(candidates));
+        output.flush();
+        if (!input.readBoolean())
+        {
+            throw new IllegalStateException("Remote fitness evaluation failed: " + input.readUTF());
+        }
+        int count = input.readInt();
+        if (count != candidates.size())
+        {
+            throw new IOException("Invalid response from fitness evaluation worker.");
+        }
+        double[] fitnessScores = new double[count];
+        for (int i = 0; i < count; i++)
+        {
+            fitnessScores[i] = input.readDouble();
+        }
+        return fitnessScores;
+    }
+
+
+    /**
+     * Writes the worker's response to a successful request.
+     * @param output The stream to which the response is written (it is not flushed).
+     * @param fitnessScores The scores of the candidates in the request.
+     * @throws IOException If the response cannot be written.
+     */
+    static void writeScores(DataOutputStream output, double[] fitnessScores) throws IOException
+    {
+        output.writeBoolean(true);
+        output.writeInt(fitnessScores.length);
+        for (double score : fitnessScores)
+        {
+            output.writeDouble(score);
+        }
+    }
+
+
+    /**
+     * Writes the worker's response to a request for which the fitness evaluator failed.
+     * @param output The stream to which the response is written (it is not flushed).
+     * @param failure The exception thrown by the fitness evaluator.
+     * @throws IOException If the response cannot be written.
+     */
+    static void writeFailure(DataOutputStream output, Throwable failure) throws IOException
+    {
+        String message = failure.toString();
+        output.writeBoolean(false);
+        output.writeUTF(message.length() > MAX_MESSAGE_LENGTH ? message.substring(0, MAX_MESSAGE_LENGTH) : message);
+    }
+
+
+    /**
+     * Performs the evolution engine's side of the handshake: checks that the worker knows
+     * the shared secret and then proves that this end knows it too.  The secret itself is
+     * never sent.  Nothing else should be read from or written to the streams if this fails.
+     * @param input The stream from which the worker's messages are read.
+     * @param output The stream to which this end's messages are written.
+     * @param secret The secret shared by the evolution engine and its workers.
+     * @throws IOException If the worker does not know the secret, or if communication fails.
+     */
+    static void authenticateWorker(InputStream input, OutputStream output, byte[] secret) throws IOException
+    {
+        DataInputStream dataInput = new DataInputStream(input);
+        byte[] challenge = createChallenge();
+        output.write(challenge);
+        output.flush();
+        byte[] response = new byte[MAC_LENGTH];
+        dataInput.readFully(response);
+        byte[] workerChallenge = new byte[CHALLENGE_LENGTH];
+        dataInput.readFully(workerChallenge);
+        if (!MessageDigest.isEqual(response, sign(secret, WORKER_ROLE, challenge)))
+        {
+            throw new IOException("Fitness evaluation worker failed authentication.");
+        }
+        output.write(sign(secret, EVALUATOR_ROLE, workerChallenge));
+        output.flush();
+    }
+
+
+    /**
+     * Performs the worker's side of the handshake (see
+     * {@link #authenticateWorker(InputStream, OutputStream, byte[])}).
+     * @param input The stream from which the evolution engine's messages are read.
+     * @param output The stream to which this end's messages are written.
+     * @param secret The secret shared by the evolution engine and its workers.
+     * @throws IOException If the evolution engine does not know the secret (or rejects
+     * this worker), or if communication fails.
+     */
+    static void authenticateEvaluator(InputStream input, OutputStream output, byte[] secret) throws IOException
+    {
+        DataInputStream dataInput = new DataInputStream(input);
+        byte[] challenge = new byte[CHALLENGE_LENGTH];
+        dataInput.readFully(challenge);
+        byte[] ownChallenge = createChallenge();
+        output.write(sign(secret, WORKER_ROLE, challenge));
+        output.write(ownChallenge);
+        output.flush();
+        byte[] response = new byte[MAC_LENGTH];
+        dataInput.readFully(response);
+        if (!MessageDigest.isEqual(response, sign(secret, EVALUATOR_ROLE, ownChallenge)))
+        {
+            throw new IOException("Remote fitness evaluator failed authentication.");
+        }
+    }
+
+
+    private static byte[] createChallenge()
+    {
+        byte[] challenge = new byte[CHALLENGE_LENGTH];
+        synchronized (CHALLENGE_SOURCE)
+        {
+            CHALLENGE_SOURCE.nextBytes(challenge);
+        }
+        return challenge;
+    }
+
+
+    /**
+     * Calculates a keyed hash of a challenge, which only a holder of the secret can do.
+     */
+    private static byte[] sign(byte[] secret, byte role, byte[] challenge)
+    {
+        Mac mac = createMac(secret);
+        mac.update(role);
+        return mac.doFinal(challenge);
+    }
+
+
+    private static Mac createMac(byte[] secret)
+    {
+        try
+        {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, MAC_ALGORITHM));
+            return mac;
+        }
+        catch (GeneralSecurityException ex)
+        {
+            // Every Java platform is required to support HmacSHA256.
+            throw new IllegalStateException("Unable to create " + MAC_ALGORITHM + " MAC.", ex);
+        }
+    }
+}
@@ -103,13 +103,14 @@ public class EvolutionStrategyEngine<T> extends AbstractEvolutionEngine<T>
         // Then evolve the parents.
         List<T> offspring = evolutionScheme.apply(parents, rng);
 
-        List<EvaluatedCandidate<T>> evaluatedOffspring = evaluatePopulation(offspring);
+        List<EvaluatedCandidate<T>> evaluatedOffspring = evaluatePopulation(offspring, evaluatedPopulation);
         if (plusSelection) // Plus-selection means parents are considered for survival as well as offspring.
         {
             evaluatedOffspring.addAll(evaluatedPopulation);
         }
-        EvolutionUtils.sortEvaluatedPopulation(evaluatedOffspring, fitnessEvaluator.isNatural());
-        // Retain the fittest of the candidates that are eligible for survival.
+        // Retain the fittest of the candidates that are eligible for survival.  There is no
+        // need to sort them here, they are sorted once they have been returned.
+        EvolutionUtils.selectFittest(evaluatedOffspring, evaluatedPopulation.size(), fitnessEvaluator.isNatural());
         return evaluatedOffspring.subList(0, evaluatedPopulation.size());
     }
 }
@@ -15,10 +15,9 @@
 //=============================================================================
 package org.uncommons.watchmaker.framework;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
-import org.uncommons.maths.statistics.DataSet;
 
 /**
  * Utility methods used by different evolution implementations.  This class exists to
@@ -53,23 +52,31 @@ public final class EvolutionUtils
         {
             return Collections.emptyList();
         }
-        // Otherwise check the termination conditions for the evolution.
-        List<TerminationCondition> satisfiedConditions = new LinkedList<TerminationCondition>();
+        // Otherwise check the termination conditions for the evolution.  This is done for
+        // every generation, so the list is only created once a condition is satisfied.
+        List<TerminationCondition> satisfiedConditions = null;
         for (TerminationCondition condition : conditions)
         {
             if (condition.shouldTerminate(data))
             {
+                if (satisfiedConditions == null)
+                {
+                    satisfiedConditions = new ArrayList<TerminationCondition>(conditions.length);
+                }
                 satisfiedConditions.add(condition);
             }
         }
-        return satisfiedConditions.isEmpty() ? null : satisfiedConditions;
+        return satisfiedConditions;
     }
 
 
     /**
      * Sorts an evaluated population in descending order of fitness
      * (descending order of fitness score for natural scores, ascending
-     * order of scores for non-natural scores).
+     * order of scores for non-natural scores).  The sort is stable, so
+     * candidates with equal fitness keep their relative order.  Very
+     * large populations are sorted concurrently when more than one
+     * processor is available.
      *
      * @param evaluatedPopulation The population to be sorted (in-place).
      * @param naturalFitness True if higher fitness scores mean fitter individuals, false otherwise.
@@ -78,15 +85,28 @@ public final class EvolutionUtils
     public static <T> void sortEvaluatedPopulation(List<EvaluatedCandidate<T>> evaluatedPopulation,
                                                    boolean naturalFitness)
     {
-        // Sort candidates in descending order according to fitness.
-        if (naturalFitness) // Descending values for natural fitness.
-        {
-            Collections.sort(evaluatedPopulation, Collections.reverseOrder());
-        }
-        else // Ascending values for non-natural fitness.
-        {
-            Collections.sort(evaluatedPopulation);
-        }
+        PopulationSorter.sort(evaluatedPopulation, naturalFitness);
+    }
+
+
+    /**
+     * Re-orders an evaluated population so that its fittest {@code count} members
+     * occupy the first {@code count} positions.  This takes time proportional to
+     * the size of the population, so it is cheaper than a full sort when only the
+     * fittest few candidates are needed.  Neither the fittest candidates nor the
+     * rest of the population are left in any particular order, except that when
+     * {@code count} is one the fittest candidate is always first.
+     *
+     * @param evaluatedPopulation The population to be partitioned (in-place).
+     * @param count The number of fittest candidates to move to the front of the population.
+     * @param naturalFitness True if higher fitness scores mean fitter individuals, false otherwise.
+     * @param <T> The type of entity that is being evolved.
+     */
+    public static <T> void selectFittest(List<EvaluatedCandidate<T>> evaluatedPopulation,
+                                         int count,
+                                         boolean naturalFitness)
+    {
+        PopulationSorter.selectFittest(evaluatedPopulation, count, naturalFitness);
     }
 
 
@@ -111,17 +131,26 @@ public final class EvolutionUtils
                                                           int iterationNumber,
                                                           long startTime)
     {
-        DataSet stats = new DataSet(evaluatedPopulation.size());
+        // The mean and (population) standard deviation are calculated in a single pass
+        // using Welford's method, rather than copying the scores into a DataSet for every
+        // generation.
+        double mean = 0;
+        double sumSquaredDeviations = 0;
+        int count = 0;
         for (EvaluatedCandidate<T> candidate : evaluatedPopulation)
         {
-            stats.addValue(candidate.getFitness());
+            double fitness = candidate.getFitness();
+            ++count;
+            double deviation = fitness - mean;
+            mean += deviation / count;
+            sumSquaredDeviations += deviation * (fitness - mean);
         }
         return new PopulationData<T>(evaluatedPopulation.get(0).getCandidate(),
                                      evaluatedPopulation.get(0).getFitness(),
-                                     stats.getArithmeticMean(),
-                                     stats.getStandardDeviation(),
+                                     mean,
+                                     Math.sqrt(sumSquaredDeviations / count),
                                      naturalFitness,
-                                     stats.getSize(),
+                                     count,
                                      eliteCount,
                                      iterationNumber,
                                      System.currentTimeMillis() - startTime);
@@ -0,0 +1,44 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+/**
+ * Storage for the fitness scores that have been calculated by a
+ * {@link CachingFitnessEvaluator}.  Implementations decide how candidates are
+ * matched (by identity or by content), how many scores are retained and which are
+ * discarded when the cache is full.  Implementations must be thread-safe because
+ * fitness evaluations may be performed concurrently.
+ * @param <T> The type of evolvable entity whose fitness scores are cached.
+ * @author Daniel Dyer
+ */
+public interface FitnessCache<T>
+{
+    /**
+     * Looks up the fitness score of a candidate.
+     * @param candidate The candidate to look up.
+     * @return The cached fitness score of the candidate, or null if there is no score
+     * in the cache for that candidate.
+     */
+    Double get(T candidate);
+
+
+    /**
+     * Adds the fitness score of a candidate to the cache.
+     * @param candidate The evaluated candidate.
+     * @param fitness The fitness score of the candidate.
+     */
+    void put(T candidate, double fitness);
+}
@@ -0,0 +1,108 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Callable task for evaluating a contiguous chunk of candidates in a single
+ * unit of work.  Rather than creating a separate result object for each candidate,
+ * fitness scores are written directly into a results array that is shared by all
+ * of the chunks.  Each chunk writes to a distinct range of the array so no further
+ * synchronisation is required.  If the fitness evaluator is a
+ * {@link BatchFitnessEvaluator}, the whole chunk is evaluated as a single batch.
+ * @param <T> The type of entity for which fitness is calculated.
+ * @author Daniel Dyer
+ */
+class FitnessEvaluationChunkTask<T> implements Callable<Void>
+{
+    private final FitnessEvaluator<? super T> fitnessEvaluator;
+    private final List<T> candidates;
+    private final List<T> population;
+    private final int fromIndex;
+    private final int toIndex;
+    private final double[] fitnessScores;
+
+    /**
+     * Creates a task for evaluating the candidates at indices {@code fromIndex} (inclusive)
+     * to {@code toIndex} (exclusive) of the candidate list.
+     * @param fitnessEvaluator The fitness function used to determine candidate fitness.
+     * @param candidates The candidates that require evaluation.  This is usually the
+     * entire population, but may be just those members of the population that do not
+     * already have fitness scores.
+     * @param population The entire current population.
+     * @param fromIndex The index of the first candidate to evaluate.
+     * @param toIndex The index after the last candidate to evaluate.
+     * @param fitnessScores The array, with one element per candidate, into which the
+     * calculated fitness scores are written.
+     */
+    FitnessEvaluationChunkTask(FitnessEvaluator<? super T> fitnessEvaluator,
+                               List<T> candidates,
+                               List<T> population,
+                               int fromIndex,
+                               int toIndex,
+                               double[] fitnessScores)
+    {
+        this.fitnessEvaluator = fitnessEvaluator;
+        this.candidates = candidates;
+        this.population = population;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+        this.fitnessScores = fitnessScores;
+    }
+
+
+    public Void call()
+    {
+        evaluate(fitnessEvaluator, candidates, population, fromIndex, toIndex, fitnessScores);
+        return null;
+    }
+
+
+    /**
+     * Evaluates a range of candidates, as a single batch if the fitness evaluator
+     * supports it, or one candidate at a time otherwise.
+     * @param fitnessEvaluator The fitness function used to determine candidate fitness.
+     * @param candidates The candidates that require evaluation.
+     * @param population The entire current population.
+     * @param fromIndex The index of the first candidate to evaluate.
+     * @param toIndex The index after the last candidate to evaluate.
+     * @param fitnessScores The array into which the calculated fitness scores are written
+     * (at the same indices as the corresponding candidates in the candidate list).
+     * @param <T> The type of entity for which fitness is calculated.
+     */
+    static <T> void evaluate(FitnessEvaluator<? super T> fitnessEvaluator,
+                             List<T> candidates,
+                             List<T> population,
+                             int fromIndex,
+                             int toIndex,
+                             double[] fitnessScores)
+    {
+        if (fitnessEvaluator instanceof BatchFitnessEvaluator)
+        {
+            BatchFitnessEvaluator<? super T> batchEvaluator = (BatchFitnessEvaluator<? super T>) fitnessEvaluator;
+            batchEvaluator.getFitness(candidates.subList(fromIndex, toIndex), population, fitnessScores, fromIndex);
+        }
+        else
+        {
+            for (int i = fromIndex; i < toIndex; i++)
+            {
+                fitnessScores[i] = fitnessEvaluator.getFitness(candidates.get(i), population);
+            }
+        }
+    }
+}
@@ -15,39 +15,106 @@
 //=============================================================================
 package org.uncommons.watchmaker.framework;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import org.uncommons.util.concurrent.ConfigurableThreadFactory;
 import org.uncommons.util.id.IDSource;
 import org.uncommons.util.id.IntSequenceIDSource;
 import org.uncommons.util.id.StringPrefixIDSource;
+import org.uncommons.util.reflection.ReflectionUtils;
 
 /**
- * This is the class that actually runs the fitness evaluation tasks created by a
+ * <p>This is the class that actually runs the fitness evaluation tasks created by a
  * {@link EvolutionEngine}.  This responsibility is abstracted away from
  * the evolution engine to permit the possibility of creating multiple instances
  * across several machines, all fed by a single shared work queue, using Terracotta
- * (http://www.terracotta.org) or similar.
+ * (http://www.terracotta.org) or similar.</p>
+ *
+ * <p>By default, all evolution engines share a single worker that has one thread per
+ * available processor.  Applications that run several engines at once, or that need
+ * to limit the resources used by fitness evaluations, can create their own workers
+ * and assign them to individual engines (see
+ * {@link AbstractEvolutionEngine#setFitnessEvaluationWorker(FitnessEvaluationWorker)}).
+ * A worker created by the application should be {@link #shutdown() shut down} when it
+ * is no longer required so that its threads are released.</p>
+ *
+ * <p>For fitness evaluators that spend most of their time blocked (for example, waiting
+ * on an external simulator or a network service), a fixed-size pool leaves the processors
+ * idle.  A {@link #newThreadPerTaskWorker(int) thread-per-task worker} is better suited to
+ * such evaluators.</p>
+ *
+ * <p>A worker can also perform fitness evaluations for an engine in another process (usually
+ * on another machine) by {@link #connect(String, int, String) connecting} to a
+ * {@link RemoteFitnessEvaluator}.  The simplest way to do this is to run this class as a
+ * program (see {@link #main(String[])}).</p>
  * @author Daniel Dyer
  */
 public class FitnessEvaluationWorker
 {
+    /**
+     * The program argument that makes a standalone worker evaluate candidates for its
+     * parent process.
+     */
+    static final String PIPE_ARGUMENT = "-pipe";
+
+    /**
+     * The environment variable from which a standalone worker reads the secret that it
+     * shares with the remote fitness evaluator.  The secret is not passed as a program
+     * argument because other users of the machine may be able to see those.
+     */
+    private static final String SECRET_VARIABLE = "WATCHMAKER_WORKER_SECRET";
+
     // Provide each worker instance with a unique name with which to prefix its threads.
     private static final IDSource<String> WORKER_ID_SOURCE = new StringPrefixIDSource("FitnessEvaluationWorker",
                                                                                       new IntSequenceIDSource());
 
+    /**
+     * How long a standalone worker waits before trying to re-connect to a remote fitness
+     * evaluator that is not available.
+     */
+    private static final long RECONNECT_DELAY_MS = 1000;
+
     /**
      * Share this field to use Terracotta to distribute fitness evaluations.
      */
-    private final LinkedBlockingQueue<Runnable> workQueue = new LinkedBlockingQueue<Runnable>();
+    private final BlockingQueue<Runnable> workQueue;
 
 
     /**
      * Thread pool that performs concurrent fitness evaluations.
      */
-    private final ThreadPoolExecutor executor;
+    private final ExecutorService executor;
+
+    private final int threadCount;
+
+    // Restricts the number of tasks that may run at once (null if there is no restriction
+    // beyond that imposed by the executor itself).
+    private final Semaphore concurrencyLimit;
 
 
     /**
@@ -64,43 +131,489 @@ public class FitnessEvaluationWorker
      */
     private FitnessEvaluationWorker(boolean daemonWorkerThreads)
     {
+        this(Runtime.getRuntime().availableProcessors(),
+             new LinkedBlockingQueue<Runnable>(),
+             daemonWorkerThreads);
+    }
+
+
+    /**
+     * Creates a worker that uses the specified number of (daemon) threads to perform
+     * fitness evaluations.  There is no limit on the number of evaluation tasks that
+     * may be queued.
+     * @param threadCount The number of threads used to perform fitness evaluations.
+     */
+    public FitnessEvaluationWorker(int threadCount)
+    {
+        this(threadCount, new LinkedBlockingQueue<Runnable>(), true);
+    }
+
+
+    /**
+     * Creates a worker that uses the specified number of (daemon) threads to perform
+     * fitness evaluations, with a bounded queue for pending evaluation tasks.  If the
+     * queue is full when a task is submitted, the submitting thread waits until there is
+     * space.  This throttles the submitting thread rather than allowing an unlimited
+     * backlog of work to build up.  An engine's
+     * {@link AbstractEvolutionEngine#setEvaluationTimeLimits(long, long, TimeUnit, TimeoutPolicy)
+     * time limits} and user aborts are not checked while it is waiting to submit a task,
+     * so a queue that is much smaller than the population delays their enforcement until
+     * the evaluations already in progress have finished.
+     * @param threadCount The number of threads used to perform fitness evaluations.
+     * @param queueCapacity The maximum number of evaluation tasks that may be waiting
+     * for a free thread at any one time.
+     */
+    public FitnessEvaluationWorker(int threadCount, int queueCapacity)
+    {
+        this(threadCount, new ArrayBlockingQueue<Runnable>(queueCapacity), true);
+    }
+
+
+    /**
+     * Creates a worker that delegates fitness evaluations to an existing executor.  The
+     * executor will be shut down when this worker is {@link #shutdown() shut down}.
+     * @param executor The executor that will run fitness evaluation tasks.
+     * @param threadCount The number of evaluations that the executor can be expected to
+     * perform concurrently.  This is used to divide work between the executor's threads.
+     */
+    public FitnessEvaluationWorker(ExecutorService executor, int threadCount)
+    {
+        this(executor, threadCount, null);
+    }
+
+
+    /**
+     * @param executor The executor that will run fitness evaluation tasks.
+     * @param threadCount The number of evaluations that the executor can be expected to
+     * perform concurrently.
+     * @param concurrencyLimit Restricts how many tasks may be evaluated at once, may be null.
+     */
+    private FitnessEvaluationWorker(ExecutorService executor, int threadCount, Semaphore concurrencyLimit)
+    {
+        if (threadCount <= 0)
+        {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        this.workQueue = null;
+        this.executor = executor;
+        this.threadCount = threadCount;
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+
+    /**
+     * @param threadCount The number of threads used to perform fitness evaluations.
+     * @param workQueue The queue that holds evaluation tasks until there is a thread
+     * available to execute them.
+     * @param daemonWorkerThreads If true, any worker threads created will be daemon threads.
+     */
+    private FitnessEvaluationWorker(int threadCount,
+                                    BlockingQueue<Runnable> workQueue,
+                                    boolean daemonWorkerThreads)
+    {
+        if (threadCount <= 0)
+        {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
         ConfigurableThreadFactory threadFactory = new ConfigurableThreadFactory(WORKER_ID_SOURCE.nextID(),
                                                                                 Thread.NORM_PRIORITY,
                                                                                 daemonWorkerThreads);
-        this.executor = new ThreadPoolExecutor(Runtime.getRuntime().availableProcessors(),
-                                               Runtime.getRuntime().availableProcessors(),
-                                               60,
-                                               TimeUnit.SECONDS,
-                                               workQueue,
-                                               threadFactory);
-        executor.prestartAllCoreThreads();
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(threadCount,
+                                                               threadCount,
+                                                               60,
+                                                               TimeUnit.SECONDS,
+                                                               workQueue,
+                                                               threadFactory,
+                                                               new WaitForSpacePolicy());
+        threadPool.prestartAllCoreThreads();
+        this.workQueue = workQueue;
+        this.executor = threadPool;
+        this.threadCount = threadCount;
+        this.concurrencyLimit = null;
+    }
+
+
+    /**
+     * <p>Creates a worker that runs each fitness evaluation task on its own thread, rather
+     * than queueing tasks for a fixed number of threads.  This is intended for fitness
+     * evaluators that spend most of their time blocked, so that many evaluations can be
+     * in progress at once without each one occupying a processor.</p>
+     *
+     * <p>On Java runtimes that support virtual threads, each task is run on a new virtual
+     * thread, so thousands of concurrent evaluations do not require thousands of platform
+     * threads.  On older runtimes, tasks are run by a pool of (daemon) platform threads
+     * that grows as required and releases threads that have been idle for a minute.</p>
+     *
+     * <p>Because there is no fixed number of threads, this type of worker is best used with
+     * the default {@link AbstractEvolutionEngine#setEvaluationChunkSize(int) chunk size}
+     * of one so that every candidate's evaluation can proceed independently.</p>
+     * @param maxConcurrentEvaluations The maximum number of fitness evaluations that may be
+     * in progress at any one time, or zero for no limit.
+     * @return A new worker that the application is responsible for {@link #shutdown()
+     * shutting down} when it is no longer required.
+     */
+    public static FitnessEvaluationWorker newThreadPerTaskWorker(int maxConcurrentEvaluations)
+    {
+        if (maxConcurrentEvaluations < 0)
+        {
+            throw new IllegalArgumentException("Concurrency limit must not be negative.");
+        }
+        int threadCount = maxConcurrentEvaluations > 0
+                          ? maxConcurrentEvaluations
+                          : Runtime.getRuntime().availableProcessors();
+        ExecutorService virtualThreadExecutor = createVirtualThreadExecutor();
+        if (virtualThreadExecutor != null)
+        {
+            return new FitnessEvaluationWorker(virtualThreadExecutor,
+                                               threadCount,
+                                               maxConcurrentEvaluations > 0
+                                               ? new Semaphore(maxConcurrentEvaluations)
+                                               : null);
+        }
+        else
+        {
+            ConfigurableThreadFactory threadFactory = new ConfigurableThreadFactory(WORKER_ID_SOURCE.nextID(),
+                                                                                    Thread.NORM_PRIORITY,
+                                                                                    true);
+            ThreadPoolExecutor threadPool;
+            if (maxConcurrentEvaluations > 0)
+            {
+                threadPool = new ThreadPoolExecutor(maxConcurrentEvaluations,
+                                                    maxConcurrentEvaluations,
+                                                    60,
+                                                    TimeUnit.SECONDS,
+                                                    new LinkedBlockingQueue<Runnable>(),
+                                                    threadFactory);
+                threadPool.allowCoreThreadTimeOut(true);
+            }
+            else
+            {
+                threadPool = new ThreadPoolExecutor(0,
+                                                    Integer.MAX_VALUE,
+                                                    60,
+                                                    TimeUnit.SECONDS,
+                                                    new SynchronousQueue<Runnable>(),
+                                                    threadFactory);
+            }
+            return new FitnessEvaluationWorker(threadPool, threadCount, null);
+        }
+    }
+
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task, if the runtime
+     * supports virtual threads.  Reflection is used so that the framework can still be
+     * built for, and run on, earlier versions of Java.
+     * @return A virtual thread executor, or null if virtual threads are not available.
+     */
+    private static ExecutorService createVirtualThreadExecutor()
+    {
+        return createExecutor(Executors.class, "newVirtualThreadPerTaskExecutor");
+    }
+
+
+    /**
+     * Invokes a static, no-argument factory method that may not exist (or may not be
+     * usable) on the current runtime.
+     * @param factoryClass The class that declares the factory method.
+     * @param factoryMethodName The name of the factory method.
+     * @return The executor created by the factory method, or null if the method does
+     * not exist or is not supported.
+     */
+    static ExecutorService createExecutor(Class<?> factoryClass, String factoryMethodName)
+    {
+        try
+        {
+            Method factoryMethod = factoryClass.getMethod(factoryMethodName);
+            return ReflectionUtils.<ExecutorService>invokeUnchecked(factoryMethod, null);
+        }
+        catch (NoSuchMethodException ex)
+        {
+            return null; // Virtual threads are not supported by this version of Java.
+        }
+        catch (UnsupportedOperationException ex)
+        {
+            // Java 19 and 20 have the method but, unless preview features are enabled, it
+            // refuses to create virtual threads.
+            return null;
+        }
+        catch (RuntimeException ex)
+        {
+            if (ex.getCause() instanceof UnsupportedOperationException)
+            {
+                return null;
+            }
+            throw ex;
+        }
     }
 
 
     public <T> Future<EvaluatedCandidate<T>> submit(FitnessEvalutationTask<T> task)
     {
-        return executor.submit(task);
+        return executor.submit(limitConcurrency(task));
     }
 
 
     /**
-     * Entry-point for running this class standalone, as an additional node for fitness evaluations.
-     * If this method is invoked without using Terracotta (or similar) to share the work queue, the
-     * program will do nothing.
-     * @param args Program arguments, should be empty.
+     * Queues a task that evaluates several candidates and writes their scores directly
+     * to a results array.
+     * @param task A task that evaluates a chunk (or several chunks) of the population.
+     * @return A future that completes when all of the candidates that the task is responsible
+     * for have been evaluated.
      */
-    public static void main(String[] args)
+    Future<Void> submit(Callable<Void> task)
     {
-        // The program will not exit immediately upon completion of the main method because
-        // the worker is configured to use non-daemon threads that keep the JVM alive.
-        new FitnessEvaluationWorker(false);
+        return executor.submit(limitConcurrency(task));
+    }
+
+
+    /**
+     * If this worker has a concurrency limit that is not enforced by its executor, wrap
+     * the task so that it must acquire a permit before doing any work.
+     */
+    private <V> Callable<V> limitConcurrency(Callable<V> task)
+    {
+        return concurrencyLimit == null ? task : new ConcurrencyLimitedTask<V>(task, concurrencyLimit);
+    }
+
+
+    /**
+     * @return The number of threads that this worker uses to perform fitness evaluations.
+     */
+    int getThreadCount()
+    {
+        return threadCount;
+    }
+
+
+    /**
+     * Stops this worker from accepting any further evaluation tasks and releases its
+     * threads once any tasks that have already been submitted are complete.  This method
+     * may safely be invoked more than once.
+     */
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+
+
+    /**
+     * @return True if this worker has been {@link #shutdown() shut down}, false otherwise.
+     */
+    public boolean isShutdown()
+    {
+        return executor.isShutdown();
+    }
+
+
+    /**
+     * Registers this worker with a {@link RemoteFitnessEvaluator} and performs the fitness
+     * evaluations that it requests, dividing each batch of candidates between this worker's
+     * threads.  This method does not return until the connection is closed.
+     * @param host The name or address of the machine on which the remote evaluator is running.
+     * @param port The port on which the remote evaluator accepts worker registrations.
+     * @param secret The secret that the remote evaluator was created with.  The worker and
+     * the evaluator each check that the other knows it before anything else is exchanged.
+     * @throws IOException If the connection cannot be established, if either end fails
+     * authentication, or if the connection fails for any reason other than being closed
+     * by the remote evaluator.
+     */
+    public void connect(String host, int port, String secret) throws IOException
+    {
+        byte[] secretBytes = RemoteFitnessEvaluator.getSecretBytes(secret);
+        Socket socket = new Socket(host, port);
+        try
+        {
+            EvaluationChannel.authenticateEvaluator(socket.getInputStream(), socket.getOutputStream(), secretBytes);
+            serve(socket.getInputStream(), socket.getOutputStream());
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+
+    /**
+     * Performs the fitness evaluations requested over an {@link EvaluationChannel} until
+     * the other end closes the channel.
+     * @param in The stream from which requests are read.
+     * @param out The stream to which responses are written.
+     * @throws IOException If communication fails for any reason other than the channel
+     * being closed.
+     */
+    @SuppressWarnings("unchecked")
+    private void serve(InputStream in, OutputStream out) throws IOException
+    {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out));
+        ObjectInputStream input = new ObjectInputStream(in);
+        try
+        {
+            FitnessEvaluator<Object> fitnessEvaluator = (FitnessEvaluator<Object>) input.readObject();
+            List<Object> population = null;
+            while (true)
+            {
+                Object newPopulation;
+                try
+                {
+                    newPopulation = input.readObject();
+                }
+                catch (EOFException ex)
+                {
+                    return; // The channel has been closed by the evolution engine.
+                }
+                // The population is only sent when it has changed since the previous batch.
+                if (newPopulation != null)
+                {
+                    population = (List<Object>) newPopulation;
+                }
+                List<Object> candidates = (List<Object>) input.readObject();
+                try
+                {
+                    EvaluationChannel.writeScores(output, evaluateBatch(fitnessEvaluator, candidates, population));
+                }
+                catch (ExecutionException ex)
+                {
+                    EvaluationChannel.writeFailure(output, ex.getCause());
+                }
+                output.flush();
+            }
+        }
+        catch (ClassNotFoundException ex)
+        {
+            throw new IOException("Received unknown class from evolution engine.", ex);
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Evaluates a batch of candidates received from a remote evaluator, dividing it
+     * into one chunk for each of this worker's threads.
+     */
+    private double[] evaluateBatch(FitnessEvaluator<Object> fitnessEvaluator,
+                                   List<Object> candidates,
+                                   List<Object> population) throws InterruptedException,
+                                                                   ExecutionException
+    {
+        double[] fitnessScores = new double[candidates.size()];
+        int chunkCount = Math.max(1, Math.min(threadCount, candidates.size()));
+        List<Future<Void>> results = new ArrayList<Future<Void>>(chunkCount);
+        for (int i = 0; i < chunkCount; i++)
+        {
+            results.add(submit(new FitnessEvaluationChunkTask<Object>(fitnessEvaluator,
+                                                                      candidates,
+                                                                      population,
+                                                                      i * candidates.size() / chunkCount,
+                                                                      (i + 1) * candidates.size() / chunkCount,
+                                                                      fitnessScores)));
+        }
+        for (Future<Void> result : results)
+        {
+            result.get();
+        }
+        return fitnessScores;
+    }
+
+
+    /**
+     * <p>Entry-point for running this class standalone, as an additional node for fitness
+     * evaluations.</p>
+     *
+     * <p>If invoked with a host name and a port number as arguments, the program registers
+     * with the {@link RemoteFitnessEvaluator} listening on that port and performs fitness
+     * evaluations for it, using one thread per available processor.  The secret that the
+     * remote evaluator was created with must be provided in the
+     * {@code WATCHMAKER_WORKER_SECRET} environment variable.  If the remote evaluator
+     * is not available, or if the connection is lost, the program keeps trying to re-connect
+     * until it is terminated.</p>
+     *
+     * <p>If invoked with the single argument {@code -pipe}, the program performs
+     * fitness evaluations (on a single thread) for the parent process that started it,
+     * reading requests from standard input and writing results to standard output.  This is
+     * how the child processes of a {@link ProcessFitnessEvaluator} are run.  The program
+     * exits when its standard input is closed.</p>
+     *
+     * <p>If invoked with no arguments and without using Terracotta (or similar) to share the
+     * work queue, the program will do nothing.</p>
+     * @param args Program arguments, either empty, the host and port of a remote evaluator,
+     * or {@code -pipe}.
+     * @throws IOException If evaluating for a parent process and communication with that
+     * process fails.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length == 1 && args[0].equals(PIPE_ARGUMENT))
+        {
+            // Standard output is reserved for results, so anything that the fitness
+            // evaluator prints is sent to standard error instead.
+            OutputStream output = new FileOutputStream(FileDescriptor.out);
+            System.setOut(System.err);
+            FitnessEvaluationWorker worker = new FitnessEvaluationWorker(1);
+            try
+            {
+                worker.serve(System.in, output);
+            }
+            finally
+            {
+                worker.shutdown();
+            }
+        }
+        else if (args.length == 2)
+        {
+            String host = args[0];
+            int port = Integer.parseInt(args[1]);
+            String secret = System.getenv(SECRET_VARIABLE);
+            if (secret == null || secret.length() == 0)
+            {
+                throw new IllegalArgumentException(SECRET_VARIABLE + " environment variable must be set.");
+            }
+            // The program will not exit upon completion of the main method because the
+            // worker is configured to use non-daemon threads that keep the JVM alive.
+            FitnessEvaluationWorker worker = new FitnessEvaluationWorker(false);
+            while (!Thread.currentThread().isInterrupted())
+            {
+                try
+                {
+                    worker.connect(host, port, secret);
+                }
+                catch (IOException ex)
+                {
+                    // The remote evaluator is not available, or has failed, so try again later.
+                }
+                try
+                {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            worker.shutdown();
+        }
+        else if (args.length == 0)
+        {
+            // The program will not exit immediately upon completion of the main method because
+            // the worker is configured to use non-daemon threads that keep the JVM alive.
+            new FitnessEvaluationWorker(false);
+        }
+        else
+        {
+            throw new IllegalArgumentException("Usage: FitnessEvaluationWorker [host port | "
+                                               + PIPE_ARGUMENT + "]");
+        }
     }
 
 
     /**
      * A FitnessWorker cannot be garbage-collected if its thread pool has not been shutdown.
      * This method, invoked on garabage collection (or maybe not at all), shuts down the thread
-     * pool so that the threads can be released. 
+     * pool so that the threads can be released.  Applications should not rely on this and
+     * should instead explicitly {@link #shutdown()} any workers that they create.
      * @throws Throwable Any exception or error that occurs during finalisation.
      */
     @Override
@@ -109,4 +622,67 @@ public class FitnessEvaluationWorker
         executor.shutdown();
         super.finalize();
     }
+
+
+    /**
+     * Makes the submitting thread wait until a task that could not be queued (because the
+     * queue is full) can be added to the queue.  Tasks are not run on the submitting thread,
+     * since the engine could not then enforce time limits or respond to aborts until the
+     * evaluation completed.  Tasks submitted after the worker has been shut down are
+     * rejected rather than silently discarded, since a discarded task would leave the engine
+     * waiting forever for its result.
+     */
+    private static final class WaitForSpacePolicy implements RejectedExecutionHandler
+    {
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor)
+        {
+            if (executor.isShutdown())
+            {
+                throw new RejectedExecutionException("Fitness evaluation worker has been shut down.");
+            }
+            try
+            {
+                executor.getQueue().put(task);
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting to queue task.", ex);
+            }
+            // If the worker was shut down while waiting, the task may never be run.
+            if (executor.isShutdown() && executor.remove(task))
+            {
+                throw new RejectedExecutionException("Fitness evaluation worker has been shut down.");
+            }
+        }
+    }
+
+
+    /**
+     * Wrapper that prevents a task from running until a permit is available.
+     */
+    private static final class ConcurrencyLimitedTask<V> implements Callable<V>
+    {
+        private final Callable<V> task;
+        private final Semaphore permits;
+
+        ConcurrencyLimitedTask(Callable<V> task, Semaphore permits)
+        {
+            this.task = task;
+            this.permits = permits;
+        }
+
+        public V call() throws Exception
+        {
+            permits.acquire();
+            try
+            {
+                return task.call();
+            }
+            finally
+            {
+                permits.release();
+            }
+        }
+    }
 }
@@ -29,6 +29,9 @@ class FitnessEvalutationTask<T> implements Callable<EvaluatedCandidate<T>>
     private final T candidate;
     private final List<T> population;
 
+    private volatile boolean started = false;
+    private volatile long startTime;
+
     /**
      * Creates a task for performing fitness evaluations.
      * @param fitnessEvaluator The fitness function used to determine candidate fitness.
@@ -49,7 +52,37 @@ class FitnessEvalutationTask<T> implements Callable<EvaluatedCandidate<T>>
 
     public EvaluatedCandidate<T> call()
     {
+        startTime = System.nanoTime();
+        started = true;
         return new EvaluatedCandidate<T>(candidate,
                                          fitnessEvaluator.getFitness(candidate, population));
     }
+
+
+    /**
+     * @return True if a worker thread has started evaluating the candidate.
+     */
+    boolean isStarted()
+    {
+        return started;
+    }
+
+
+    /**
+     * @return The value of {@link System#nanoTime()} when evaluation of the candidate
+     * started.  Only meaningful if {@link #isStarted()} returns true.
+     */
+    long getStartTime()
+    {
+        return startTime;
+    }
+
+
+    /**
+     * @return The candidate that this task evaluates.
+     */
+    T getCandidate()
+    {
+        return candidate;
+    }
 }
@@ -15,8 +15,6 @@
 //=============================================================================
 package org.uncommons.watchmaker.framework;
 
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 import org.uncommons.watchmaker.framework.interactive.InteractiveSelection;
@@ -28,8 +26,9 @@ import org.uncommons.watchmaker.framework.interactive.InteractiveSelection;
  *
  * <p>If multi-threading is enabled, evolution (mutation, cross-over, etc.) occurs
  * on the request thread but fitness evaluations are delegated to a pool of worker
- * threads. All of the host's available processing units are used (i.e. on a quad-core
- * machine there will be four fitness evaluation worker threads).</p>
+ * threads. By default, all of the host's available processing units are used (i.e. on a
+ * quad-core machine there will be four fitness evaluation worker threads), but the number of
+ * threads can be configured for each engine (see {@link #setParallelism(int)}).</p>
  *
  * <p>If multi-threading is disabled, all work is performed synchronously on the
  * request thread.  This strategy is suitable for restricted/managed environments where
@@ -108,25 +107,20 @@ public class GenerationalEvolutionEngine<T> extends AbstractEvolutionEngine<T>
                                                             int eliteCount,
                                                             Random rng)
     {
-        List<T> population = new ArrayList<T>(evaluatedPopulation.size());
-
-        // First perform any elitist selection.
-        List<T> elite = new ArrayList<T>(eliteCount);
-        Iterator<EvaluatedCandidate<T>> iterator = evaluatedPopulation.iterator();
-        while (elite.size() < eliteCount)
+        // Select candidates that will be operated on to create the evolved portion of the
+        // next generation and then evolve them.  The list returned by the operators is
+        // already a new list, so the population is built in it directly.
+        List<T> selectedCandidates = selectionStrategy.select(evaluatedPopulation,
+                                                              fitnessEvaluator.isNatural(),
+                                                              evaluatedPopulation.size() - eliteCount,
+                                                              rng);
+        List<T> population = evolutionScheme.apply(selectedCandidates, rng);
+        // When the evolution is finished, add the elite (the fittest members of the sorted
+        // previous population) to the population.
+        for (int i = 0; i < eliteCount; i++)
         {
-            elite.add(iterator.next().getCandidate());
+            population.add(evaluatedPopulation.get(i).getCandidate());
         }
-        // Then select candidates that will be operated on to create the evolved
-        // portion of the next generation.
-        population.addAll(selectionStrategy.select(evaluatedPopulation,
-                                                   fitnessEvaluator.isNatural(),
-                                                   evaluatedPopulation.size() - eliteCount,
-                                                   rng));
-        // Then evolve the population.
-        population = evolutionScheme.apply(population, rng);
-        // When the evolution is finished, add the elite to the population.
-        population.addAll(elite);
-        return evaluatePopulation(population);
+        return evaluatePopulation(population, evaluatedPopulation);
     }
 }
@@ -0,0 +1,40 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+/**
+ * <p>Calculates a compact fingerprint of a candidate's genotype.  Candidates with
+ * equivalent genotypes must have the same fingerprint, and candidates with different
+ * genotypes should (with overwhelming probability) have different fingerprints.</p>
+ *
+ * <p>Fingerprints allow equivalent candidates to be recognised without relying on the
+ * candidate type's {@link Object#equals(Object)} and {@link Object#hashCode()} methods
+ * (which may be inherited from {@link Object}, or may be expensive for large genomes).
+ * Because only the fingerprint needs to be kept, a cache keyed on fingerprints (see
+ * {@link LRUFitnessCache#LRUFitnessCache(int, GenotypeKey)}) does not keep the candidates
+ * themselves alive.  {@link StructuralGenotypeKey} provides fingerprints for common
+ * representations such as arrays, lists, strings and bit strings.</p>
+ * @param <T> The type of evolvable entity that can be fingerprinted.
+ * @author Daniel Dyer
+ */
+public interface GenotypeKey<T>
+{
+    /**
+     * @param candidate The candidate to fingerprint.
+     * @return A 64-bit fingerprint of the candidate's genotype.
+     */
+    long getFingerprint(T candidate);
+}
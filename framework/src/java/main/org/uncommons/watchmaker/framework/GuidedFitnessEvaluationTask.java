@@ -0,0 +1,94 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Callable task for evaluating a population using guided self-scheduling.  Several
+ * of these tasks run concurrently and share a cursor into the population.  Rather than
+ * being assigned a fixed portion of the population up-front, each task repeatedly claims
+ * the next unevaluated chunk.  The size of each claimed chunk is proportional to the
+ * amount of work remaining, so chunks start large (keeping co-ordination overhead low)
+ * and shrink to single candidates towards the end of the generation.</p>
+ *
+ * <p>This means that when fitness evaluation costs vary greatly between candidates, a
+ * task that is held up by an expensive candidate does not prevent the other tasks from
+ * evaluating the rest of the population.  Idle threads keep taking work until there is
+ * none left, so the time that the generation spends waiting on its slowest thread is
+ * bounded by the cost of a single small chunk.</p>
+ * @param <T> The type of entity for which fitness is calculated.
+ * @author Daniel Dyer
+ */
+class GuidedFitnessEvaluationTask<T> implements Callable<Void>
+{
+    private final FitnessEvaluator<? super T> fitnessEvaluator;
+    private final List<T> candidates;
+    private final List<T> population;
+    private final AtomicInteger nextIndex;
+    private final int taskCount;
+    private final double[] fitnessScores;
+
+    /**
+     * @param fitnessEvaluator The fitness function used to determine candidate fitness.
+     * @param candidates The candidates that require evaluation.
+     * @param population The entire current population.
+     * @param nextIndex The index of the next candidate that has not yet been claimed for
+     * evaluation.  This is shared by all of the tasks that evaluate the candidates.
+     * @param taskCount The number of tasks that are sharing the work of evaluating the
+     * candidates.
+     * @param fitnessScores The array, with one element per candidate, into which the
+     * calculated fitness scores are written.
+     */
+    GuidedFitnessEvaluationTask(FitnessEvaluator<? super T> fitnessEvaluator,
+                                List<T> candidates,
+                                List<T> population,
+                                AtomicInteger nextIndex,
+                                int taskCount,
+                                double[] fitnessScores)
+    {
+        this.fitnessEvaluator = fitnessEvaluator;
+        this.candidates = candidates;
+        this.population = population;
+        this.nextIndex = nextIndex;
+        this.taskCount = taskCount;
+        this.fitnessScores = fitnessScores;
+    }
+
+
+    public Void call()
+    {
+        int fromIndex = nextIndex.get();
+        while (fromIndex < candidates.size())
+        {
+            int remaining = candidates.size() - fromIndex;
+            int toIndex = fromIndex + Math.max(1, remaining / (2 * taskCount));
+            if (nextIndex.compareAndSet(fromIndex, toIndex))
+            {
+                FitnessEvaluationChunkTask.evaluate(fitnessEvaluator,
+                                                    candidates,
+                                                    population,
+                                                    fromIndex,
+                                                    toIndex,
+                                                    fitnessScores);
+            }
+            fromIndex = nextIndex.get();
+        }
+        return null;
+    }
+}
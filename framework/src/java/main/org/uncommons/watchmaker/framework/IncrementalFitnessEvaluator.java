@@ -0,0 +1,60 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.List;
+
+/**
+ * <p>A {@link FitnessEvaluator} that can calculate the fitness of a candidate from the
+ * fitness of the parent that it was derived from and a description of the positions that
+ * were changed.  For many problems this is much cheaper than evaluating the whole
+ * candidate.  For example, swapping two cities in a travelling salesman route affects
+ * only the (at most four) legs of the journey either side of those cities, so the new
+ * route length can be calculated in constant time rather than time proportional to the
+ * number of cities.</p>
+ *
+ * <p>Incremental evaluation is only used when the evolution engine has been given a
+ * {@link ModificationTracker} (see
+ * {@link AbstractEvolutionEngine#setModificationTracker(ModificationTracker)}), when an
+ * operator has recorded how a candidate was created, and when the fitness of that
+ * candidate's parent is known (i.e. the parent was a member of the previous population).
+ * Every other candidate is evaluated in full by the inherited
+ * {@link #getFitness(Object, List)} method.  Incremental evaluation is only valid for
+ * isolated fitness functions, since the score of the parent was calculated in the context
+ * of a different population.</p>
+ * @param <T> The type of evolvable entity that can be evaluated.
+ * @author Daniel Dyer
+ */
+public interface IncrementalFitnessEvaluator<T> extends FitnessEvaluator<T>
+{
+    /**
+     * Calculates the fitness score of a candidate that was created by modifying some of
+     * the positions of a previously evaluated candidate.  The result must be the same
+     * (allowing for floating point rounding) as that of the full
+     * {@link #getFitness(Object, List)} method.
+     * @param candidate The candidate solution to calculate fitness for.
+     * @param modification A description of the candidate's parent and of the positions
+     * in which the candidate may differ from that parent.
+     * @param parentFitness The previously calculated fitness score of the parent.
+     * @param population The entire population.
+     * @return The fitness score for the specified candidate.  Must always be a
+     * non-negative value.
+     */
+    double getFitness(T candidate,
+                      Modification<? extends T> modification,
+                      double parentFitness,
+                      List<? extends T> population);
+}
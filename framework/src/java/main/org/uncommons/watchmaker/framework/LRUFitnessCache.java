@@ -0,0 +1,241 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>A {@link FitnessCache} that holds up to a fixed number of fitness scores.  When the
+ * cache is full, the score of the least-recently used candidate is discarded to make room
+ * for a new one.  Unlike the default cache used by {@link CachingFitnessEvaluator}, scores
+ * are not discarded just because the garbage collector runs, and the memory used by the
+ * cache is bounded.</p>
+ *
+ * <p>Candidates may be matched either by identity or by content (using their
+ * {@link Object#equals(Object)} and {@link Object#hashCode()} methods, or using the
+ * fingerprints calculated by a {@link GenotypeKey}).  Matching by content means that a
+ * candidate that is re-created by the evolutionary operators (for example, a short bit
+ * string or permutation that recurs in later generations) does not need to be evaluated
+ * again.  Candidates that are matched using their {@code equals} methods must not be
+ * modified while they are in the cache.  When candidates are matched by fingerprint, only
+ * the fingerprints are stored, so the cache does not keep the candidates alive.</p>
+ *
+ * <p>The cache records the number of hits, misses and evictions so that its effectiveness
+ * can be monitored.</p>
+ * @param <T> The type of evolvable entity whose fitness scores are cached.
+ * @author Daniel Dyer
+ */
+public class LRUFitnessCache<T> implements FitnessCache<T>
+{
+    private final boolean identityKeys;
+    private final GenotypeKey<? super T> genotypeKey;
+    private final Map<Object, Double> scores;
+
+    // All access to these counters is guarded by the lock on the map.
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    /**
+     * Creates a cache that matches candidates by content.
+     * @param maximumSize The maximum number of fitness scores held in the cache.
+     */
+    public LRUFitnessCache(int maximumSize)
+    {
+        this(maximumSize, false);
+    }
+
+
+    /**
+     * @param maximumSize The maximum number of fitness scores held in the cache.
+     * @param identityKeys If true, candidates are matched by identity.  If false, they
+     * are matched using their {@link Object#equals(Object)} methods.
+     */
+    public LRUFitnessCache(int maximumSize, boolean identityKeys)
+    {
+        this(maximumSize, identityKeys, null);
+    }
+
+
+    /**
+     * Creates a cache that matches candidates by their genotype fingerprints.
+     * @param maximumSize The maximum number of fitness scores held in the cache.
+     * @param genotypeKey Calculates the fingerprints of candidates.
+     */
+    public LRUFitnessCache(int maximumSize, GenotypeKey<? super T> genotypeKey)
+    {
+        this(maximumSize, false, genotypeKey);
+    }
+
+
+    private LRUFitnessCache(final int maximumSize, boolean identityKeys, GenotypeKey<? super T> genotypeKey)
+    {
+        if (maximumSize <= 0)
+        {
+            throw new IllegalArgumentException("Maximum size must be positive.");
+        }
+        this.identityKeys = identityKeys;
+        this.genotypeKey = genotypeKey;
+        this.scores = new LinkedHashMap<Object, Double>(16, 0.75f, true) // Access-ordered.
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Double> eldest)
+            {
+                if (size() > maximumSize)
+                {
+                    ++evictionCount;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public Double get(T candidate)
+    {
+        Object key = getKey(candidate);
+        synchronized (scores)
+        {
+            Double fitness = scores.get(key);
+            if (fitness == null)
+            {
+                ++missCount;
+            }
+            else
+            {
+                ++hitCount;
+            }
+            return fitness;
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public void put(T candidate, double fitness)
+    {
+        Object key = getKey(candidate);
+        synchronized (scores)
+        {
+            scores.put(key, fitness);
+        }
+    }
+
+
+    private Object getKey(T candidate)
+    {
+        if (genotypeKey != null)
+        {
+            return genotypeKey.getFingerprint(candidate);
+        }
+        return identityKeys ? new IdentityKey(candidate) : candidate;
+    }
+
+
+    /**
+     * @return The number of fitness scores currently held in the cache.
+     */
+    public int size()
+    {
+        synchronized (scores)
+        {
+            return scores.size();
+        }
+    }
+
+
+    /**
+     * @return The number of look-ups that found a cached fitness score.
+     */
+    public long getHitCount()
+    {
+        synchronized (scores)
+        {
+            return hitCount;
+        }
+    }
+
+
+    /**
+     * @return The number of look-ups that did not find a cached fitness score.
+     */
+    public long getMissCount()
+    {
+        synchronized (scores)
+        {
+            return missCount;
+        }
+    }
+
+
+    /**
+     * @return The number of fitness scores that have been discarded to make room for
+     * others.
+     */
+    public long getEvictionCount()
+    {
+        synchronized (scores)
+        {
+            return evictionCount;
+        }
+    }
+
+
+    /**
+     * @return The proportion of look-ups that found a cached fitness score, or zero if
+     * there have been no look-ups.
+     */
+    public double getHitRate()
+    {
+        synchronized (scores)
+        {
+            long lookUps = hitCount + missCount;
+            return lookUps == 0 ? 0 : (double) hitCount / lookUps;
+        }
+    }
+
+
+    /**
+     * Wrapper that makes map keys match by identity rather than by content.
+     */
+    private static final class IdentityKey
+    {
+        private final Object candidate;
+
+        IdentityKey(Object candidate)
+        {
+            this.candidate = candidate;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof IdentityKey && ((IdentityKey) other).candidate == candidate;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return System.identityHashCode(candidate);
+        }
+    }
+}
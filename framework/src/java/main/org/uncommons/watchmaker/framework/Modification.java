@@ -0,0 +1,85 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+/**
+ * Immutable description of how a candidate was derived from a parent by an evolutionary
+ * operator that changed only some of the parent's positions (genes).  Descriptions are
+ * recorded by operators in a {@link ModificationTracker} and are used by an
+ * {@link IncrementalFitnessEvaluator} to calculate the fitness of the modified candidate
+ * from the fitness of its parent.
+ * @param <T> The candidate type.
+ * @author Daniel Dyer
+ * @see IncrementalFitnessEvaluator
+ */
+public final class Modification<T>
+{
+    private final T parent;
+    private final int[] modifiedPositions;
+
+
+    /**
+     * @param parent The candidate from which the modified candidate was derived.
+     * @param modifiedPositions The indices of the positions that may differ between the
+     * parent and the modified candidate.  Positions that are not listed must be identical
+     * in both.  Each position should be listed only once.
+     */
+    public Modification(T parent, int[] modifiedPositions)
+    {
+        this.parent = parent;
+        this.modifiedPositions = modifiedPositions.clone();
+    }
+
+
+    /**
+     * @return The candidate from which the modified candidate was derived.
+     */
+    public T getParent()
+    {
+        return parent;
+    }
+
+
+    /**
+     * @return The number of positions that may differ between the parent and the
+     * modified candidate.
+     */
+    public int getModifiedPositionCount()
+    {
+        return modifiedPositions.length;
+    }
+
+
+    /**
+     * @param index An index between zero (inclusive) and {@link #getModifiedPositionCount()}
+     * (exclusive).
+     * @return The position (gene index) of the modification at the specified index.
+     */
+    public int getModifiedPosition(int index)
+    {
+        return modifiedPositions[index];
+    }
+
+
+    /**
+     * @return A copy of the indices of all of the positions that may differ between the
+     * parent and the modified candidate, in ascending order.
+     */
+    public int[] getModifiedPositions()
+    {
+        return modifiedPositions.clone();
+    }
+}
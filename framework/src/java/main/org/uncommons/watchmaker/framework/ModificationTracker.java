@@ -0,0 +1,125 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * <p>Records which positions evolutionary operators have modified in the candidates that
+ * they create, so that an {@link IncrementalFitnessEvaluator} can score those candidates
+ * without evaluating them from scratch.  A single tracker is shared between the operators
+ * that record modifications and the evolution engine (see
+ * {@link AbstractEvolutionEngine#setModificationTracker(ModificationTracker)}), which
+ * consumes and then discards the records each time it evaluates a population.</p>
+ *
+ * <p>Candidates are tracked by identity.  If an operator modifies a candidate that was
+ * itself created by a recorded modification (for example, when two mutation operators
+ * are applied in sequence by an
+ * {@link org.uncommons.watchmaker.framework.operators.EvolutionPipeline}), the two records
+ * are combined so that the result refers back to the original parent.  Candidates for
+ * which there is no record (such as the offspring of cross-over) are evaluated in full.</p>
+ *
+ * <p>A tracker should not be shared by more than one evolution engine.  Its methods are
+ * synchronised so that operators may safely record modifications from multiple
+ * threads.</p>
+ * @param <T> The candidate type.
+ * @author Daniel Dyer
+ */
+public final class ModificationTracker<T>
+{
+    private final Map<T, Modification<T>> modifications = new IdentityHashMap<T, Modification<T>>();
+
+
+    /**
+     * Records that a candidate was created by changing some positions of an existing
+     * candidate.  The offspring must be a different object to its parent.
+     * @param parent The candidate from which the offspring was derived.
+     * @param offspring The new candidate.
+     * @param modifiedPositions The positions of the offspring that may differ from
+     * those of the parent.  Positions may be listed more than once and in any order.
+     */
+    public synchronized void recordModification(T parent, T offspring, int... modifiedPositions)
+    {
+        Modification<T> parentModification = modifications.get(parent);
+        T originalParent = parent;
+        int[] positions;
+        if (parentModification == null)
+        {
+            positions = modifiedPositions.clone();
+        }
+        else // The parent was itself derived from another candidate, so describe the combined change.
+        {
+            originalParent = parentModification.getParent();
+            int parentCount = parentModification.getModifiedPositionCount();
+            positions = new int[parentCount + modifiedPositions.length];
+            for (int i = 0; i < parentCount; i++)
+            {
+                positions[i] = parentModification.getModifiedPosition(i);
+            }
+            System.arraycopy(modifiedPositions, 0, positions, parentCount, modifiedPositions.length);
+        }
+        modifications.put(offspring, new Modification<T>(originalParent, removeDuplicates(positions)));
+    }
+
+
+    /**
+     * @param candidate A candidate that may have been created by a recorded modification.
+     * @return The modification that created the specified candidate, or null if there is
+     * no record of how the candidate was created.
+     */
+    public synchronized Modification<T> getModification(T candidate)
+    {
+        return modifications.get(candidate);
+    }
+
+
+    /**
+     * @return The number of candidates for which modifications are recorded.
+     */
+    public synchronized int size()
+    {
+        return modifications.size();
+    }
+
+
+    /**
+     * Discards all recorded modifications.
+     */
+    public synchronized void clear()
+    {
+        modifications.clear();
+    }
+
+
+    /**
+     * Sorts the positions (in place) and returns the distinct values.
+     */
+    private static int[] removeDuplicates(int[] positions)
+    {
+        Arrays.sort(positions);
+        int count = 0;
+        for (int i = 0; i < positions.length; i++)
+        {
+            if (i == 0 || positions[i] != positions[i - 1])
+            {
+                positions[count++] = positions[i];
+            }
+        }
+        return count == positions.length ? positions : Arrays.copyOf(positions, count);
+    }
+}
@@ -0,0 +1,292 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>A {@link FitnessCache} that stores fitness scores in a memory-mapped file so that
+ * they survive from one run of a program to the next.  This is useful when the same
+ * problem is solved repeatedly (for example, when re-starting an interrupted run or
+ * when comparing different evolution parameters), since candidates that were evaluated
+ * by a previous run do not need to be evaluated again.</p>
+ *
+ * <p>Candidates are matched by their {@link GenotypeKey genotype fingerprints}.  The
+ * file is an open-addressing hash table with a fixed number of slots, each holding a
+ * fingerprint and a fitness score.  Once three quarters of the slots are full, no further
+ * scores are added.  The number of slots is fixed when the file is created, so the
+ * capacity argument is ignored when an existing file is opened.</p>
+ *
+ * <p>The file may be shared by several caches, in the same process or in different
+ * processes on the same machine.  Additions to the table are serialised using a lock
+ * on the file.  File locks are held on behalf of the whole process, so all caches in
+ * the same process that use the same file also share an ordinary lock, which is
+ * acquired first.  Look-ups are not locked, so they are as fast as reading from
+ * memory.</p>
+ *
+ * <p>The cached scores are only valid for the fitness function (and problem instance)
+ * that calculated them.  It is the application's responsibility to use a different file
+ * for each problem.</p>
+ * @param <T> The type of evolvable entity whose fitness scores are cached.
+ * @author Daniel Dyer
+ */
+public class PersistentFitnessCache<T> implements FitnessCache<T>
+{
+    private static final int MAGIC_NUMBER = 0x57464331; // "WFC1"
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int SIZE_OFFSET = 8;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 16; // 8 bytes for the fingerprint, 8 for the score.
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE;
+
+    // Marks empty slots.  A candidate that really has this fingerprint is stored with
+    // a substitute fingerprint instead.
+    private static final long EMPTY = 0;
+    private static final long SUBSTITUTE = 0x5BD1E9955BD1E995L;
+
+    // In-process locks for cache files, keyed by canonical path.  A process can't hold
+    // overlapping locks on a file, so only one cache at a time may try to lock it.
+    private static final ConcurrentMap<String, Object> PROCESS_LOCKS = new ConcurrentHashMap<String, Object>();
+
+    private final GenotypeKey<? super T> genotypeKey;
+    private final Object processLock;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final MappedByteBuffer table;
+    private final int capacity;
+
+    /**
+     * Opens the cache file, creating it if it does not already exist.
+     * @param file The file in which fitness scores are stored.
+     * @param capacity The number of slots in the table if a new file is created.  The
+     * table can hold scores for three quarters of this number of candidates.  Each slot
+     * occupies 16 bytes.
+     * @param genotypeKey Calculates the fingerprints of candidates.
+     * @throws IOException If the file cannot be opened or is not a valid cache file.
+     */
+    public PersistentFitnessCache(File file, int capacity, GenotypeKey<? super T> genotypeKey) throws IOException
+    {
+        if (capacity <= 0 || capacity > MAX_CAPACITY)
+        {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        this.genotypeKey = genotypeKey;
+        this.processLock = getProcessLock(file);
+        this.file = new RandomAccessFile(file, "rw");
+        this.channel = this.file.getChannel();
+        synchronized (processLock)
+        {
+            try
+            {
+                // Lock the file while reading (or writing) the header so that two processes
+                // don't both try to create it at once.
+                FileLock lock = channel.lock();
+                try
+                {
+                    if (this.file.length() == 0)
+                    {
+                        this.capacity = capacity;
+                        this.table = map(capacity);
+                        table.putInt(CAPACITY_OFFSET, capacity);
+                        table.putInt(SIZE_OFFSET, 0);
+                        table.putInt(MAGIC_OFFSET, MAGIC_NUMBER);
+                    }
+                    else
+                    {
+                        if (this.file.length() < HEADER_SIZE || this.file.readInt() != MAGIC_NUMBER)
+                        {
+                            throw new IOException("Not a fitness cache file: " + file);
+                        }
+                        this.capacity = this.file.readInt();
+                        if (this.capacity <= 0
+                            || this.capacity > MAX_CAPACITY
+                            || this.file.length() != HEADER_SIZE + (long) this.capacity * SLOT_SIZE)
+                        {
+                            throw new IOException("Corrupt fitness cache file: " + file);
+                        }
+                        this.table = map(this.capacity);
+                    }
+                }
+                finally
+                {
+                    lock.release();
+                }
+            }
+            catch (IOException ex)
+            {
+                this.file.close();
+                throw ex;
+            }
+        }
+    }
+
+
+    /**
+     * Returns the lock shared by all caches in this process that use the specified file.
+     */
+    private static Object getProcessLock(File file) throws IOException
+    {
+        String path = file.getCanonicalPath();
+        Object lock = PROCESS_LOCKS.get(path);
+        if (lock == null)
+        {
+            Object newLock = new Object();
+            lock = PROCESS_LOCKS.putIfAbsent(path, newLock);
+            if (lock == null)
+            {
+                lock = newLock;
+            }
+        }
+        return lock;
+    }
+
+
+    private MappedByteBuffer map(int slots) throws IOException
+    {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public Double get(T candidate)
+    {
+        long fingerprint = getFingerprint(candidate);
+        for (int slot = getFirstSlot(fingerprint); true; slot = (slot + 1) % capacity)
+        {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            long slotFingerprint = table.getLong(position);
+            if (slotFingerprint == fingerprint)
+            {
+                return table.getDouble(position + 8);
+            }
+            else if (slotFingerprint == EMPTY) // The table is never full, so there is always an empty slot.
+            {
+                return null;
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>If the table is already three quarters full, the score is not stored.</p>
+     */
+    public void put(T candidate, double fitness)
+    {
+        long fingerprint = getFingerprint(candidate);
+        synchronized (processLock)
+        {
+            try
+            {
+                FileLock lock = channel.lock();
+                try
+                {
+                    int size = table.getInt(SIZE_OFFSET);
+                    if (size >= getMaximumSize())
+                    {
+                        return; // The table is full.
+                    }
+                    for (int slot = getFirstSlot(fingerprint); true; slot = (slot + 1) % capacity)
+                    {
+                        int position = HEADER_SIZE + slot * SLOT_SIZE;
+                        long slotFingerprint = table.getLong(position);
+                        if (slotFingerprint == fingerprint)
+                        {
+                            return; // Already cached (possibly by another process).
+                        }
+                        else if (slotFingerprint == EMPTY)
+                        {
+                            // Write the score before the fingerprint so that unlocked readers
+                            // never see a fingerprint without its score.
+                            table.putDouble(position + 8, fitness);
+                            table.putLong(position, fingerprint);
+                            table.putInt(SIZE_OFFSET, size + 1);
+                            return;
+                        }
+                    }
+                }
+                finally
+                {
+                    lock.release();
+                }
+            }
+            catch (IOException ex)
+            {
+                // Failing to cache a score is not fatal, it just means that the candidate
+                // may have to be evaluated again.
+            }
+        }
+    }
+
+
+    private long getFingerprint(T candidate)
+    {
+        long fingerprint = genotypeKey.getFingerprint(candidate);
+        return fingerprint == EMPTY ? SUBSTITUTE : fingerprint;
+    }
+
+
+    private int getFirstSlot(long fingerprint)
+    {
+        // Fingerprints are already well-mixed, so no further hashing is required.
+        return (int) ((fingerprint & Long.MAX_VALUE) % capacity);
+    }
+
+
+    /**
+     * @return The number of fitness scores stored in the file (including any that were
+     * added by other processes).
+     */
+    public int size()
+    {
+        return table.getInt(SIZE_OFFSET);
+    }
+
+
+    /**
+     * @return The maximum number of fitness scores that can be stored in the file.
+     */
+    public int getMaximumSize()
+    {
+        return capacity - capacity / 4 - 1;
+    }
+
+
+    /**
+     * Writes any cached scores that have not yet been saved to the file and closes the
+     * file.  The cache must not be used after it has been closed.
+     * @throws IOException If there is a problem writing to the file.
+     */
+    public void close() throws IOException
+    {
+        synchronized (processLock)
+        {
+            table.force();
+            file.close();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Replaces members of a population that is sorted in descending order of fitness, according
+ * to a {@link ReplacementPolicy}, without disturbing the order.  Each new individual is
+ * inserted at its sorted position (found by binary search) and only the individuals between
+ * the replaced individual and the insertion point are shifted.  This is shared by the
+ * steady-state evolution engines.  The methods are synchronized but callers must also
+ * ensure that the population is not modified by any other thread while it is in use.
+ * @param <T> The type of entity that is being evolved.
+ * @author Daniel Dyer
+ */
+class PopulationReplacer<T>
+{
+    private final boolean naturalFitness;
+
+    private ReplacementPolicy policy = ReplacementPolicy.RANDOM;
+    private int tournamentSize = 2;
+    // The members of the population in the order that they were added (only used for the
+    // OLDEST replacement policy).
+    private final Deque<EvaluatedCandidate<T>> arrivalOrder = new ArrayDeque<EvaluatedCandidate<T>>();
+
+    /**
+     * @param naturalFitness True if higher fitness scores mean fitter individuals, false otherwise.
+     */
+    PopulationReplacer(boolean naturalFitness)
+    {
+        this.naturalFitness = naturalFitness;
+    }
+
+
+    /**
+     * @param replacementPolicy Determines which individuals are replaced.
+     * @param competitors For the {@link ReplacementPolicy#TOURNAMENT} policy, the number
+     * of randomly-chosen individuals from which the least fit is replaced.
+     */
+    synchronized void setPolicy(ReplacementPolicy replacementPolicy, int competitors)
+    {
+        if (replacementPolicy == null)
+        {
+            throw new IllegalArgumentException("Replacement policy must not be null.");
+        }
+        if (competitors < 1)
+        {
+            throw new IllegalArgumentException("Tournament size must be at least 1.");
+        }
+        arrivalOrder.clear();
+        this.policy = replacementPolicy;
+        this.tournamentSize = competitors;
+    }
+
+
+    /**
+     * Discards the recorded ages of individuals.  This should be called before a new
+     * population is evolved.
+     */
+    synchronized void reset()
+    {
+        arrivalOrder.clear();
+    }
+
+
+    /**
+     * Picks the individual to be replaced, which is never one of the "elite" individuals at the
+     * beginning of the sorted population.
+     * @return The index of the individual to replace.
+     */
+    synchronized int chooseReplacement(List<EvaluatedCandidate<T>> population, int eliteCount, Random rng)
+    {
+        int replaceableCount = population.size() - eliteCount;
+        if (policy == ReplacementPolicy.WORST)
+        {
+            return population.size() - 1;
+        }
+        else if (policy == ReplacementPolicy.TOURNAMENT)
+        {
+            // The population is sorted, so the least fit competitor is the one with the highest index.
+            int index = rng.nextInt(replaceableCount);
+            for (int i = 1; i < tournamentSize; i++)
+            {
+                index = Math.max(index, rng.nextInt(replaceableCount));
+            }
+            return index + eliteCount;
+        }
+        else if (policy == ReplacementPolicy.OLDEST)
+        {
+            return removeOldest(population, eliteCount);
+        }
+        else
+        {
+            return rng.nextInt(replaceableCount) + eliteCount;
+        }
+    }
+
+
+    /**
+     * Finds the oldest individual that is not one of the elite and removes it from the
+     * record of arrival order.
+     * @return The index of the oldest non-elite individual.
+     */
+    private int removeOldest(List<EvaluatedCandidate<T>> population, int eliteCount)
+    {
+        List<EvaluatedCandidate<T>> skippedElites = new ArrayList<EvaluatedCandidate<T>>(eliteCount);
+        int index = -1;
+        while (index < eliteCount)
+        {
+            if (arrivalOrder.isEmpty())
+            {
+                // Start recording ages.  The members of the initial population are all the
+                // same age, so the least fit of them are treated as the oldest.
+                for (int i = population.size() - 1; i >= 0; i--)
+                {
+                    arrivalOrder.addLast(population.get(i));
+                }
+                skippedElites.clear();
+            }
+            EvaluatedCandidate<T> oldest = arrivalOrder.removeFirst();
+            index = indexOf(population, oldest);
+            if (index >= 0 && index < eliteCount)
+            {
+                skippedElites.add(oldest);
+            }
+        }
+        // Elites keep their place in the arrival order.
+        for (int i = skippedElites.size() - 1; i >= 0; i--)
+        {
+            arrivalOrder.addFirst(skippedElites.get(i));
+        }
+        return index;
+    }
+
+
+    /**
+     * Replaces the individual at the specified index and moves the new individual to its
+     * sorted position.  Only the individuals between the two positions are shifted.
+     */
+    synchronized void replace(List<EvaluatedCandidate<T>> population, int index, EvaluatedCandidate<T> candidate)
+    {
+        int insertionPoint = search(population, candidate.getFitness(), true);
+        if (insertionPoint > index)
+        {
+            for (int i = index; i < insertionPoint - 1; i++)
+            {
+                population.set(i, population.get(i + 1));
+            }
+            population.set(insertionPoint - 1, candidate);
+        }
+        else
+        {
+            for (int i = index; i > insertionPoint; i--)
+            {
+                population.set(i, population.get(i - 1));
+            }
+            population.set(insertionPoint, candidate);
+        }
+        if (policy == ReplacementPolicy.OLDEST)
+        {
+            arrivalOrder.addLast(candidate);
+        }
+    }
+
+
+    /**
+     * Finds a particular individual in the sorted population.
+     * @return The index of the individual, or -1 if it is not a member of the population.
+     */
+    private int indexOf(List<EvaluatedCandidate<T>> population, EvaluatedCandidate<T> candidate)
+    {
+        // Only the individuals with the same fitness score need to be checked.
+        for (int i = search(population, candidate.getFitness(), false); i < population.size(); i++)
+        {
+            EvaluatedCandidate<T> member = population.get(i);
+            if (member == candidate)
+            {
+                return i;
+            }
+            else if (Double.compare(member.getFitness(), candidate.getFitness()) != 0)
+            {
+                break;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Binary search of the sorted population.
+     * @param afterEqual Whether to return the position after any individuals with the same
+     * fitness, rather than before them.
+     * @return The index of the first individual that is less fit than the specified score
+     * (or, if {@code afterEqual} is false, the first one that is not fitter).
+     */
+    private int search(List<EvaluatedCandidate<T>> population, double fitness, boolean afterEqual)
+    {
+        int low = 0;
+        int high = population.size();
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            int comparison = naturalFitness
+                             ? Double.compare(fitness, population.get(middle).getFitness())
+                             : Double.compare(population.get(middle).getFitness(), fitness);
+            if (comparison < 0 || (afterEqual && comparison == 0))
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,456 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.uncommons.util.concurrent.ConfigurableThreadFactory;
+
+/**
+ * <p>Orders evaluated populations by fitness.  The fitness scores are copied into a
+ * primitive array and all comparisons are made directly on those keys, rather than via
+ * {@link Comparable} and a reversing {@link java.util.Comparator} for every comparison.</p>
+ *
+ * <p>Full sorts are stable merge sorts, so the results are identical to sorting with
+ * {@link java.util.Collections#sort(List)}.  Very large populations are split into
+ * segments that are sorted and then merged on a shared pool of daemon threads.  When
+ * only the fittest few candidates are needed, a quickselect partitions the population
+ * in linear time without ordering the rest of it.</p>
+ * @author Daniel Dyer
+ */
+final class PopulationSorter
+{
+    /**
+     * Populations smaller than this are always sorted in the calling thread because the
+     * co-ordination overhead would outweigh any gain from sorting concurrently.
+     */
+    static final int PARALLEL_SORT_THRESHOLD = 16384;
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private static ExecutorService sortThreads = null;
+
+    private final Object[] candidates;
+    private final double[] keys;
+    private final boolean naturalFitness;
+    private double[] keyBuffer = null;
+    private Object[] candidateBuffer = null;
+
+    /**
+     * @param candidates The evaluated candidates to re-order.
+     * @param naturalFitness True if higher fitness scores mean fitter individuals, false otherwise.
+     */
+    private PopulationSorter(Object[] candidates, boolean naturalFitness)
+    {
+        this.candidates = candidates;
+        this.naturalFitness = naturalFitness;
+        this.keys = new double[candidates.length];
+        for (int i = 0; i < candidates.length; i++)
+        {
+            keys[i] = ((EvaluatedCandidate<?>) candidates[i]).getFitness();
+        }
+    }
+
+
+    /**
+     * Sorts a population in descending order of fitness, sorting concurrently if the
+     * population is large enough and there is more than one processor available.
+     * @param population The population to sort (in-place).
+     * @param naturalFitness True if higher fitness scores mean fitter individuals, false otherwise.
+     * @param <T> The type of entity that is being evolved.
+     */
+    static <T> void sort(List<EvaluatedCandidate<T>> population, boolean naturalFitness)
+    {
+        int parallelism = population.size() >= PARALLEL_SORT_THRESHOLD
+                          ? Runtime.getRuntime().availableProcessors()
+                          : 1;
+        sort(population, naturalFitness, parallelism);
+    }
+
+
+    /**
+     * Sorts a population in descending order of fitness.
+     * @param population The population to sort (in-place).
+     * @param naturalFitness True if higher fitness scores mean fitter individuals, false otherwise.
+     * @param parallelism The maximum number of segments to sort concurrently.  The population
+     * is sorted in the calling thread if this is less than 2.
+     * @param <T> The type of entity that is being evolved.
+     */
+    static <T> void sort(List<EvaluatedCandidate<T>> population, boolean naturalFitness, int parallelism)
+    {
+        int size = population.size();
+        if (size < 2 || isSorted(population, naturalFitness))
+        {
+            return;
+        }
+        PopulationSorter sorter = new PopulationSorter(population.toArray(), naturalFitness);
+        sorter.keyBuffer = new double[size];
+        sorter.candidateBuffer = new Object[size];
+
+        // Use the largest power of two segments that does not exceed the parallelism, so
+        // that the sorted segments can be merged pair-wise.
+        int segments = 1;
+        while (segments * 2 <= parallelism && size / (segments * 2) >= INSERTION_SORT_THRESHOLD)
+        {
+            segments *= 2;
+        }
+        if (segments == 1)
+        {
+            sorter.mergeSort(0, size);
+        }
+        else
+        {
+            sorter.sortConcurrently(segments);
+        }
+        writeBack(population, sorter.candidates);
+    }
+
+
+    /**
+     * Checks whether a population is already sorted, which is the case for populations that
+     * are kept in order as they change (as in steady-state evolution).  Checking is much
+     * cheaper than copying and sorting, and an unsorted population is usually identified
+     * within the first few comparisons.
+     */
+    private static <T> boolean isSorted(List<EvaluatedCandidate<T>> population, boolean naturalFitness)
+    {
+        Iterator<EvaluatedCandidate<T>> iterator = population.iterator();
+        double previous = iterator.next().getFitness();
+        while (iterator.hasNext())
+        {
+            double fitness = iterator.next().getFitness();
+            int comparison = naturalFitness ? Double.compare(fitness, previous) : Double.compare(previous, fitness);
+            if (comparison > 0)
+            {
+                return false;
+            }
+            previous = fitness;
+        }
+        return true;
+    }
+
+
+    /**
+     * Re-orders a population so that the fittest {@code count} candidates occupy the
+     * first {@code count} positions.  Neither those candidates nor the rest of the
+     * population are sorted.
+     * @param population The population to partition (in-place).
+     * @param count The number of fittest candidates to move to the front of the population.
+     * @param naturalFitness True if higher fitness scores mean fitter individuals, false otherwise.
+     * @param <T> The type of entity that is being evolved.
+     */
+    static <T> void selectFittest(List<EvaluatedCandidate<T>> population, int count, boolean naturalFitness)
+    {
+        int size = population.size();
+        if (count <= 0 || count >= size)
+        {
+            return;
+        }
+        if (count == 1)
+        {
+            // A single pass is enough to find the fittest candidate.
+            int fittestIndex = 0;
+            double fittest = population.get(0).getFitness();
+            for (int i = 1; i < size; i++)
+            {
+                double fitness = population.get(i).getFitness();
+                if (naturalFitness ? Double.compare(fitness, fittest) > 0 : Double.compare(fitness, fittest) < 0)
+                {
+                    fittest = fitness;
+                    fittestIndex = i;
+                }
+            }
+            if (fittestIndex > 0)
+            {
+                population.set(fittestIndex, population.set(0, population.get(fittestIndex)));
+            }
+        }
+        else
+        {
+            PopulationSorter sorter = new PopulationSorter(population.toArray(), naturalFitness);
+            sorter.partition(count - 1);
+            writeBack(population, sorter.candidates);
+        }
+    }
+
+
+    /**
+     * Quickselect, which partitions the candidates so that the candidate at the target
+     * index is in its sorted position, with no less fit candidates before it and no
+     * fitter candidates after it.
+     */
+    private void partition(int target)
+    {
+        int left = 0;
+        int right = keys.length - 1;
+        while (left < right)
+        {
+            double pivot = medianOfThree(keys[left], keys[(left + right) >>> 1], keys[right]);
+            // Three-way partition, so that runs of equal fitness scores (common in
+            // converged populations) do not degrade the performance.
+            int fitterEnd = left;
+            int weakerStart = right;
+            int i = left;
+            while (i <= weakerStart)
+            {
+                int comparison = compare(keys[i], pivot);
+                if (comparison < 0)
+                {
+                    swap(fitterEnd++, i++);
+                }
+                else if (comparison > 0)
+                {
+                    swap(i, weakerStart--);
+                }
+                else
+                {
+                    ++i;
+                }
+            }
+            if (target < fitterEnd)
+            {
+                right = fitterEnd - 1;
+            }
+            else if (target > weakerStart)
+            {
+                left = weakerStart + 1;
+            }
+            else
+            {
+                break;
+            }
+        }
+    }
+
+
+    /**
+     * Sorts equal-sized segments on the shared sort threads and then merges adjacent pairs
+     * of sorted segments until the whole array is sorted.
+     */
+    private void sortConcurrently(int segments)
+    {
+        ExecutorService executor = getSortThreads();
+        int size = keys.length;
+        List<Future<?>> results = new ArrayList<Future<?>>(segments);
+        for (int i = 0; i < segments; i++)
+        {
+            final int from = (int) ((long) size * i / segments);
+            final int to = (int) ((long) size * (i + 1) / segments);
+            results.add(executor.submit(new Runnable()
+            {
+                public void run()
+                {
+                    mergeSort(from, to);
+                }
+            }));
+        }
+        awaitAll(results);
+
+        for (int width = 2; width <= segments; width *= 2)
+        {
+            results.clear();
+            for (int i = 0; i < segments; i += width)
+            {
+                final int from = (int) ((long) size * i / segments);
+                final int middle = (int) ((long) size * (i + width / 2) / segments);
+                final int to = (int) ((long) size * (i + width) / segments);
+                results.add(executor.submit(new Runnable()
+                {
+                    public void run()
+                    {
+                        merge(from, middle, to);
+                    }
+                }));
+            }
+            awaitAll(results);
+        }
+    }
+
+
+    /**
+     * Waits for all of the sorting tasks to finish.  Interruption does not cut the wait
+     * short because the tasks are still writing to the shared arrays, but the interrupt
+     * status of the calling thread is restored afterwards.
+     */
+    private static void awaitAll(List<Future<?>> results)
+    {
+        boolean interrupted = false;
+        for (Future<?> result : results)
+        {
+            while (true)
+            {
+                try
+                {
+                    result.get();
+                    break;
+                }
+                catch (InterruptedException ex)
+                {
+                    interrupted = true;
+                }
+                catch (ExecutionException ex)
+                {
+                    throw new IllegalStateException("Population sort failed.", ex.getCause());
+                }
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Stable merge sort of the range {@code from} (inclusive) to {@code to} (exclusive).
+     * The keys and candidates are re-ordered together.
+     */
+    private void mergeSort(int from, int to)
+    {
+        if (to - from <= INSERTION_SORT_THRESHOLD)
+        {
+            insertionSort(from, to);
+        }
+        else
+        {
+            int middle = (from + to) >>> 1;
+            mergeSort(from, middle);
+            mergeSort(middle, to);
+            merge(from, middle, to);
+        }
+    }
+
+
+    /**
+     * Merges two adjacent sorted ranges.  Where scores are equal, candidates from the
+     * first range come first so that the sort is stable.  Only the part of the buffers
+     * that corresponds to the merged range is used, so separate ranges can be merged
+     * concurrently.
+     */
+    private void merge(int from, int middle, int to)
+    {
+        if (compare(keys[middle - 1], keys[middle]) <= 0)
+        {
+            return; // Already in order.
+        }
+        System.arraycopy(keys, from, keyBuffer, from, to - from);
+        System.arraycopy(candidates, from, candidateBuffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++)
+        {
+            if (right >= to || (left < middle && compare(keyBuffer[right], keyBuffer[left]) >= 0))
+            {
+                keys[i] = keyBuffer[left];
+                candidates[i] = candidateBuffer[left++];
+            }
+            else
+            {
+                keys[i] = keyBuffer[right];
+                candidates[i] = candidateBuffer[right++];
+            }
+        }
+    }
+
+
+    private void insertionSort(int from, int to)
+    {
+        for (int i = from + 1; i < to; i++)
+        {
+            double key = keys[i];
+            Object candidate = candidates[i];
+            int j = i - 1;
+            while (j >= from && compare(keys[j], key) > 0)
+            {
+                keys[j + 1] = keys[j];
+                candidates[j + 1] = candidates[j];
+                --j;
+            }
+            keys[j + 1] = key;
+            candidates[j + 1] = candidate;
+        }
+    }
+
+
+    /**
+     * Compares two fitness scores in the same way as sorting {@link EvaluatedCandidate}s.
+     * @return A negative number if the first score is fitter than the second, a positive
+     * number if it is less fit, or zero if they are equal.
+     */
+    private int compare(double fitness1, double fitness2)
+    {
+        return naturalFitness ? Double.compare(fitness2, fitness1) : Double.compare(fitness1, fitness2);
+    }
+
+
+    private double medianOfThree(double a, double b, double c)
+    {
+        if (compare(a, b) > 0)
+        {
+            return compare(b, c) >= 0 ? b : (compare(a, c) < 0 ? a : c);
+        }
+        else
+        {
+            return compare(a, c) >= 0 ? a : (compare(b, c) < 0 ? b : c);
+        }
+    }
+
+
+    private void swap(int i, int j)
+    {
+        double key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        Object candidate = candidates[i];
+        candidates[i] = candidates[j];
+        candidates[j] = candidate;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <T> void writeBack(List<EvaluatedCandidate<T>> population, Object[] candidates)
+    {
+        ListIterator<EvaluatedCandidate<T>> iterator = population.listIterator();
+        for (Object candidate : candidates)
+        {
+            iterator.next();
+            iterator.set((EvaluatedCandidate<T>) candidate);
+        }
+    }
+
+
+    /**
+     * Lazily creates the threads used for sorting very large populations.  They are
+     * daemon threads so that they do not prevent the JVM from exiting.
+     */
+    private static synchronized ExecutorService getSortThreads()
+    {
+        if (sortThreads == null)
+        {
+            sortThreads = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                                                       new ConfigurableThreadFactory("PopulationSorter",
+                                                                                     Thread.NORM_PRIORITY,
+                                                                                     true));
+        }
+        return sortThreads;
+    }
+}
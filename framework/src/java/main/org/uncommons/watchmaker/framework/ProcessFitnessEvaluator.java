@@ -0,0 +1,484 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.uncommons.util.concurrent.ConfigurableThreadFactory;
+
+/**
+ * <p>A {@link BatchFitnessEvaluator} that isolates a fitness evaluator from the evolution
+ * engine by running it in a pool of child JVM processes.  This is intended for fitness
+ * evaluators that wrap unreliable code (for example, native simulation libraries) that
+ * might crash or leak resources.  A crash in a child process does not affect the
+ * evolution: the child is replaced and the candidates that it was evaluating are
+ * re-submitted.  To stop leaks from accumulating, each child can be retired and replaced
+ * after it has performed a certain number of evaluations.  If a replacement can't be started
+ * (after a few attempts), the evaluator carries on with the remaining children; once there
+ * are none left, evaluations fail with an {@link IllegalStateException}.</p>
+ *
+ * <p>Each child process runs {@link FitnessEvaluationWorker#main(String[])} with the same
+ * classpath as this JVM and is sent a (serialized) copy of the wrapped fitness evaluator
+ * when it starts.  Candidates and scores are exchanged over the child's standard input
+ * and output, so the wrapped evaluator and the candidates must be serializable.  Anything
+ * that the fitness evaluator writes to standard output or standard error in a child
+ * process is written to the standard error stream of this process.</p>
+ *
+ * <p>Each batch of candidates is divided between the child processes, so an evolution
+ * engine that uses this evaluator should usually be
+ * {@link AbstractEvolutionEngine#setSingleThreaded(boolean) single-threaded}.  The
+ * evaluator should be {@link #close() closed} when it is no longer required so that the
+ * child processes are terminated.</p>
+ * @param <T> The type of evolvable entity that can be evaluated.
+ * @author Daniel Dyer
+ */
+public class ProcessFitnessEvaluator<T> implements BatchFitnessEvaluator<T>
+{
+    /**
+     * Each batch is split into this many parts per child process so that the remaining
+     * children can carry on while a crashed child is replaced.
+     */
+    private static final int PARTS_PER_PROCESS = 2;
+
+    /**
+     * How many times the candidates in a part of a batch are sent to a new child process
+     * after crashing the previous one.  A part that crashes every child that it is sent
+     * to would otherwise prevent the evolution from making progress.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * How many times to try to start a replacement for a crashed or retired child process
+     * before giving up (and running with one fewer process).  The delay between attempts
+     * doubles each time.
+     */
+    private static final int SPAWN_ATTEMPTS = 3;
+    private static final long SPAWN_RETRY_DELAY_MS = 100;
+
+    /**
+     * How often a batch that is waiting for an idle child checks whether there are any
+     * children left.
+     */
+    private static final long IDLE_POLL_INTERVAL_MS = 100;
+
+    private final FitnessEvaluator<? super T> fitnessEvaluator;
+    private final int processCount;
+    private final int evaluationsPerProcess;
+    private final List<String> command;
+    private final BlockingQueue<ChildProcess> idleProcesses = new LinkedBlockingQueue<ChildProcess>();
+    private final Set<ChildProcess> processes = Collections.synchronizedSet(new HashSet<ChildProcess>());
+    private final ExecutorService dispatcher;
+    private final AtomicInteger processesStarted = new AtomicInteger(0);
+    private volatile boolean closed = false;
+
+    /**
+     * Starts the child processes.
+     * @param fitnessEvaluator The fitness function that the child processes use to evaluate
+     * candidates.  This must be serializable.
+     * @param processCount The number of child processes to run at once.
+     * @param evaluationsPerProcess The number of candidates that each child process evaluates
+     * before it is replaced with a new process, or zero if child processes should only be
+     * replaced if they crash.  A child process always completes the batch that it is given,
+     * so it may evaluate more than this number of candidates.
+     * @param jvmArguments Additional arguments for the child JVMs, for example to set the
+     * maximum heap size.
+     * @throws IOException If the child processes cannot be started.
+     */
+    public ProcessFitnessEvaluator(FitnessEvaluator<? super T> fitnessEvaluator,
+                                   int processCount,
+                                   int evaluationsPerProcess,
+                                   String... jvmArguments) throws IOException
+    {
+        if (!(fitnessEvaluator instanceof Serializable))
+        {
+            throw new IllegalArgumentException("Fitness evaluator must be serializable.");
+        }
+        if (processCount <= 0)
+        {
+            throw new IllegalArgumentException("Process count must be positive.");
+        }
+        if (evaluationsPerProcess < 0)
+        {
+            throw new IllegalArgumentException("Evaluations per process must not be negative.");
+        }
+        this.fitnessEvaluator = fitnessEvaluator;
+        this.processCount = processCount;
+        this.evaluationsPerProcess = evaluationsPerProcess;
+        this.command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(Arrays.asList(jvmArguments));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(FitnessEvaluationWorker.class.getName());
+        command.add(FitnessEvaluationWorker.PIPE_ARGUMENT);
+        this.dispatcher = Executors.newCachedThreadPool(new ConfigurableThreadFactory("ProcessFitnessEvaluator",
+                                                                                      Thread.NORM_PRIORITY,
+                                                                                      true));
+        try
+        {
+            for (int i = 0; i < processCount; i++)
+            {
+                idleProcesses.add(new ChildProcess());
+            }
+        }
+        catch (IOException ex)
+        {
+            close();
+            throw ex;
+        }
+    }
+
+
+    /**
+     * @return The number of child processes that have been started, including those that
+     * have since crashed or been retired.
+     */
+    public int getProcessesStarted()
+    {
+        return processesStarted.get();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public double getFitness(T candidate, List<? extends T> population)
+    {
+        double[] fitnessScores = new double[1];
+        getFitness(Collections.singletonList(candidate), population, fitnessScores, 0);
+        return fitnessScores[0];
+    }
+
+
+    /**
+     * Divides the candidates between the child processes and waits for all of their scores
+     * to be returned.
+     * {@inheritDoc}
+     */
+    public void getFitness(List<? extends T> candidates,
+                           List<? extends T> population,
+                           double[] fitnessScores,
+                           int offset)
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Process fitness evaluator has been closed.");
+        }
+        int partCount = Math.max(1, Math.min(processCount * PARTS_PER_PROCESS, candidates.size()));
+        List<Future<Void>> results = new ArrayList<Future<Void>>(partCount);
+        for (int i = 0; i < partCount; i++)
+        {
+            int fromIndex = i * candidates.size() / partCount;
+            int toIndex = (i + 1) * candidates.size() / partCount;
+            results.add(dispatcher.submit(new ProcessBatchTask(candidates.subList(fromIndex, toIndex),
+                                                               population,
+                                                               fitnessScores,
+                                                               offset + fromIndex)));
+        }
+        try
+        {
+            for (Future<Void> result : results)
+            {
+                result.get();
+            }
+        }
+        catch (ExecutionException ex)
+        {
+            throw new IllegalStateException(ex.getCause());
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Fitness evaluation interrupted.", ex);
+        }
+        finally
+        {
+            for (Future<Void> result : results)
+            {
+                result.cancel(true);
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isNatural()
+    {
+        return fitnessEvaluator.isNatural();
+    }
+
+
+    /**
+     * Terminates all of the child processes.  This method may safely be invoked more than once.
+     */
+    public void close()
+    {
+        closed = true;
+        dispatcher.shutdownNow();
+        List<ChildProcess> children;
+        synchronized (processes)
+        {
+            // Copy the processes because terminating them removes them from the set.
+            children = new ArrayList<ChildProcess>(processes);
+        }
+        for (ChildProcess child : children)
+        {
+            child.terminate();
+        }
+    }
+
+
+    /**
+     * Sends part of a batch to a child process and writes the scores that the child
+     * returns into the results array.  If the child crashes, it is replaced and the part
+     * is sent to another child.
+     */
+    private final class ProcessBatchTask implements Callable<Void>
+    {
+        private final List<? extends T> candidates;
+        private final List<? extends T> population;
+        private final double[] fitnessScores;
+        private final int offset;
+
+        ProcessBatchTask(List<? extends T> candidates,
+                         List<? extends T> population,
+                         double[] fitnessScores,
+                         int offset)
+        {
+            this.candidates = candidates;
+            this.population = population;
+            this.fitnessScores = fitnessScores;
+            this.offset = offset;
+        }
+
+        public Void call() throws InterruptedException
+        {
+            for (int attempt = 1; true; attempt++)
+            {
+                ChildProcess child = takeIdleProcess();
+                double[] scores;
+                try
+                {
+                    scores = child.channel.evaluate(candidates, population);
+                }
+                catch (IOException ex)
+                {
+                    // The child has crashed, so replace it and try again.
+                    replace(child);
+                    if (attempt == MAX_ATTEMPTS)
+                    {
+                        throw new IllegalStateException("Fitness evaluation crashed " + attempt + " processes.", ex);
+                    }
+                    continue;
+                }
+                catch (IllegalStateException ex)
+                {
+                    release(child, candidates.size());
+                    throw ex;
+                }
+                release(child, candidates.size());
+                System.arraycopy(scores, 0, fitnessScores, offset, scores.length);
+                return null;
+            }
+        }
+
+
+        /**
+         * Waits for a child process to become available.
+         * @throws IllegalStateException If there are no child processes left (because they
+         * have crashed and could not be replaced) or the evaluator has been closed.
+         */
+        private ChildProcess takeIdleProcess() throws InterruptedException
+        {
+            while (true)
+            {
+                ChildProcess child = idleProcesses.poll(IDLE_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (child != null)
+                {
+                    return child;
+                }
+                if (closed)
+                {
+                    throw new IllegalStateException("Process fitness evaluator has been closed.");
+                }
+                if (processes.isEmpty())
+                {
+                    throw new IllegalStateException("No child processes left, replacements could not be started.");
+                }
+            }
+        }
+
+
+        /**
+         * Returns a child process to the pool, or replaces it if it has reached its
+         * evaluation limit.
+         */
+        private void release(ChildProcess child, int evaluations) throws InterruptedException
+        {
+            child.evaluationCount += evaluations;
+            if (evaluationsPerProcess > 0 && child.evaluationCount >= evaluationsPerProcess)
+            {
+                replace(child);
+            }
+            else
+            {
+                idleProcesses.add(child);
+            }
+        }
+
+
+        /**
+         * Starts a new child process to take the place of one that has crashed or been
+         * retired.  The replacement is started before the old child is removed, so that
+         * batches waiting for a child don't see an empty pool and give up while there is
+         * still a chance of a replacement.  If no replacement can be started, the pool
+         * shrinks.
+         */
+        private void replace(ChildProcess child) throws InterruptedException
+        {
+            try
+            {
+                long delay = SPAWN_RETRY_DELAY_MS;
+                for (int attempt = 1; !closed; attempt++)
+                {
+                    try
+                    {
+                        ChildProcess replacement = new ChildProcess();
+                        if (closed) // Don't leave a process running if we were closed while starting it.
+                        {
+                            replacement.terminate();
+                        }
+                        else
+                        {
+                            idleProcesses.add(replacement);
+                        }
+                        return;
+                    }
+                    catch (IOException ex)
+                    {
+                        if (attempt == SPAWN_ATTEMPTS)
+                        {
+                            return; // Carry on without a replacement.
+                        }
+                    }
+                    Thread.sleep(delay);
+                    delay *= 2;
+                }
+            }
+            finally
+            {
+                child.terminate();
+            }
+        }
+    }
+
+
+    /**
+     * A child JVM that performs fitness evaluations.  A child is used by only one batch
+     * at a time.
+     */
+    private final class ChildProcess
+    {
+        private final Process process;
+        private final EvaluationChannel channel;
+        private int evaluationCount = 0;
+
+        ChildProcess() throws IOException
+        {
+            this.process = new ProcessBuilder(command).start();
+            processes.add(this);
+            processesStarted.incrementAndGet();
+            // The child's error stream must be drained, otherwise it will block when the
+            // pipe's buffer is full.
+            Thread errorCopier = new Thread(new StreamCopier(process.getErrorStream(), System.err),
+                                            "ProcessFitnessEvaluator-stderr");
+            errorCopier.setDaemon(true);
+            errorCopier.start();
+            try
+            {
+                this.channel = new EvaluationChannel(process.getInputStream(),
+                                                     process.getOutputStream(),
+                                                     fitnessEvaluator);
+            }
+            catch (IOException ex)
+            {
+                terminate();
+                throw ex;
+            }
+        }
+
+
+        void terminate()
+        {
+            processes.remove(this);
+            process.destroy();
+        }
+    }
+
+
+    /**
+     * Copies everything from an input stream to an output stream until the end of the
+     * input is reached.
+     */
+    private static final class StreamCopier implements Runnable
+    {
+        private final InputStream input;
+        private final OutputStream output;
+
+        StreamCopier(InputStream input, OutputStream output)
+        {
+            this.input = input;
+            this.output = output;
+        }
+
+        public void run()
+        {
+            byte[] buffer = new byte[1024];
+            try
+            {
+                for (int count = input.read(buffer); count >= 0; count = input.read(buffer))
+                {
+                    output.write(buffer, 0, count);
+                    output.flush();
+                }
+            }
+            catch (IOException ex)
+            {
+                // The process has terminated, so there is nothing more to copy.
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.Random;
+
+/**
+ * <p>Provides independent random number generators that are deterministically derived from a
+ * single seed.  Sharing one {@link Random} between threads makes the sequence of numbers that
+ * each thread receives depend on how the threads are scheduled, and with a lock-guarded RNG the
+ * shared instance is also a point of contention.  Instead, each concurrent activity (an island,
+ * a generation, a partition of the population) can be given its own stream, identified by its
+ * index.  The same seed and index always give the same stream, so multi-threaded evolution is
+ * reproducible.</p>
+ *
+ * <p>Streams are derived by hashing the seed and the index with the SplitMix64 finaliser, which
+ * gives well-separated seeds even for adjacent indices.  Providers can be nested using
+ * {@link #derive(long)}, for example one provider per island, each of which provides one stream
+ * per generation.</p>
+ * @author Daniel Dyer
+ */
+public final class RandomStreams
+{
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    // Distinguish streams from derived providers with the same index.
+    private static final long STREAM_DOMAIN = 0x2545F4914F6CDD1DL;
+    private static final long PROVIDER_DOMAIN = 0x6A09E667F3BCC909L;
+    private static final int SEED_SIZE_BYTES = 16; // Seed size for BufferedRandom.
+
+    private final long seed;
+
+    /**
+     * @param seed The seed from which all streams are derived.
+     */
+    public RandomStreams(long seed)
+    {
+        this.seed = seed;
+    }
+
+
+    /**
+     * Creates a provider that is seeded from another source of randomness.  Only a single
+     * value is taken from the source.
+     * @param source The RNG that provides the seed.
+     */
+    public RandomStreams(Random source)
+    {
+        this(source.nextLong());
+    }
+
+
+    /**
+     * @return The seed from which all streams are derived.
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+
+    /**
+     * Creates the random number generator for the stream with the specified index.  Each
+     * call returns a new generator, so a stream should not be shared between threads.  The
+     * generator is a {@link BufferedRandom}, which is not synchronised.
+     * @param index The index of the stream.
+     * @return A new RNG, seeded from this provider's seed and the index.
+     */
+    public BufferedRandom getStream(long index)
+    {
+        long first = hash(index, STREAM_DOMAIN);
+        long second = mix(first + GOLDEN_GAMMA);
+        byte[] streamSeed = new byte[SEED_SIZE_BYTES];
+        for (int i = 0; i < 8; i++)
+        {
+            streamSeed[i] = (byte) (first >>> (56 - 8 * i));
+            streamSeed[i + 8] = (byte) (second >>> (56 - 8 * i));
+        }
+        return new BufferedRandom(streamSeed);
+    }
+
+
+    /**
+     * Creates a nested provider.  Its streams are independent of this provider's streams
+     * and of the streams of any other nested provider.
+     * @param index The index of the nested provider.
+     * @return A provider whose seed is derived from this provider's seed and the index.
+     */
+    public RandomStreams derive(long index)
+    {
+        return new RandomStreams(hash(index, PROVIDER_DOMAIN));
+    }
+
+
+    private long hash(long index, long domain)
+    {
+        return mix(mix(seed ^ domain) + GOLDEN_GAMMA * (index + 1));
+    }
+
+
+    /**
+     * The SplitMix64 finaliser.
+     */
+    private static long mix(long value)
+    {
+        long z = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
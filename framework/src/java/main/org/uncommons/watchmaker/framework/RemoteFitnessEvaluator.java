@@ -0,0 +1,466 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.uncommons.util.concurrent.ConfigurableThreadFactory;
+
+/**
+ * <p>A {@link BatchFitnessEvaluator} that distributes fitness evaluations to worker
+ * processes running on other machines (or on the same machine).  The evaluator listens
+ * on a TCP port for workers to register.  Workers are started by running
+ * {@link FitnessEvaluationWorker#main(String[])} with the host name and port of this
+ * evaluator as arguments.  When a worker registers, it is sent a (serialized) copy of the
+ * wrapped fitness evaluator, which it then uses to evaluate the candidates that it is
+ * sent.  The wrapped evaluator and the candidates must therefore be serializable and
+ * the classes must be available on the worker's classpath.</p>
+ *
+ * <p>By default the evaluator only listens on the loopback interface, so workers must
+ * run on the same machine unless a different address is specified.  Every worker must
+ * know the secret that the evaluator is created with: before anything else is exchanged,
+ * the worker and the evaluator each prove to the other that they know it (without
+ * sending it).  Workers only ever send back scores and error messages, never serialized
+ * objects.  The secret protects neither the candidates nor the scores in transit, so
+ * workers on other machines should be reached over a trusted network.</p>
+ *
+ * <p>Each batch of candidates is divided between the registered workers and each worker
+ * divides its share between its own threads.  The population is only sent to each worker
+ * once, with the first batch of each generation, and the candidates are then sent as
+ * references into that population.  If a worker dies or is disconnected, the candidates
+ * that it was evaluating are re-submitted to the other workers.  Disconnected workers
+ * try to register again, so a worker process may be restarted without interrupting the
+ * evolution.  If there are no workers registered, evaluations wait until one registers.</p>
+ *
+ * <p>An evolution engine that uses this evaluator should usually be
+ * {@link AbstractEvolutionEngine#setSingleThreaded(boolean) single-threaded} so that the
+ * whole population is sent to the workers in one go.  The evaluator should be
+ * {@link #close() closed} when it is no longer required so that its port is released.</p>
+ * @param <T> The type of evolvable entity that can be evaluated.
+ * @author Daniel Dyer
+ */
+public class RemoteFitnessEvaluator<T> implements BatchFitnessEvaluator<T>
+{
+    /**
+     * Each batch is split into this many parts per registered worker so that faster
+     * workers can take on a greater share of the work.
+     */
+    private static final int PARTS_PER_WORKER = 2;
+
+    /**
+     * How long a connecting worker has to complete the handshake before it is dropped.
+     */
+    private static final int HANDSHAKE_TIMEOUT_MS = 10000;
+
+    private final FitnessEvaluator<? super T> fitnessEvaluator;
+    private final byte[] secret;
+    private final int readTimeout;
+    private final ServerSocket serverSocket;
+    private final BlockingQueue<WorkerConnection> idleWorkers = new LinkedBlockingQueue<WorkerConnection>();
+    private final Set<WorkerConnection> workers = Collections.synchronizedSet(new HashSet<WorkerConnection>());
+    private final ExecutorService dispatcher;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates an evaluator that accepts worker registrations on the specified port of the
+     * loopback interface and waits indefinitely for workers to return their scores.
+     * @param fitnessEvaluator The fitness function that the workers use to evaluate
+     * candidates.  This must be serializable.
+     * @param port The TCP port on which to listen for workers, or zero to use any free
+     * port (see {@link #getPort()}).
+     * @param secret The secret that workers must know in order to register.
+     * @throws IOException If the port cannot be opened.
+     */
+    public RemoteFitnessEvaluator(FitnessEvaluator<? super T> fitnessEvaluator,
+                                  int port,
+                                  String secret) throws IOException
+    {
+        this(fitnessEvaluator, InetAddress.getByName(null), port, secret, 0, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Creates an evaluator that accepts worker registrations on the specified address and port.
+     * @param fitnessEvaluator The fitness function that the workers use to evaluate
+     * candidates.  This must be serializable.
+     * @param bindAddress The local address on which to listen for workers, or null to listen
+     * on all of the machine's addresses.
+     * @param port The TCP port on which to listen for workers, or zero to use any free
+     * port (see {@link #getPort()}).
+     * @param secret The secret that workers must know in order to register.
+     * @param readTimeout How long to wait for a worker to respond to a request, or zero to
+     * wait indefinitely.  This must be longer than the worker can take to evaluate its part
+     * of a batch.  A worker that does not respond in time is treated as having failed, so
+     * it is disconnected and its candidates are sent to another worker.
+     * @param unit The units of the read timeout.
+     * @throws IOException If the port cannot be opened.
+     */
+    public RemoteFitnessEvaluator(FitnessEvaluator<? super T> fitnessEvaluator,
+                                  InetAddress bindAddress,
+                                  int port,
+                                  String secret,
+                                  long readTimeout,
+                                  TimeUnit unit) throws IOException
+    {
+        if (!(fitnessEvaluator instanceof Serializable))
+        {
+            throw new IllegalArgumentException("Fitness evaluator must be serializable.");
+        }
+        if (readTimeout < 0)
+        {
+            throw new IllegalArgumentException("Read timeout must not be negative.");
+        }
+        this.fitnessEvaluator = fitnessEvaluator;
+        this.secret = getSecretBytes(secret);
+        this.readTimeout = (int) Math.min(unit.toMillis(readTimeout), Integer.MAX_VALUE);
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(bindAddress, port));
+        this.dispatcher = Executors.newCachedThreadPool(new ConfigurableThreadFactory("RemoteFitnessEvaluator",
+                                                                                      Thread.NORM_PRIORITY,
+                                                                                      true));
+        Thread acceptThread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                acceptWorkers();
+            }
+        }, "RemoteFitnessEvaluator-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+
+    /**
+     * Converts a shared secret into the bytes that are used to authenticate workers.
+     */
+    static byte[] getSecretBytes(String secret)
+    {
+        if (secret == null || secret.length() == 0)
+        {
+            throw new IllegalArgumentException("Secret must not be empty.");
+        }
+        try
+        {
+            return secret.getBytes("UTF-8");
+        }
+        catch (UnsupportedEncodingException ex)
+        {
+            // Every Java platform is required to support UTF-8.
+            throw new IllegalStateException(ex);
+        }
+    }
+
+
+    /**
+     * Accepts worker connections until this evaluator is closed.  Each worker is registered
+     * on a separate thread, so one that connects but never completes the handshake can't
+     * hold up the others.
+     */
+    private void acceptWorkers()
+    {
+        while (!closed)
+        {
+            try
+            {
+                final Socket socket = serverSocket.accept();
+                try
+                {
+                    dispatcher.execute(new Runnable()
+                    {
+                        public void run()
+                        {
+                            registerWorker(socket);
+                        }
+                    });
+                }
+                catch (RejectedExecutionException ex)
+                {
+                    socket.close(); // This evaluator has been closed.
+                }
+            }
+            catch (IOException ex)
+            {
+                // Either the server socket has been closed (in which case the loop will
+                // terminate), or the connection failed before it could be accepted.
+            }
+        }
+    }
+
+
+    /**
+     * Authenticates a newly-connected worker and, if it knows the secret, makes it
+     * available for evaluations.
+     */
+    private void registerWorker(Socket socket)
+    {
+        try
+        {
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+            EvaluationChannel.authenticateWorker(socket.getInputStream(), socket.getOutputStream(), secret);
+            WorkerConnection connection = new WorkerConnection(socket);
+            socket.setSoTimeout(readTimeout);
+            workers.add(connection);
+            if (closed) // Don't leave a connection open if we were closed during registration.
+            {
+                connection.close();
+            }
+            else
+            {
+                idleWorkers.add(connection);
+            }
+        }
+        catch (IOException ex)
+        {
+            // The worker failed to register properly (or isn't a genuine worker), ignore it.
+            try
+            {
+                socket.close();
+            }
+            catch (IOException closeException)
+            {
+                // Nothing we can do about it.
+            }
+        }
+    }
+
+
+    /**
+     * @return The TCP port on which this evaluator accepts worker registrations.
+     */
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+
+    /**
+     * @return The number of workers that are currently registered.
+     */
+    public int getWorkerCount()
+    {
+        return workers.size();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public double getFitness(T candidate, List<? extends T> population)
+    {
+        double[] fitnessScores = new double[1];
+        getFitness(Collections.singletonList(candidate), population, fitnessScores, 0);
+        return fitnessScores[0];
+    }
+
+
+    /**
+     * Divides the candidates between the registered workers and waits for all of their
+     * scores to be returned.
+     * {@inheritDoc}
+     */
+    public void getFitness(List<? extends T> candidates,
+                           List<? extends T> population,
+                           double[] fitnessScores,
+                           int offset)
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Remote fitness evaluator has been closed.");
+        }
+        int partCount = Math.max(1, Math.min(workers.size() * PARTS_PER_WORKER, candidates.size()));
+        List<Future<Void>> results = new ArrayList<Future<Void>>(partCount);
+        for (int i = 0; i < partCount; i++)
+        {
+            int fromIndex = i * candidates.size() / partCount;
+            int toIndex = (i + 1) * candidates.size() / partCount;
+            results.add(dispatcher.submit(new RemoteBatchTask(candidates.subList(fromIndex, toIndex),
+                                                              population,
+                                                              fitnessScores,
+                                                              offset + fromIndex)));
+        }
+        try
+        {
+            for (Future<Void> result : results)
+            {
+                result.get();
+            }
+        }
+        catch (ExecutionException ex)
+        {
+            throw new IllegalStateException(ex.getCause());
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Remote fitness evaluation interrupted.", ex);
+        }
+        finally
+        {
+            for (Future<Void> result : results)
+            {
+                result.cancel(true);
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isNatural()
+    {
+        return fitnessEvaluator.isNatural();
+    }
+
+
+    /**
+     * Stops accepting worker registrations and disconnects any registered workers.  The
+     * disconnected workers will attempt to re-register until their processes are terminated.
+     * This method may safely be invoked more than once.
+     */
+    public void close()
+    {
+        closed = true;
+        try
+        {
+            serverSocket.close();
+        }
+        catch (IOException ex)
+        {
+            // Nothing we can do about it.
+        }
+        List<WorkerConnection> connections;
+        synchronized (workers)
+        {
+            // Copy the connections because closing them removes them from the set.
+            connections = new ArrayList<WorkerConnection>(workers);
+        }
+        for (WorkerConnection connection : connections)
+        {
+            connection.close();
+        }
+        dispatcher.shutdownNow();
+    }
+
+
+    /**
+     * Sends part of a batch to a worker and writes the scores that the worker returns into
+     * the results array.  If the worker fails, the part is sent to another worker.
+     */
+    private final class RemoteBatchTask implements Callable<Void>
+    {
+        private final List<? extends T> candidates;
+        private final List<? extends T> population;
+        private final double[] fitnessScores;
+        private final int offset;
+
+        RemoteBatchTask(List<? extends T> candidates,
+                        List<? extends T> population,
+                        double[] fitnessScores,
+                        int offset)
+        {
+            this.candidates = candidates;
+            this.population = population;
+            this.fitnessScores = fitnessScores;
+            this.offset = offset;
+        }
+
+        public Void call() throws InterruptedException
+        {
+            while (true)
+            {
+                if (closed)
+                {
+                    throw new IllegalStateException("Remote fitness evaluator has been closed.");
+                }
+                WorkerConnection connection = idleWorkers.take();
+                double[] scores;
+                try
+                {
+                    scores = connection.channel.evaluate(candidates, population);
+                }
+                catch (IOException ex)
+                {
+                    // The worker has died, been disconnected or failed to respond in time,
+                    // so discard it and try again with another worker.
+                    connection.close();
+                    continue;
+                }
+                catch (IllegalStateException ex)
+                {
+                    idleWorkers.add(connection); // The worker is still usable.
+                    throw ex;
+                }
+                idleWorkers.add(connection);
+                System.arraycopy(scores, 0, fitnessScores, offset, scores.length);
+                return null;
+            }
+        }
+    }
+
+
+    /**
+     * The coordinator's end of a connection to a registered worker.  A connection is used
+     * by only one batch at a time.
+     */
+    private final class WorkerConnection
+    {
+        private final Socket socket;
+        private final EvaluationChannel channel;
+
+        /**
+         * Completes the registration of a worker by sending it the fitness evaluator.
+         */
+        WorkerConnection(Socket socket) throws IOException
+        {
+            this.socket = socket;
+            this.channel = new EvaluationChannel(socket.getInputStream(), socket.getOutputStream(), fitnessEvaluator);
+        }
+
+
+        void close()
+        {
+            workers.remove(this);
+            try
+            {
+                socket.close();
+            }
+            catch (IOException ex)
+            {
+                // Nothing we can do about it.
+            }
+        }
+    }
+}
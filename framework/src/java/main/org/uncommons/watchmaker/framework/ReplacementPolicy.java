@@ -0,0 +1,51 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+/**
+ * Determines which existing members of the population are replaced by new offspring in
+ * steady-state evolution (see
+ * {@link SteadyStateEvolutionEngine#setReplacementPolicy(ReplacementPolicy, int)} and
+ * {@link AsynchronousSteadyStateEvolutionEngine#setReplacementPolicy(ReplacementPolicy, int)}).  Elite
+ * individuals are never replaced, whichever policy is used.
+ * @author Daniel Dyer
+ */
+public enum ReplacementPolicy
+{
+    /**
+     * Each offspring replaces a randomly-chosen individual.  This is the default policy.
+     */
+    RANDOM,
+
+    /**
+     * Each offspring replaces the least fit individual in the population.  This gives
+     * strong selection pressure, but can cause premature convergence.
+     */
+    WORST,
+
+    /**
+     * Each offspring replaces the least fit of several randomly-chosen individuals.  The
+     * number of individuals in each tournament controls the selection pressure.
+     */
+    TOURNAMENT,
+
+    /**
+     * Each offspring replaces the individual that has been in the population for the
+     * longest time.  The members of the initial population are considered to be older
+     * than any offspring.
+     */
+    OLDEST
+}
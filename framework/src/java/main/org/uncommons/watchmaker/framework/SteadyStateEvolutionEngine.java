@@ -15,6 +15,7 @@
 //=============================================================================
 package org.uncommons.watchmaker.framework;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Random;
 
@@ -24,6 +25,11 @@ import java.util.Random;
  * differs from {@link GenerationalEvolutionEngine} in which the entire population is evolved in
  * parallel.
  *
+ * <p>The population is kept in descending order of fitness as it changes.  Each offspring
+ * is inserted at its sorted position (found by binary search), so the engine never has to
+ * re-sort the whole population between steps.  Which existing individuals are displaced is
+ * determined by the {@link #setReplacementPolicy(ReplacementPolicy, int) replacement policy}.</p>
+ *
  * @param <T> The type of entity that is to be evolved.
  * @see GenerationalEvolutionEngine
  * @see EvolutionStrategyEngine
@@ -36,6 +42,7 @@ public class SteadyStateEvolutionEngine<T> extends AbstractEvolutionEngine<T>
     private final SelectionStrategy<? super T> selectionStrategy;
     private final int selectionSize;
     private final boolean forceSingleCandidateUpdate;
+    private final PopulationReplacer<T> replacer;
 
     /**
      * Create a steady-state evolution strategy in which one or more (usually just one) evolved
@@ -84,9 +91,38 @@ public class SteadyStateEvolutionEngine<T> extends AbstractEvolutionEngine<T>
         this.selectionStrategy = selectionStrategy;
         this.selectionSize = selectionSize;
         this.forceSingleCandidateUpdate = forceSingleCandidateUpdate;
+        this.replacer = new PopulationReplacer<T>(fitnessEvaluator.isNatural());
     }
 
     
+    /**
+     * Determines which existing members of the population are replaced by new offspring.
+     * By default, randomly-chosen individuals are replaced.
+     * @param policy The replacement policy.
+     * @param tournamentSize For the {@link ReplacementPolicy#TOURNAMENT} policy, the number
+     * of randomly-chosen individuals from which the least fit is replaced.  This is ignored
+     * by the other policies.
+     */
+    public void setReplacementPolicy(ReplacementPolicy policy, int tournamentSize)
+    {
+        replacer.setPolicy(policy, tournamentSize);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<EvaluatedCandidate<T>> evolvePopulation(int populationSize,
+                                                        int eliteCount,
+                                                        Collection<T> seedCandidates,
+                                                        TerminationCondition... conditions)
+    {
+        replacer.reset(); // Discard any ages left over from a previous run.
+        return super.evolvePopulation(populationSize, eliteCount, seedCandidates, conditions);
+    }
+
+
     /**
      * {@inheritDoc}
      */
@@ -95,12 +131,13 @@ public class SteadyStateEvolutionEngine<T> extends AbstractEvolutionEngine<T>
                                                             int eliteCount,
                                                             Random rng)
     {
-        EvolutionUtils.sortEvaluatedPopulation(evaluatedPopulation, fitnessEvaluator.isNatural());
+        // The population is already sorted when it is passed in, so there is no need to sort it again.
         List<T> selectedCandidates = selectionStrategy.select(evaluatedPopulation,
                                                               fitnessEvaluator.isNatural(),
                                                               selectionSize,
                                                               rng);
-        List<EvaluatedCandidate<T>> offspring = evaluatePopulation(evolutionScheme.apply(selectedCandidates, rng));
+        List<EvaluatedCandidate<T>> offspring = evaluatePopulation(evolutionScheme.apply(selectedCandidates, rng),
+                                                                   evaluatedPopulation);
 
         doReplacement(evaluatedPopulation, offspring, eliteCount, rng);
 
@@ -111,8 +148,10 @@ public class SteadyStateEvolutionEngine<T> extends AbstractEvolutionEngine<T>
     /**
      * Add the offspring to the population, removing the same number of existing individuals to make
      * space for them.
-     * This method randomly chooses which individuals should be replaced, but it can be over-ridden
-     * in sub-classes if alternative behaviour is required.
+     * This method chooses which individuals should be replaced according to the
+     * {@link #setReplacementPolicy(ReplacementPolicy, int) replacement policy}.  Each new
+     * individual is inserted at its sorted position, so the population remains sorted.  The method
+     * can be over-ridden in sub-classes if alternative behaviour is required.
      * @param existingPopulation The full popultation, sorted in descending order of fitness.
      * @param newCandidates The (unsorted) newly-created individual(s) that should replace existing members
      * of the population.
@@ -129,18 +168,16 @@ public class SteadyStateEvolutionEngine<T> extends AbstractEvolutionEngine<T>
         // evolved individuals, so just pick one at random and use that.
         if (newCandidates.size() > 1 && forceSingleCandidateUpdate)
         {
-            // Replace a randomly selected individual, but not one of the "elite" individuals at the
-            // beginning of the sorted population.
-            existingPopulation.set(rng.nextInt(existingPopulation.size() - eliteCount) + eliteCount,
-                                   newCandidates.get(rng.nextInt(newCandidates.size())));
+            int index = replacer.chooseReplacement(existingPopulation, eliteCount, rng);
+            replacer.replace(existingPopulation, index, newCandidates.get(rng.nextInt(newCandidates.size())));
         }
         else
         {
             for (EvaluatedCandidate<T> candidate : newCandidates)
             {
-                // Replace a randomly selected individual, but not one of the "elite" individuals at the
-                // beginning of the sorted population.
-                existingPopulation.set(rng.nextInt(existingPopulation.size() - eliteCount) + eliteCount, candidate);
+                replacer.replace(existingPopulation,
+                                 replacer.chooseReplacement(existingPopulation, eliteCount, rng),
+                                 candidate);
             }
         }
     }
@@ -0,0 +1,232 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.lang.reflect.Array;
+import java.util.Set;
+import org.uncommons.maths.binary.BitString;
+
+/**
+ * <p>A {@link GenotypeKey} that fingerprints a candidate according to its structure.  The
+ * following types are supported, and may be nested within each other (for example, a list
+ * of arrays):</p>
+ * <ul>
+ *   <li>Arrays of primitives and arrays of objects.</li>
+ *   <li>Lists and other iterable collections (the order of the elements is significant,
+ *   except for sets).</li>
+ *   <li>Strings and other character sequences.</li>
+ *   <li>{@link BitString}s.</li>
+ *   <li>Numbers, booleans, characters and enum constants.</li>
+ * </ul>
+ * <p>Any other object is fingerprinted using its {@link Object#hashCode()} method, so
+ * candidates (or elements) of other types should either implement hash codes that are
+ * consistent with their {@link Object#equals(Object)} methods or be fingerprinted by a
+ * dedicated {@link GenotypeKey}.  Such keys can use the {@link #combine(long, long)}
+ * method to mix the fingerprints of the parts of a candidate.</p>
+ * @author Daniel Dyer
+ */
+public class StructuralGenotypeKey implements GenotypeKey<Object>
+{
+    // Distinguishes null from zero-valued elements.
+    private static final long NULL_FINGERPRINT = 0x6A09E667F3BCC908L;
+    // Multiplier for the polynomial combination of element fingerprints (an odd 64-bit
+    // constant derived from the golden ratio).
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getFingerprint(Object candidate)
+    {
+        if (candidate == null)
+        {
+            return NULL_FINGERPRINT;
+        }
+        else if (candidate instanceof CharSequence)
+        {
+            CharSequence sequence = (CharSequence) candidate;
+            long fingerprint = sequence.length();
+            for (int i = 0; i < sequence.length(); i++)
+            {
+                fingerprint = combine(fingerprint, sequence.charAt(i));
+            }
+            return fingerprint;
+        }
+        else if (candidate instanceof Set)
+        {
+            // The fingerprint must not depend on the iteration order of the set.
+            long fingerprint = 0;
+            for (Object element : (Set<?>) candidate)
+            {
+                fingerprint += mix(getFingerprint(element));
+            }
+            return combine(((Set<?>) candidate).size(), fingerprint);
+        }
+        else if (candidate instanceof Iterable)
+        {
+            long fingerprint = 0;
+            int length = 0;
+            for (Object element : (Iterable<?>) candidate)
+            {
+                fingerprint = combine(fingerprint, getFingerprint(element));
+                ++length;
+            }
+            // Include the length so that lists padded with zeroes are distinguished.
+            return combine(fingerprint, length);
+        }
+        else if (candidate.getClass().isArray())
+        {
+            return getArrayFingerprint(candidate);
+        }
+        else if (candidate instanceof BitString)
+        {
+            BitString bitString = (BitString) candidate;
+            return combine(bitString.getLength(), getArrayFingerprint(bitString.toNumber().toByteArray()));
+        }
+        else if (candidate instanceof Double || candidate instanceof Float)
+        {
+            return mix(Double.doubleToLongBits(((Number) candidate).doubleValue()));
+        }
+        else if (candidate instanceof Long
+                 || candidate instanceof Integer
+                 || candidate instanceof Short
+                 || candidate instanceof Byte)
+        {
+            return mix(((Number) candidate).longValue());
+        }
+        else if (candidate instanceof Character)
+        {
+            return mix((Character) candidate);
+        }
+        else if (candidate instanceof Boolean)
+        {
+            return mix((Boolean) candidate ? 1 : 0);
+        }
+        else if (candidate instanceof Enum)
+        {
+            return combine(mix(candidate.getClass().getName().hashCode()), ((Enum<?>) candidate).ordinal());
+        }
+        else
+        {
+            return combine(mix(candidate.getClass().getName().hashCode()), candidate.hashCode());
+        }
+    }
+
+
+    /**
+     * Fingerprints each element of an array in turn.
+     */
+    private long getArrayFingerprint(Object array)
+    {
+        long fingerprint = 0;
+        if (array instanceof double[])
+        {
+            for (double element : (double[]) array)
+            {
+                fingerprint = combine(fingerprint, Double.doubleToLongBits(element));
+            }
+        }
+        else if (array instanceof int[])
+        {
+            for (int element : (int[]) array)
+            {
+                fingerprint = combine(fingerprint, element);
+            }
+        }
+        else if (array instanceof long[])
+        {
+            for (long element : (long[]) array)
+            {
+                fingerprint = combine(fingerprint, element);
+            }
+        }
+        else if (array instanceof byte[])
+        {
+            for (byte element : (byte[]) array)
+            {
+                fingerprint = combine(fingerprint, element);
+            }
+        }
+        else if (array instanceof char[])
+        {
+            for (char element : (char[]) array)
+            {
+                fingerprint = combine(fingerprint, element);
+            }
+        }
+        else if (array instanceof boolean[])
+        {
+            for (boolean element : (boolean[]) array)
+            {
+                fingerprint = combine(fingerprint, element ? 1 : 0);
+            }
+        }
+        else if (array instanceof short[])
+        {
+            for (short element : (short[]) array)
+            {
+                fingerprint = combine(fingerprint, element);
+            }
+        }
+        else if (array instanceof float[])
+        {
+            for (float element : (float[]) array)
+            {
+                fingerprint = combine(fingerprint, Float.floatToIntBits(element));
+            }
+        }
+        else
+        {
+            for (Object element : (Object[]) array)
+            {
+                fingerprint = combine(fingerprint, getFingerprint(element));
+            }
+        }
+        // Include the length so that arrays padded with zeroes are distinguished.
+        return combine(fingerprint, Array.getLength(array));
+    }
+
+
+    /**
+     * Combines a fingerprint with the next value in a sequence of values (for example,
+     * the fingerprint of the next element of a list).  The result depends on the order in
+     * which values are combined, so {@code [1, 2]} and {@code [2, 1]} have different
+     * fingerprints.
+     * @param fingerprint The fingerprint of the values combined so far.
+     * @param value The next value.
+     * @return The fingerprint of the values, including the new value.
+     */
+    public static long combine(long fingerprint, long value)
+    {
+        return fingerprint * MULTIPLIER + mix(value);
+    }
+
+
+    /**
+     * Scrambles the bits of a value so that similar values have very different
+     * fingerprints (this is the finalisation step of the MurmurHash3 algorithm).
+     */
+    private static long mix(long value)
+    {
+        long mixed = value;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xFF51AFD7ED558CCDL;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xC4CEB9FE1A85EC53L;
+        mixed ^= mixed >>> 33;
+        return mixed;
+    }
+}
@@ -0,0 +1,445 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.uncommons.maths.random.Probability;
+
+/**
+ * <p>A wrapper for expensive {@link FitnessEvaluator} implementations that uses a cheap
+ * approximation (a surrogate model) in place of the real fitness function for most
+ * candidates.  The wrapper keeps an archive of candidates that have been evaluated by
+ * the real fitness function and predicts the fitness of new candidates by
+ * k-nearest-neighbour regression: the prediction is the average of the scores of the
+ * nearest archived candidates (as determined by a problem-specific {@link DistanceMeasure}),
+ * weighted by the inverse of their distances.</p>
+ *
+ * <p>For each batch of candidates, the predicted fitness is used to rank the batch and only
+ * the most promising proportion of it is passed to the real fitness function.  A random
+ * sample of the remaining candidates is also evaluated for real, which both keeps the
+ * archive representative of the search space and allows the accuracy of the predictions to
+ * be monitored (see {@link #getMeanPredictionError()}).  All other candidates are assigned
+ * their predicted scores, scaled (or, for non-natural scores, shifted) if necessary so that
+ * they are worse than every candidate in the batch that was evaluated for real (or equal,
+ * if that candidate has a natural fitness of zero, since scores can't be negative).  This
+ * keeps the predicted candidates in the order of their predictions, so selection can still
+ * tell them apart, but a predicted candidate never displaces a truly evaluated one as an
+ * elite, as the fittest candidate, or as the candidate that satisfies a
+ * {@link org.uncommons.watchmaker.framework.termination.TargetFitness} condition; it has to
+ * be evaluated for real (in a later generation) first.  Until the archive contains enough
+ * candidates for a prediction, every candidate is evaluated for real.</p>
+ *
+ * <p><em>The surrogate only makes predictions for candidates that it is given in batches.</em>
+ * With the engine's default settings, fitness evaluations are performed by worker threads
+ * and each candidate is evaluated individually, so every candidate is passed to the real
+ * fitness function and the surrogate has no effect.  To use it with worker threads, set the
+ * engine's {@link AbstractEvolutionEngine#setEvaluationChunkSize(int) chunk size} to
+ * {@link AbstractEvolutionEngine#AUTOMATIC_CHUNK_SIZE} (or to a fixed size) so that each
+ * task evaluates a chunk of the population as a batch.  Each chunk is ranked separately, but
+ * the real evaluations of different chunks proceed in parallel.  A single-threaded engine
+ * passes the whole population as one batch, so the most promising candidates of the entire
+ * generation are selected, but the real evaluations are then performed one after another
+ * (unless the wrapped evaluator is itself a {@link BatchFitnessEvaluator} that evaluates in
+ * parallel, such as a {@link RemoteFitnessEvaluator}).  Evaluation time limits force every
+ * candidate to be evaluated individually, so they should not be combined with a
+ * surrogate.</p>
+ *
+ * <p>Predicted scores are only as good as the distance measure, so the surrogate is best
+ * suited to problems where similar candidates have similar fitness.  As with
+ * {@link CachingFitnessEvaluator}, the wrapped fitness function must be isolated.</p>
+ * @param <T> The type of evolvable entity that can be evaluated.
+ * @author Daniel Dyer
+ */
+public class SurrogateFitnessEvaluator<T> implements BatchFitnessEvaluator<T>
+{
+    private final FitnessEvaluator<T> delegate;
+    private final DistanceMeasure<? super T> distanceMeasure;
+    private final int neighbourCount;
+    private final double evaluatedProportion;
+    private final Probability validationProbability;
+    private final Random rng;
+
+    // The archive is a circular buffer, the oldest entries are overwritten once it is full.
+    private final Object[] archivedCandidates;
+    private final double[] archivedScores;
+    private int archiveSize = 0;
+    private int nextArchiveIndex = 0;
+
+    private long trueEvaluationCount = 0;
+    private long predictionCount = 0;
+    private long validationCount = 0;
+    private double totalValidationError = 0;
+
+
+    /**
+     * Creates a surrogate-assisted fitness evaluator that wraps the specified evaluator.
+     * @param delegate The (expensive) fitness evaluator that performs the real calculations.
+     * @param distanceMeasure Measures the similarity of two candidates.
+     * @param neighbourCount The number of archived candidates (k) that contribute to each
+     * prediction.
+     * @param archiveCapacity The maximum number of evaluated candidates to retain.  Must be
+     * at least as large as the neighbour count.
+     * @param evaluatedProportion The proportion (between zero and one) of each batch, taking
+     * the candidates with the best predicted fitness first, that is evaluated by the real
+     * fitness function.  At least one candidate from each batch is always evaluated for real.
+     * @param validationProbability The probability that each of the remaining candidates is
+     * also evaluated by the real fitness function.
+     * @param rng The source of randomness used to choose the validation sample.
+     */
+    public SurrogateFitnessEvaluator(FitnessEvaluator<T> delegate,
+                                     DistanceMeasure<? super T> distanceMeasure,
+                                     int neighbourCount,
+                                     int archiveCapacity,
+                                     double evaluatedProportion,
+                                     Probability validationProbability,
+                                     Random rng)
+    {
+        if (neighbourCount <= 0 || archiveCapacity < neighbourCount)
+        {
+            throw new IllegalArgumentException("Neighbour count must be positive and no greater than "
+                                               + "archive capacity.");
+        }
+        if (evaluatedProportion < 0 || evaluatedProportion > 1)
+        {
+            throw new IllegalArgumentException("Evaluated proportion must be between zero and one.");
+        }
+        this.delegate = delegate;
+        this.distanceMeasure = distanceMeasure;
+        this.neighbourCount = neighbourCount;
+        this.evaluatedProportion = evaluatedProportion;
+        this.validationProbability = validationProbability;
+        this.rng = rng;
+        this.archivedCandidates = new Object[archiveCapacity];
+        this.archivedScores = new double[archiveCapacity];
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This implementation always uses the real fitness function and adds the result
+     * to the archive.  Predictions are only made for batches (see the class description
+     * for how to configure the engine to evaluate batches).</p>
+     */
+    public double getFitness(T candidate, List<? extends T> population)
+    {
+        double fitness = delegate.getFitness(candidate, population);
+        archive(candidate, fitness);
+        synchronized (this)
+        {
+            ++trueEvaluationCount;
+        }
+        return fitness;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This implementation predicts the fitness of every candidate in the batch and then
+     * uses the real fitness function for the most promising candidates and for a random
+     * validation sample.</p>
+     */
+    public void getFitness(List<? extends T> candidates,
+                           List<? extends T> population,
+                           double[] fitnessScores,
+                           int offset)
+    {
+        int batchSize = candidates.size();
+        Snapshot snapshot = getSnapshot();
+        boolean[] evaluate = new boolean[batchSize];
+        double[] predictions = new double[batchSize];
+        if (snapshot.size < neighbourCount)
+        {
+            Arrays.fill(evaluate, true); // Not enough information to make predictions yet.
+        }
+        else
+        {
+            Integer[] ranking = new Integer[batchSize];
+            for (int i = 0; i < batchSize; i++)
+            {
+                predictions[i] = predict(candidates.get(i), snapshot);
+                ranking[i] = i;
+            }
+            Arrays.sort(ranking, new PredictionComparator(predictions, delegate.isNatural()));
+            // At least one real score is needed to cap the predictions.
+            int promisingCount = Math.max((int) Math.ceil(evaluatedProportion * batchSize), 1);
+            for (int i = 0; i < batchSize; i++)
+            {
+                evaluate[ranking[i]] = i < promisingCount || isSelectedForValidation();
+            }
+        }
+
+        List<T> selected = new ArrayList<T>(batchSize);
+        for (int i = 0; i < batchSize; i++)
+        {
+            if (evaluate[i])
+            {
+                selected.add(candidates.get(i));
+            }
+        }
+        double[] selectedScores = new double[selected.size()];
+        if (delegate instanceof BatchFitnessEvaluator)
+        {
+            ((BatchFitnessEvaluator<T>) delegate).getFitness(selected, population, selectedScores, 0);
+        }
+        else
+        {
+            for (int i = 0; i < selectedScores.length; i++)
+            {
+                selectedScores[i] = delegate.getFitness(selected.get(i), population);
+            }
+        }
+
+        capPredictions(predictions, evaluate, selectedScores);
+        int selectedIndex = 0;
+        double validationError = 0;
+        int validations = 0;
+        for (int i = 0; i < batchSize; i++)
+        {
+            if (evaluate[i])
+            {
+                double fitness = selectedScores[selectedIndex++];
+                archive(candidates.get(i), fitness);
+                if (snapshot.size >= neighbourCount)
+                {
+                    validationError += Math.abs(fitness - predictions[i]);
+                    ++validations;
+                }
+                fitnessScores[offset + i] = fitness;
+            }
+            else
+            {
+                fitnessScores[offset + i] = predictions[i];
+            }
+        }
+        synchronized (this)
+        {
+            trueEvaluationCount += selectedScores.length;
+            predictionCount += batchSize - selectedScores.length;
+            validationCount += validations;
+            totalValidationError += validationError;
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isNatural()
+    {
+        return delegate.isNatural();
+    }
+
+
+    /**
+     * @return The number of candidates that have been evaluated by the real fitness
+     * function.
+     */
+    public synchronized long getTrueEvaluationCount()
+    {
+        return trueEvaluationCount;
+    }
+
+
+    /**
+     * @return The number of candidates that have been assigned predicted fitness scores
+     * instead of being evaluated by the real fitness function.
+     */
+    public synchronized long getPredictionCount()
+    {
+        return predictionCount;
+    }
+
+
+    /**
+     * Indicates how accurate the surrogate model is, by comparing the predicted fitness of
+     * each candidate that was evaluated by the real fitness function with its real fitness.
+     * @return The mean absolute difference between predicted and real fitness scores, or
+     * zero if no predictions have yet been checked.
+     */
+    public synchronized double getMeanPredictionError()
+    {
+        return validationCount == 0 ? 0 : totalValidationError / validationCount;
+    }
+
+
+    /**
+     * Adjusts the predictions for the candidates that were not evaluated for real so that
+     * they are all worse than the worst of the real scores in the batch, without changing
+     * their order.  Natural scores are scaled down towards zero (so that they stay
+     * non-negative) and non-natural scores are shifted up.  Predictions that are already
+     * worse than every real score are left unchanged.
+     * @param predictions The predicted scores, which are modified in place.
+     * @param evaluated Flags the candidates that were evaluated for real (whose
+     * predictions are ignored).
+     * @param realScores The real scores of the candidates that were evaluated.
+     */
+    private void capPredictions(double[] predictions, boolean[] evaluated, double[] realScores)
+    {
+        boolean natural = delegate.isNatural();
+        double worstReal = natural ? Double.POSITIVE_INFINITY : 0;
+        for (double score : realScores)
+        {
+            worstReal = natural ? Math.min(worstReal, score) : Math.max(worstReal, score);
+        }
+        double cap = natural ? Math.nextAfter(worstReal, Double.NEGATIVE_INFINITY) : Math.nextUp(worstReal);
+        double bestPrediction = natural ? 0 : Double.POSITIVE_INFINITY;
+        for (int i = 0; i < predictions.length; i++)
+        {
+            if (!evaluated[i])
+            {
+                bestPrediction = natural
+                                 ? Math.max(bestPrediction, predictions[i])
+                                 : Math.min(bestPrediction, predictions[i]);
+            }
+        }
+        if (natural ? bestPrediction <= cap : bestPrediction >= cap)
+        {
+            return; // No adjustment required.
+        }
+        double factor = natural ? Math.max(cap, 0) / bestPrediction : 1;
+        double shift = natural ? 0 : cap - bestPrediction;
+        for (int i = 0; i < predictions.length; i++)
+        {
+            if (!evaluated[i])
+            {
+                // Rounding could take the best prediction fractionally past the cap.
+                predictions[i] = natural
+                                 ? Math.min(predictions[i] * factor, Math.max(cap, 0))
+                                 : Math.max(predictions[i] + shift, cap);
+            }
+        }
+    }
+
+
+    /**
+     * Predicts the fitness of a candidate from the scores of its nearest archived neighbours,
+     * weighted by inverse distance.
+     */
+    @SuppressWarnings("unchecked")
+    private double predict(T candidate, Snapshot snapshot)
+    {
+        // The k nearest neighbours found so far, ordered by increasing distance.
+        double[] nearestDistances = new double[neighbourCount];
+        double[] nearestScores = new double[neighbourCount];
+        Arrays.fill(nearestDistances, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < snapshot.size; i++)
+        {
+            double distance = distanceMeasure.getDistance(candidate, (T) snapshot.candidates[i]);
+            if (distance == 0)
+            {
+                return snapshot.scores[i]; // An identical candidate has already been evaluated.
+            }
+            if (distance < nearestDistances[neighbourCount - 1])
+            {
+                int position = neighbourCount - 1;
+                while (position > 0 && nearestDistances[position - 1] > distance)
+                {
+                    nearestDistances[position] = nearestDistances[position - 1];
+                    nearestScores[position] = nearestScores[position - 1];
+                    --position;
+                }
+                nearestDistances[position] = distance;
+                nearestScores[position] = snapshot.scores[i];
+            }
+        }
+        double weightedTotal = 0;
+        double totalWeight = 0;
+        for (int i = 0; i < neighbourCount; i++)
+        {
+            double weight = 1 / nearestDistances[i];
+            weightedTotal += weight * nearestScores[i];
+            totalWeight += weight;
+        }
+        return weightedTotal / totalWeight;
+    }
+
+
+    /**
+     * Adds an evaluated candidate to the archive, replacing the oldest entry if it is full.
+     */
+    private synchronized void archive(T candidate, double fitness)
+    {
+        archivedCandidates[nextArchiveIndex] = candidate;
+        archivedScores[nextArchiveIndex] = fitness;
+        nextArchiveIndex = (nextArchiveIndex + 1) % archivedCandidates.length;
+        archiveSize = Math.min(archiveSize + 1, archivedCandidates.length);
+    }
+
+
+    /**
+     * Copies the archive so that predictions can be made without holding the lock.
+     */
+    private synchronized Snapshot getSnapshot()
+    {
+        return new Snapshot(Arrays.copyOf(archivedCandidates, archiveSize),
+                            Arrays.copyOf(archivedScores, archiveSize));
+    }
+
+
+    /**
+     * Random number generators are not necessarily thread-safe, so access is synchronised.
+     */
+    private synchronized boolean isSelectedForValidation()
+    {
+        return validationProbability.nextEvent(rng);
+    }
+
+
+    /**
+     * A consistent copy of the archive.
+     */
+    private static final class Snapshot
+    {
+        private final Object[] candidates;
+        private final double[] scores;
+        private final int size;
+
+        Snapshot(Object[] candidates, double[] scores)
+        {
+            this.candidates = candidates;
+            this.scores = scores;
+            this.size = candidates.length;
+        }
+    }
+
+
+    /**
+     * Orders the indices of a batch by predicted fitness, best first.
+     */
+    private static final class PredictionComparator implements Comparator<Integer>
+    {
+        private final double[] predictions;
+        private final boolean natural;
+
+        PredictionComparator(double[] predictions, boolean natural)
+        {
+            this.predictions = predictions;
+            this.natural = natural;
+        }
+
+        public int compare(Integer index1, Integer index2)
+        {
+            int comparison = Double.compare(predictions[index1], predictions[index2]);
+            return natural ? -comparison : comparison;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+/**
+ * Determines what an evolution engine does with a candidate whose fitness evaluation
+ * exceeds the configured time limit (see
+ * {@link AbstractEvolutionEngine#setEvaluationTimeLimits(long, long, java.util.concurrent.TimeUnit, TimeoutPolicy)}).
+ * Whatever the policy, the evaluation task is cancelled and its thread interrupted.
+ * @author Daniel Dyer
+ */
+public enum TimeoutPolicy
+{
+    /**
+     * The candidate is assigned the worst fitness score of all of the candidates in the
+     * same generation whose evaluations did complete, and is marked as
+     * {@link EvaluatedCandidate#isBounded() bounded} since its true fitness is unknown.
+     */
+    WORST_FITNESS,
+
+    /**
+     * The candidate is evaluated once more, subject to the same time limits.  The retries
+     * have a generation time limit of their own, which starts when they are submitted.  If
+     * the candidate times out again, it is treated as for {@link #WORST_FITNESS}.
+     */
+    RETRY,
+
+    /**
+     * The candidate is removed from the population.  This means that the population
+     * shrinks, which for generational engines persists into later generations.  Candidates
+     * are never dropped if that would leave fewer than one more than the elite count of
+     * those evaluated together; any that can't be dropped are treated as for
+     * {@link #WORST_FITNESS}.
+     */
+    DROP
+}
@@ -35,6 +35,7 @@ import org.uncommons.watchmaker.framework.EvolutionaryOperator;
 import org.uncommons.watchmaker.framework.FitnessEvaluator;
 import org.uncommons.watchmaker.framework.GenerationalEvolutionEngine;
 import org.uncommons.watchmaker.framework.PopulationData;
+import org.uncommons.watchmaker.framework.RandomStreams;
 import org.uncommons.watchmaker.framework.SelectionStrategy;
 import org.uncommons.watchmaker.framework.TerminationCondition;
 import org.uncommons.watchmaker.framework.termination.GenerationCount;
@@ -71,7 +72,9 @@ public class IslandEvolution<T>
      * used on each island.
      * @param fitnessEvaluator The fitness function used on each island.
      * @param selectionStrategy The selection strategy used on each island.
-     * @param rng A source of randomness, used by all islands.
+     * @param rng A source of randomness.  Each island gets its own RNG, seeded from this one
+     * (see {@link RandomStreams}), so that the results do not depend on how the islands'
+     * threads are scheduled.  This RNG is used directly for migration.
      * @see #IslandEvolution(List, Migration, boolean, Random) 
      */
     public IslandEvolution(int islandCount,
@@ -148,13 +151,16 @@ public class IslandEvolution<T>
                                                               Random rng)
     {
         List<EvolutionEngine<T>> islands = new ArrayList<EvolutionEngine<T>>(islandCount);
+        // The islands evolve concurrently, so sharing a single RNG would make the results
+        // depend on thread scheduling.
+        RandomStreams streams = new RandomStreams(rng);
         for (int i = 0; i < islandCount; i++)
         {
             GenerationalEvolutionEngine<T> island = new GenerationalEvolutionEngine<T>(candidateFactory,
                                                                                        evolutionScheme,
                                                                                        fitnessEvaluator,
                                                                                        selectionStrategy,
-                                                                                       rng);
+                                                                                       streams.getStream(i));
             island.setSingleThreaded(true); // Don't need fine-grained concurrency when each island is on a separate thread.
             islands.add(island);
         }
@@ -224,7 +230,8 @@ public class IslandEvolution<T>
 
                 migration.migrate(evaluatedPopulations, migrantCount, rng);
 
-                EvolutionUtils.sortEvaluatedPopulation(evaluatedCombinedPopulation, naturalFitness);
+                // Only the fittest candidate is needed, so there is no need to sort the combined population.
+                EvolutionUtils.selectFittest(evaluatedCombinedPopulation, 1, naturalFitness);
                 data = EvolutionUtils.getPopulationData(evaluatedCombinedPopulation,
                                                         naturalFitness,
                                                         eliteCount,
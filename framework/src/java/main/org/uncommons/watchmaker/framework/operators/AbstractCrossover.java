@@ -20,7 +20,6 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
-import org.uncommons.maths.number.ConstantGenerator;
 import org.uncommons.maths.number.NumberGenerator;
 import org.uncommons.maths.random.Probability;
 import org.uncommons.watchmaker.framework.EvolutionaryOperator;
@@ -34,8 +33,8 @@ import org.uncommons.watchmaker.framework.EvolutionaryOperator;
  */
 public abstract class AbstractCrossover<T> implements EvolutionaryOperator<T>
 {
-    private final NumberGenerator<Integer> crossoverPointsVariable;
-    private final NumberGenerator<Probability> crossoverProbabilityVariable;
+    private final IntVariable crossoverPointsVariable;
+    private final DoubleVariable crossoverProbabilityVariable;
 
     /**
      * Sets up a fixed-point cross-over implementation.  Cross-over is
@@ -66,8 +65,8 @@ public abstract class AbstractCrossover<T> implements EvolutionaryOperator<T>
     protected AbstractCrossover(int crossoverPoints,
                                 Probability crossoverProbability)
     {
-        this(new ConstantGenerator<Integer>(crossoverPoints),
-             new ConstantGenerator<Probability>(crossoverProbability));
+        this(IntVariable.constant(crossoverPoints),
+             DoubleVariable.constant(crossoverProbability.doubleValue()));
         if (crossoverPoints <= 0)
         {
             throw new IllegalArgumentException("Number of cross-over points must be positive.");
@@ -85,8 +84,8 @@ public abstract class AbstractCrossover<T> implements EvolutionaryOperator<T>
      */
     protected AbstractCrossover(NumberGenerator<Integer> crossoverPointsVariable)
     {
-        this(crossoverPointsVariable,
-             new ConstantGenerator<Probability>(Probability.ONE));
+        this(IntVariable.adapt(crossoverPointsVariable),
+             DoubleVariable.constant(1));
     }
 
 
@@ -104,6 +103,25 @@ public abstract class AbstractCrossover<T> implements EvolutionaryOperator<T>
      */
     protected AbstractCrossover(NumberGenerator<Integer> crossoverPointsVariable,
                                 NumberGenerator<Probability> crossoverProbabilityVariable)
+    {
+        this(IntVariable.adapt(crossoverPointsVariable),
+             DoubleVariable.adapt(crossoverProbabilityVariable));
+    }
+
+
+    /**
+     * Sets up a cross-over implementation that uses a variable number of cross-over
+     * points, with the parameters provided as primitive variables.  Cross-over is
+     * applied to a proportion of selected parent pairs, with the remainder copied
+     * unchanged into the output population.
+     * @param crossoverPointsVariable A variable that provides a (possibly constant,
+     * possibly random) number of cross-over points for each cross-over operation.
+     * @param crossoverProbabilityVariable A variable that controls the probability
+     * that, once selected, a pair of parents will be subjected to cross-over rather
+     * than being copied, unchanged, into the output population.
+     */
+    protected AbstractCrossover(IntVariable crossoverPointsVariable,
+                                DoubleVariable crossoverProbabilityVariable)
     {
         this.crossoverPointsVariable = crossoverPointsVariable;
         this.crossoverProbabilityVariable = crossoverProbabilityVariable;
@@ -139,7 +157,7 @@ public abstract class AbstractCrossover<T> implements EvolutionaryOperator<T>
                 T parent2 = iterator.next();
                 // Randomly decide (according to the current cross-over probability)
                 // whether to perform cross-over for these 2 parents.
-                int crossoverPoints = crossoverProbabilityVariable.nextValue().nextEvent(rng)
+                int crossoverPoints = DoubleVariable.nextEvent(crossoverProbabilityVariable.nextValue(), rng)
                                       ? crossoverPointsVariable.nextValue()
                                       : 0;
                 if (crossoverPoints > 0)
@@ -0,0 +1,146 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework.operators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.uncommons.watchmaker.framework.EvolutionaryOperator;
+
+/**
+ * <p>Generic base class for per-gene mutation of long genomes.  Each gene is mutated
+ * independently with some probability, but rather than making a random draw for every
+ * gene, the positions of the mutated genes are found by sampling the gaps between them.
+ * The number of unmutated genes before the next mutated gene follows a geometric
+ * distribution, so a single random draw jumps straight to the next mutation.  The cost
+ * of mutating a candidate is therefore proportional to the number of genes that change,
+ * not the length of the candidate.  The mutated positions have exactly the same
+ * distribution as if a separate event had been generated for each gene.</p>
+ *
+ * <p>The mutation probability may be variable, but it is consulted once per candidate
+ * rather than once per gene.  Candidates that have no mutated genes are returned
+ * unchanged (the same instance, not a copy).</p>
+ * @param <T> The type of evolved candidates that are operated on by
+ * this mutation implementation.
+ * @author Daniel Dyer
+ */
+public abstract class AbstractSparseMutation<T> implements EvolutionaryOperator<T>
+{
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final DoubleVariable mutationProbability;
+
+    /**
+     * @param mutationProbability The (possibly variable) probability that any given
+     * gene is mutated.
+     */
+    protected AbstractSparseMutation(DoubleVariable mutationProbability)
+    {
+        this.mutationProbability = mutationProbability;
+    }
+
+
+    /**
+     * Applies mutation to each of the selected candidates.
+     * @param selectedCandidates The individuals to mutate.
+     * @param rng A source of randomness.
+     * @return The mutated candidates (and any that were not mutated).
+     */
+    public List<T> apply(List<T> selectedCandidates, Random rng)
+    {
+        List<T> result = new ArrayList<T>(selectedCandidates.size());
+        for (T candidate : selectedCandidates)
+        {
+            int[] positions = samplePositions(getLength(candidate), mutationProbability.nextValue(), rng);
+            result.add(positions.length == 0 ? candidate : mutate(candidate, positions, rng));
+        }
+        return result;
+    }
+
+
+    /**
+     * Chooses which genes to mutate.
+     * @param length The number of genes in the candidate.
+     * @param probability The probability that any given gene is mutated.
+     * @param rng A source of randomness.
+     * @return The positions of the mutated genes, in ascending order.
+     */
+    static int[] samplePositions(int length, double probability, Random rng)
+    {
+        if (length == 0 || probability <= 0)
+        {
+            return NO_POSITIONS;
+        }
+        int[] positions;
+        if (probability >= 1)
+        {
+            positions = new int[length];
+            for (int i = 0; i < length; i++)
+            {
+                positions[i] = i;
+            }
+            return positions;
+        }
+        // Expect probability * length positions, allow some headroom to avoid re-sizing.
+        positions = new int[(int) Math.min(length, 2 * probability * length + 4)];
+        int count = 0;
+        double scale = 1 / Math.log1p(-probability);
+        long position = nextGap(scale, rng);
+        while (position < length)
+        {
+            if (count == positions.length)
+            {
+                positions = Arrays.copyOf(positions, Math.min(length, count * 2));
+            }
+            positions[count++] = (int) position;
+            position += 1 + nextGap(scale, rng);
+        }
+        return count == positions.length ? positions : Arrays.copyOf(positions, count);
+    }
+
+
+    /**
+     * @param scale The reciprocal of the logarithm of the probability that a gene is
+     * not mutated.
+     * @param rng A source of randomness.
+     * @return The number of unmutated genes before the next mutated gene.
+     */
+    private static long nextGap(double scale, Random rng)
+    {
+        // Inversion of the geometric distribution.  The uniform value must be non-zero.
+        double gap = Math.floor(Math.log(1 - rng.nextDouble()) * scale);
+        return (long) Math.min(gap, Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * @param candidate A candidate that may be mutated.
+     * @return The number of genes in the candidate.
+     */
+    protected abstract int getLength(T candidate);
+
+
+    /**
+     * Creates a mutated copy of a candidate.  The candidate itself must not be modified.
+     * @param candidate The candidate to mutate.
+     * @param positions The positions of the genes to mutate, in ascending order.  There
+     * is always at least one.
+     * @param rng A source of randomness.
+     * @return The mutated candidate.
+     */
+    protected abstract T mutate(T candidate, int[] positions, Random rng);
+}
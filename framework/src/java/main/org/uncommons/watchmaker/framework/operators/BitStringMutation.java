@@ -19,7 +19,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import org.uncommons.maths.binary.BitString;
-import org.uncommons.maths.number.ConstantGenerator;
 import org.uncommons.maths.number.NumberGenerator;
 import org.uncommons.maths.random.Probability;
 import org.uncommons.watchmaker.framework.EvolutionaryOperator;
@@ -32,8 +31,8 @@ import org.uncommons.watchmaker.framework.EvolutionaryOperator;
  */
 public class BitStringMutation implements EvolutionaryOperator<BitString>
 {
-    private final NumberGenerator<Probability> mutationProbability;
-    private final NumberGenerator<Integer> mutationCount;
+    private final DoubleVariable mutationProbability;
+    private final IntVariable mutationCount;
 
 
     /**
@@ -43,8 +42,8 @@ public class BitStringMutation implements EvolutionaryOperator<BitString>
      */
     public BitStringMutation(Probability mutationProbability)
     {
-        this(new ConstantGenerator<Probability>(mutationProbability),
-             new ConstantGenerator<Integer>(1));
+        this(DoubleVariable.constant(mutationProbability.doubleValue()),
+             IntVariable.constant(1));
     }
 
 
@@ -58,6 +57,21 @@ public class BitStringMutation implements EvolutionaryOperator<BitString>
      */
     public BitStringMutation(NumberGenerator<Probability> mutationProbability,
                              NumberGenerator<Integer> mutationCount)
+    {
+        this(DoubleVariable.adapt(mutationProbability), IntVariable.adapt(mutationCount));
+    }
+
+
+    /**
+     * Creates a mutation operator for bit strings, with the probability that any
+     * given bit will be flipped governed by the specified primitive parameters.
+     * @param mutationProbability The (possibly variable) probability of a candidate
+     * bit string being mutated at all.
+     * @param mutationCount The (possibly variable) number of bits that will be flipped
+     * on any candidate bit string that is selected for mutation.
+     */
+    public BitStringMutation(DoubleVariable mutationProbability,
+                             IntVariable mutationCount)
     {
         this.mutationProbability = mutationProbability;
         this.mutationCount = mutationCount;
@@ -85,7 +99,7 @@ public class BitStringMutation implements EvolutionaryOperator<BitString>
      */
     private BitString mutateBitString(BitString bitString, Random rng)
     {
-        if (mutationProbability.nextValue().nextEvent(rng))
+        if (DoubleVariable.nextEvent(mutationProbability.nextValue(), rng))
         {
             BitString mutatedBitString = bitString.clone();
             int mutations = mutationCount.nextValue();
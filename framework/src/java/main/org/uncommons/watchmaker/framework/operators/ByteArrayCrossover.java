@@ -94,6 +94,22 @@ public class ByteArrayCrossover extends AbstractCrossover<byte[]>
     }
 
 
+    /**
+     * Sets up a cross-over implementation that uses primitive variables for the
+     * number of cross-over points and the cross-over probability.
+     * @param crossoverPointsVariable A variable that provides a (possibly constant,
+     * possibly random) number of cross-over points for each cross-over operation.
+     * @param crossoverProbabilityVariable A variable that controls the probability
+     * that, once selected, a pair of parents will be subjected to cross-over rather
+     * than being copied, unchanged, into the output population.
+     */
+    public ByteArrayCrossover(IntVariable crossoverPointsVariable,
+                              DoubleVariable crossoverProbabilityVariable)
+    {
+        super(crossoverPointsVariable, crossoverProbabilityVariable);
+    }
+
+
     /**
      * {@inheritDoc}
      */
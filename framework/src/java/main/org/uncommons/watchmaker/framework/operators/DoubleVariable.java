@@ -0,0 +1,110 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework.operators;
+
+import java.util.Random;
+import org.uncommons.maths.number.ConstantGenerator;
+import org.uncommons.maths.number.NumberGenerator;
+
+/**
+ * <p>A primitive, double-valued operator parameter, such as a mutation or cross-over
+ * probability.  It is an alternative to a {@link NumberGenerator} of {@code Probability}
+ * or {@code Double} values for parameters that are consulted once per gene.
+ * Values are returned as primitives, so no {@link Number} objects are created or
+ * unboxed on each call.</p>
+ *
+ * <p>Constant parameters, created by {@link #constant(double)}, are recognised by the
+ * operators in this package.  The value is then read once per candidate instead of once
+ * per gene.</p>
+ * @see IntVariable
+ * @author Daniel Dyer
+ */
+public abstract class DoubleVariable
+{
+    /**
+     * @return The next value of this parameter.
+     */
+    public abstract double nextValue();
+
+
+    /**
+     * @return True if {@link #nextValue()} always returns the same value, false otherwise.
+     */
+    public boolean isConstant()
+    {
+        return false;
+    }
+
+
+    /**
+     * @param value The value of the parameter.
+     * @return A parameter that always has the specified value.
+     */
+    public static DoubleVariable constant(final double value)
+    {
+        return new DoubleVariable()
+        {
+            @Override
+            public double nextValue()
+            {
+                return value;
+            }
+
+            @Override
+            public boolean isConstant()
+            {
+                return true;
+            }
+        };
+    }
+
+
+    /**
+     * Adapts a boxed number generator to a primitive parameter.  A
+     * {@link ConstantGenerator} is converted to a constant parameter.
+     * @param generator The source of parameter values.
+     * @return A parameter that takes its values from the specified generator.
+     */
+    public static DoubleVariable adapt(final NumberGenerator<? extends Number> generator)
+    {
+        if (generator.getClass() == ConstantGenerator.class)
+        {
+            return constant(generator.nextValue().doubleValue());
+        }
+        return new DoubleVariable()
+        {
+            @Override
+            public double nextValue()
+            {
+                return generator.nextValue().doubleValue();
+            }
+        };
+    }
+
+
+    /**
+     * Generates an event with the specified probability.  This is consistent with
+     * {@link org.uncommons.maths.random.Probability#nextEvent(Random)}, so the operators
+     * draw the same random numbers whichever type their parameters have.
+     * @param probability The probability of the event occurring.
+     * @param rng A source of randomness.
+     * @return True if the event occurs, false otherwise.
+     */
+    static boolean nextEvent(double probability, Random rng)
+    {
+        return probability == 1 || rng.nextDouble() < probability;
+    }
+}
@@ -0,0 +1,90 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework.operators;
+
+import org.uncommons.maths.number.ConstantGenerator;
+import org.uncommons.maths.number.NumberGenerator;
+
+/**
+ * A primitive, int-valued operator parameter, such as a number of cross-over points
+ * or mutations.  It is an alternative to a {@link NumberGenerator} of integers that returns
+ * its values as primitives, so no {@link Integer} objects are created or unboxed on
+ * each call.
+ * @see DoubleVariable
+ * @author Daniel Dyer
+ */
+public abstract class IntVariable
+{
+    /**
+     * @return The next value of this parameter.
+     */
+    public abstract int nextValue();
+
+
+    /**
+     * @return True if {@link #nextValue()} always returns the same value, false otherwise.
+     */
+    public boolean isConstant()
+    {
+        return false;
+    }
+
+
+    /**
+     * @param value The value of the parameter.
+     * @return A parameter that always has the specified value.
+     */
+    public static IntVariable constant(final int value)
+    {
+        return new IntVariable()
+        {
+            @Override
+            public int nextValue()
+            {
+                return value;
+            }
+
+            @Override
+            public boolean isConstant()
+            {
+                return true;
+            }
+        };
+    }
+
+
+    /**
+     * Adapts a boxed number generator to a primitive parameter.  A
+     * {@link ConstantGenerator} is converted to a constant parameter.
+     * @param generator The source of parameter values.
+     * @return A parameter that takes its values from the specified generator.
+     */
+    public static IntVariable adapt(final NumberGenerator<? extends Number> generator)
+    {
+        if (generator.getClass() == ConstantGenerator.class)
+        {
+            return constant(generator.nextValue().intValue());
+        }
+        return new IntVariable()
+        {
+            @Override
+            public int nextValue()
+            {
+                return generator.nextValue().intValue();
+            }
+        };
+    }
+}
@@ -19,7 +19,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
-import org.uncommons.maths.number.ConstantGenerator;
 import org.uncommons.maths.number.NumberGenerator;
 import org.uncommons.maths.random.Probability;
 import org.uncommons.watchmaker.framework.EvolutionaryOperator;
@@ -31,7 +30,7 @@ import org.uncommons.watchmaker.framework.EvolutionaryOperator;
  */
 public class ListInversion<T> implements EvolutionaryOperator<List<T>>
 {
-    private final NumberGenerator<Probability> inversionProbability;
+    private final DoubleVariable inversionProbability;
 
 
     /**
@@ -40,7 +39,7 @@ public class ListInversion<T> implements EvolutionaryOperator<List<T>>
      */
     public ListInversion(Probability inversionProbability)
     {
-        this(new ConstantGenerator<Probability>(inversionProbability));
+        this(DoubleVariable.constant(inversionProbability.doubleValue()));
     }
 
 
@@ -49,6 +48,16 @@ public class ListInversion<T> implements EvolutionaryOperator<List<T>>
      * individual list will have some subsection inverted. 
      */
     public ListInversion(NumberGenerator<Probability> inversionProbability)
+    {
+        this(DoubleVariable.adapt(inversionProbability));
+    }
+
+
+    /**
+     * @param inversionProbability A primitive parameter that controls the probability
+     * that an individual list will have some subsection inverted.
+     */
+    public ListInversion(DoubleVariable inversionProbability)
     {
         this.inversionProbability = inversionProbability;
     }
@@ -59,7 +68,7 @@ public class ListInversion<T> implements EvolutionaryOperator<List<T>>
         List<List<T>> result = new ArrayList<List<T>>(selectedCandidates.size());
         for (List<T> candidate : selectedCandidates)
         {
-            if (inversionProbability.nextValue().nextEvent(rng))
+            if (DoubleVariable.nextEvent(inversionProbability.nextValue(), rng))
             {
                 List<T> newCandidate = new ArrayList<T>(candidate);
                 int length = newCandidate.size();
@@ -67,6 +67,20 @@ public class ListOrderCrossover<T> extends AbstractCrossover<List<T>>
     }
 
 
+    /**
+     * Creates a cross-over operator where cross-over may or may not be applied to a
+     * given pair of parents depending on a primitive probability variable.
+     * @param crossoverProbabilityVariable The probability that, once selected,
+     * a pair of parents will be subjected to cross-over rather than
+     * being copied, unchanged, into the output population.
+     */
+    public ListOrderCrossover(DoubleVariable crossoverProbabilityVariable)
+    {
+        super(IntVariable.constant(2), // Requires exactly two cross-over points.
+              crossoverProbabilityVariable);
+    }
+
+
 
     /**
      * {@inheritDoc}
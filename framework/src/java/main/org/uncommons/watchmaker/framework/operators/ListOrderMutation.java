@@ -19,9 +19,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
-import org.uncommons.maths.number.ConstantGenerator;
 import org.uncommons.maths.number.NumberGenerator;
 import org.uncommons.watchmaker.framework.EvolutionaryOperator;
+import org.uncommons.watchmaker.framework.ModificationTracker;
 
 /**
  * A special mutation implementation that instead of changing the
@@ -32,13 +32,17 @@ import org.uncommons.watchmaker.framework.EvolutionaryOperator;
  * sequence, typically a poisson distribution (see
  * {@link org.uncommons.maths.random.PoissonGenerator}), to determine how
  * many mutations to apply.
+ * If a {@link ModificationTracker} is specified, the positions swapped
+ * in each mutated candidate are recorded so that the candidate can be
+ * scored by an {@link org.uncommons.watchmaker.framework.IncrementalFitnessEvaluator}.
  * @param <T> The component type of the lists that are mutated.
  * @author Daniel Dyer
  */
 public class ListOrderMutation<T> implements EvolutionaryOperator<List<T>>
 {
-    private final NumberGenerator<Integer> mutationCountVariable;
-    private final NumberGenerator<Integer> mutationAmountVariable;
+    private final IntVariable mutationCountVariable;
+    private final IntVariable mutationAmountVariable;
+    private final ModificationTracker<List<T>> modificationTracker;
 
     /**
      * Default is one mutation per candidate.
@@ -56,8 +60,8 @@ public class ListOrderMutation<T> implements EvolutionaryOperator<List<T>>
      */
     public ListOrderMutation(int mutationCount, int mutationAmount)
     {
-        this(new ConstantGenerator<Integer>(mutationCount),
-             new ConstantGenerator<Integer>(mutationAmount));
+        this(IntVariable.constant(mutationCount),
+             IntVariable.constant(mutationAmount));
     }
 
 
@@ -72,9 +76,61 @@ public class ListOrderMutation<T> implements EvolutionaryOperator<List<T>>
      */
     public ListOrderMutation(NumberGenerator<Integer> mutationCount,
                              NumberGenerator<Integer> mutationAmount)
+    {
+        this(mutationCount, mutationAmount, null);
+    }
+
+
+    /**
+     * Creates a mutation operator that records the positions that it swaps.
+     * @param mutationCount A random variable that provides a number
+     * of mutations that will be applied to each individual.
+     * @param mutationAmount A random variable that provides a number
+     * of positions by which to displace an element when mutating.
+     * @param modificationTracker The tracker in which the swapped positions
+     * of each mutated candidate are recorded (may be null, in which case
+     * nothing is recorded).
+     */
+    public ListOrderMutation(NumberGenerator<Integer> mutationCount,
+                             NumberGenerator<Integer> mutationAmount,
+                             ModificationTracker<List<T>> modificationTracker)
+    {
+        this(IntVariable.adapt(mutationCount), IntVariable.adapt(mutationAmount), modificationTracker);
+    }
+
+
+    /**
+     * Creates a mutation operator with primitive parameters.
+     * @param mutationCount A variable that provides a number of mutations that
+     * will be applied to each individual.
+     * @param mutationAmount A variable that provides a number of positions by
+     * which to displace an element when mutating.
+     */
+    public ListOrderMutation(IntVariable mutationCount,
+                             IntVariable mutationAmount)
+    {
+        this(mutationCount, mutationAmount, null);
+    }
+
+
+    /**
+     * Creates a mutation operator with primitive parameters that records the
+     * positions that it swaps.
+     * @param mutationCount A variable that provides a number of mutations that
+     * will be applied to each individual.
+     * @param mutationAmount A variable that provides a number of positions by
+     * which to displace an element when mutating.
+     * @param modificationTracker The tracker in which the swapped positions
+     * of each mutated candidate are recorded (may be null, in which case
+     * nothing is recorded).
+     */
+    public ListOrderMutation(IntVariable mutationCount,
+                             IntVariable mutationAmount,
+                             ModificationTracker<List<T>> modificationTracker)
     {
         this.mutationCountVariable = mutationCount;
         this.mutationAmountVariable = mutationAmount;
+        this.modificationTracker = modificationTracker;
     }
 
 
@@ -85,6 +141,7 @@ public class ListOrderMutation<T> implements EvolutionaryOperator<List<T>>
         {
             List<T> newCandidate = new ArrayList<T>(candidate);
             int mutationCount = Math.abs(mutationCountVariable.nextValue());
+            int[] swappedPositions = modificationTracker == null ? null : new int[mutationCount * 2];
             for (int i = 0; i < mutationCount; i++)
             {
                 int fromIndex = rng.nextInt(newCandidate.size());
@@ -97,6 +154,15 @@ public class ListOrderMutation<T> implements EvolutionaryOperator<List<T>>
                 // Swap the randomly selected element with the one that is the
                 // specified displacement distance away.
                 Collections.swap(newCandidate, fromIndex, toIndex);
+                if (swappedPositions != null)
+                {
+                    swappedPositions[i * 2] = fromIndex;
+                    swappedPositions[i * 2 + 1] = toIndex;
+                }
+            }
+            if (swappedPositions != null)
+            {
+                modificationTracker.recordModification(candidate, newCandidate, swappedPositions);
             }
             result.add(newCandidate);
         }
@@ -0,0 +1,202 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework.operators;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.uncommons.util.concurrent.ConfigurableThreadFactory;
+import org.uncommons.watchmaker.framework.EvolutionaryOperator;
+import org.uncommons.watchmaker.framework.RandomStreams;
+
+/**
+ * <p>Compound evolutionary operator that applies another operator to several
+ * partitions of the selected candidates concurrently.  The offspring from each
+ * partition are concatenated, in partition order, to give the evolved population.
+ * This is useful when the evolutionary operators themselves are expensive (for
+ * example, cross-over of very long permutations or mutation of large trees) and
+ * would otherwise be a serial bottleneck on the evolution engine's thread.</p>
+ *
+ * <p>Each partition is processed with its own random number generator, which is
+ * derived from a single value taken from the RNG passed to the {@link #apply(List, Random)}
+ * method (see {@link RandomStreams}).  The generator for a partition depends only on that
+ * value and the partition's index, so for a given seed and partition count the results
+ * are the same regardless of how the partitions are scheduled.  Partition boundaries
+ * always fall on even indices so that pairs of parents for cross-over are never split.</p>
+ *
+ * <p>The wrapped operator is applied to different partitions at the same time,
+ * so it must be safe to use from multiple threads.</p>
+ *
+ * @param <T> The type of evolved entity dealt with by this operator.
+ * @author Daniel Dyer
+ */
+public class ParallelOperator<T> implements EvolutionaryOperator<T>
+{
+    private static ExecutorService partitionThreads = null;
+
+    private final EvolutionaryOperator<T> delegate;
+    private final int partitionCount;
+
+    /**
+     * Creates an operator that partitions the candidates into as many partitions as
+     * there are available processors.  Results are only reproducible on machines with
+     * the same number of processors.  Use the {@link #ParallelOperator(EvolutionaryOperator, int)}
+     * constructor to specify a fixed number of partitions.
+     * @param delegate The operator that is applied to each partition.
+     */
+    public ParallelOperator(EvolutionaryOperator<T> delegate)
+    {
+        this(delegate, Runtime.getRuntime().availableProcessors());
+    }
+
+
+    /**
+     * @param delegate The operator that is applied to each partition.
+     * @param partitionCount The maximum number of partitions into which the selected
+     * candidates are divided.  Fewer partitions are used if there are not enough
+     * candidates to give each partition at least two.
+     */
+    public ParallelOperator(EvolutionaryOperator<T> delegate, int partitionCount)
+    {
+        if (partitionCount < 1)
+        {
+            throw new IllegalArgumentException("Partition count must be at least 1.");
+        }
+        this.delegate = delegate;
+        this.partitionCount = partitionCount;
+    }
+
+
+    /**
+     * Applies the wrapped operator to each partition of the selected candidates
+     * concurrently and combines the results.
+     * @param selectedCandidates A list of the candidates that survived to be
+     * eligible for evolution.
+     * @param rng A source of randomness from which the generators used for the
+     * individual partitions are seeded.
+     * @return The combined results from all of the partitions.
+     */
+    public List<T> apply(List<T> selectedCandidates, Random rng)
+    {
+        int size = selectedCandidates.size();
+        // Each partition gets an even number of candidates (except possibly the last).
+        int pairs = (size + 1) / 2;
+        int partitions = Math.max(1, Math.min(partitionCount, pairs));
+        RandomStreams streams = new RandomStreams(rng);
+        List<PartitionTask> tasks = new ArrayList<PartitionTask>(partitions);
+        for (int i = 0; i < partitions; i++)
+        {
+            int fromIndex = Math.min(size, 2 * (int) ((long) pairs * i / partitions));
+            int toIndex = Math.min(size, 2 * (int) ((long) pairs * (i + 1) / partitions));
+            tasks.add(new PartitionTask(selectedCandidates.subList(fromIndex, toIndex), streams.getStream(i)));
+        }
+
+        List<T> result = new ArrayList<T>(size);
+        if (partitions == 1)
+        {
+            result.addAll(tasks.get(0).call());
+            return result;
+        }
+
+        // The first partition is processed on this thread, while the others are processed
+        // on the shared partition threads.
+        List<Future<List<T>>> futures = new ArrayList<Future<List<T>>>(partitions - 1);
+        ExecutorService executor = getPartitionThreads();
+        try
+        {
+            for (PartitionTask task : tasks.subList(1, partitions))
+            {
+                futures.add(executor.submit(task));
+            }
+            result.addAll(tasks.get(0).call());
+            for (Future<List<T>> future : futures)
+            {
+                result.addAll(future.get());
+            }
+            return result;
+        }
+        catch (ExecutionException ex)
+        {
+            if (ex.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+            else if (ex.getCause() instanceof Error)
+            {
+                throw (Error) ex.getCause();
+            }
+            throw new IllegalStateException("Evolutionary operator failed.", ex.getCause());
+        }
+        catch (InterruptedException ex)
+        {
+            // Restore the interrupted status, allows methods further up the call-stack
+            // to abort processing if appropriate.
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while applying evolutionary operator.", ex);
+        }
+        finally
+        {
+            for (Future<List<T>> future : futures)
+            {
+                future.cancel(true); // Has no effect on tasks that have completed.
+            }
+        }
+    }
+
+
+    /**
+     * Lazily creates the threads used for applying operators to partitions.  They are
+     * daemon threads so that they do not prevent the JVM from exiting.  The pool is not
+     * bounded, so that nested parallel operators cannot deadlock waiting for each other.
+     */
+    private static synchronized ExecutorService getPartitionThreads()
+    {
+        if (partitionThreads == null)
+        {
+            partitionThreads = Executors.newCachedThreadPool(new ConfigurableThreadFactory("ParallelOperator",
+                                                                                           Thread.NORM_PRIORITY,
+                                                                                           true));
+        }
+        return partitionThreads;
+    }
+
+
+    /**
+     * Applies the wrapped operator to a single partition.
+     */
+    private final class PartitionTask implements Callable<List<T>>
+    {
+        private final List<T> candidates;
+        private final Random partitionRNG;
+
+        PartitionTask(List<T> candidates, Random partitionRNG)
+        {
+            this.candidates = candidates;
+            this.partitionRNG = partitionRNG;
+        }
+
+
+        public List<T> call()
+        {
+            return delegate.apply(candidates, partitionRNG);
+        }
+    }
+}
@@ -18,7 +18,6 @@ package org.uncommons.watchmaker.framework.operators;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
-import org.uncommons.maths.number.ConstantGenerator;
 import org.uncommons.maths.number.NumberGenerator;
 import org.uncommons.maths.random.Probability;
 import org.uncommons.watchmaker.framework.CandidateFactory;
@@ -36,7 +35,7 @@ import org.uncommons.watchmaker.framework.EvolutionaryOperator;
 public class Replacement<T> implements EvolutionaryOperator<T>
 {
     private final CandidateFactory<T> factory;
-    private final NumberGenerator<Probability> replacementProbability;
+    private final DoubleVariable replacementProbability;
 
 
     /**
@@ -51,7 +50,7 @@ public class Replacement<T> implements EvolutionaryOperator<T>
     public Replacement(CandidateFactory<T> factory,
                        Probability replacementProbability)
     {
-        this(factory, new ConstantGenerator<Probability>(replacementProbability));
+        this(factory, DoubleVariable.constant(replacementProbability.doubleValue()));
     }
 
 
@@ -67,6 +66,21 @@ public class Replacement<T> implements EvolutionaryOperator<T>
      */
     public Replacement(CandidateFactory<T> factory,
                        NumberGenerator<Probability> replacementProbability)
+    {
+        this(factory, DoubleVariable.adapt(replacementProbability));
+    }
+
+
+    /**
+     * Creates a replacement operator that replaces individuals according to
+     * a variable probability.  New individuals are obtained from the factory
+     * provided.
+     * @param factory A source of new individuals.
+     * @param replacementProbability A primitive parameter that provides a
+     * probability of replacement.  The probability should typically be quite low.
+     */
+    public Replacement(CandidateFactory<T> factory,
+                       DoubleVariable replacementProbability)
     {
         this.factory = factory;
         this.replacementProbability = replacementProbability;
@@ -87,7 +101,7 @@ public class Replacement<T> implements EvolutionaryOperator<T>
         List<T> output = new ArrayList<T>(selectedCandidates.size());
         for (T candidate : selectedCandidates)
         {
-            output.add(replacementProbability.nextValue().nextEvent(rng)
+            output.add(DoubleVariable.nextEvent(replacementProbability.nextValue(), rng)
                        ? factory.generateRandomCandidate(rng)
                        : candidate);
         }
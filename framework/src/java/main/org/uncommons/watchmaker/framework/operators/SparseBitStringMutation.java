@@ -0,0 +1,74 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework.operators;
+
+import java.util.Random;
+import org.uncommons.maths.binary.BitString;
+import org.uncommons.maths.random.Probability;
+
+/**
+ * Mutation of individual bits in a {@link BitString}, each of which is flipped
+ * independently with some probability (typically 1/L for a bit string of length L).
+ * Unlike {@link BitStringMutation}, which decides whether to mutate each candidate
+ * and then flips a number of bits, this operator applies the probability per bit.
+ * @see AbstractSparseMutation
+ * @author Daniel Dyer
+ */
+public class SparseBitStringMutation extends AbstractSparseMutation<BitString>
+{
+    /**
+     * @param mutationProbability The probability that a given bit is flipped.
+     */
+    public SparseBitStringMutation(Probability mutationProbability)
+    {
+        this(DoubleVariable.constant(mutationProbability.doubleValue()));
+    }
+
+
+    /**
+     * @param mutationProbability The (possibly variable) probability that a
+     * given bit is flipped.
+     */
+    public SparseBitStringMutation(DoubleVariable mutationProbability)
+    {
+        super(mutationProbability);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getLength(BitString candidate)
+    {
+        return candidate.getLength();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected BitString mutate(BitString candidate, int[] positions, Random rng)
+    {
+        BitString mutant = candidate.clone();
+        for (int position : positions)
+        {
+            mutant.flipBit(position);
+        }
+        return mutant;
+    }
+}
@@ -0,0 +1,76 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework.operators;
+
+import java.util.Random;
+import org.uncommons.maths.random.Probability;
+
+/**
+ * Mutation of individual elements of a character array according to some probability.
+ * Each mutated element is replaced by a character chosen at random from an alphabet.
+ * @see AbstractSparseMutation
+ * @author Daniel Dyer
+ */
+public class SparseCharArrayMutation extends AbstractSparseMutation<char[]>
+{
+    private final char[] alphabet;
+
+    /**
+     * @param alphabet The permitted values for each element of an array.
+     * @param mutationProbability The probability that a given element is changed.
+     */
+    public SparseCharArrayMutation(char[] alphabet, Probability mutationProbability)
+    {
+        this(alphabet, DoubleVariable.constant(mutationProbability.doubleValue()));
+    }
+
+
+    /**
+     * @param alphabet The permitted values for each element of an array.
+     * @param mutationProbability The (possibly variable) probability that a
+     * given element is changed.
+     */
+    public SparseCharArrayMutation(char[] alphabet, DoubleVariable mutationProbability)
+    {
+        super(mutationProbability);
+        this.alphabet = alphabet.clone();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getLength(char[] candidate)
+    {
+        return candidate.length;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected char[] mutate(char[] candidate, int[] positions, Random rng)
+    {
+        char[] mutant = candidate.clone();
+        for (int position : positions)
+        {
+            mutant[position] = alphabet[rng.nextInt(alphabet.length)];
+        }
+        return mutant;
+    }
+}
@@ -0,0 +1,79 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework.operators;
+
+import java.util.Random;
+import org.uncommons.maths.random.Probability;
+
+/**
+ * Mutation of individual elements of an int array according to some probability.
+ * Each mutated element is displaced by an amount drawn from a (typically random)
+ * variable.
+ * @see AbstractSparseMutation
+ * @author Daniel Dyer
+ */
+public class SparseIntArrayMutation extends AbstractSparseMutation<int[]>
+{
+    private final IntVariable mutationAmount;
+
+    /**
+     * @param mutationProbability The probability that a given element is changed.
+     * @param mutationAmount A variable that provides the amount that is added to
+     * each mutated element.  It may be negative.
+     */
+    public SparseIntArrayMutation(Probability mutationProbability, IntVariable mutationAmount)
+    {
+        this(DoubleVariable.constant(mutationProbability.doubleValue()), mutationAmount);
+    }
+
+
+    /**
+     * @param mutationProbability The (possibly variable) probability that a
+     * given element is changed.
+     * @param mutationAmount A variable that provides the amount that is added to
+     * each mutated element.  It may be negative.
+     */
+    public SparseIntArrayMutation(DoubleVariable mutationProbability, IntVariable mutationAmount)
+    {
+        super(mutationProbability);
+        this.mutationAmount = mutationAmount;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getLength(int[] candidate)
+    {
+        return candidate.length;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int[] mutate(int[] candidate, int[] positions, Random rng)
+    {
+        int[] mutant = candidate.clone();
+        for (int position : positions)
+        {
+            mutant[position] += mutationAmount.nextValue();
+        }
+        return mutant;
+    }
+}
@@ -0,0 +1,78 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework.operators;
+
+import java.util.Random;
+import org.uncommons.maths.random.Probability;
+
+/**
+ * Mutation of individual characters in a string according to some probability.  This
+ * is equivalent to {@link StringMutation} but, because it only makes random draws for
+ * the characters that are changed, it is much faster for long strings with low
+ * mutation probabilities.
+ * @see AbstractSparseMutation
+ * @author Daniel Dyer
+ */
+public class SparseStringMutation extends AbstractSparseMutation<String>
+{
+    private final char[] alphabet;
+
+    /**
+     * @param alphabet The permitted values for each character in a string.
+     * @param mutationProbability The probability that a given character is changed.
+     */
+    public SparseStringMutation(char[] alphabet, Probability mutationProbability)
+    {
+        this(alphabet, DoubleVariable.constant(mutationProbability.doubleValue()));
+    }
+
+
+    /**
+     * @param alphabet The permitted values for each character in a string.
+     * @param mutationProbability The (possibly variable) probability that a
+     * given character is changed.
+     */
+    public SparseStringMutation(char[] alphabet, DoubleVariable mutationProbability)
+    {
+        super(mutationProbability);
+        this.alphabet = alphabet.clone();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getLength(String candidate)
+    {
+        return candidate.length();
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String mutate(String candidate, int[] positions, Random rng)
+    {
+        char[] characters = candidate.toCharArray();
+        for (int position : positions)
+        {
+            characters[position] = alphabet[rng.nextInt(alphabet.length)];
+        }
+        return new String(characters);
+    }
+}
@@ -18,7 +18,6 @@ package org.uncommons.watchmaker.framework.operators;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
-import org.uncommons.maths.number.ConstantGenerator;
 import org.uncommons.maths.number.NumberGenerator;
 import org.uncommons.maths.random.Probability;
 import org.uncommons.watchmaker.framework.EvolutionaryOperator;
@@ -31,7 +30,7 @@ import org.uncommons.watchmaker.framework.EvolutionaryOperator;
 public class StringMutation implements EvolutionaryOperator<String>
 {
     private final char[] alphabet;
-    private final NumberGenerator<Probability> mutationProbability;
+    private final DoubleVariable mutationProbability;
 
     /**
      * Creates a mutation operator that is applied with the given
@@ -42,7 +41,7 @@ public class StringMutation implements EvolutionaryOperator<String>
      */
     public StringMutation(char[] alphabet, Probability mutationProbability)
     {
-        this(alphabet, new ConstantGenerator<Probability>(mutationProbability));
+        this(alphabet, DoubleVariable.constant(mutationProbability.doubleValue()));
     }
 
 
@@ -55,6 +54,20 @@ public class StringMutation implements EvolutionaryOperator<String>
      */
     public StringMutation(char[] alphabet,
                           NumberGenerator<Probability> mutationProbability)
+    {
+        this(alphabet, DoubleVariable.adapt(mutationProbability));
+    }
+
+
+    /**
+     * Creates a mutation operator that is applied with the given
+     * probability and draws its characters from the specified alphabet.
+     * @param alphabet The permitted values for each character in a string.
+     * @param mutationProbability The (possibly variable) probability that a
+     * given character is changed.
+     */
+    public StringMutation(char[] alphabet,
+                          DoubleVariable mutationProbability)
     {
         this.alphabet = alphabet.clone();
         this.mutationProbability = mutationProbability;
@@ -83,11 +96,26 @@ public class StringMutation implements EvolutionaryOperator<String>
     private String mutateString(String s, Random rng)
     {
         StringBuilder buffer = new StringBuilder(s);
-        for (int i = 0; i < buffer.length(); i++)
+        if (mutationProbability.isConstant())
+        {
+            // Look up the probability once rather than once per character.
+            double probability = mutationProbability.nextValue();
+            for (int i = 0; i < buffer.length(); i++)
+            {
+                if (DoubleVariable.nextEvent(probability, rng))
+                {
+                    buffer.setCharAt(i, alphabet[rng.nextInt(alphabet.length)]);
+                }
+            }
+        }
+        else
         {
-            if (mutationProbability.nextValue().nextEvent(rng))
+            for (int i = 0; i < buffer.length(); i++)
             {
-                buffer.setCharAt(i, alphabet[rng.nextInt(alphabet.length)]);
+                if (DoubleVariable.nextEvent(mutationProbability.nextValue(), rng))
+                {
+                    buffer.setCharAt(i, alphabet[rng.nextInt(alphabet.length)]);
+                }
             }
         }
         return buffer.toString();
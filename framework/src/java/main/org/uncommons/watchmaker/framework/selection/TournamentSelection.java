@@ -28,7 +28,9 @@ import org.uncommons.watchmaker.framework.SelectionStrategy;
  * Selection strategy that picks a pair of candidates at random and then
  * selects the fitter of the two candidates with probability p, where p
  * is the configured selection probability (therefore the probability of
- * the less fit candidate being selected is 1 - p).
+ * the less fit candidate being selected is 1 - p).  If both candidates
+ * have only {@link EvaluatedCandidate#isBounded() bounded} fitness scores,
+ * neither is known to be fitter so one of them is chosen at random.
  * @author Daniel Dyer
  */
 public class TournamentSelection implements SelectionStrategy<Object>
@@ -85,7 +87,12 @@ public class TournamentSelection implements SelectionStrategy<Object>
 
             // Use a random value to decide wether to select the fitter individual or the weaker one.
             boolean selectFitter = selectionProbability.nextValue().nextEvent(rng);
-            if (selectFitter == naturalFitnessScores)
+            if (candidate1.isBounded() && candidate2.isBounded())
+            {
+                // Neither score is exact, so the comparison would be meaningless.
+                selection.add(rng.nextBoolean() ? candidate1.getCandidate() : candidate2.getCandidate());
+            }
+            else if (selectFitter == naturalFitnessScores)
             {
                 // Select the fitter candidate.
                 selection.add(candidate2.getFitness() > candidate1.getFitness()
@@ -0,0 +1,144 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.Test;
+import org.uncommons.maths.random.Probability;
+import org.uncommons.watchmaker.framework.factories.StubIntegerFactory;
+import org.uncommons.watchmaker.framework.operators.IntegerAdjuster;
+import org.uncommons.watchmaker.framework.selection.TournamentSelection;
+import org.uncommons.watchmaker.framework.termination.GenerationCount;
+import org.uncommons.watchmaker.framework.termination.TargetFitness;
+
+/**
+ * Unit test for the {@link AsynchronousSteadyStateEvolutionEngine} class.
+ * @author Daniel Dyer
+ */
+public class AsynchronousSteadyStateEvolutionEngineTest
+{
+    /**
+     * Each offspring is one more than its parent, so the evolution should keep
+     * making progress until the target fitness is reached.
+     */
+    @Test
+    public void testEvolution()
+    {
+        AsynchronousSteadyStateEvolutionEngine<Integer> engine = createEngine(new IntegerEvaluator());
+        engine.setReplacementPolicy(ReplacementPolicy.WORST, 1);
+        final List<Integer> generations = new ArrayList<Integer>();
+        engine.addEvolutionObserver(new EvolutionObserver<Integer>()
+        {
+            public void populationUpdate(PopulationData<? extends Integer> data)
+            {
+                generations.add(data.getGenerationNumber());
+            }
+        });
+        TargetFitness target = new TargetFitness(20, true);
+        List<EvaluatedCandidate<Integer>> population = engine.evolvePopulation(10, 1, target);
+        assert population.size() == 10 : "Wrong population size: " + population.size();
+        assert population.get(0).getFitness() >= 20 : "Target not reached: " + population.get(0).getFitness();
+        for (int i = 1; i < population.size(); i++)
+        {
+            assert population.get(i).getFitness() <= population.get(i - 1).getFitness()
+                : "Population should be sorted.";
+        }
+        assert engine.getSatisfiedTerminationConditions().size() == 1 : "Wrong number of satisfied conditions.";
+        assert engine.getSatisfiedTerminationConditions().get(0) == target : "Wrong condition satisfied.";
+        // The observers should have been notified of each snapshot in turn.
+        for (int i = 0; i < generations.size(); i++)
+        {
+            assert generations.get(i) == i : "Wrong snapshot number: " + generations.get(i);
+        }
+    }
+
+
+    /**
+     * The snapshot count should be used for generation-based termination conditions.
+     */
+    @Test
+    public void testSnapshotCount()
+    {
+        AsynchronousSteadyStateEvolutionEngine<Integer> engine = createEngine(new IntegerEvaluator());
+        final int[] snapshots = new int[1];
+        engine.addEvolutionObserver(new EvolutionObserver<Integer>()
+        {
+            public void populationUpdate(PopulationData<? extends Integer> data)
+            {
+                ++snapshots[0];
+            }
+        });
+        engine.evolve(10, 0, new GenerationCount(3));
+        assert snapshots[0] == 3 : "Wrong number of snapshots: " + snapshots[0];
+    }
+
+
+    /**
+     * A failure in one of the breeding threads must not go unnoticed.
+     */
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testEvaluationFailure()
+    {
+        FitnessEvaluator<Integer> evaluator = new FitnessEvaluator<Integer>()
+        {
+            public double getFitness(Integer candidate, List<? extends Integer> population)
+            {
+                if (candidate > 0) // Only the initial population (all zeros) can be evaluated.
+                {
+                    throw new UnsupportedOperationException("Evaluation failed.");
+                }
+                return 0;
+            }
+
+            public boolean isNatural()
+            {
+                return true;
+            }
+        };
+        createEngine(evaluator).evolve(10, 0, new GenerationCount(1000));
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidThreadCount()
+    {
+        createEngine(new IntegerEvaluator()).setThreadCount(0);
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidSnapshotInterval()
+    {
+        createEngine(new IntegerEvaluator()).setSnapshotInterval(0, TimeUnit.MILLISECONDS);
+    }
+
+
+    private AsynchronousSteadyStateEvolutionEngine<Integer> createEngine(FitnessEvaluator<Integer> evaluator)
+    {
+        AsynchronousSteadyStateEvolutionEngine<Integer> engine
+            = new AsynchronousSteadyStateEvolutionEngine<Integer>(new StubIntegerFactory(),
+                                                                  new IntegerAdjuster(1),
+                                                                  evaluator,
+                                                                  new TournamentSelection(new Probability(0.9)),
+                                                                  1,
+                                                                  FrameworkTestUtils.getRNG());
+        engine.setThreadCount(2);
+        engine.setSnapshotInterval(5, TimeUnit.MILLISECONDS);
+        return engine;
+    }
+}
@@ -0,0 +1,72 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.Random;
+import org.testng.annotations.Test;
+import org.uncommons.maths.random.MersenneTwisterRNG;
+
+/**
+ * Unit test for the {@link BufferedRandom} class.
+ * @author Daniel Dyer
+ */
+public class BufferedRandomTest
+{
+    /**
+     * The buffered generator must give exactly the same sequence as the standard Mersenne
+     * Twister with the same seed, across several blocks.
+     */
+    @Test
+    public void testSameSequenceAsMersenneTwister()
+    {
+        MersenneTwisterRNG expected = new MersenneTwisterRNG();
+        Random actual = new BufferedRandom(expected.getSeed());
+        for (int i = 0; i < 2000; i++)
+        {
+            assert actual.nextInt() == expected.nextInt() : "Sequences differ at int " + i;
+            assert actual.nextDouble() == expected.nextDouble() : "Sequences differ at double " + i;
+            assert actual.nextInt(17) == expected.nextInt(17) : "Sequences differ at bounded int " + i;
+        }
+    }
+
+
+    @Test
+    public void testBulkMethods()
+    {
+        MersenneTwisterRNG seedSource = new MersenneTwisterRNG();
+        BufferedRandom bulk = new BufferedRandom(seedSource.getSeed());
+        BufferedRandom single = new BufferedRandom(seedSource.getSeed());
+        double[] doubles = new double[1000];
+        bulk.nextDoubles(doubles);
+        for (double value : doubles)
+        {
+            assert value == single.nextDouble() : "Bulk doubles should match individual doubles.";
+        }
+        int[] ints = new int[1000];
+        bulk.nextInts(ints, 10);
+        for (int value : ints)
+        {
+            assert value == single.nextInt(10) : "Bulk ints should match individual ints.";
+        }
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidSeed()
+    {
+        new BufferedRandom(new byte[8]);
+    }
+}
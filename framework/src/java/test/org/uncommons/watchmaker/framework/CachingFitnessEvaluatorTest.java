@@ -15,6 +15,7 @@
 //=============================================================================
 package org.uncommons.watchmaker.framework;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import org.testng.annotations.Test;
@@ -50,6 +51,65 @@ public class CachingFitnessEvaluatorTest
     }
 
 
+    /**
+     * Batch evaluation should only evaluate those candidates that are not already
+     * in the cache, and should pass them to the delegate as a single batch if the
+     * delegate supports it.
+     */
+    @Test
+    public void testBatch()
+    {
+        BatchIncrementingEvaluator delegate = new BatchIncrementingEvaluator();
+        CachingFitnessEvaluator<String> evaluator = new CachingFitnessEvaluator<String>(delegate);
+        double first = evaluator.getFitness("Test2", Collections.<String>emptyList());
+        List<String> batch = Arrays.asList("Test1", "Test2", "Test3");
+        double[] scores = new double[4];
+        evaluator.getFitness(batch, batch, scores, 1);
+        assert scores[0] == 0 : "Score written outside of batch range.";
+        assert scores[2] == first : "Expected cached value (" + first + "), got " + scores[2];
+        assert scores[1] == 2 && scores[3] == 3 : "Cache misses not evaluated correctly: " + Arrays.toString(scores);
+        assert delegate.getBatchCount() == 1 : "Cache misses should be evaluated in a single batch.";
+        // Everything should now be cached.
+        evaluator.getFitness(batch, batch, scores, 0);
+        assert scores[0] == 2 && scores[1] == first && scores[2] == 3 : "Wrong cached values: " + Arrays.toString(scores);
+        assert delegate.getBatchCount() == 1 : "Delegate should not be invoked when all values are cached.";
+    }
+
+
+    /**
+     * A delegate that does not support batch evaluation should be invoked once for each
+     * cache miss.
+     */
+    @Test
+    public void testBatchWithNonBatchDelegate()
+    {
+        BatchFitnessEvaluator<String> evaluator = new CachingFitnessEvaluator<String>(new IncrementingEvaluator(true));
+        List<String> batch = Arrays.asList("Test1", "Test2", "Test1");
+        double[] scores = new double[3];
+        evaluator.getFitness(batch, batch, scores, 0);
+        assert scores[0] == 1 && scores[1] == 2 : "Wrong scores: " + Arrays.toString(scores);
+        // Duplicates within the same batch are both cache misses, so may be evaluated separately.
+        assert scores[2] == 3 : "Wrong score: " + scores[2];
+    }
+
+
+    /**
+     * With a cache that matches candidates by content, a candidate that is equal to a
+     * previously evaluated candidate should not be evaluated again.
+     */
+    @Test
+    public void testContentCache()
+    {
+        LRUFitnessCache<String> cache = new LRUFitnessCache<String>(10);
+        FitnessEvaluator<String> evaluator = new CachingFitnessEvaluator<String>(new IncrementingEvaluator(true),
+                                                                                 cache);
+        evaluator.getFitness(new String("Test"), Collections.<String>emptyList());
+        double fitness = evaluator.getFitness(new String("Test"), Collections.<String>emptyList());
+        assert fitness == 1 : "Expected cached value (1), got " + fitness;
+        assert cache.getHitCount() == 1 : "Wrong hit count: " + cache.getHitCount();
+    }
+
+
     @Test
     public void testNatural()
     {
@@ -91,4 +151,42 @@ public class CachingFitnessEvaluatorTest
             return natural;
         }
     }
+
+
+    /**
+     * Batch version of {@link IncrementingEvaluator} that also records how many
+     * batches it has been asked to evaluate.
+     */
+    private static final class BatchIncrementingEvaluator implements BatchFitnessEvaluator<String>
+    {
+        private int count = 0;
+        private int batchCount = 0;
+
+        public double getFitness(String candidate, List<? extends String> population)
+        {
+            return ++count;
+        }
+
+        public void getFitness(List<? extends String> candidates,
+                               List<? extends String> population,
+                               double[] fitnessScores,
+                               int offset)
+        {
+            ++batchCount;
+            for (int i = 0; i < candidates.size(); i++)
+            {
+                fitnessScores[offset + i] = ++count;
+            }
+        }
+
+        public boolean isNatural()
+        {
+            return true;
+        }
+
+        public int getBatchCount()
+        {
+            return batchCount;
+        }
+    }
 }
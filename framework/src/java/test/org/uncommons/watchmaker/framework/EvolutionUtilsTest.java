@@ -0,0 +1,160 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.testng.annotations.Test;
+import org.uncommons.maths.random.MersenneTwisterRNG;
+import org.uncommons.maths.statistics.DataSet;
+import org.uncommons.watchmaker.framework.termination.GenerationCount;
+import org.uncommons.watchmaker.framework.termination.TargetFitness;
+
+/**
+ * Unit test for the {@link EvolutionUtils} class.
+ * @author Daniel Dyer
+ */
+public class EvolutionUtilsTest
+{
+    /**
+     * The population statistics should match those calculated by a {@link DataSet}.
+     */
+    @Test
+    public void testPopulationData()
+    {
+        double[] scores = {9.5, 7, 3.25, 3, 1};
+        List<EvaluatedCandidate<String>> population = new ArrayList<EvaluatedCandidate<String>>();
+        for (int i = 0; i < scores.length; i++)
+        {
+            population.add(new EvaluatedCandidate<String>("Candidate" + i, scores[i]));
+        }
+        PopulationData<String> data = EvolutionUtils.getPopulationData(population, true, 1, 3, 0);
+        DataSet expected = new DataSet(scores);
+        assert data.getBestCandidate().equals("Candidate0") : "Wrong best candidate: " + data.getBestCandidate();
+        assert data.getBestCandidateFitness() == 9.5 : "Wrong best fitness: " + data.getBestCandidateFitness();
+        assert data.getPopulationSize() == 5 : "Wrong population size: " + data.getPopulationSize();
+        assert Math.abs(data.getMeanFitness() - expected.getArithmeticMean()) < 1e-12
+            : "Wrong mean fitness: " + data.getMeanFitness();
+        assert Math.abs(data.getFitnessStandardDeviation() - expected.getStandardDeviation()) < 1e-12
+            : "Wrong standard deviation: " + data.getFitnessStandardDeviation();
+    }
+
+
+    @Test
+    public void testShouldContinue()
+    {
+        List<EvaluatedCandidate<String>> population = new ArrayList<EvaluatedCandidate<String>>();
+        population.add(new EvaluatedCandidate<String>("Candidate", 5));
+        PopulationData<String> data = EvolutionUtils.getPopulationData(population, true, 0, 3, 0);
+        TerminationCondition generations = new GenerationCount(10);
+        TerminationCondition target = new TargetFitness(5, true);
+        assert EvolutionUtils.shouldContinue(data, generations) == null : "Evolution should continue.";
+        List<TerminationCondition> satisfied = EvolutionUtils.shouldContinue(data, generations, target);
+        assert satisfied != null && satisfied.size() == 1 : "Wrong satisfied conditions: " + satisfied;
+        assert satisfied.get(0) == target : "Wrong condition satisfied.";
+    }
+
+
+    /**
+     * Sorting must give exactly the same (stable) order as {@link Collections#sort(List)},
+     * for both natural and non-natural fitness scores.
+     */
+    @Test
+    public void testSortEvaluatedPopulation()
+    {
+        for (boolean natural : new boolean[]{true, false})
+        {
+            List<EvaluatedCandidate<Integer>> population = createPopulation(1000);
+            List<EvaluatedCandidate<Integer>> expected = new ArrayList<EvaluatedCandidate<Integer>>(population);
+            Collections.sort(expected, natural
+                                       ? Collections.<EvaluatedCandidate<Integer>>reverseOrder()
+                                       : null);
+            EvolutionUtils.sortEvaluatedPopulation(population, natural);
+            assertSameOrder(population, expected);
+        }
+    }
+
+
+    /**
+     * Sorting the population in several concurrently-sorted segments must give the same
+     * result as sorting it sequentially.
+     */
+    @Test
+    public void testConcurrentSort()
+    {
+        List<EvaluatedCandidate<Integer>> population = createPopulation(5000);
+        List<EvaluatedCandidate<Integer>> expected = new ArrayList<EvaluatedCandidate<Integer>>(population);
+        Collections.sort(expected, Collections.<EvaluatedCandidate<Integer>>reverseOrder());
+        PopulationSorter.sort(population, true, 4);
+        assertSameOrder(population, expected);
+    }
+
+
+    @Test
+    public void testSelectFittest()
+    {
+        for (boolean natural : new boolean[]{true, false})
+        {
+            for (int count : new int[]{1, 2, 10, 99, 100})
+            {
+                List<EvaluatedCandidate<Integer>> population = createPopulation(100);
+                List<EvaluatedCandidate<Integer>> sorted = new ArrayList<EvaluatedCandidate<Integer>>(population);
+                EvolutionUtils.sortEvaluatedPopulation(sorted, natural);
+                EvolutionUtils.selectFittest(population, count, natural);
+                assert population.size() == 100 : "Population size changed: " + population.size();
+                assert population.containsAll(sorted) : "Candidates lost from population.";
+                double threshold = sorted.get(count - 1).getFitness();
+                for (int i = 0; i < count; i++)
+                {
+                    double fitness = population.get(i).getFitness();
+                    assert natural ? fitness >= threshold : fitness <= threshold
+                        : "Candidate " + i + " is not one of the fittest " + count + ": " + fitness;
+                }
+                assert population.get(0).getFitness() == sorted.get(0).getFitness() || count > 1
+                    : "Fittest candidate should be first.";
+            }
+        }
+    }
+
+
+    /**
+     * Creates a population with many duplicate fitness scores, so that sort stability
+     * makes a difference.  Each candidate is its own index, so candidates are distinct.
+     */
+    private List<EvaluatedCandidate<Integer>> createPopulation(int size)
+    {
+        Random rng = new MersenneTwisterRNG();
+        List<EvaluatedCandidate<Integer>> population = new ArrayList<EvaluatedCandidate<Integer>>(size);
+        for (int i = 0; i < size; i++)
+        {
+            population.add(new EvaluatedCandidate<Integer>(i, rng.nextInt(size / 10)));
+        }
+        return population;
+    }
+
+
+    private void assertSameOrder(List<EvaluatedCandidate<Integer>> actual,
+                                 List<EvaluatedCandidate<Integer>> expected)
+    {
+        assert actual.size() == expected.size() : "Wrong population size: " + actual.size();
+        for (int i = 0; i < actual.size(); i++)
+        {
+            assert actual.get(i) == expected.get(i) : "Wrong candidate at index " + i;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for the {@link FitnessEvaluationWorker} class.
+ * @author Daniel Dyer
+ */
+public class FitnessEvaluationWorkerTest
+{
+    @Test
+    public void testThreadPerTaskWorker() throws Exception
+    {
+        FitnessEvaluationWorker worker = FitnessEvaluationWorker.newThreadPerTaskWorker(0);
+        try
+        {
+            BlockingEvaluator evaluator = new BlockingEvaluator();
+            List<Integer> population = Collections.nCopies(8, 1);
+            List<Future<EvaluatedCandidate<Integer>>> results = submitAll(worker, evaluator, population);
+            for (Future<EvaluatedCandidate<Integer>> result : results)
+            {
+                assert result.get().getFitness() == 1 : "Wrong fitness: " + result.get().getFitness();
+            }
+            // With no limit, every evaluation should have been able to run at once.
+            assert evaluator.getMaxConcurrency() == population.size()
+                : "Evaluations were not concurrent: " + evaluator.getMaxConcurrency();
+        }
+        finally
+        {
+            worker.shutdown();
+        }
+    }
+
+
+    @Test
+    public void testThreadPerTaskWorkerConcurrencyLimit() throws Exception
+    {
+        FitnessEvaluationWorker worker = FitnessEvaluationWorker.newThreadPerTaskWorker(2);
+        try
+        {
+            BlockingEvaluator evaluator = new BlockingEvaluator();
+            for (Future<EvaluatedCandidate<Integer>> result : submitAll(worker, evaluator, Collections.nCopies(8, 1)))
+            {
+                result.get();
+            }
+            assert evaluator.getMaxConcurrency() <= 2 : "Concurrency limit exceeded: " + evaluator.getMaxConcurrency();
+        }
+        finally
+        {
+            worker.shutdown();
+        }
+    }
+
+
+    /**
+     * When the queue is full, submission should wait for space rather than running the
+     * task on the submitting thread (where it would be a second concurrent evaluation).
+     */
+    @Test
+    public void testBoundedQueue() throws Exception
+    {
+        FitnessEvaluationWorker worker = new FitnessEvaluationWorker(1, 1);
+        try
+        {
+            BlockingEvaluator evaluator = new BlockingEvaluator();
+            for (Future<EvaluatedCandidate<Integer>> result : submitAll(worker, evaluator, Collections.nCopies(4, 1)))
+            {
+                assert result.get().getFitness() == 1 : "Wrong fitness: " + result.get().getFitness();
+            }
+            assert evaluator.getMaxConcurrency() == 1 : "Task ran on the submitting thread.";
+        }
+        finally
+        {
+            worker.shutdown();
+        }
+    }
+
+
+    /**
+     * If the runtime has the virtual thread factory method but does not allow it to be used
+     * (as on Java 19 and 20 without preview features), the worker should fall back to
+     * platform threads rather than failing.
+     */
+    @Test
+    public void testUnsupportedExecutorFactory()
+    {
+        assert FitnessEvaluationWorker.createExecutor(UnsupportedExecutorFactory.class, "newExecutor") == null
+            : "Unsupported factory method should be ignored.";
+        assert FitnessEvaluationWorker.createExecutor(UnsupportedExecutorFactory.class, "newMissingExecutor") == null
+            : "Missing factory method should be ignored.";
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeConcurrencyLimit()
+    {
+        FitnessEvaluationWorker.newThreadPerTaskWorker(-1);
+    }
+
+
+    private List<Future<EvaluatedCandidate<Integer>>> submitAll(FitnessEvaluationWorker worker,
+                                                              FitnessEvaluator<Integer> evaluator,
+                                                              List<Integer> population)
+    {
+        List<Future<EvaluatedCandidate<Integer>>> results
+            = new ArrayList<Future<EvaluatedCandidate<Integer>>>(population.size());
+        for (Integer candidate : population)
+        {
+            results.add(worker.submit(new FitnessEvalutationTask<Integer>(evaluator, candidate, population)));
+        }
+        return results;
+    }
+
+
+    /**
+     * Stands in for a runtime on which virtual threads are a disabled preview feature.
+     */
+    public static final class UnsupportedExecutorFactory
+    {
+        private UnsupportedExecutorFactory()
+        {
+            // Prevents instantiation.
+        }
+
+        public static ExecutorService newExecutor()
+        {
+            throw new UnsupportedOperationException("Preview features are not enabled.");
+        }
+    }
+
+
+    /**
+     * Fitness evaluator that spends most of its time blocked and records how many
+     * evaluations were in progress at once.
+     */
+    private static final class BlockingEvaluator implements FitnessEvaluator<Integer>
+    {
+        private final AtomicInteger concurrency = new AtomicInteger(0);
+        private final AtomicInteger maxConcurrency = new AtomicInteger(0);
+
+        public double getFitness(Integer candidate, List<? extends Integer> population)
+        {
+            int current = concurrency.incrementAndGet();
+            synchronized (maxConcurrency)
+            {
+                maxConcurrency.set(Math.max(current, maxConcurrency.get()));
+            }
+            try
+            {
+                Thread.sleep(200);
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+            concurrency.decrementAndGet();
+            return candidate;
+        }
+
+        public boolean isNatural()
+        {
+            return true;
+        }
+
+        public int getMaxConcurrency()
+        {
+            return maxConcurrency.get();
+        }
+    }
+}
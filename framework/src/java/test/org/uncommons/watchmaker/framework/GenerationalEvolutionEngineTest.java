@@ -16,14 +16,28 @@
 package org.uncommons.watchmaker.framework;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import org.uncommons.maths.number.ConstantGenerator;
+import org.uncommons.maths.random.MersenneTwisterRNG;
+import org.uncommons.watchmaker.framework.factories.AbstractCandidateFactory;
+import org.uncommons.watchmaker.framework.factories.ListPermutationFactory;
 import org.uncommons.watchmaker.framework.factories.StubIntegerFactory;
+import org.uncommons.watchmaker.framework.operators.IdentityOperator;
+import org.uncommons.watchmaker.framework.operators.ListOrderMutation;
+import org.uncommons.watchmaker.framework.operators.SplitEvolution;
+import org.uncommons.watchmaker.framework.selection.RankSelection;
 import org.uncommons.watchmaker.framework.selection.RouletteWheelSelection;
 import org.uncommons.watchmaker.framework.termination.ElapsedTime;
 import org.uncommons.watchmaker.framework.termination.GenerationCount;
+import org.uncommons.watchmaker.framework.termination.UserAbort;
 
 /**
  * Unit test for the {@link GenerationalEvolutionEngine} class.
@@ -82,6 +96,615 @@ public class GenerationalEvolutionEngineTest
     }
 
 
+    /**
+     * Evaluating the population in chunks must assign the same scores as evaluating
+     * each candidate individually.
+     */
+    @Test
+    public void testChunkedEvaluation()
+    {
+        List<Integer> seeds = new ArrayList<Integer>(3);
+        seeds.add(7);
+        seeds.add(11);
+        seeds.add(13);
+        for (int chunkSize : new int[]{3,
+                                       AbstractEvolutionEngine.AUTOMATIC_CHUNK_SIZE,
+                                       AbstractEvolutionEngine.GUIDED_CHUNK_SIZE})
+        {
+            GenerationalEvolutionEngine<Integer> chunkedEngine
+                = new GenerationalEvolutionEngine<Integer>(new StubIntegerFactory(),
+                                                           new IntegerZeroMaker(),
+                                                           new IntegerEvaluator(),
+                                                           new RouletteWheelSelection(),
+                                                           FrameworkTestUtils.getRNG());
+            chunkedEngine.setEvaluationChunkSize(chunkSize);
+            List<EvaluatedCandidate<Integer>> population = chunkedEngine.evolvePopulation(10,
+                                                                                          2,
+                                                                                          seeds,
+                                                                                          new GenerationCount(2));
+            assert population.size() == 10 : "Wrong population size: " + population.size();
+            for (EvaluatedCandidate<Integer> candidate : population)
+            {
+                assert candidate.getFitness() == candidate.getCandidate()
+                    : "Wrong fitness for candidate " + candidate.getCandidate() + ": " + candidate.getFitness();
+            }
+            assert population.get(0).getCandidate() == 13 : "Fittest candidate not preserved.";
+            assert population.get(1).getCandidate() == 11 : "Second fittest candidate not preserved.";
+        }
+    }
+
+
+    /**
+     * A batch fitness evaluator should be given the whole population when the engine is
+     * single-threaded, and one chunk at a time when the population is evaluated in chunks.
+     */
+    @Test
+    public void testBatchEvaluation()
+    {
+        BatchIntegerEvaluator evaluator = new BatchIntegerEvaluator();
+        GenerationalEvolutionEngine<Integer> batchEngine
+            = new GenerationalEvolutionEngine<Integer>(new StubIntegerFactory(),
+                                                       new IntegerZeroMaker(),
+                                                       evaluator,
+                                                       new RouletteWheelSelection(),
+                                                       FrameworkTestUtils.getRNG());
+        batchEngine.setSingleThreaded(true);
+        batchEngine.evolvePopulation(10, 0, new GenerationCount(2));
+        assert evaluator.getLargestBatch() == 10 : "Population not evaluated as a single batch.";
+        assert evaluator.getBatchCount() == 2 : "Wrong number of batches: " + evaluator.getBatchCount();
+
+        evaluator = new BatchIntegerEvaluator();
+        batchEngine = new GenerationalEvolutionEngine<Integer>(new StubIntegerFactory(),
+                                                               new IntegerZeroMaker(),
+                                                               evaluator,
+                                                               new RouletteWheelSelection(),
+                                                               FrameworkTestUtils.getRNG());
+        batchEngine.setEvaluationChunkSize(4);
+        List<EvaluatedCandidate<Integer>> population = batchEngine.evolvePopulation(10, 0, new GenerationCount(2));
+        assert evaluator.getLargestBatch() == 4 : "Chunks not evaluated as batches.";
+        assert evaluator.getBatchCount() == 6 : "Wrong number of batches: " + evaluator.getBatchCount();
+        for (EvaluatedCandidate<Integer> candidate : population)
+        {
+            assert candidate.getFitness() == candidate.getCandidate() : "Wrong fitness: " + candidate.getFitness();
+        }
+    }
+
+
+    /**
+     * When fitness reuse is enabled, candidates that survive unchanged into the next
+     * generation should not be evaluated again.
+     */
+    @Test
+    public void testReuseFitnessScores()
+    {
+        final AtomicInteger evaluationCount = new AtomicInteger(0);
+        FitnessEvaluator<Integer> countingEvaluator = new FitnessEvaluator<Integer>()
+        {
+            public double getFitness(Integer candidate, List<? extends Integer> population)
+            {
+                evaluationCount.incrementAndGet();
+                return candidate;
+            }
+
+            public boolean isNatural()
+            {
+                return true;
+            }
+        };
+        GenerationalEvolutionEngine<Integer> reuseEngine
+            = new GenerationalEvolutionEngine<Integer>(new StubIntegerFactory(),
+                                                       new IdentityOperator<Integer>(),
+                                                       countingEvaluator,
+                                                       new RouletteWheelSelection(),
+                                                       FrameworkTestUtils.getRNG());
+        reuseEngine.evolvePopulation(10, 2, new GenerationCount(5));
+        assert evaluationCount.get() == 50 : "Every candidate should be evaluated by default.";
+
+        evaluationCount.set(0);
+        reuseEngine.setReuseFitnessScores(true);
+        List<EvaluatedCandidate<Integer>> population = reuseEngine.evolvePopulation(10, 2, new GenerationCount(5));
+        // Only the initial population requires evaluation since the operator never changes anything.
+        assert evaluationCount.get() == 10 : "Unchanged candidates re-evaluated: " + evaluationCount.get();
+        assert population.size() == 10 : "Wrong population size: " + population.size();
+        for (EvaluatedCandidate<Integer> candidate : population)
+        {
+            assert candidate.getFitness() == candidate.getCandidate() : "Wrong fitness: " + candidate.getFitness();
+        }
+    }
+
+
+    /**
+     * Candidates created by operators that record their modifications should be scored
+     * incrementally, and the scores should match those of full evaluation.
+     */
+    @Test
+    public void testIncrementalEvaluation()
+    {
+        ModificationTracker<List<Integer>> tracker = new ModificationTracker<List<Integer>>();
+        WeightedSumEvaluator evaluator = new WeightedSumEvaluator();
+        ListOrderMutation<Integer> mutation = new ListOrderMutation<Integer>(new ConstantGenerator<Integer>(2),
+                                                                             new ConstantGenerator<Integer>(1),
+                                                                             tracker);
+        GenerationalEvolutionEngine<List<Integer>> incrementalEngine
+            = new GenerationalEvolutionEngine<List<Integer>>(new ListPermutationFactory<Integer>(Arrays.asList(1, 2, 3, 4)),
+                                                             mutation,
+                                                             evaluator,
+                                                             new RouletteWheelSelection(),
+                                                             FrameworkTestUtils.getRNG());
+        incrementalEngine.setModificationTracker(tracker);
+        List<EvaluatedCandidate<List<Integer>>> population = incrementalEngine.evolvePopulation(10,
+                                                                                                0,
+                                                                                                new GenerationCount(5));
+        assert evaluator.getIncrementalCount() == 40
+            : "Mutated candidates not evaluated incrementally: " + evaluator.getIncrementalCount();
+        assert evaluator.getFullCount() == 10
+            : "Only the initial population requires full evaluation: " + evaluator.getFullCount();
+        for (EvaluatedCandidate<List<Integer>> candidate : population)
+        {
+            double fitness = evaluator.getFitness(candidate.getCandidate(), null);
+            assert candidate.getFitness() == fitness : "Wrong fitness: " + candidate.getFitness();
+        }
+        assert tracker.size() == 0 : "Modification records should be discarded after evaluation.";
+    }
+
+
+    /**
+     * A parent whose score is only a bound must not be used as the starting point for
+     * incremental evaluation of its offspring, since its true fitness is not known.
+     */
+    @Test
+    public void testIncrementalEvaluationOfBoundedParents()
+    {
+        ModificationTracker<List<Integer>> tracker = new ModificationTracker<List<Integer>>();
+        WeightedSumEvaluator evaluator = new BoundingWeightedSumEvaluator();
+        // Half of the offspring are recorded (and so evaluated incrementally) and half are
+        // not (and so are evaluated in full, against the cutoff).
+        EvolutionaryOperator<List<Integer>> mutation
+            = new SplitEvolution<List<Integer>>(new ListOrderMutation<Integer>(new ConstantGenerator<Integer>(1),
+                                                                               new ConstantGenerator<Integer>(1),
+                                                                               tracker),
+                                                new ListOrderMutation<Integer>(1, 1),
+                                                0.5);
+        GenerationalEvolutionEngine<List<Integer>> incrementalEngine
+            = new GenerationalEvolutionEngine<List<Integer>>(new ListPermutationFactory<Integer>(Arrays.asList(1, 2, 3, 4)),
+                                                             mutation,
+                                                             evaluator,
+                                                             new RankSelection(),
+                                                             FrameworkTestUtils.getRNG());
+        incrementalEngine.setModificationTracker(tracker);
+        incrementalEngine.setBoundedEvaluation(0.5);
+        List<EvaluatedCandidate<List<Integer>>> population = incrementalEngine.evolvePopulation(20,
+                                                                                                0,
+                                                                                                new GenerationCount(10));
+        assert evaluator.getIncrementalCount() > 0 : "No candidates evaluated incrementally.";
+        for (EvaluatedCandidate<List<Integer>> candidate : population)
+        {
+            double fitness = evaluator.getFitness(candidate.getCandidate(), null);
+            assert candidate.isBounded() || candidate.getFitness() == fitness
+                : "Wrong fitness for unbounded candidate " + candidate.getCandidate() + ": " + candidate.getFitness();
+        }
+    }
+
+
+    /**
+     * The evaluator should be given a cutoff taken from the previous generation, and
+     * candidates that are worse than it should be marked as bounded.
+     */
+    @Test
+    public void testBoundedEvaluation()
+    {
+        CutoffRecordingEvaluator evaluator = new CutoffRecordingEvaluator();
+        GenerationalEvolutionEngine<Integer> boundedEngine
+            = new GenerationalEvolutionEngine<Integer>(new StubIntegerFactory(),
+                                                       new IntegerZeroMaker(),
+                                                       evaluator,
+                                                       new RouletteWheelSelection(),
+                                                       FrameworkTestUtils.getRNG());
+        boundedEngine.setBoundedEvaluation(0.2);
+        List<Integer> seeds = new ArrayList<Integer>(3);
+        seeds.add(7);
+        seeds.add(11);
+        seeds.add(13);
+        List<EvaluatedCandidate<Integer>> population = boundedEngine.evolvePopulation(10,
+                                                                                      2,
+                                                                                      seeds,
+                                                                                      new GenerationCount(2));
+        // The cutoff is the score of the second best of the ten initial candidates.
+        assert evaluator.getCutoff() == 11 : "Wrong cutoff: " + evaluator.getCutoff();
+        for (EvaluatedCandidate<Integer> candidate : population)
+        {
+            assert candidate.isBounded() == candidate.getFitness() < 11
+                : "Candidate " + candidate.getCandidate() + " wrongly marked as bounded: " + candidate.isBounded();
+        }
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidBoundedEvaluationProportion()
+    {
+        ((AbstractEvolutionEngine<Integer>) engine).setBoundedEvaluation(1.5);
+    }
+
+
+    /**
+     * A candidate whose evaluation exceeds the time limit should be given the worst
+     * fitness score of the other candidates and should be marked as bounded.
+     */
+    @Test
+    public void testEvaluationTimeLimit()
+    {
+        GenerationalEvolutionEngine<Integer> limitedEngine = createSlowEngine();
+        limitedEngine.setEvaluationTimeLimits(100, 0, TimeUnit.MILLISECONDS, TimeoutPolicy.WORST_FITNESS);
+        long startTime = System.currentTimeMillis();
+        List<EvaluatedCandidate<Integer>> population = limitedEngine.evolvePopulation(5,
+                                                                                      0,
+                                                                                      Arrays.asList(7, 13),
+                                                                                      new GenerationCount(1));
+        long elapsedTime = System.currentTimeMillis() - startTime;
+        assert elapsedTime < SlowIntegerEvaluator.DELAY : "Slow evaluation was not cancelled.";
+        assert population.size() == 5 : "Wrong population size: " + population.size();
+        for (EvaluatedCandidate<Integer> candidate : population)
+        {
+            boolean slow = candidate.getCandidate() == SlowIntegerEvaluator.SLOW_CANDIDATE;
+            assert candidate.isBounded() == slow : "Candidate " + candidate.getCandidate() + " wrongly marked.";
+            assert candidate.getFitness() == (slow ? 0 : candidate.getCandidate())
+                : "Wrong fitness for candidate " + candidate.getCandidate() + ": " + candidate.getFitness();
+        }
+    }
+
+
+    @Test
+    public void testEvaluationTimeLimitDropPolicy()
+    {
+        GenerationalEvolutionEngine<Integer> limitedEngine = createSlowEngine();
+        limitedEngine.setEvaluationTimeLimits(0, 100, TimeUnit.MILLISECONDS, TimeoutPolicy.DROP);
+        // Use a second thread so that the slow candidate can't hold up the others (which
+        // would then also exceed the generation time limit).
+        limitedEngine.setParallelism(2);
+        List<EvaluatedCandidate<Integer>> population = limitedEngine.evolvePopulation(5,
+                                                                                      0,
+                                                                                      Arrays.asList(7, 13),
+                                                                                      new GenerationCount(1));
+        limitedEngine.close();
+        assert population.size() == 4 : "Timed-out candidate should have been dropped: " + population.size();
+        assert population.get(0).getCandidate() == 7 : "Wrong fittest candidate: " + population.get(0).getCandidate();
+    }
+
+
+    /**
+     * If every evaluation times out, the drop policy must still leave enough candidates for
+     * the engine to carry on (one more than the elite count).
+     */
+    @Test
+    public void testEvaluationTimeLimitDropAll()
+    {
+        GenerationalEvolutionEngine<Integer> limitedEngine = createSlowEngine();
+        limitedEngine.setEvaluationTimeLimits(0, 100, TimeUnit.MILLISECONDS, TimeoutPolicy.DROP);
+        limitedEngine.setParallelism(2);
+        int slow = SlowIntegerEvaluator.SLOW_CANDIDATE;
+        List<EvaluatedCandidate<Integer>> population = limitedEngine.evolvePopulation(5,
+                                                                                      1,
+                                                                                      Arrays.asList(slow, slow, slow, slow, slow),
+                                                                                      new GenerationCount(2));
+        limitedEngine.close();
+        assert population.size() == 2 : "Wrong population size: " + population.size();
+        // The elite is a timed-out candidate (it times out again), so it has a placeholder score.
+        for (EvaluatedCandidate<Integer> candidate : population)
+        {
+            assert candidate.isBounded() == (candidate.getCandidate() == slow)
+                : "Candidate " + candidate.getCandidate() + " wrongly marked.";
+        }
+    }
+
+
+    /**
+     * A user abort must not have to wait for a fitness evaluation that never completes.
+     */
+    @Test
+    public void testUserAbortDuringEvaluation()
+    {
+        GenerationalEvolutionEngine<Integer> slowEngine = createSlowEngine();
+        UserAbort abort = new UserAbort();
+        abortLater(abort, 200);
+        long startTime = System.currentTimeMillis();
+        Integer fittest = slowEngine.evolve(5, 0, Arrays.asList(7, 13), abort);
+        long elapsedTime = System.currentTimeMillis() - startTime;
+        assert elapsedTime < SlowIntegerEvaluator.DELAY : "Engine did not respond to abort during evaluation.";
+        // The slow candidate was never evaluated, so the best of the rest is returned.
+        assert fittest == 7 : "Wrong fittest candidate: " + fittest;
+        List<TerminationCondition> satisfiedConditions = slowEngine.getSatisfiedTerminationConditions();
+        assert satisfiedConditions.size() == 1 : "Wrong number of conditions: " + satisfiedConditions.size();
+        assert satisfiedConditions.get(0) == abort : "Wrong condition returned.";
+    }
+
+
+    /**
+     * If the evolution is aborted before any candidate has been evaluated, there is no
+     * fittest candidate to return.
+     */
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testUserAbortBeforeFirstEvaluation()
+    {
+        GenerationalEvolutionEngine<Integer> slowEngine = createSlowEngine();
+        UserAbort abort = new UserAbort();
+        abortLater(abort, 200);
+        int slow = SlowIntegerEvaluator.SLOW_CANDIDATE;
+        slowEngine.evolve(5, 0, Arrays.asList(slow, slow, slow, slow, slow), abort);
+    }
+
+
+    /**
+     * Candidates that have timed out, but have not yet been dealt with according to the
+     * timeout policy when the evolution is aborted, must not be left in the population.
+     */
+    @Test
+    public void testUserAbortAfterTimeouts()
+    {
+        GenerationalEvolutionEngine<Integer> slowEngine = createSlowEngine();
+        slowEngine.setEvaluationTimeLimits(300, 0, TimeUnit.MILLISECONDS, TimeoutPolicy.WORST_FITNESS);
+        slowEngine.setParallelism(2);
+        UserAbort abort = new UserAbort();
+        // Four evaluations should have timed out by the time of the abort, with the last
+        // one still in progress.
+        abortLater(abort, 750);
+        int slow = SlowIntegerEvaluator.SLOW_CANDIDATE;
+        List<EvaluatedCandidate<Integer>> population = slowEngine.evolvePopulation(5,
+                                                                                   0,
+                                                                                   Arrays.asList(slow, slow, slow, slow, slow),
+                                                                                   abort);
+        slowEngine.close();
+        assert population.isEmpty() : "No candidates should have been evaluated: " + population.size();
+        List<TerminationCondition> satisfiedConditions = slowEngine.getSatisfiedTerminationConditions();
+        assert satisfiedConditions.size() == 1 : "Wrong number of conditions: " + satisfiedConditions.size();
+        assert satisfiedConditions.get(0) == abort : "Wrong condition returned.";
+    }
+
+
+    /**
+     * Triggers a user abort from another thread after the specified delay.
+     */
+    private static void abortLater(final UserAbort abort, final long delayMilliseconds)
+    {
+        new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(delayMilliseconds);
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                abort.abort();
+            }
+        }.start();
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeTimeLimit()
+    {
+        ((AbstractEvolutionEngine<Integer>) engine).setEvaluationTimeLimits(-1,
+                                                                            0,
+                                                                            TimeUnit.SECONDS,
+                                                                            TimeoutPolicy.DROP);
+    }
+
+
+    private GenerationalEvolutionEngine<Integer> createSlowEngine()
+    {
+        return new GenerationalEvolutionEngine<Integer>(new StubIntegerFactory(),
+                                                        new IntegerZeroMaker(),
+                                                        new SlowIntegerEvaluator(),
+                                                        new RouletteWheelSelection(),
+                                                        FrameworkTestUtils.getRNG());
+    }
+
+
+    /**
+     * With the {@link DuplicatePolicy#EVALUATE_ONCE} policy, identical candidates should
+     * share a single fitness evaluation.
+     */
+    @Test
+    public void testEvaluateDuplicatesOnce()
+    {
+        CountingIntegerEvaluator evaluator = new CountingIntegerEvaluator();
+        GenerationalEvolutionEngine<Integer> dedupEngine
+            = new GenerationalEvolutionEngine<Integer>(new StubIntegerFactory(),
+                                                       new IntegerZeroMaker(),
+                                                       evaluator,
+                                                       new RouletteWheelSelection(),
+                                                       FrameworkTestUtils.getRNG());
+        dedupEngine.setDuplicatePolicy(DuplicatePolicy.EVALUATE_ONCE, new StructuralGenotypeKey());
+        List<EvaluatedCandidate<Integer>> population = dedupEngine.evolvePopulation(10,
+                                                                                    0,
+                                                                                    Arrays.asList(7, 7),
+                                                                                    new GenerationCount(1));
+        assert population.size() == 10 : "Duplicates should not be removed: " + population.size();
+        // Two distinct candidates (seven and zero).
+        assert evaluator.getCount() == 2 : "Wrong number of evaluations: " + evaluator.getCount();
+        for (EvaluatedCandidate<Integer> candidate : population)
+        {
+            assert candidate.getFitness() == candidate.getCandidate() : "Wrong fitness: " + candidate.getFitness();
+        }
+    }
+
+
+    /**
+     * With the {@link DuplicatePolicy#REPLACE} policy, only the first of a group of
+     * identical candidates should remain in the population.
+     */
+    @Test
+    public void testReplaceDuplicates()
+    {
+        GenerationalEvolutionEngine<Integer> dedupEngine
+            = new GenerationalEvolutionEngine<Integer>(new IncrementingIntegerFactory(),
+                                                       new IdentityOperator<Integer>(),
+                                                       new IntegerEvaluator(),
+                                                       new RouletteWheelSelection(),
+                                                       FrameworkTestUtils.getRNG());
+        dedupEngine.setDuplicatePolicy(DuplicatePolicy.REPLACE, null);
+        List<EvaluatedCandidate<Integer>> population = dedupEngine.evolvePopulation(5,
+                                                                                    0,
+                                                                                    Arrays.asList(100, 100, 100),
+                                                                                    new GenerationCount(1));
+        assert population.size() == 5 : "Wrong population size: " + population.size();
+        Set<Integer> distinctCandidates = new HashSet<Integer>();
+        for (EvaluatedCandidate<Integer> candidate : population)
+        {
+            distinctCandidates.add(candidate.getCandidate());
+        }
+        assert distinctCandidates.size() == 5 : "Duplicates were not replaced: " + distinctCandidates;
+        assert distinctCandidates.contains(100) : "First of the duplicates should have been kept.";
+    }
+
+
+    /**
+     * The generational engine adds the elite after the evolved candidates, so an elite
+     * candidate must not be treated as a duplicate of an evolved copy of itself.
+     */
+    @Test
+    public void testReplaceDuplicatesKeepsElite()
+    {
+        // Copies each candidate, so that the offspring are equal to, but not the same
+        // objects as, their parents.
+        EvolutionaryOperator<Integer> copier = new EvolutionaryOperator<Integer>()
+        {
+            public List<Integer> apply(List<Integer> selectedCandidates, Random rng)
+            {
+                List<Integer> copies = new ArrayList<Integer>(selectedCandidates.size());
+                for (Integer candidate : selectedCandidates)
+                {
+                    copies.add(new Integer(candidate));
+                }
+                return copies;
+            }
+        };
+        GenerationalEvolutionEngine<Integer> dedupEngine
+            = new GenerationalEvolutionEngine<Integer>(new IncrementingIntegerFactory(),
+                                                       copier,
+                                                       new IntegerEvaluator(),
+                                                       new RouletteWheelSelection(),
+                                                       FrameworkTestUtils.getRNG());
+        dedupEngine.setDuplicatePolicy(DuplicatePolicy.REPLACE, null);
+        // The seed is so much fitter than the other candidates that it is all but certain
+        // to be selected, and so copied.
+        Integer elite = new Integer(1000);
+        List<EvaluatedCandidate<Integer>> population = dedupEngine.evolvePopulation(5,
+                                                                                    1,
+                                                                                    Arrays.asList(elite),
+                                                                                    new GenerationCount(2));
+        boolean eliteKept = false;
+        for (EvaluatedCandidate<Integer> candidate : population)
+        {
+            eliteKept |= candidate.getCandidate() == elite;
+        }
+        assert eliteKept : "Elite candidate was replaced.";
+    }
+
+
+    /**
+     * With random streams, the results should depend only on the streams' seed and not
+     * on the engine's own RNG.
+     */
+    @Test
+    public void testRandomStreams()
+    {
+        List<List<List<Integer>>> results = new ArrayList<List<List<Integer>>>(2);
+        for (int i = 0; i < 2; i++)
+        {
+            // Each engine's RNG is seeded differently.
+            GenerationalEvolutionEngine<List<Integer>> listEngine
+                = new GenerationalEvolutionEngine<List<Integer>>(new ListPermutationFactory<Integer>(Arrays.asList(1, 2, 3, 4, 5, 6)),
+                                                                 new ListOrderMutation<Integer>(),
+                                                                 new WeightedSumEvaluator(),
+                                                                 new RouletteWheelSelection(),
+                                                                 new MersenneTwisterRNG());
+            listEngine.setRandomStreams(new RandomStreams(42));
+            List<List<Integer>> candidates = new ArrayList<List<Integer>>();
+            for (EvaluatedCandidate<List<Integer>> candidate : listEngine.evolvePopulation(20, 0, new GenerationCount(5)))
+            {
+                candidates.add(candidate.getCandidate());
+            }
+            results.add(candidates);
+        }
+        assert results.get(0).equals(results.get(1)) : "Evolution with the same random streams should be reproducible.";
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeChunkSize()
+    {
+        ((AbstractEvolutionEngine<Integer>) engine).setEvaluationChunkSize(-2);
+    }
+
+
+    /**
+     * An engine with its own worker should evolve correctly and should release that
+     * worker when it is closed.
+     */
+    @Test
+    public void testParallelism()
+    {
+        GenerationalEvolutionEngine<Integer> parallelEngine
+            = new GenerationalEvolutionEngine<Integer>(new StubIntegerFactory(),
+                                                       new IntegerZeroMaker(),
+                                                       new IntegerEvaluator(),
+                                                       new RouletteWheelSelection(),
+                                                       FrameworkTestUtils.getRNG());
+        parallelEngine.setParallelism(2);
+        List<EvaluatedCandidate<Integer>> population = parallelEngine.evolvePopulation(10, 0, new GenerationCount(2));
+        assert population.size() == 10 : "Wrong population size: " + population.size();
+        parallelEngine.close();
+        // A closed engine should still be usable, it just creates a new worker.
+        population = parallelEngine.evolvePopulation(10, 0, new GenerationCount(2));
+        assert population.size() == 10 : "Wrong population size: " + population.size();
+        parallelEngine.close();
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testZeroParallelism()
+    {
+        ((AbstractEvolutionEngine<Integer>) engine).setParallelism(0);
+    }
+
+
+    /**
+     * An engine that is given a worker must use that worker and must not shut it
+     * down when it is closed.
+     */
+    @Test
+    public void testProvidedWorker()
+    {
+        FitnessEvaluationWorker worker = new FitnessEvaluationWorker(2, 4);
+        try
+        {
+            GenerationalEvolutionEngine<Integer> workerEngine
+                = new GenerationalEvolutionEngine<Integer>(new StubIntegerFactory(),
+                                                           new IntegerZeroMaker(),
+                                                           new IntegerEvaluator(),
+                                                           new RouletteWheelSelection(),
+                                                           FrameworkTestUtils.getRNG());
+            workerEngine.setFitnessEvaluationWorker(worker);
+            List<EvaluatedCandidate<Integer>> population = workerEngine.evolvePopulation(20,
+                                                                                         0,
+                                                                                         new GenerationCount(2));
+            assert population.size() == 20 : "Wrong population size: " + population.size();
+            workerEngine.close();
+            assert !worker.isShutdown() : "Engine should not shut down a worker that it did not create.";
+        }
+        finally
+        {
+            worker.shutdown();
+        }
+        assert worker.isShutdown() : "Worker should be shut down.";
+    }
+
+
     /**
      * The number of candidates preserved by elitism must be less than the total
      * population size.
@@ -125,7 +748,9 @@ public class GenerationalEvolutionEngineTest
         long startTime = System.currentTimeMillis();
         engine.evolve(10, 0, new ElapsedTime(timeout));
         long elapsedTime = System.currentTimeMillis() - startTime;
-        assert Thread.interrupted() : "Thread was not interrupted before timeout.";
+        // Clear the flag even if assertions are disabled, so that it can't affect other tests.
+        boolean interrupted = Thread.interrupted();
+        assert interrupted : "Thread was not interrupted before timeout.";
         assert elapsedTime < timeout : "Engine did not respond to interrupt before timeout.";
         assert engine.getSatisfiedTerminationConditions().isEmpty()
             : "Interrupted engine should have no satisfied termination conditions.";
@@ -166,4 +791,219 @@ public class GenerationalEvolutionEngineTest
             return result;
         }
     }
+
+
+    /**
+     * Batch version of the {@link IntegerEvaluator} that records the batches that it
+     * is asked to evaluate.
+     */
+    private static final class BatchIntegerEvaluator implements BatchFitnessEvaluator<Integer>
+    {
+        private final FitnessEvaluator<Integer> delegate = new IntegerEvaluator();
+        private int batchCount = 0;
+        private int largestBatch = 0;
+
+        public double getFitness(Integer candidate, List<? extends Integer> population)
+        {
+            return delegate.getFitness(candidate, population);
+        }
+
+        public synchronized void getFitness(List<? extends Integer> candidates,
+                                            List<? extends Integer> population,
+                                            double[] fitnessScores,
+                                            int offset)
+        {
+            ++batchCount;
+            largestBatch = Math.max(largestBatch, candidates.size());
+            for (int i = 0; i < candidates.size(); i++)
+            {
+                fitnessScores[offset + i] = delegate.getFitness(candidates.get(i), population);
+            }
+        }
+
+        public boolean isNatural()
+        {
+            return delegate.isNatural();
+        }
+
+        public synchronized int getBatchCount()
+        {
+            return batchCount;
+        }
+
+        public synchronized int getLargestBatch()
+        {
+            return largestBatch;
+        }
+    }
+
+
+    /**
+     * Scores a list of integers by the sum of each element multiplied by its position,
+     * which can be updated for a changed position without looking at the others.
+     */
+    private static class WeightedSumEvaluator implements IncrementalFitnessEvaluator<List<Integer>>
+    {
+        private final AtomicInteger fullCount = new AtomicInteger(0);
+        private final AtomicInteger incrementalCount = new AtomicInteger(0);
+
+        public double getFitness(List<Integer> candidate, List<? extends List<Integer>> population)
+        {
+            fullCount.incrementAndGet();
+            double fitness = 0;
+            for (int i = 0; i < candidate.size(); i++)
+            {
+                fitness += i * candidate.get(i);
+            }
+            return fitness;
+        }
+
+        public double getFitness(List<Integer> candidate,
+                                 Modification<? extends List<Integer>> modification,
+                                 double parentFitness,
+                                 List<? extends List<Integer>> population)
+        {
+            incrementalCount.incrementAndGet();
+            double fitness = parentFitness;
+            for (int position : modification.getModifiedPositions())
+            {
+                fitness += position * (candidate.get(position) - modification.getParent().get(position));
+            }
+            return fitness;
+        }
+
+        public boolean isNatural()
+        {
+            return true;
+        }
+
+        public int getFullCount()
+        {
+            return fullCount.get();
+        }
+
+        public int getIncrementalCount()
+        {
+            return incrementalCount.get();
+        }
+    }
+
+
+    /**
+     * Bounded version of the {@link WeightedSumEvaluator} that scores every candidate that
+     * is worse than the cutoff as zero (the lowest possible bound).
+     */
+    private static final class BoundingWeightedSumEvaluator extends WeightedSumEvaluator
+        implements BoundedFitnessEvaluator<List<Integer>>
+    {
+        public double getFitness(List<Integer> candidate, List<? extends List<Integer>> population, double cutoff)
+        {
+            double fitness = getFitness(candidate, population);
+            return fitness < cutoff ? 0 : fitness;
+        }
+    }
+
+
+    /**
+     * Bounded version of the {@link IntegerEvaluator} that records the cutoff that it
+     * is given.  The exact score is always returned, which is a valid (if unhelpful)
+     * bound.
+     */
+    private static final class CutoffRecordingEvaluator implements BoundedFitnessEvaluator<Integer>
+    {
+        private final FitnessEvaluator<Integer> delegate = new IntegerEvaluator();
+        private volatile double cutoff = Double.NaN;
+
+        public double getFitness(Integer candidate, List<? extends Integer> population)
+        {
+            return delegate.getFitness(candidate, population);
+        }
+
+        public double getFitness(Integer candidate, List<? extends Integer> population, double cutoff)
+        {
+            this.cutoff = cutoff;
+            return delegate.getFitness(candidate, population);
+        }
+
+        public boolean isNatural()
+        {
+            return delegate.isNatural();
+        }
+
+        public double getCutoff()
+        {
+            return cutoff;
+        }
+    }
+
+
+    /**
+     * Version of the {@link IntegerEvaluator} that takes a very long time to evaluate
+     * one particular candidate (unless it is interrupted).
+     */
+    private static final class SlowIntegerEvaluator implements FitnessEvaluator<Integer>
+    {
+        static final int SLOW_CANDIDATE = 13;
+        static final long DELAY = 10000;
+
+        public double getFitness(Integer candidate, List<? extends Integer> population)
+        {
+            if (candidate == SLOW_CANDIDATE)
+            {
+                try
+                {
+                    Thread.sleep(DELAY);
+                }
+                catch (InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return candidate;
+        }
+
+        public boolean isNatural()
+        {
+            return true;
+        }
+    }
+
+
+    /**
+     * Version of the {@link IntegerEvaluator} that counts how many candidates it evaluates.
+     */
+    private static final class CountingIntegerEvaluator implements FitnessEvaluator<Integer>
+    {
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        public double getFitness(Integer candidate, List<? extends Integer> population)
+        {
+            count.incrementAndGet();
+            return candidate;
+        }
+
+        public boolean isNatural()
+        {
+            return true;
+        }
+
+        public int getCount()
+        {
+            return count.get();
+        }
+    }
+
+
+    /**
+     * Generates a different integer each time (0, 1, 2, ...).
+     */
+    private static final class IncrementingIntegerFactory extends AbstractCandidateFactory<Integer>
+    {
+        private int next = 0;
+
+        public Integer generateRandomCandidate(Random rng)
+        {
+            return next++;
+        }
+    }
 }
@@ -15,14 +15,17 @@
 //=============================================================================
 package org.uncommons.watchmaker.framework;
 
+import java.io.Serializable;
 import java.util.List;
 
 /**
- * Trivial fitness evaluator for integers.  Used by unit tests.
+ * Trivial fitness evaluator for integers.  Used by unit tests.  It is serializable so
+ * that it can also be used for testing remote evaluation.
  * @author Daniel Dyer
  */
-final class IntegerEvaluator implements FitnessEvaluator<Integer>
+final class IntegerEvaluator implements FitnessEvaluator<Integer>, Serializable
 {
+    private static final long serialVersionUID = 3317512098265420347L;
 
     public double getFitness(Integer candidate,
                              List<? extends Integer> population)
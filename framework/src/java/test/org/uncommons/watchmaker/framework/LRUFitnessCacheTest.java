@@ -0,0 +1,93 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for the {@link LRUFitnessCache} class.
+ * @author Daniel Dyer
+ */
+public class LRUFitnessCacheTest
+{
+    @Test
+    public void testEviction()
+    {
+        LRUFitnessCache<String> cache = new LRUFitnessCache<String>(2);
+        cache.put("A", 1);
+        cache.put("B", 2);
+        cache.get("A"); // Make B the least-recently used entry.
+        cache.put("C", 3);
+        assert cache.size() == 2 : "Wrong size: " + cache.size();
+        assert cache.getEvictionCount() == 1 : "Wrong eviction count: " + cache.getEvictionCount();
+        assert cache.get("B") == null : "Least-recently used entry should have been evicted.";
+        assert cache.get("A") == 1 : "Recently used entry should not have been evicted.";
+        assert cache.get("C") == 3 : "Newest entry should not have been evicted.";
+    }
+
+
+    @Test
+    public void testContentKeys()
+    {
+        LRUFitnessCache<String> cache = new LRUFitnessCache<String>(10, false);
+        cache.put(new String("Test"), 1);
+        assert cache.get(new String("Test")) != null : "Equal candidates should match.";
+    }
+
+
+    @Test
+    public void testIdentityKeys()
+    {
+        LRUFitnessCache<String> cache = new LRUFitnessCache<String>(10, true);
+        String candidate = new String("Test");
+        cache.put(candidate, 1);
+        assert cache.get(new String("Test")) == null : "Equal but distinct candidates should not match.";
+        assert cache.get(candidate) == 1 : "Same candidate should match.";
+    }
+
+
+    @Test
+    public void testFingerprintKeys()
+    {
+        LRUFitnessCache<int[]> cache = new LRUFitnessCache<int[]>(10, new StructuralGenotypeKey());
+        cache.put(new int[]{1, 2, 3}, 1);
+        assert cache.get(new int[]{1, 2, 3}) != null : "Candidates with the same fingerprint should match.";
+        assert cache.get(new int[]{3, 2, 1}) == null : "Candidates with different fingerprints should not match.";
+    }
+
+
+    @Test
+    public void testStatistics()
+    {
+        LRUFitnessCache<String> cache = new LRUFitnessCache<String>(10);
+        assert cache.getHitRate() == 0 : "Hit rate should be zero before any look-ups.";
+        cache.get("A");
+        cache.put("A", 1);
+        cache.get("A");
+        cache.get("A");
+        cache.get("B");
+        assert cache.getHitCount() == 2 : "Wrong hit count: " + cache.getHitCount();
+        assert cache.getMissCount() == 2 : "Wrong miss count: " + cache.getMissCount();
+        assert cache.getHitRate() == 0.5 : "Wrong hit rate: " + cache.getHitRate();
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidSize()
+    {
+        new LRUFitnessCache<String>(0);
+    }
+}
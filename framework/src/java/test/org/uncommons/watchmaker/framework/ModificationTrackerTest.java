@@ -0,0 +1,72 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.Arrays;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for the {@link ModificationTracker} class.
+ * @author Daniel Dyer
+ */
+public class ModificationTrackerTest
+{
+    @Test
+    public void testRecordModification()
+    {
+        ModificationTracker<StringBuilder> tracker = new ModificationTracker<StringBuilder>();
+        StringBuilder parent = new StringBuilder("ABCD");
+        StringBuilder offspring = new StringBuilder("ABDC");
+        tracker.recordModification(parent, offspring, 3, 2, 3);
+        Modification<StringBuilder> modification = tracker.getModification(offspring);
+        assert modification != null : "Modification not recorded.";
+        assert modification.getParent() == parent : "Wrong parent.";
+        assert Arrays.equals(modification.getModifiedPositions(), new int[]{2, 3})
+            : "Positions should be sorted and distinct: " + Arrays.toString(modification.getModifiedPositions());
+        assert tracker.getModification(parent) == null : "Parent should not have a modification.";
+    }
+
+
+    /**
+     * Modifying a candidate that was itself created by a modification should result in
+     * a single record that refers back to the original parent.
+     */
+    @Test
+    public void testChainedModifications()
+    {
+        ModificationTracker<StringBuilder> tracker = new ModificationTracker<StringBuilder>();
+        StringBuilder parent = new StringBuilder("ABCD");
+        StringBuilder intermediate = new StringBuilder("BACD");
+        StringBuilder offspring = new StringBuilder("BADC");
+        tracker.recordModification(parent, intermediate, 0, 1);
+        tracker.recordModification(intermediate, offspring, 3, 2, 1);
+        Modification<StringBuilder> modification = tracker.getModification(offspring);
+        assert modification.getParent() == parent : "Modification should refer to the original parent.";
+        assert Arrays.equals(modification.getModifiedPositions(), new int[]{0, 1, 2, 3})
+            : "Positions not combined: " + Arrays.toString(modification.getModifiedPositions());
+    }
+
+
+    @Test
+    public void testClear()
+    {
+        ModificationTracker<StringBuilder> tracker = new ModificationTracker<StringBuilder>();
+        tracker.recordModification(new StringBuilder("A"), new StringBuilder("B"), 0);
+        assert tracker.size() == 1 : "Wrong number of records: " + tracker.size();
+        tracker.clear();
+        assert tracker.size() == 0 : "Records not discarded.";
+    }
+}
@@ -0,0 +1,197 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for the {@link PersistentFitnessCache} class.
+ * @author Daniel Dyer
+ */
+public class PersistentFitnessCacheTest
+{
+    private File file;
+
+    @BeforeMethod
+    public void createFile() throws IOException
+    {
+        file = File.createTempFile("fitness", ".cache");
+        file.delete(); // The cache should create the file itself.
+    }
+
+
+    @AfterMethod
+    public void deleteFile()
+    {
+        file.delete();
+    }
+
+
+    @Test
+    public void testGetAndPut() throws IOException
+    {
+        PersistentFitnessCache<String> cache = new PersistentFitnessCache<String>(file,
+                                                                                  64,
+                                                                                  new StructuralGenotypeKey());
+        try
+        {
+            assert cache.get("A") == null : "Cache should be empty.";
+            cache.put("A", 1.5);
+            cache.put("B", 2.5);
+            assert cache.get("A") == 1.5 : "Wrong cached score: " + cache.get("A");
+            assert cache.get("B") == 2.5 : "Wrong cached score: " + cache.get("B");
+            assert cache.get("C") == null : "Score should not be cached.";
+            assert cache.size() == 2 : "Wrong size: " + cache.size();
+        }
+        finally
+        {
+            cache.close();
+        }
+    }
+
+
+    /**
+     * Scores should still be available after the file has been closed and
+     * re-opened (by a cache of a different capacity, which should be ignored).
+     */
+    @Test
+    public void testPersistence() throws IOException
+    {
+        PersistentFitnessCache<String> cache = new PersistentFitnessCache<String>(file,
+                                                                                  64,
+                                                                                  new StructuralGenotypeKey());
+        cache.put("A", 1.5);
+        cache.close();
+
+        cache = new PersistentFitnessCache<String>(file, 128, new StructuralGenotypeKey());
+        try
+        {
+            assert cache.get("A") == 1.5 : "Score was not persisted.";
+            assert cache.getMaximumSize() == 47 : "Capacity should be read from existing file.";
+        }
+        finally
+        {
+            cache.close();
+        }
+    }
+
+
+    /**
+     * Once the table is full, further scores should be ignored rather than
+     * overwriting existing scores.
+     */
+    @Test
+    public void testFull() throws IOException
+    {
+        PersistentFitnessCache<Integer> cache = new PersistentFitnessCache<Integer>(file,
+                                                                                    8,
+                                                                                    new StructuralGenotypeKey());
+        try
+        {
+            for (int i = 0; i < 20; i++)
+            {
+                cache.put(i, i);
+            }
+            assert cache.size() == cache.getMaximumSize() : "Wrong size: " + cache.size();
+            for (int i = 0; i < cache.getMaximumSize(); i++)
+            {
+                assert cache.get(i) == i : "Wrong score for candidate " + i + ": " + cache.get(i);
+            }
+            assert cache.get(19) == null : "Score should not have been cached.";
+        }
+        finally
+        {
+            cache.close();
+        }
+    }
+
+
+    /**
+     * Two caches in the same process that share a file must not try to lock the file
+     * at the same time (file locks belong to the whole process, so overlapping locks
+     * are an error rather than something to wait for).
+     */
+    @Test
+    public void testSharedFile() throws IOException, InterruptedException
+    {
+        final PersistentFitnessCache<Integer> cache1 = new PersistentFitnessCache<Integer>(file,
+                                                                                           1024,
+                                                                                           new StructuralGenotypeKey());
+        final PersistentFitnessCache<Integer> cache2 = new PersistentFitnessCache<Integer>(file,
+                                                                                           1024,
+                                                                                           new StructuralGenotypeKey());
+        try
+        {
+            final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+            Thread[] threads = new Thread[2];
+            for (int t = 0; t < threads.length; t++)
+            {
+                final PersistentFitnessCache<Integer> cache = t == 0 ? cache1 : cache2;
+                final int offset = t * 250;
+                threads[t] = new Thread(new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            for (int i = 0; i < 250; i++)
+                            {
+                                cache.put(offset + i, offset + i);
+                            }
+                        }
+                        catch (Throwable ex)
+                        {
+                            failure.compareAndSet(null, ex);
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads)
+            {
+                thread.join();
+            }
+            assert failure.get() == null : "Concurrent put failed: " + failure.get();
+            assert cache1.size() == 500 : "Wrong size: " + cache1.size();
+            for (int i = 0; i < 500; i++)
+            {
+                assert cache1.get(i) == i : "Wrong score for candidate " + i + ": " + cache1.get(i);
+                assert cache2.get(i) == i : "Wrong score for candidate " + i + ": " + cache2.get(i);
+            }
+        }
+        finally
+        {
+            cache1.close();
+            cache2.close();
+        }
+    }
+
+
+    @Test(expectedExceptions = IOException.class)
+    public void testInvalidFile() throws IOException
+    {
+        FileWriter writer = new FileWriter(file);
+        writer.write("This is not a fitness cache.");
+        writer.close();
+        new PersistentFitnessCache<String>(file, 64, new StructuralGenotypeKey());
+    }
+}
@@ -0,0 +1,173 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for the {@link ProcessFitnessEvaluator} class.
+ * @author Daniel Dyer
+ */
+public class ProcessFitnessEvaluatorTest
+{
+    @Test
+    public void testEvaluation() throws IOException
+    {
+        ProcessFitnessEvaluator<Integer> evaluator = new ProcessFitnessEvaluator<Integer>(new IntegerEvaluator(),
+                                                                                          2,
+                                                                                          0);
+        try
+        {
+            List<Integer> population = createPopulation(20);
+            double[] fitnessScores = new double[population.size()];
+            evaluator.getFitness(population, population, fitnessScores, 0);
+            for (int i = 0; i < population.size(); i++)
+            {
+                assert fitnessScores[i] == population.get(i) : "Wrong fitness for candidate " + i;
+            }
+            assert evaluator.getFitness(7, population) == 7 : "Wrong fitness for individual candidate.";
+            assert evaluator.getProcessesStarted() == 2 : "Processes should not have been replaced.";
+        }
+        finally
+        {
+            evaluator.close();
+        }
+    }
+
+
+    /**
+     * Child processes should be replaced once they have performed the specified number
+     * of evaluations.
+     */
+    @Test
+    public void testRecycling() throws IOException
+    {
+        ProcessFitnessEvaluator<Integer> evaluator = new ProcessFitnessEvaluator<Integer>(new IntegerEvaluator(),
+                                                                                          1,
+                                                                                          5);
+        try
+        {
+            List<Integer> population = createPopulation(10);
+            double[] fitnessScores = new double[population.size()];
+            evaluator.getFitness(population, population, fitnessScores, 0);
+            // The batch is split into two parts of five, so the first child is retired
+            // after the first part and its replacement after the second part.
+            assert evaluator.getProcessesStarted() == 3 : "Wrong number of processes: " + evaluator.getProcessesStarted();
+            for (int i = 0; i < population.size(); i++)
+            {
+                assert fitnessScores[i] == population.get(i) : "Wrong fitness for candidate " + i;
+            }
+        }
+        finally
+        {
+            evaluator.close();
+        }
+    }
+
+
+    /**
+     * A child process that crashes should be replaced and its candidates should be
+     * evaluated by another child.
+     */
+    @Test
+    public void testCrashedProcess() throws IOException
+    {
+        File marker = File.createTempFile("crash", ".marker");
+        marker.delete();
+        ProcessFitnessEvaluator<Integer> evaluator
+            = new ProcessFitnessEvaluator<Integer>(new CrashingEvaluator(marker, 3), 2, 0);
+        try
+        {
+            List<Integer> population = createPopulation(10);
+            double[] fitnessScores = new double[population.size()];
+            evaluator.getFitness(population, population, fitnessScores, 0);
+            for (int i = 0; i < population.size(); i++)
+            {
+                assert fitnessScores[i] == population.get(i) : "Wrong fitness for candidate " + i;
+            }
+            assert evaluator.getProcessesStarted() == 3 : "Crashed process was not replaced.";
+        }
+        finally
+        {
+            evaluator.close();
+            marker.delete();
+        }
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidProcessCount() throws IOException
+    {
+        new ProcessFitnessEvaluator<Integer>(new IntegerEvaluator(), 0, 0);
+    }
+
+
+    private List<Integer> createPopulation(int size)
+    {
+        List<Integer> population = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; i++)
+        {
+            population.add(i);
+        }
+        return population;
+    }
+
+
+    /**
+     * Fitness evaluator that crashes the JVM the first time that a particular candidate
+     * is evaluated.  A marker file is used to record the crash because the replacement
+     * process doesn't share any state with the process that crashed.
+     */
+    private static final class CrashingEvaluator implements FitnessEvaluator<Integer>, Serializable
+    {
+        private static final long serialVersionUID = -2104874512993175603L;
+
+        private final File marker;
+        private final int crashCandidate;
+
+        CrashingEvaluator(File marker, int crashCandidate)
+        {
+            this.marker = marker;
+            this.crashCandidate = crashCandidate;
+        }
+
+        public double getFitness(Integer candidate, List<? extends Integer> population)
+        {
+            try
+            {
+                if (candidate == crashCandidate && marker.createNewFile())
+                {
+                    Runtime.getRuntime().halt(1);
+                }
+            }
+            catch (IOException ex)
+            {
+                throw new IllegalStateException(ex);
+            }
+            return candidate;
+        }
+
+        public boolean isNatural()
+        {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.Random;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for the {@link RandomStreams} class.
+ * @author Daniel Dyer
+ */
+public class RandomStreamsTest
+{
+    /**
+     * The same seed and index must always give the same sequence of values.
+     */
+    @Test
+    public void testReproducibility()
+    {
+        Random stream1 = new RandomStreams(42).getStream(3);
+        Random stream2 = new RandomStreams(42).getStream(3);
+        for (int i = 0; i < 100; i++)
+        {
+            assert stream1.nextLong() == stream2.nextLong() : "Streams should be identical.";
+        }
+        Random nested1 = new RandomStreams(42).derive(1).getStream(0);
+        Random nested2 = new RandomStreams(42).derive(1).getStream(0);
+        assert nested1.nextLong() == nested2.nextLong() : "Nested streams should be identical.";
+    }
+
+
+    /**
+     * Streams with different indices, different seeds or from different nested
+     * providers should all be different.
+     */
+    @Test
+    public void testIndependence()
+    {
+        RandomStreams streams = new RandomStreams(42);
+        long[] firstValues = {streams.getStream(0).nextLong(),
+                              streams.getStream(1).nextLong(),
+                              new RandomStreams(43).getStream(0).nextLong(),
+                              streams.derive(0).getStream(0).nextLong(),
+                              streams.derive(1).getStream(0).nextLong()};
+        for (int i = 0; i < firstValues.length; i++)
+        {
+            for (int j = i + 1; j < firstValues.length; j++)
+            {
+                assert firstValues[i] != firstValues[j] : "Streams " + i + " and " + j + " are not independent.";
+            }
+        }
+    }
+
+
+    /**
+     * Only a single value should be taken from an RNG that is used as a seed source.
+     */
+    @Test
+    public void testSeedFromRNG()
+    {
+        Random source1 = new Random(7);
+        Random source2 = new Random(7);
+        RandomStreams streams = new RandomStreams(source1);
+        assert streams.getSeed() == source2.nextLong() : "Seed should be the next value from the source.";
+        assert source1.nextInt() == source2.nextInt() : "Too many values taken from the source.";
+    }
+}
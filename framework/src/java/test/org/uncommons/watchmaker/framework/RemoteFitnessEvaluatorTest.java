@@ -0,0 +1,344 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.Test;
+import org.uncommons.watchmaker.framework.factories.StubIntegerFactory;
+import org.uncommons.watchmaker.framework.operators.IdentityOperator;
+import org.uncommons.watchmaker.framework.selection.RouletteWheelSelection;
+import org.uncommons.watchmaker.framework.termination.GenerationCount;
+
+/**
+ * Unit test for the {@link RemoteFitnessEvaluator} class.  The workers run in
+ * separate threads of the test process rather than in separate processes.
+ * @author Daniel Dyer
+ */
+public class RemoteFitnessEvaluatorTest
+{
+    private static final String SECRET = "secret";
+
+    @Test
+    public void testDistributedEvaluation() throws IOException, InterruptedException
+    {
+        RemoteFitnessEvaluator<Integer> evaluator = new RemoteFitnessEvaluator<Integer>(new IntegerEvaluator(),
+                                                                                        0,
+                                                                                        SECRET);
+        try
+        {
+            startWorker(evaluator.getPort());
+            startWorker(evaluator.getPort());
+            waitForWorkers(evaluator, 2);
+
+            List<Integer> population = createPopulation(20);
+            double[] fitnessScores = new double[population.size() + 1];
+            evaluator.getFitness(population, population, fitnessScores, 1);
+            for (int i = 0; i < population.size(); i++)
+            {
+                assert fitnessScores[i + 1] == population.get(i) : "Wrong fitness for candidate " + i;
+            }
+            assert fitnessScores[0] == 0 : "Score written outside of batch.";
+            assert evaluator.getFitness(7, population) == 7 : "Wrong fitness for individual candidate.";
+        }
+        finally
+        {
+            evaluator.close();
+        }
+    }
+
+
+    /**
+     * The remote evaluator should be usable as the fitness evaluator of an evolution engine.
+     */
+    @Test
+    public void testEngineIntegration() throws IOException, InterruptedException
+    {
+        RemoteFitnessEvaluator<Integer> evaluator = new RemoteFitnessEvaluator<Integer>(new IntegerEvaluator(),
+                                                                                        0,
+                                                                                        SECRET);
+        try
+        {
+            startWorker(evaluator.getPort());
+            waitForWorkers(evaluator, 1);
+            GenerationalEvolutionEngine<Integer> engine
+                = new GenerationalEvolutionEngine<Integer>(new StubIntegerFactory(),
+                                                           new IdentityOperator<Integer>(),
+                                                           evaluator,
+                                                           new RouletteWheelSelection(),
+                                                           FrameworkTestUtils.getRNG());
+            engine.setSingleThreaded(true);
+            List<EvaluatedCandidate<Integer>> population = engine.evolvePopulation(10,
+                                                                                   0,
+                                                                                   createPopulation(10),
+                                                                                   new GenerationCount(3));
+            for (EvaluatedCandidate<Integer> candidate : population)
+            {
+                assert candidate.getFitness() == candidate.getCandidate()
+                    : "Wrong fitness for candidate " + candidate.getCandidate() + ": " + candidate.getFitness();
+            }
+        }
+        finally
+        {
+            evaluator.close();
+        }
+    }
+
+
+    /**
+     * If a worker dies part-way through a batch, its candidates should be evaluated by
+     * another worker.
+     */
+    @Test
+    public void testWorkerFailure() throws IOException, InterruptedException
+    {
+        RemoteFitnessEvaluator<Integer> evaluator = new RemoteFitnessEvaluator<Integer>(new IntegerEvaluator(),
+                                                                                        0,
+                                                                                        SECRET);
+        try
+        {
+            startUnresponsiveWorker(evaluator.getPort(), true);
+            waitForWorkers(evaluator, 1);
+            startWorker(evaluator.getPort());
+            waitForWorkers(evaluator, 2);
+
+            List<Integer> population = createPopulation(10);
+            double[] fitnessScores = new double[population.size()];
+            evaluator.getFitness(population, population, fitnessScores, 0);
+            for (int i = 0; i < population.size(); i++)
+            {
+                assert fitnessScores[i] == population.get(i) : "Wrong fitness for candidate " + i;
+            }
+            assert evaluator.getWorkerCount() == 1 : "Failed worker should have been discarded.";
+        }
+        finally
+        {
+            evaluator.close();
+        }
+    }
+
+
+    /**
+     * A worker that stops responding should be treated as failed once the read timeout
+     * expires, and its candidates sent to another worker.
+     */
+    @Test
+    public void testReadTimeout() throws IOException, InterruptedException
+    {
+        RemoteFitnessEvaluator<Integer> evaluator = new RemoteFitnessEvaluator<Integer>(new IntegerEvaluator(),
+                                                                                        InetAddress.getByName(null),
+                                                                                        0,
+                                                                                        SECRET,
+                                                                                        500,
+                                                                                        TimeUnit.MILLISECONDS);
+        try
+        {
+            startUnresponsiveWorker(evaluator.getPort(), false);
+            waitForWorkers(evaluator, 1);
+            startWorker(evaluator.getPort());
+            waitForWorkers(evaluator, 2);
+
+            List<Integer> population = createPopulation(10);
+            double[] fitnessScores = new double[population.size()];
+            evaluator.getFitness(population, population, fitnessScores, 0);
+            for (int i = 0; i < population.size(); i++)
+            {
+                assert fitnessScores[i] == population.get(i) : "Wrong fitness for candidate " + i;
+            }
+            assert evaluator.getWorkerCount() == 1 : "Unresponsive worker should have been discarded.";
+        }
+        finally
+        {
+            evaluator.close();
+        }
+    }
+
+
+    /**
+     * A worker that doesn't know the secret must not be registered.
+     */
+    @Test
+    public void testWrongSecret() throws IOException, InterruptedException
+    {
+        RemoteFitnessEvaluator<Integer> evaluator = new RemoteFitnessEvaluator<Integer>(new IntegerEvaluator(),
+                                                                                        0,
+                                                                                        SECRET);
+        try
+        {
+            FitnessEvaluationWorker worker = new FitnessEvaluationWorker(1);
+            try
+            {
+                worker.connect("localhost", evaluator.getPort(), "wrong");
+                assert false : "Worker with the wrong secret should have been rejected.";
+            }
+            catch (IOException ex)
+            {
+                // Expected.
+            }
+            finally
+            {
+                worker.shutdown();
+            }
+            assert evaluator.getWorkerCount() == 0 : "Worker with the wrong secret was registered.";
+        }
+        finally
+        {
+            evaluator.close();
+        }
+    }
+
+
+    /**
+     * A client that connects but never completes the handshake must not stop genuine
+     * workers from registering.
+     */
+    @Test
+    public void testSilentClient() throws IOException, InterruptedException
+    {
+        RemoteFitnessEvaluator<Integer> evaluator = new RemoteFitnessEvaluator<Integer>(new IntegerEvaluator(),
+                                                                                        0,
+                                                                                        SECRET);
+        Socket silentClient = new Socket("localhost", evaluator.getPort());
+        try
+        {
+            startWorker(evaluator.getPort());
+            waitForWorkers(evaluator, 1);
+        }
+        finally
+        {
+            silentClient.close();
+            evaluator.close();
+        }
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testEmptySecret() throws IOException
+    {
+        new RemoteFitnessEvaluator<Integer>(new IntegerEvaluator(), 0, "");
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNonSerializableEvaluator() throws IOException
+    {
+        new RemoteFitnessEvaluator<Integer>(new NullFitnessEvaluator(), 0, SECRET);
+    }
+
+
+    private List<Integer> createPopulation(int size)
+    {
+        List<Integer> population = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; i++)
+        {
+            population.add(i);
+        }
+        return population;
+    }
+
+
+    /**
+     * Starts a worker in a daemon thread.  The worker runs until the remote evaluator
+     * is closed.
+     */
+    private void startWorker(final int port)
+    {
+        Thread workerThread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                FitnessEvaluationWorker worker = new FitnessEvaluationWorker(2);
+                try
+                {
+                    worker.connect("localhost", port, SECRET);
+                }
+                catch (IOException ex)
+                {
+                    // Test will fail because candidates are not evaluated.
+                }
+                finally
+                {
+                    worker.shutdown();
+                }
+            }
+        };
+        workerThread.setDaemon(true);
+        workerThread.start();
+    }
+
+
+    /**
+     * Starts a worker in a daemon thread that registers and accepts one request but never
+     * responds to it.
+     * @param disconnect If true, the worker disconnects once it has read the request,
+     * otherwise it stays connected until the remote evaluator closes the connection.
+     */
+    private void startUnresponsiveWorker(final int port, final boolean disconnect)
+    {
+        Thread workerThread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Socket socket = new Socket("localhost", port);
+                    try
+                    {
+                        EvaluationChannel.authenticateEvaluator(socket.getInputStream(),
+                                                                socket.getOutputStream(),
+                                                                SECRET.getBytes("UTF-8"));
+                        ObjectInputStream input = new ObjectInputStream(socket.getInputStream());
+                        input.readObject(); // Fitness evaluator.
+                        input.readObject(); // Population.
+                        input.readObject(); // Candidates.
+                        if (!disconnect)
+                        {
+                            input.readObject(); // Blocks until the connection is closed.
+                        }
+                    }
+                    finally
+                    {
+                        socket.close();
+                    }
+                }
+                catch (Exception ex)
+                {
+                    // Test will fail because candidates are not evaluated.
+                }
+            }
+        };
+        workerThread.setDaemon(true);
+        workerThread.start();
+    }
+
+
+    private void waitForWorkers(RemoteFitnessEvaluator<?> evaluator, int count) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (evaluator.getWorkerCount() < count && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        assert evaluator.getWorkerCount() == count : "Workers did not register: " + evaluator.getWorkerCount();
+    }
+}
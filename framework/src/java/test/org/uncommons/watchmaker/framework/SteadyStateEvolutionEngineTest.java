@@ -15,6 +15,7 @@
 //=============================================================================
 package org.uncommons.watchmaker.framework;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import org.testng.annotations.Test;
@@ -119,6 +120,8 @@ public class SteadyStateEvolutionEngineTest
         // The fittest candidate should always be preserved.
         for (int i = 0; i < 20; i++) // Once is not enough to be confident.
         {
+            // The engine sorts the population before each step.
+            EvolutionUtils.sortEvaluatedPopulation(population, true);
             List<EvaluatedCandidate<Integer>> evaluatedPopulation = steadyState.nextEvolutionStep(population,
                                                                                                   1,
                                                                                                   FrameworkTestUtils.getRNG());
@@ -135,4 +138,115 @@ public class SteadyStateEvolutionEngineTest
             assert found : "Elite candidate should be preserved.";
         }
     }
+
+
+    /**
+     * With the WORST replacement policy, the least fit individual is always replaced and the
+     * population should remain sorted.
+     */
+    @Test
+    public void testWorstReplacement()
+    {
+        SteadyStateEvolutionEngine<Integer> steadyState = createEngine();
+        steadyState.setReplacementPolicy(ReplacementPolicy.WORST, 1);
+        List<EvaluatedCandidate<Integer>> population = createSortedPopulation();
+        List<EvaluatedCandidate<Integer>> evaluatedPopulation = steadyState.nextEvolutionStep(population,
+                                                                                              0,
+                                                                                              FrameworkTestUtils.getRNG());
+        // New candidates have zero fitness, so they belong at the end of the population.
+        assertFitnessScores(evaluatedPopulation, 5, 4, 3, 2, 0);
+    }
+
+
+    /**
+     * A tournament that is very much larger than the population is almost certain to include
+     * the least fit individual.
+     */
+    @Test
+    public void testTournamentReplacement()
+    {
+        SteadyStateEvolutionEngine<Integer> steadyState = createEngine();
+        steadyState.setReplacementPolicy(ReplacementPolicy.TOURNAMENT, 200);
+        List<EvaluatedCandidate<Integer>> population = createSortedPopulation();
+        List<EvaluatedCandidate<Integer>> evaluatedPopulation = steadyState.nextEvolutionStep(population,
+                                                                                              1,
+                                                                                              FrameworkTestUtils.getRNG());
+        assertFitnessScores(evaluatedPopulation, 5, 4, 3, 2, 0);
+    }
+
+
+    /**
+     * With the OLDEST replacement policy, the initial population should be replaced before any
+     * offspring, and then the offspring should be replaced in the order that they were added.
+     * Elite individuals are never replaced, however old they are.
+     */
+    @Test
+    public void testOldestReplacement()
+    {
+        SteadyStateEvolutionEngine<Integer> steadyState = createEngine();
+        steadyState.setReplacementPolicy(ReplacementPolicy.OLDEST, 1);
+        List<EvaluatedCandidate<Integer>> population = createSortedPopulation();
+        List<EvaluatedCandidate<Integer>> evaluatedPopulation = steadyState.nextEvolutionStep(population,
+                                                                                              1,
+                                                                                              FrameworkTestUtils.getRNG());
+        assertFitnessScores(evaluatedPopulation, 5, 4, 3, 2, 0);
+        EvaluatedCandidate<Integer> firstOffspring = evaluatedPopulation.get(4);
+        for (int i = 0; i < 3; i++)
+        {
+            evaluatedPopulation = steadyState.nextEvolutionStep(evaluatedPopulation, 1, FrameworkTestUtils.getRNG());
+        }
+        assertFitnessScores(evaluatedPopulation, 5, 0, 0, 0, 0);
+        assert evaluatedPopulation.contains(firstOffspring) : "Offspring replaced before initial population.";
+        evaluatedPopulation = steadyState.nextEvolutionStep(evaluatedPopulation, 1, FrameworkTestUtils.getRNG());
+        assertFitnessScores(evaluatedPopulation, 5, 0, 0, 0, 0);
+        for (EvaluatedCandidate<Integer> candidate : evaluatedPopulation)
+        {
+            assert candidate != firstOffspring : "Oldest offspring should have been replaced.";
+        }
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidTournamentSize()
+    {
+        createEngine().setReplacementPolicy(ReplacementPolicy.TOURNAMENT, 0);
+    }
+
+
+    private SteadyStateEvolutionEngine<Integer> createEngine()
+    {
+        return new SteadyStateEvolutionEngine<Integer>(new StubIntegerFactory(),
+                                                       new IntegerAdjuster(5),
+                                                       new NullFitnessEvaluator(),
+                                                       new RouletteWheelSelection(),
+                                                       1,
+                                                       true,
+                                                       FrameworkTestUtils.getRNG());
+    }
+
+
+    /**
+     * @return A population in which each candidate's fitness is equal to its value, sorted
+     * in descending order of fitness.
+     */
+    private List<EvaluatedCandidate<Integer>> createSortedPopulation()
+    {
+        List<EvaluatedCandidate<Integer>> population = new ArrayList<EvaluatedCandidate<Integer>>();
+        for (int i = 5; i > 0; i--)
+        {
+            population.add(new EvaluatedCandidate<Integer>(i, i));
+        }
+        return population;
+    }
+
+
+    private void assertFitnessScores(List<EvaluatedCandidate<Integer>> population, double... expected)
+    {
+        assert population.size() == expected.length : "Wrong population size: " + population.size();
+        for (int i = 0; i < expected.length; i++)
+        {
+            assert population.get(i).getFitness() == expected[i]
+                : "Wrong fitness at index " + i + ": " + population.get(i).getFitness();
+        }
+    }
 }
@@ -0,0 +1,116 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import org.testng.annotations.Test;
+import org.uncommons.maths.binary.BitString;
+
+/**
+ * Unit test for the {@link StructuralGenotypeKey} class.
+ * @author Daniel Dyer
+ */
+public class StructuralGenotypeKeyTest
+{
+    private final GenotypeKey<Object> key = new StructuralGenotypeKey();
+
+    /**
+     * Arrays don't override equals and hashCode but equivalent arrays should
+     * still have the same fingerprint.
+     */
+    @Test
+    public void testArrays()
+    {
+        assert key.getFingerprint(new double[]{1.5, 2.5}) == key.getFingerprint(new double[]{1.5, 2.5})
+            : "Equal arrays should have the same fingerprint.";
+        assert key.getFingerprint(new double[]{1.5, 2.5}) != key.getFingerprint(new double[]{2.5, 1.5})
+            : "Order of elements should be significant.";
+        assert key.getFingerprint(new int[]{0}) != key.getFingerprint(new int[]{0, 0})
+            : "Arrays of different lengths should have different fingerprints.";
+        assert key.getFingerprint(new int[][]{{1, 2}, {3}}) == key.getFingerprint(new int[][]{{1, 2}, {3}})
+            : "Equal nested arrays should have the same fingerprint.";
+    }
+
+
+    @Test
+    public void testLists()
+    {
+        List<double[]> list1 = Arrays.asList(new double[]{1, 2}, new double[]{3});
+        List<double[]> list2 = Arrays.asList(new double[]{1, 2}, new double[]{3});
+        assert key.getFingerprint(list1) == key.getFingerprint(list2) : "Equivalent lists should match.";
+        assert key.getFingerprint(Arrays.asList(1, 2)) != key.getFingerprint(Arrays.asList(2, 1))
+            : "Order of elements should be significant.";
+    }
+
+
+    /**
+     * Zero-valued elements have zero fingerprints, so lists that differ only by
+     * leading zeroes (or false values) must be distinguished by their lengths.
+     */
+    @Test
+    public void testListsOfDifferentLengths()
+    {
+        List<Integer> empty = Collections.emptyList();
+        assert key.getFingerprint(empty) != key.getFingerprint(Arrays.asList(0))
+            : "Lists of different lengths should not match.";
+        assert key.getFingerprint(Arrays.asList(0)) != key.getFingerprint(Arrays.asList(0, 0))
+            : "Lists of different lengths should not match.";
+        assert key.getFingerprint(Arrays.asList(0, 7)) != key.getFingerprint(Arrays.asList(7))
+            : "Lists of different lengths should not match.";
+        assert key.getFingerprint(Arrays.asList(false)) != key.getFingerprint(Arrays.asList(false, false))
+            : "Lists of different lengths should not match.";
+        assert key.getFingerprint(Arrays.asList(false, true)) != key.getFingerprint(Arrays.asList(true))
+            : "Lists of different lengths should not match.";
+    }
+
+
+    /**
+     * The fingerprint of a set must not depend on iteration order.
+     */
+    @Test
+    public void testSets()
+    {
+        List<String> elements = Arrays.asList("A", "B", "C");
+        List<String> reversed = Arrays.asList("C", "B", "A");
+        assert key.getFingerprint(new LinkedHashSet<String>(elements))
+               == key.getFingerprint(new LinkedHashSet<String>(reversed)) : "Equal sets should match.";
+        assert key.getFingerprint(new HashSet<String>(elements))
+               != key.getFingerprint(Collections.singleton("A")) : "Different sets should not match.";
+    }
+
+
+    @Test
+    public void testBitStrings()
+    {
+        assert key.getFingerprint(new BitString("0101")) == key.getFingerprint(new BitString("0101"))
+            : "Equal bit strings should match.";
+        assert key.getFingerprint(new BitString("0101")) != key.getFingerprint(new BitString("101"))
+            : "Bit strings of different lengths should not match.";
+    }
+
+
+    @Test
+    public void testStrings()
+    {
+        assert key.getFingerprint("ABC") == key.getFingerprint(new StringBuilder("ABC"))
+            : "Character sequences with the same characters should match.";
+        assert key.getFingerprint("ABC") != key.getFingerprint("ACB") : "Different strings should not match.";
+    }
+}
@@ -0,0 +1,227 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework;
+
+import java.util.Arrays;
+import java.util.List;
+import org.testng.annotations.Test;
+import org.uncommons.maths.random.Probability;
+
+/**
+ * Unit test for the {@link SurrogateFitnessEvaluator} wrapper.
+ * @author Daniel Dyer
+ */
+public class SurrogateFitnessEvaluatorTest
+{
+    private static final DistanceMeasure<Integer> DIFFERENCE = new DistanceMeasure<Integer>()
+    {
+        public double getDistance(Integer candidate1, Integer candidate2)
+        {
+            return Math.abs(candidate1 - candidate2);
+        }
+    };
+
+
+    /**
+     * Until there are enough archived candidates to make predictions, every candidate
+     * should be evaluated for real.  After that, only the most promising candidates
+     * should be.
+     */
+    @Test
+    public void testBatch()
+    {
+        SurrogateFitnessEvaluator<Integer> evaluator = createEvaluator(Probability.ZERO);
+        List<Integer> batch = Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        double[] scores = new double[batch.size()];
+        evaluator.getFitness(batch, batch, scores, 0);
+        assert evaluator.getTrueEvaluationCount() == 10 : "Empty archive, all candidates should be evaluated.";
+        assert evaluator.getPredictionCount() == 0 : "Nothing should be predicted with an empty archive.";
+
+        // The archive now contains exact matches for every candidate, so predictions are exact.
+        batch = Arrays.asList(2, 7, 3, 4, 9, 0, 1, 5, 6, 8);
+        evaluator.getFitness(batch, batch, scores, 0);
+        assert evaluator.getTrueEvaluationCount() == 12 : "Only the top 20% should be evaluated.";
+        assert evaluator.getPredictionCount() == 8 : "Wrong number of predictions: " + evaluator.getPredictionCount();
+        for (int i = 0; i < batch.size(); i++)
+        {
+            assert scores[i] == batch.get(i) : "Wrong score for " + batch.get(i) + ": " + scores[i];
+        }
+        assert evaluator.getMeanPredictionError() == 0 : "Predictions should be exact.";
+    }
+
+
+    /**
+     * Predictions should be weighted by inverse distance to the nearest neighbours.
+     */
+    @Test
+    public void testPrediction()
+    {
+        SurrogateFitnessEvaluator<Integer> evaluator = createEvaluator(Probability.ZERO);
+        List<Integer> batch = Arrays.asList(0, 10, 40, 100, 200);
+        double[] scores = new double[batch.size()];
+        evaluator.getFitness(batch, batch, scores, 0);
+
+        // Candidate 13 is predicted from 10 (distance 3) and 0 (distance 13).  Candidate
+        // 210 has the highest predicted fitness (it is closest to 200) so it is the only
+        // one that is evaluated for real, even though 300 is actually fitter.
+        batch = Arrays.asList(13, 300, 250, 220, 210);
+        evaluator.getFitness(batch, batch, scores, 0);
+        double expected = (10.0 / 3 + 0.0 / 13) / (1.0 / 3 + 1.0 / 13);
+        assert Math.abs(scores[0] - expected) < 0.0001 : "Wrong prediction: " + scores[0] + ", expected " + expected;
+        assert scores[4] == 210 : "Most promising candidate should be evaluated exactly.";
+        assert scores[1] < 300 : "Candidate 300 should have a predicted score: " + scores[1];
+        assert evaluator.getMeanPredictionError() > 0 : "Prediction error should be recorded.";
+    }
+
+
+    /**
+     * A predicted score must never be better than the real scores in the same batch, even
+     * when the surrogate model overestimates a candidate.
+     */
+    @Test
+    public void testPredictionsCapped()
+    {
+        // Scores increase up to 10 and then drop away, which the surrogate can't know.
+        FitnessEvaluator<Integer> cliff = new FitnessEvaluator<Integer>()
+        {
+            public double getFitness(Integer candidate, List<? extends Integer> population)
+            {
+                return candidate <= 10 ? candidate : 1;
+            }
+
+            public boolean isNatural()
+            {
+                return true;
+            }
+        };
+        SurrogateFitnessEvaluator<Integer> evaluator = new SurrogateFitnessEvaluator<Integer>(cliff,
+                                                                                              DIFFERENCE,
+                                                                                              2,
+                                                                                              100,
+                                                                                              0,
+                                                                                              Probability.ZERO,
+                                                                                              FrameworkTestUtils.getRNG());
+        List<Integer> batch = Arrays.asList(0, 10);
+        double[] scores = new double[batch.size()];
+        evaluator.getFitness(batch, batch, scores, 0);
+
+        // Candidate 11 is predicted to be better than 5, so it is the one evaluated for real
+        // (even though the evaluated proportion is zero).  The prediction for 5 (which is 5)
+        // must be capped below the real score of 11.
+        batch = Arrays.asList(11, 5);
+        evaluator.getFitness(batch, batch, scores, 0);
+        assert evaluator.getPredictionCount() == 1 : "Wrong number of predictions: " + evaluator.getPredictionCount();
+        assert scores[0] == 1 : "Most promising candidate should be evaluated exactly: " + scores[0];
+        assert scores[1] < scores[0] : "Predicted score should be capped: " + scores[1];
+    }
+
+
+    /**
+     * Capping must not collapse the predicted scores to a single value, since selection
+     * relies on their order.
+     */
+    @Test
+    public void testCappedPredictionsKeepOrder()
+    {
+        FitnessEvaluator<Integer> cliff = new FitnessEvaluator<Integer>()
+        {
+            public double getFitness(Integer candidate, List<? extends Integer> population)
+            {
+                return candidate <= 10 ? candidate : 1;
+            }
+
+            public boolean isNatural()
+            {
+                return true;
+            }
+        };
+        SurrogateFitnessEvaluator<Integer> evaluator = new SurrogateFitnessEvaluator<Integer>(cliff,
+                                                                                              DIFFERENCE,
+                                                                                              2,
+                                                                                              100,
+                                                                                              0,
+                                                                                              Probability.ZERO,
+                                                                                              FrameworkTestUtils.getRNG());
+        List<Integer> batch = Arrays.asList(0, 10);
+        double[] scores = new double[batch.size()];
+        evaluator.getFitness(batch, batch, scores, 0);
+
+        // Only 12 is evaluated for real (and scores 1).  The predictions for the others are
+        // all better than that, so they have to be reduced, but should stay in order.
+        batch = Arrays.asList(12, 6, 4, 8);
+        scores = new double[batch.size()];
+        evaluator.getFitness(batch, batch, scores, 0);
+        assert evaluator.getPredictionCount() == 3 : "Wrong number of predictions: " + evaluator.getPredictionCount();
+        assert scores[0] == 1 : "Most promising candidate should be evaluated exactly: " + scores[0];
+        assert scores[3] < scores[0] : "Predicted score should be capped: " + scores[3];
+        assert scores[3] > scores[1] && scores[1] > scores[2] && scores[2] > 0
+            : "Predicted scores should keep their order: " + Arrays.toString(scores);
+    }
+
+
+    /**
+     * With a validation probability of one, every candidate should be evaluated for real.
+     */
+    @Test
+    public void testValidation()
+    {
+        SurrogateFitnessEvaluator<Integer> evaluator = createEvaluator(Probability.ONE);
+        List<Integer> batch = Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        double[] scores = new double[batch.size()];
+        evaluator.getFitness(batch, batch, scores, 0);
+        evaluator.getFitness(batch, batch, scores, 0);
+        assert evaluator.getTrueEvaluationCount() == 20 : "All candidates should be validated.";
+        assert evaluator.getPredictionCount() == 0 : "No predicted scores should be used.";
+    }
+
+
+    /**
+     * Candidates evaluated individually always use the real fitness function.
+     */
+    @Test
+    public void testSingleCandidate()
+    {
+        SurrogateFitnessEvaluator<Integer> evaluator = createEvaluator(Probability.ZERO);
+        double fitness = evaluator.getFitness(5, Arrays.asList(5));
+        assert fitness == 5 : "Wrong fitness: " + fitness;
+        assert evaluator.getTrueEvaluationCount() == 1 : "Candidate should be evaluated for real.";
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testArchiveTooSmall()
+    {
+        new SurrogateFitnessEvaluator<Integer>(new IntegerEvaluator(),
+                                               DIFFERENCE,
+                                               5,
+                                               4,
+                                               0.2,
+                                               Probability.ZERO,
+                                               FrameworkTestUtils.getRNG());
+    }
+
+
+    private SurrogateFitnessEvaluator<Integer> createEvaluator(Probability validationProbability)
+    {
+        return new SurrogateFitnessEvaluator<Integer>(new IntegerEvaluator(),
+                                                      DIFFERENCE,
+                                                      2,
+                                                      100,
+                                                      0.2,
+                                                      validationProbability,
+                                                      FrameworkTestUtils.getRNG());
+    }
+}
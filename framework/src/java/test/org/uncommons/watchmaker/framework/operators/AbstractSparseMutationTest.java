@@ -0,0 +1,85 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework.operators;
+
+import java.util.Random;
+import org.testng.annotations.Test;
+import org.uncommons.watchmaker.framework.FrameworkTestUtils;
+
+/**
+ * Unit test for the geometric sampling of mutated positions.
+ * @author Daniel Dyer
+ */
+public class AbstractSparseMutationTest
+{
+    /**
+     * Each position should be chosen independently with the configured probability,
+     * just as if a separate event had been generated for each gene.
+     */
+    @Test
+    public void testPositionDistribution()
+    {
+        Random rng = FrameworkTestUtils.getRNG();
+        final int length = 20;
+        final int iterations = 20000;
+        int[] counts = new int[length];
+        for (int i = 0; i < iterations; i++)
+        {
+            int[] positions = AbstractSparseMutation.samplePositions(length, 0.3, rng);
+            for (int j = 0; j < positions.length; j++)
+            {
+                assert j == 0 || positions[j] > positions[j - 1] : "Positions should be strictly ascending.";
+                counts[positions[j]]++;
+            }
+        }
+        for (int count : counts)
+        {
+            double frequency = (double) count / iterations;
+            assert Math.abs(frequency - 0.3) < 0.02 : "Position chosen with wrong frequency: " + frequency;
+        }
+    }
+
+
+    @Test
+    public void testBoundaryProbabilities()
+    {
+        Random rng = FrameworkTestUtils.getRNG();
+        assert AbstractSparseMutation.samplePositions(100, 0, rng).length == 0 : "No positions should be chosen.";
+        int[] positions = AbstractSparseMutation.samplePositions(100, 1, rng);
+        assert positions.length == 100 : "All positions should be chosen: " + positions.length;
+        for (int i = 0; i < positions.length; i++)
+        {
+            assert positions[i] == i : "Wrong position: " + positions[i];
+        }
+        assert AbstractSparseMutation.samplePositions(0, 0.5, rng).length == 0 : "Empty candidate has no positions.";
+    }
+
+
+    /**
+     * With a very low probability, the sampled gap can be far larger than the candidate.
+     */
+    @Test
+    public void testLongGaps()
+    {
+        Random rng = FrameworkTestUtils.getRNG();
+        int total = 0;
+        for (int i = 0; i < 1000; i++)
+        {
+            total += AbstractSparseMutation.samplePositions(Integer.MAX_VALUE, 1e-15, rng).length;
+        }
+        assert total < 10 : "Too many positions chosen: " + total;
+    }
+}
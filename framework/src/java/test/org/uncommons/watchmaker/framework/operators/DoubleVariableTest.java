@@ -0,0 +1,70 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework.operators;
+
+import org.testng.annotations.Test;
+import org.uncommons.maths.number.AdjustableNumberGenerator;
+import org.uncommons.maths.number.ConstantGenerator;
+import org.uncommons.maths.random.Probability;
+
+/**
+ * Unit test for the {@link DoubleVariable} and {@link IntVariable} parameter types.
+ * @author Daniel Dyer
+ */
+public class DoubleVariableTest
+{
+    @Test
+    public void testConstant()
+    {
+        DoubleVariable variable = DoubleVariable.constant(0.25);
+        assert variable.isConstant() : "Variable should be constant.";
+        assert variable.nextValue() == 0.25 : "Wrong value: " + variable.nextValue();
+        IntVariable intVariable = IntVariable.constant(3);
+        assert intVariable.isConstant() : "Variable should be constant.";
+        assert intVariable.nextValue() == 3 : "Wrong value: " + intVariable.nextValue();
+    }
+
+
+    /**
+     * Adapting a {@link ConstantGenerator} should give a constant parameter.
+     */
+    @Test
+    public void testAdaptConstantGenerator()
+    {
+        DoubleVariable variable = DoubleVariable.adapt(new ConstantGenerator<Probability>(Probability.EVENS));
+        assert variable.isConstant() : "Adapted constant generator should be constant.";
+        assert variable.nextValue() == 0.5 : "Wrong value: " + variable.nextValue();
+        IntVariable intVariable = IntVariable.adapt(new ConstantGenerator<Integer>(2));
+        assert intVariable.isConstant() : "Adapted constant generator should be constant.";
+        assert intVariable.nextValue() == 2 : "Wrong value: " + intVariable.nextValue();
+    }
+
+
+    /**
+     * Adapting any other generator should give a parameter that tracks the
+     * generator's values.
+     */
+    @Test
+    public void testAdaptVariableGenerator()
+    {
+        AdjustableNumberGenerator<Double> generator = new AdjustableNumberGenerator<Double>(0.1);
+        DoubleVariable variable = DoubleVariable.adapt(generator);
+        assert !variable.isConstant() : "Adapted variable generator should not be constant.";
+        assert variable.nextValue() == 0.1 : "Wrong value: " + variable.nextValue();
+        generator.setValue(0.7);
+        assert variable.nextValue() == 0.7 : "Adapted variable did not track the generator.";
+    }
+}
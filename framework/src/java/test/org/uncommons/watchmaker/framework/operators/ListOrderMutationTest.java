@@ -20,7 +20,10 @@ import java.util.Arrays;
 import java.util.List;
 import org.testng.Reporter;
 import org.testng.annotations.Test;
+import org.uncommons.maths.number.ConstantGenerator;
 import org.uncommons.watchmaker.framework.FrameworkTestUtils;
+import org.uncommons.watchmaker.framework.Modification;
+import org.uncommons.watchmaker.framework.ModificationTracker;
 
 /**
  * Unit test to validate the operation of the {@link ListOrderMutation} operator.
@@ -66,4 +69,36 @@ public class ListOrderMutationTest
         }
         assert matchingPositions == candidate.size() - 2 : "All but 2 positions should be unchanged.";
     }
+
+
+    /**
+     * The swapped positions should be recorded when a tracker is specified.
+     */
+    @Test
+    public void testModificationTracking()
+    {
+        ModificationTracker<List<Character>> tracker = new ModificationTracker<List<Character>>();
+        ListOrderMutation<Character> operator = new ListOrderMutation<Character>(new ConstantGenerator<Integer>(2),
+                                                                                 new ConstantGenerator<Integer>(1),
+                                                                                 tracker);
+        List<Character> candidate = Arrays.asList('a', 'b', 'c', 'd', 'e', 'f', 'g', 'h');
+        List<List<Character>> population = new ArrayList<List<Character>>(1);
+        population.add(candidate);
+        List<Character> mutatedCandidate = operator.apply(population, FrameworkTestUtils.getRNG()).get(0);
+        Modification<List<Character>> modification = tracker.getModification(mutatedCandidate);
+        assert modification != null : "Modification not recorded.";
+        assert modification.getParent() == candidate : "Wrong parent recorded.";
+        List<Integer> positions = new ArrayList<Integer>();
+        for (int position : modification.getModifiedPositions())
+        {
+            positions.add(position);
+        }
+        for (int i = 0; i < candidate.size(); i++)
+        {
+            if (!candidate.get(i).equals(mutatedCandidate.get(i)))
+            {
+                assert positions.contains(i) : "Changed position " + i + " not recorded.";
+            }
+        }
+    }
 }
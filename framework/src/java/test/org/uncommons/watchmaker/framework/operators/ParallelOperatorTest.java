@@ -0,0 +1,117 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework.operators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.testng.annotations.Test;
+import org.uncommons.maths.random.MersenneTwisterRNG;
+import org.uncommons.maths.random.Probability;
+import org.uncommons.watchmaker.framework.EvolutionaryOperator;
+import org.uncommons.watchmaker.framework.FrameworkTestUtils;
+
+/**
+ * Unit test for the {@link ParallelOperator} class.
+ * @author Daniel Dyer
+ */
+public class ParallelOperatorTest
+{
+    private final char[] alphabet = {'a', 'b', 'c', 'd'};
+
+    /**
+     * The results for each partition should be combined in the same order as the
+     * partitions.
+     */
+    @Test
+    public void testOrderPreserved()
+    {
+        List<Integer> population = createPopulation(100);
+        EvolutionaryOperator<Integer> operator = new ParallelOperator<Integer>(new IdentityOperator<Integer>(), 4);
+        List<Integer> result = operator.apply(population, FrameworkTestUtils.getRNG());
+        assert result.equals(population) : "Order of candidates should be preserved.";
+    }
+
+
+    /**
+     * The same seed must give the same results, however the partitions are scheduled.
+     */
+    @Test
+    public void testDeterminism()
+    {
+        List<String> population = new ArrayList<String>(50);
+        for (int i = 0; i < 50; i++)
+        {
+            population.add("abcdabcd");
+        }
+        EvolutionaryOperator<String> operator = new ParallelOperator<String>(new StringMutation(alphabet,
+                                                                                                Probability.EVENS),
+                                                                             4);
+        byte[] seed = new MersenneTwisterRNG().getSeed();
+        List<String> result1 = operator.apply(population, new MersenneTwisterRNG(seed));
+        List<String> result2 = operator.apply(population, new MersenneTwisterRNG(seed));
+        assert result1.size() == 50 : "Wrong number of offspring: " + result1.size();
+        assert result1.equals(result2) : "Results should be identical for the same seed.";
+    }
+
+
+    /**
+     * Partitions must not separate the two parents of a cross-over.
+     */
+    @Test
+    public void testPartitionSizes()
+    {
+        final List<Integer> sizes = Collections.synchronizedList(new ArrayList<Integer>());
+        EvolutionaryOperator<Integer> recorder = new EvolutionaryOperator<Integer>()
+        {
+            public List<Integer> apply(List<Integer> selectedCandidates, Random rng)
+            {
+                sizes.add(selectedCandidates.size());
+                return new ArrayList<Integer>(selectedCandidates);
+            }
+        };
+        List<Integer> result = new ParallelOperator<Integer>(recorder, 3).apply(createPopulation(7),
+                                                                                FrameworkTestUtils.getRNG());
+        assert result.size() == 7 : "Wrong number of offspring: " + result.size();
+        assert sizes.size() == 3 : "Wrong number of partitions: " + sizes.size();
+        Collections.sort(sizes);
+        assert sizes.get(0) == 2 && sizes.get(1) == 2 && sizes.get(2) == 3 : "Wrong partition sizes: " + sizes;
+
+        // Too few candidates for the requested number of partitions.
+        sizes.clear();
+        new ParallelOperator<Integer>(recorder, 8).apply(createPopulation(3), FrameworkTestUtils.getRNG());
+        assert sizes.size() == 2 : "Wrong number of partitions: " + sizes.size();
+    }
+
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidPartitionCount()
+    {
+        new ParallelOperator<Integer>(new IdentityOperator<Integer>(), 0);
+    }
+
+
+    private List<Integer> createPopulation(int size)
+    {
+        List<Integer> population = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; i++)
+        {
+            population.add(i);
+        }
+        return population;
+    }
+}
@@ -0,0 +1,75 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework.operators;
+
+import java.util.Arrays;
+import java.util.List;
+import org.testng.annotations.Test;
+import org.uncommons.maths.binary.BitString;
+import org.uncommons.maths.random.Probability;
+import org.uncommons.watchmaker.framework.EvolutionaryOperator;
+import org.uncommons.watchmaker.framework.FrameworkTestUtils;
+
+/**
+ * Unit test for sparse mutation of bit strings.
+ * @author Daniel Dyer
+ */
+public class SparseBitStringMutationTest
+{
+    /**
+     * With a mutation probability of 1/L, on average one bit should be flipped.
+     */
+    @Test
+    public void testMutationRate()
+    {
+        final int length = 100000;
+        EvolutionaryOperator<BitString> mutation = new SparseBitStringMutation(new Probability(1.0 / length));
+        BitString original = new BitString(length);
+        List<BitString> population = Arrays.asList(original);
+        int flipped = 0;
+        for (int i = 0; i < 1000; i++)
+        {
+            BitString mutated = mutation.apply(population, FrameworkTestUtils.getRNG()).get(0);
+            assert mutated.getLength() == length : "Mutated bit string changed length.";
+            flipped += mutated.countSetBits();
+        }
+        assert original.countSetBits() == 0 : "Original bit string should not be modified.";
+        assert flipped > 800 && flipped < 1200 : "Wrong number of bits flipped: " + flipped;
+    }
+
+
+    @Test
+    public void testAllBitsMutated()
+    {
+        BitString original = new BitString("111100101");
+        EvolutionaryOperator<BitString> mutation = new SparseBitStringMutation(Probability.ONE);
+        BitString mutated = mutation.apply(Arrays.asList(original), FrameworkTestUtils.getRNG()).get(0);
+        assert mutated.toString().equals("000011010") : "All bits should be flipped: " + mutated;
+    }
+
+
+    /**
+     * Candidates that are not mutated should be returned as they are, not copied.
+     */
+    @Test
+    public void testNoMutation()
+    {
+        BitString original = new BitString("111100101");
+        EvolutionaryOperator<BitString> mutation = new SparseBitStringMutation(Probability.ZERO);
+        BitString result = mutation.apply(Arrays.asList(original), FrameworkTestUtils.getRNG()).get(0);
+        assert result == original : "Unmutated candidate should be unchanged.";
+    }
+}
@@ -0,0 +1,63 @@
+//=============================================================================
+// Copyright 2006-2010 Daniel W. Dyer
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//=============================================================================
+package org.uncommons.watchmaker.framework.operators;
+
+import java.util.Arrays;
+import org.testng.annotations.Test;
+import org.uncommons.maths.random.Probability;
+import org.uncommons.watchmaker.framework.FrameworkTestUtils;
+
+/**
+ * Unit test for sparse mutation of numeric arrays.
+ * @author Daniel Dyer
+ */
+public class SparseDoubleArrayMutationTest
+{
+    /**
+     * Mutated elements should be displaced by the mutation amount and all other
+     * elements should be unchanged.
+     */
+    @Test
+    public void testDoubleArrayMutation()
+    {
+        double[] original = new double[1000];
+        SparseDoubleArrayMutation mutation = new SparseDoubleArrayMutation(new Probability(0.1),
+                                                                           DoubleVariable.constant(1.5));
+        double[] mutated = mutation.apply(Arrays.asList(original), FrameworkTestUtils.getRNG()).get(0);
+        int changed = 0;
+        for (double value : mutated)
+        {
+            assert value == 0 || value == 1.5 : "Element mutated incorrectly: " + value;
+            changed += value == 0 ? 0 : 1;
+        }
+        assert changed > 50 && changed < 150 : "Wrong number of elements mutated: " + changed;
+        for (double value : original)
+        {
+            assert value == 0 : "Original array should not be modified.";
+        }
+    }
+
+
+    @Test
+    public void testIntArrayMutation()
+    {
+        int[] original = {1, 2, 3, 4};
+        SparseIntArrayMutation mutation = new SparseIntArrayMutation(Probability.ONE, IntVariable.constant(-1));
+        int[] mutated = mutation.apply(Arrays.asList(original), FrameworkTestUtils.getRNG()).get(0);
+        assert Arrays.equals(mutated, new int[]{0, 1, 2, 3}) : "Wrong result: " + Arrays.toString(mutated);
+        assert Arrays.equals(original, new int[]{1, 2, 3, 4}) : "Original array should not be modified.";
+    }
+}
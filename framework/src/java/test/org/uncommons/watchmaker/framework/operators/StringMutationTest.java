@@ -18,6 +18,8 @@ package org.uncommons.watchmaker.framework.operators;
 import java.util.Arrays;
 import java.util.List;
 import org.testng.annotations.Test;
+import org.uncommons.maths.number.NumberGenerator;
+import org.uncommons.maths.random.MersenneTwisterRNG;
 import org.uncommons.maths.random.Probability;
 import org.uncommons.watchmaker.framework.FrameworkTestUtils;
 
@@ -51,4 +53,29 @@ public class StringMutationTest
             }
         }
     }
+
+
+    /**
+     * A constant probability is looked up once per string rather than once per
+     * character.  This must not change the random numbers that are drawn, so
+     * the results must match those of a variable probability with the same value.
+     */
+    @Test
+    public void testConstantAndVariableProbability()
+    {
+        NumberGenerator<Probability> variable = new NumberGenerator<Probability>()
+        {
+            public Probability nextValue()
+            {
+                return Probability.EVENS;
+            }
+        };
+        StringMutation constantMutation = new StringMutation(alphabet, Probability.EVENS);
+        StringMutation variableMutation = new StringMutation(alphabet, variable);
+        List<String> population = Arrays.asList("abcd", "abab", "cccc", "dddd");
+        MersenneTwisterRNG rng = new MersenneTwisterRNG();
+        List<String> constantResult = constantMutation.apply(population, new MersenneTwisterRNG(rng.getSeed()));
+        List<String> variableResult = variableMutation.apply(population, new MersenneTwisterRNG(rng.getSeed()));
+        assert constantResult.equals(variableResult) : "Constant and variable probabilities gave different results.";
+    }
 }
@@ -74,6 +74,23 @@ public class TournamentSelectionTest
     }
 
 
+    /**
+     * When both candidates in a tournament have only bounded fitness scores, neither should
+     * be favoured, even if the fitter candidate is always supposed to win.
+     */
+    @Test
+    public void testBoundedCandidates()
+    {
+        SelectionStrategy<Object> selector = new TournamentSelection(Probability.ONE);
+        List<EvaluatedCandidate<String>> population = new ArrayList<EvaluatedCandidate<String>>(2);
+        population.add(new EvaluatedCandidate<String>("Steve", 10.0, true));
+        population.add(new EvaluatedCandidate<String>("Mary", 9.1, true));
+        List<String> selection = selector.select(population, true, 100, FrameworkTestUtils.getRNG());
+        assert selection.contains("Mary") : "Less fit bounded candidate should sometimes be selected.";
+        assert selection.contains("Steve") : "Fitter bounded candidate should sometimes be selected.";
+    }
+
+
 
     /**
      * The probability of selecting the fitter of two candidates must be greater than 0.5 to be